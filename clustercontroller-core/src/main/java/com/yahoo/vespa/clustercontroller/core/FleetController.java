@@ -188,7 +188,7 @@ public class FleetController implements NodeStateOrHostInfoChangeHandler, NodeAd
         DatabaseHandler database = new DatabaseHandler(timer, options.zooKeeperServerAddress, options.fleetControllerIndex, timer);
         NodeLookup lookUp = new SlobrokClient(timer);
         StateChangeHandler stateGenerator = new StateChangeHandler(timer, log, metricUpdater);
-        SystemStateBroadcaster stateBroadcaster = new SystemStateBroadcaster(timer, timer);
+        SystemStateBroadcaster stateBroadcaster = new SystemStateBroadcaster(timer, timer, metricUpdater);
         MasterElectionHandler masterElectionHandler = new MasterElectionHandler(options.fleetControllerIndex, options.fleetControllerCount, timer, timer);
         FleetController controller = new FleetController(
                 timer, log, cluster, stateGatherer, communicator, statusPageServer, rpcServer, lookUp, database, stateGenerator, stateBroadcaster, masterElectionHandler, metricUpdater, options);
@@ -551,6 +551,7 @@ public class FleetController implements NodeStateOrHostInfoChangeHandler, NodeAd
             if (masterElectionHandler.isMaster()) {
                 didWork |= broadcastClusterStateToEligibleNodes();
                 systemStateBroadcaster.checkIfClusterStateIsAckedByAllDistributors(database, databaseContext, this);
+                systemStateBroadcaster.checkIfClusterStateIsAckedByAllNodes(databaseContext);
             }
 
             if ( ! isRunning()) { return; }
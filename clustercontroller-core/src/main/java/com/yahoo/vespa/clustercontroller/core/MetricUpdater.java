@@ -80,6 +80,16 @@ public class MetricUpdater {
         }
     }
 
+    /** Sets the time it took from a cluster state was published until all nodes receiving it had acked it */
+    public void updateClusterStateConvergenceTime(long millis) {
+        metricReporter.set("cluster-state-convergence-time-ms", millis);
+    }
+
+    /** Sets the time it took from a cluster state was published until all distributors had acked it */
+    public void updateClusterStateDistributorsInSyncTime(long millis) {
+        metricReporter.set("cluster-state-distributors-in-sync-time-ms", millis);
+    }
+
     public void recordNewNodeEvent() {
         // TODO(hakonhall): Replace add() with a persistent aggregate metric.
         metricReporter.add("node-event", 1);
@@ -18,22 +18,28 @@ public class SystemStateBroadcaster {
 
     private final Timer timer;
     private final Object monitor;
+    private final MetricUpdater metricUpdater;
     private ClusterState systemState;
     private final List<SetClusterStateRequest> replies = new LinkedList<>();
 
     private final static long minTimeBetweenNodeErrorLogging = 10 * 60 * 1000;
     private final Map<Node, Long> lastErrorReported = new TreeMap<>();
     private int lastClusterStateInSync = 0;
+    private int lastClusterStateConverged = 0;
+    /** The time the current cluster state was first published, or 0 if it has not been */
+    private long publishedTime = 0;
 
     private final ClusterStateWaiter waiter = new ClusterStateWaiter();
 
-    public SystemStateBroadcaster(Timer timer, Object monitor) {
+    public SystemStateBroadcaster(Timer timer, Object monitor, MetricUpdater metricUpdater) {
         this.timer = timer;
         this.monitor = monitor;
+        this.metricUpdater = metricUpdater;
     }
 
     public void handleNewSystemState(ClusterState state) {
         systemState = state;
+        publishedTime = 0;
     }
 
     public ClusterState getClusterState() {
@@ -123,10 +129,26 @@ public class SystemStateBroadcaster {
         if (!anyOutdatedDistributorNodes && (systemState.getVersion() > lastClusterStateInSync)) {
             log.log(LogLevel.DEBUG, "All distributors have newest clusterstate, updating start timestamps in zookeeper and clearing them from cluster state");
             lastClusterStateInSync = systemState.getVersion();
+            if (publishedTime != 0)
+                metricUpdater.updateClusterStateDistributorsInSyncTime(timer.getCurrentTimeInMillis() - publishedTime);
             fleetController.handleAllDistributorsInSync(database, dbContext);
         }
     }
 
+    /**
+     * Checks if all nodes which should receive the most recent cluster state have ACKed it, and if so
+     * reports the time it took from the state was published until then.
+     */
+    void checkIfClusterStateIsAckedByAllNodes(DatabaseHandler.Context dbContext) {
+        if ((systemState == null) || publishedTime == 0 || (lastClusterStateConverged == systemState.getVersion())) {
+            return; // Nothing to do for the current state
+        }
+        if (dbContext.getCluster().getNodeInfo().stream().anyMatch(this::nodeNeedsClusterState)) return;
+
+        lastClusterStateConverged = systemState.getVersion();
+        metricUpdater.updateClusterStateConvergenceTime(timer.getCurrentTimeInMillis() - publishedTime);
+    }
+
     public boolean broadcastNewState(DatabaseHandler database,
                                      DatabaseHandler.Context dbContext,
                                      Communicator communicator,
@@ -137,6 +159,8 @@ public class SystemStateBroadcaster {
             log.log(LogLevel.INFO, String.format("Publishing cluster state version %d", systemState.getVersion()));
             systemState.setOfficial(true);
         }
+        if (publishedTime == 0)
+            publishedTime = timer.getCurrentTimeInMillis();
 
         List<NodeInfo> recipients = resolveStateVersionSendSet(dbContext);
         for (NodeInfo node : recipients) {
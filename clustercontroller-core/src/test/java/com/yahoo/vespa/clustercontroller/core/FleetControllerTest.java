@@ -158,7 +158,7 @@ public abstract class FleetControllerTest implements Waiter {
         RpcServer rpcServer = new RpcServer(timer, timer, options.clusterName, options.fleetControllerIndex, options.slobrokBackOffPolicy);
         DatabaseHandler database = new DatabaseHandler(timer, options.zooKeeperServerAddress, options.fleetControllerIndex, timer);
         StateChangeHandler stateGenerator = new StateChangeHandler(timer, log, metricUpdater);
-        SystemStateBroadcaster stateBroadcaster = new SystemStateBroadcaster(timer, timer);
+        SystemStateBroadcaster stateBroadcaster = new SystemStateBroadcaster(timer, timer, metricUpdater);
         MasterElectionHandler masterElectionHandler = new MasterElectionHandler(options.fleetControllerIndex, options.fleetControllerCount, timer, timer);
         FleetController controller = new FleetController(timer, log, cluster, stateGatherer, communicator, status, rpcServer, lookUp, database, stateGenerator, stateBroadcaster, masterElectionHandler, metricUpdater, options);
         if (startThread) {
@@ -48,7 +48,7 @@ public class StateChangeTest extends FleetControllerTest {
         NodeStateGatherer stateGatherer = new NodeStateGatherer(timer, timer, eventLog);
         DatabaseHandler database = new DatabaseHandler(timer, options.zooKeeperServerAddress, options.fleetControllerIndex, timer);
         StateChangeHandler stateGenerator = new StateChangeHandler(timer, eventLog, metricUpdater);
-        SystemStateBroadcaster stateBroadcaster = new SystemStateBroadcaster(timer, timer);
+        SystemStateBroadcaster stateBroadcaster = new SystemStateBroadcaster(timer, timer, metricUpdater);
         MasterElectionHandler masterElectionHandler = new MasterElectionHandler(options.fleetControllerIndex, options.fleetControllerCount, timer, timer);
         ctrl = new FleetController(timer, eventLog, cluster, stateGatherer, communicator, null, null, communicator, database, stateGenerator, stateBroadcaster, masterElectionHandler, metricUpdater, options);
 
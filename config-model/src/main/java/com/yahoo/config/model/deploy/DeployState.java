@@ -20,6 +20,7 @@ import com.yahoo.config.provision.Zone;
 import com.yahoo.io.reader.NamedReader;
 import com.yahoo.searchdefinition.RankProfileRegistry;
 import com.yahoo.searchdefinition.SearchBuilder;
+import com.yahoo.searchdefinition.derived.DerivedConfigurationCache;
 import com.yahoo.searchdefinition.parser.ParseException;
 import com.yahoo.vespa.config.ConfigDefinition;
 import com.yahoo.vespa.config.ConfigDefinitionBuilder;
@@ -69,6 +70,7 @@ public class DeployState implements ConfigDefinitionStore {
     private final Instant now;
     private final HostProvisioner provisioner;
     private final boolean disableFiledistributor;
+    private final DerivedConfigurationCache derivedConfigurationCache;
 
     public static DeployState createTestState() {
         return new Builder().build();
@@ -82,7 +84,8 @@ public class DeployState implements ConfigDefinitionStore {
                         FileRegistry fileRegistry, DeployLogger deployLogger, Optional<HostProvisioner> hostProvisioner, DeployProperties properties,
                         Optional<ApplicationPackage> permanentApplicationPackage, Optional<ConfigDefinitionRepo> configDefinitionRepo,
                         java.util.Optional<Model> previousModel, Set<Rotation> rotations, Zone zone, QueryProfiles queryProfiles,
-                        SemanticRules semanticRules, Instant now, Version wantedNodeVespaVersion, boolean disableFiledistributor) {
+                        SemanticRules semanticRules, Instant now, Version wantedNodeVespaVersion, boolean disableFiledistributor,
+                        DerivedConfigurationCache derivedConfigurationCache) {
         this.logger = deployLogger;
         this.fileRegistry = fileRegistry;
         this.rankProfileRegistry = rankProfileRegistry;
@@ -102,6 +105,7 @@ public class DeployState implements ConfigDefinitionStore {
         this.wantedNodeVespaVersion = wantedNodeVespaVersion;
         this.now = now;
         this.disableFiledistributor = disableFiledistributor;
+        this.derivedConfigurationCache = derivedConfigurationCache;
     }
 
     public static HostProvisioner getDefaultModelHostProvisioner(ApplicationPackage applicationPackage) {
@@ -217,6 +221,9 @@ public class DeployState implements ConfigDefinitionStore {
 
     public boolean disableFiledistributor() { return disableFiledistributor; }
 
+    /** Returns the cache of derived search configs of the model builder building this */
+    public DerivedConfigurationCache derivedConfigurationCache() { return derivedConfigurationCache; }
+
     public static class Builder {
 
         private ApplicationPackage applicationPackage = MockApplicationPackage.createEmpty();
@@ -232,6 +239,7 @@ public class DeployState implements ConfigDefinitionStore {
         private Instant now = Instant.now();
         private Version wantedNodeVespaVersion = Vtag.currentVersion;
         private boolean disableFiledistributor = false;
+        private DerivedConfigurationCache derivedConfigurationCache = new DerivedConfigurationCache();
 
         public Builder applicationPackage(ApplicationPackage applicationPackage) {
             this.applicationPackage = applicationPackage;
@@ -298,6 +306,12 @@ public class DeployState implements ConfigDefinitionStore {
             return this;
         }
 
+        /** Sets the cache to reuse derived search configs from, which must not be shared with other model versions */
+        public Builder derivedConfigurationCache(DerivedConfigurationCache derivedConfigurationCache) {
+            this.derivedConfigurationCache = derivedConfigurationCache;
+            return this;
+        }
+
         public DeployState build() {
             RankProfileRegistry rankProfileRegistry = new RankProfileRegistry();
             QueryProfiles queryProfiles = new QueryProfilesBuilder().build(applicationPackage);
@@ -305,7 +319,8 @@ public class DeployState implements ConfigDefinitionStore {
             SearchDocumentModel searchDocumentModel = createSearchDocumentModel(rankProfileRegistry, logger, queryProfiles);
             return new DeployState(applicationPackage, searchDocumentModel, rankProfileRegistry, fileRegistry, logger, hostProvisioner,
                                    properties, permanentApplicationPackage, configDefinitionRepo, previousModel, rotations,
-                                   zone, queryProfiles, semanticRules, now, wantedNodeVespaVersion, disableFiledistributor);
+                                   zone, queryProfiles, semanticRules, now, wantedNodeVespaVersion, disableFiledistributor,
+                                   derivedConfigurationCache);
         }
 
         private SearchDocumentModel createSearchDocumentModel(RankProfileRegistry rankProfileRegistry,
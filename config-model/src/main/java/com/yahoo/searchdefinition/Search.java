@@ -93,6 +93,9 @@ public class Search implements Serializable, ImmutableSearch {
 
     private ApplicationPackage sourceApplication;
 
+    /** A hash of everything this is built from, if known */
+    private Optional<String> contentHash = Optional.empty();
+
     /**
      * Creates a search definition which just holds a set of documents which should not (here, directly) be searchable
      */
@@ -269,6 +272,16 @@ public class Search implements Serializable, ImmutableSearch {
 
     public ApplicationPackage sourceApplication() { return sourceApplication; }
 
+    /**
+     * Returns a hash of all the input to deriving the rank profiles of this: The search definition sources of this
+     * and the searches it depends on, the other files of the search definitions directory and the query profiles.
+     * This is empty if any of these are not known. Searches with the same content hash have equal derived
+     * rank profiles when derived by the same version of the model code.
+     */
+    public Optional<String> contentHash() { return contentHash; }
+
+    void setContentHash(String contentHash) { this.contentHash = Optional.of(contentHash); }
+
     /**
      * Returns a field defined in this search definition or one if its documents. Fields in this search definition takes
      * precedence over document fields having the same name
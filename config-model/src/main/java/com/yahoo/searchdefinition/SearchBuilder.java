@@ -1,6 +1,8 @@
 // Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.searchdefinition;
 
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
 import com.yahoo.config.application.api.ApplicationPackage;
 import com.yahoo.config.application.api.DeployLogger;
 import com.yahoo.config.model.application.provider.BaseDeployLogger;
@@ -23,10 +25,18 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
 
 /**
  * Helper class for importing {@link Search} objects in an unambiguous way. The pattern for using this is to 1) Import
@@ -39,6 +49,8 @@ public class SearchBuilder {
 
     private final DocumentTypeManager docTypeMgr = new DocumentTypeManager();
     private List<Search> searchList = new LinkedList<>();
+    /** The source of each search imported from a string */
+    private final Map<String, String> sources = new HashMap<>();
     private ApplicationPackage app = null;
     private boolean isBuilt = false;
     private DocumentModel model = new DocumentModel();
@@ -156,7 +168,9 @@ public class SearchBuilder {
         } catch (ParseException pe) {
             throw new ParseException(stream.formatException(pe.getMessage()));
         }
-        return importRawSearch(search);
+        String name = importRawSearch(search);
+        sources.put(name, str);
+        return name;
     }
 
     /**
@@ -248,9 +262,105 @@ public class SearchBuilder {
             throw new IllegalArgumentException("Impossible to build a correct model.");
         }
         searchList = built;
+        setContentHashes(queryProfiles);
         isBuilt = true;
     }
 
+    /**
+     * Sets the content hash of each search whose source, and the sources of the searches it depends on, are known.
+     * The hash also covers the other files of the search definitions directory (such as ranking expression files)
+     * and the query profiles, so that it covers all the application input to deriving the rank profiles of the search.
+     * Nothing is set when these cannot be read from the application package.
+     */
+    private void setContentHashes(QueryProfiles queryProfiles) {
+        Optional<String> applicationHash = applicationHash(queryProfiles);
+        if ( ! applicationHash.isPresent()) return;
+
+        for (Search search : searchList) {
+            Map<String, String> searchSources = new TreeMap<>();
+            if ( ! addSources(search, searchSources)) continue;
+
+            Hasher hasher = Hashing.sha256().newHasher();
+            hasher.putString(applicationHash.get(), StandardCharsets.UTF_8);
+            hasher.putString(search.getName(), StandardCharsets.UTF_8);
+            for (Map.Entry<String, String> source : searchSources.entrySet()) {
+                hasher.putInt(source.getValue().length());
+                hasher.putString(source.getKey(), StandardCharsets.UTF_8);
+                hasher.putString(source.getValue(), StandardCharsets.UTF_8);
+            }
+            search.setContentHash(hasher.hash().toString());
+        }
+    }
+
+    /**
+     * Adds the sources of the given search and the searches it depends on, including those owning rank profiles
+     * inherited by its rank profiles. Returns false if any is not known.
+     */
+    private boolean addSources(Search search, Map<String, String> searchSources) {
+        if (searchSources.containsKey(search.getName())) return true;
+
+        String source = sources.get(search.getName());
+        if (source == null) return false;
+        searchSources.put(search.getName(), source);
+
+        // A rank profile may inherit a profile with the same name from any other search
+        for (RankProfile rankProfile : rankProfileRegistry.localRankProfiles(search)) {
+            Set<RankProfile> visited = new HashSet<>();
+            for (RankProfile inherited = rankProfile.getInherited();
+                 inherited != null && visited.add(inherited);
+                 inherited = inherited.getInherited()) {
+                if (inherited.getSearch() == null || ! addSources(inherited.getSearch(), searchSources)) return false;
+            }
+        }
+
+        if ( ! search.hasDocument()) return true;
+        for (SDDocumentType inherited : search.getDocument().getInheritedTypes()) {
+            if (inherited.getName().equals(SDDocumentType.VESPA_DOCUMENT.getName())) continue;
+            Optional<Search> inheritedSearch = searchList.stream()
+                    .filter(candidate -> candidate.hasDocument())
+                    .filter(candidate -> candidate.getDocument().getName().equals(inherited.getName()))
+                    .findFirst();
+            if ( ! inheritedSearch.isPresent() || ! addSources(inheritedSearch.get(), searchSources)) return false;
+        }
+        for (Map.Entry<String, DocumentReference> reference : search.getDocument().getDocumentReferences()
+                .map(DocumentReferences::referenceMap).orElse(Collections.emptyMap()).entrySet()) {
+            if ( ! addSources(reference.getValue().targetSearch(), searchSources)) return false;
+        }
+        return true;
+    }
+
+    /** Returns a hash of the application content which is used when deriving configs, or empty if it is not known */
+    private Optional<String> applicationHash(QueryProfiles queryProfiles) {
+        if (app == null) return Optional.empty();
+        try {
+            // Deriving rank profiles using models writes generated files to the application package
+            if (app.getFile(ApplicationPackage.MODELS_DIR).exists()) return Optional.empty();
+
+            List<String> files = new ArrayList<>();
+            for (NamedReader reader : app.getFiles(ApplicationPackage.SEARCH_DEFINITIONS_DIR, "", true)) {
+                try {
+                    if ( ! reader.getName().endsWith(ApplicationPackage.SD_NAME_SUFFIX))
+                        files.add(reader.getName() + "\n" + IOUtils.readAll(reader));
+                }
+                finally {
+                    IOUtils.closeReader(reader);
+                }
+            }
+            Collections.sort(files);
+
+            Hasher hasher = Hashing.sha256().newHasher();
+            for (String file : files) {
+                hasher.putInt(file.length());
+                hasher.putString(file, StandardCharsets.UTF_8);
+            }
+            hasher.putString(queryProfiles.getConfig().toString(), StandardCharsets.UTF_8);
+            return Optional.of(hasher.hash().toString());
+        }
+        catch (UnsupportedOperationException | IOException e) { // Not supported by e.g. test application packages
+            return Optional.empty();
+        }
+    }
+
     /**
      * Processes and returns the given {@link Search} object. This method has been factored out of the {@link
      * #build()} method so that subclasses can choose not to build anything.
@@ -16,6 +16,7 @@ import com.yahoo.searchdefinition.derived.validation.Validation;
 import java.io.IOException;
 import java.io.Writer;
 import java.util.List;
+import java.util.Optional;
 
 /**
  * A set of all derived configuration of a search definition. Use this as a facade to individual configurations when
@@ -67,6 +68,30 @@ public class DerivedConfiguration {
                                 DeployLogger deployLogger,
                                 RankProfileRegistry rankProfileRegistry,
                                 QueryProfileRegistry queryProfiles) {
+        this(search, abstractSearchList, deployLogger, rankProfileRegistry, queryProfiles, new DerivedConfigurationCache());
+    }
+
+    /**
+     * Creates a complete derived configuration snapshot from a search definition.
+     * If the search has a {@link Search#contentHash() content hash}, the rank profiles derived from an earlier search
+     * with the same hash are taken from the given cache.
+     *
+     * @param search             The search to derive a configuration from. Derived objects will be snapshots, but this
+     *                           argument is live. Which means that this object will be inconsistent when the given
+     *                           search definition is later modified.
+     * @param abstractSearchList Search definition this one inherits from, only superclass configuration should be
+     *                           generated. Null or empty list if there is none.
+     * @param deployLogger       a {@link DeployLogger} for logging when
+     *                           doing operations on this
+     * @param rankProfileRegistry a {@link com.yahoo.searchdefinition.RankProfileRegistry}
+     * @param queryProfiles      the query profiles of this application
+     * @param cache              the cache of rank profiles derived by the model builder creating this
+     */
+    public DerivedConfiguration(Search search, List<Search> abstractSearchList,
+                                DeployLogger deployLogger,
+                                RankProfileRegistry rankProfileRegistry,
+                                QueryProfileRegistry queryProfiles,
+                                DerivedConfigurationCache cache) {
         Validator.ensureNotNull("Search definition", search);
         if ( ! search.isProcessed()) {
             throw new IllegalArgumentException("Search '" + search.getName() + "' not processed.");
@@ -88,7 +113,7 @@ public class DerivedConfiguration {
             summaries = new Summaries(search, deployLogger);
             summaryMap = new SummaryMap(search, summaries);
             juniperrc = new Juniperrc(search);
-            rankProfileList = new RankProfileList(search, attributeFields, rankProfileRegistry, queryProfiles);
+            rankProfileList = deriveRankProfiles(search, cache, rankProfileRegistry, queryProfiles);
             indexingScript = new IndexingScript(search);
             indexInfo = new IndexInfo(search);
             indexSchema = new IndexSchema(search);
@@ -97,6 +122,18 @@ public class DerivedConfiguration {
         Validation.validate(this, search);
     }
 
+    private RankProfileList deriveRankProfiles(Search search, DerivedConfigurationCache cache,
+                                               RankProfileRegistry rankProfileRegistry,
+                                               QueryProfileRegistry queryProfiles) {
+        Optional<String> contentHash = search.contentHash();
+        Optional<RankProfileList> cached = contentHash.flatMap(cache::getRankProfiles);
+        if (cached.isPresent()) return cached.get();
+
+        RankProfileList rankProfiles = new RankProfileList(search, attributeFields, rankProfileRegistry, queryProfiles);
+        contentHash.ifPresent(hash -> cache.putRankProfiles(hash, rankProfiles));
+        return rankProfiles;
+    }
+
     /**
      * Exports a complete set of configuration-server format config files.
      *
@@ -0,0 +1,50 @@
+// Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.searchdefinition.derived;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * A bounded cache of derived rank profiles, keyed by the {@link com.yahoo.searchdefinition.Search#contentHash() content hash}
+ * of the search they are derived from. This lets repeated deployments of an application reuse the rank profiles
+ * derived from its unchanged search definitions, which are the most expensive configs to derive.
+ * <p>
+ * Only rank profiles are cached since they are pure output: They hold just names and config properties.
+ * The other derived configs refer to the search they are derived from, and caching them would keep
+ * the searches and application packages of earlier deployments alive.
+ * <p>
+ * Since the content hash does not cover the code deriving the configs, a cache must not be shared between
+ * model builders of different versions. Each model factory owns one instance.
+ *
+ * @author agent
+ */
+public class DerivedConfigurationCache {
+
+    private final Map<String, RankProfileList> entries;
+
+    /** Creates a cache keeping the rank profiles of a default number of searches */
+    public DerivedConfigurationCache() {
+        this(128);
+    }
+
+    public DerivedConfigurationCache(int maxSize) {
+        this.entries = new LinkedHashMap<String, RankProfileList>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, RankProfileList> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    synchronized Optional<RankProfileList> getRankProfiles(String contentHash) {
+        return Optional.ofNullable(entries.get(contentHash));
+    }
+
+    synchronized void putRankProfiles(String contentHash, RankProfileList rankProfiles) {
+        entries.put(contentHash, rankProfiles);
+    }
+
+    public synchronized int size() { return entries.size(); }
+
+}
@@ -0,0 +1,46 @@
+// Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.searchdefinition.derived;
+
+import com.yahoo.config.application.api.DeployLogger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+
+/**
+ * A deploy logger which records the messages logged to it, such that they can be replayed to another logger later.
+ *
+ * @author agent
+ */
+public class RecordingDeployLogger implements DeployLogger {
+
+    private final List<Message> messages = new ArrayList<>();
+
+    @Override
+    public synchronized void log(Level level, String message) {
+        messages.add(new Message(level, message));
+    }
+
+    /** Logs all the messages recorded by this, in order, to the given logger */
+    public void replayTo(DeployLogger logger) {
+        List<Message> recorded;
+        synchronized (this) {
+            recorded = new ArrayList<>(messages);
+        }
+        for (Message message : recorded)
+            logger.log(message.level, message.text);
+    }
+
+    private static class Message {
+
+        final Level level;
+        final String text;
+
+        Message(Level level, String text) {
+            this.level = level;
+            this.text = text;
+        }
+
+    }
+
+}
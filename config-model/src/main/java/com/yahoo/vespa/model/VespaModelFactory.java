@@ -20,6 +20,7 @@ import com.yahoo.config.model.deploy.DeployProperties;
 import com.yahoo.config.model.deploy.DeployState;
 import com.yahoo.config.provision.Version;
 import com.yahoo.config.provision.Zone;
+import com.yahoo.searchdefinition.derived.DerivedConfigurationCache;
 import com.yahoo.vespa.config.VespaVersion;
 import com.yahoo.vespa.model.application.validation.Validation;
 
@@ -43,6 +44,8 @@ public class VespaModelFactory implements ModelFactory {
     private final Zone zone;
     private final Clock clock;
     private final Version version;
+    /** Derived search configs of earlier models built by this, which are reusable since they are of the same version */
+    private final DerivedConfigurationCache derivedConfigurationCache = new DerivedConfigurationCache();
 
     /** Creates a factory for vespa models for this version of the source */
     @Inject
@@ -139,7 +142,8 @@ public class VespaModelFactory implements ModelFactory {
             .zone(zone)
             .now(clock.instant())
             .wantedNodeVespaVersion(modelContext.wantedNodeVespaVersion())
-            .disableFiledistributor(modelContext.properties().disableFileDistributor());
+            .disableFiledistributor(modelContext.properties().disableFileDistributor())
+            .derivedConfigurationCache(derivedConfigurationCache);
         modelContext.previousModel().ifPresent(builder::previousModel);
         return builder.build();
     }
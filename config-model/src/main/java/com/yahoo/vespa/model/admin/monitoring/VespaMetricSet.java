@@ -150,6 +150,7 @@ public class VespaMetricSet {
         metrics.add(new Metric("peak_qps.max", "peak_qps"));
         metrics.add(new Metric("search_connections.average", "search_connections"));
         metrics.add(new Metric("active_queries.average", "active_queries"));
+        metrics.add(new Metric("active_async_branches.average", "active_async_branches"));
         metrics.add(new Metric("feed.latency.average"));
         metrics.add(new Metric("queries.rate", "queries"));
         metrics.add(new Metric("query_latency.average", "mean_query_latency"));
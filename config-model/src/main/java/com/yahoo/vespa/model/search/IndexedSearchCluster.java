@@ -1,6 +1,8 @@
 // Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.vespa.model.search;
 
+import com.yahoo.concurrent.DaemonThreadFactory;
+import com.yahoo.config.model.deploy.DeployState;
 import com.yahoo.log.LogLevel;
 import com.yahoo.vespa.config.search.AttributesConfig;
 import com.yahoo.vespa.config.search.DispatchConfig;
@@ -11,6 +13,7 @@ import com.yahoo.prelude.fastsearch.DocumentdbInfoConfig;
 import com.yahoo.search.config.IndexInfoConfig;
 import com.yahoo.searchdefinition.UnproperSearch;
 import com.yahoo.searchdefinition.derived.DerivedConfiguration;
+import com.yahoo.searchdefinition.derived.RecordingDeployLogger;
 import com.yahoo.vespa.configdefinition.IlscriptsConfig;
 import com.yahoo.vespa.model.HostResource;
 import com.yahoo.vespa.model.SimpleConfigProducer;
@@ -23,6 +26,11 @@ import com.yahoo.vespa.model.content.SearchCoverage;
 import java.io.File;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
 import java.util.logging.Logger;
 
 /**
@@ -280,21 +288,80 @@ public abstract class IndexedSearchCluster extends SearchCluster
             }
         }
     }
+    /**
+     * Derives the configs of all the given searches. These are independent, so they are derived in parallel,
+     * in threads owned by this call rather than a shared pool, since derivation may take long.
+     */
     protected void deriveAllSearchDefinitions(List<SearchDefinitionSpec> localSearches,
                                               List<com.yahoo.searchdefinition.Search> globalSearches) {
+        List<SearchDefinitionSpec> specs = new ArrayList<>();
         for (SearchDefinitionSpec spec : localSearches) {
-            com.yahoo.searchdefinition.Search search = spec.getSearchDefinition().getSearch();
-            if ( ! (search instanceof UnproperSearch)) {
+            if ( ! (spec.getSearchDefinition().getSearch() instanceof UnproperSearch))
+                specs.add(spec);
+        }
+
+        ExecutorService executor = specs.size() > 1
+                                   ? Executors.newFixedThreadPool(Math.min(specs.size(), Runtime.getRuntime().availableProcessors()),
+                                                                  new DaemonThreadFactory("derive-search-configs-"))
+                                   : null;
+        try {
+            List<RecordingDeployLogger> logs = new ArrayList<>();
+            List<CompletableFuture<DerivedConfiguration>> derived = new ArrayList<>();
+            for (SearchDefinitionSpec spec : specs) {
+                RecordingDeployLogger log = new RecordingDeployLogger();
+                Supplier<DerivedConfiguration> derivation = () -> derive(spec, globalSearches, log);
+                logs.add(log);
+                derived.add(executor == null ? deriveNow(derivation) : CompletableFuture.supplyAsync(derivation, executor));
+            }
+
+            // Log and add in the given order, and fail with the first failure in that order
+            for (int i = 0; i < specs.size(); i++) {
+                DerivedConfiguration derivedConfiguration = join(derived.get(i));
+                logs.get(i).replayTo(deployLogger());
                 DocumentDatabase db = new DocumentDatabase(this,
-                                                           search.getName(),
-                                                           new DerivedConfiguration(search, globalSearches, deployLogger(),
-                                                                                    getRoot().getDeployState().rankProfileRegistry(),
-                                                                                    getRoot().getDeployState().getQueryProfiles().getRegistry()));
+                                                           specs.get(i).getSearchDefinition().getSearch().getName(),
+                                                           derivedConfiguration);
                 // TODO: remove explicit adding of user configs when the complete content model is built using builders.
-                db.mergeUserConfigs(spec.getUserConfigs());
+                db.mergeUserConfigs(specs.get(i).getUserConfigs());
                 documentDbs.add(db);
             }
         }
+        finally {
+            if (executor != null)
+                executor.shutdownNow();
+        }
+    }
+
+    private DerivedConfiguration derive(SearchDefinitionSpec spec,
+                                        List<com.yahoo.searchdefinition.Search> globalSearches,
+                                        RecordingDeployLogger log) {
+        DeployState deployState = getRoot().getDeployState();
+        return new DerivedConfiguration(spec.getSearchDefinition().getSearch(), globalSearches, log,
+                                        deployState.rankProfileRegistry(),
+                                        deployState.getQueryProfiles().getRegistry(),
+                                        deployState.derivedConfigurationCache());
+    }
+
+    private static CompletableFuture<DerivedConfiguration> deriveNow(Supplier<DerivedConfiguration> derivation) {
+        CompletableFuture<DerivedConfiguration> derived = new CompletableFuture<>();
+        try {
+            derived.complete(derivation.get());
+        }
+        catch (RuntimeException e) {
+            derived.completeExceptionally(e);
+        }
+        return derived;
+    }
+
+    private static DerivedConfiguration join(CompletableFuture<DerivedConfiguration> derived) {
+        try {
+            return derived.join();
+        }
+        catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException)e.getCause();
+            if (e.getCause() instanceof Error) throw (Error)e.getCause();
+            throw e;
+        }
     }
 
     public List<DocumentDatabase> getDocumentDbs() {
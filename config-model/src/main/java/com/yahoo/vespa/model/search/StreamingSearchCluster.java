@@ -94,7 +94,8 @@ public class StreamingSearchCluster extends SearchCluster implements
                                               List<com.yahoo.searchdefinition.Search> globalSearches) {
         this.sdConfig = new DerivedConfiguration(localSearch, globalSearches, deployLogger(),
                                                  getRoot().getDeployState().rankProfileRegistry(),
-                                                 getRoot().getDeployState().getQueryProfiles().getRegistry());
+                                                 getRoot().getDeployState().getQueryProfiles().getRegistry(),
+                                                 getRoot().getDeployState().derivedConfigurationCache());
     }
     @Override
     public DerivedConfiguration getSdConfig() {
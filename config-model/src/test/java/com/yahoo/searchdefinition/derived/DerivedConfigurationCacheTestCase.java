@@ -0,0 +1,137 @@
+// Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.searchdefinition.derived;
+
+import com.yahoo.config.model.application.provider.BaseDeployLogger;
+import com.yahoo.config.model.application.provider.FilesApplicationPackage;
+import com.yahoo.search.query.profile.QueryProfileRegistry;
+import com.yahoo.searchdefinition.RankProfileRegistry;
+import com.yahoo.searchdefinition.SearchBuilder;
+import com.yahoo.searchdefinition.parser.ParseException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+/**
+ * @author agent
+ */
+public class DerivedConfigurationCacheTestCase {
+
+    @Rule
+    public final TemporaryFolder applicationDir = new TemporaryFolder();
+
+    @Test
+    public void requireThatRankProfilesOfSearchesWithEqualContentAreReused() throws ParseException {
+        DerivedConfigurationCache cache = new DerivedConfigurationCache();
+        SearchBuilder first = build(parent("int"), child("summary"));
+        SearchBuilder second = build(parent("int"), child("summary"));
+
+        DerivedConfiguration firstDerived = derive(first, "child", cache);
+        DerivedConfiguration secondDerived = derive(second, "child", cache);
+
+        assertSame(firstDerived.getRankProfileList(), secondDerived.getRankProfileList());
+        assertNotSame("Configs referring to the search are derived again",
+                      firstDerived.getAttributeFields(), secondDerived.getAttributeFields());
+        assertSame(second.getSearch("child"), secondDerived.getSearch());
+        assertNotSame(firstDerived.getSearch(), secondDerived.getSearch());
+        assertEquals(1, cache.size());
+
+        DerivedConfiguration otherCacheDerived = derive(second, "child", new DerivedConfigurationCache());
+        assertNotSame(firstDerived.getRankProfileList(), otherCacheDerived.getRankProfileList());
+    }
+
+    @Test
+    public void requireThatSearchesAreDerivedAgainWhenTheyOrTheirDependenciesChange() throws ParseException {
+        SearchBuilder original = build(parent("int"), child("summary"));
+        SearchBuilder changedParent = build(parent("long"), child("summary"));
+        SearchBuilder changedChild = build(parent("int"), child("attribute | summary"));
+
+        String parentHash = original.getSearch("parent").contentHash().get();
+        String childHash = original.getSearch("child").contentHash().get();
+        assertNotEquals(parentHash, changedParent.getSearch("parent").contentHash().get());
+        assertNotEquals(childHash, changedParent.getSearch("child").contentHash().get());
+        assertEquals(parentHash, changedChild.getSearch("parent").contentHash().get());
+        assertNotEquals(childHash, changedChild.getSearch("child").contentHash().get());
+    }
+
+    @Test
+    public void requireThatSearchesAreDerivedAgainWhenRankProfilesTheyInheritFromOtherSearchesChange() throws ParseException {
+        SearchBuilder original = build(parent("int", "1"), inheriting());
+        SearchBuilder changedInherited = build(parent("int", "2"), inheriting());
+        assertNotEquals(original.getSearch("inheriting").contentHash().get(),
+                        changedInherited.getSearch("inheriting").contentHash().get());
+    }
+
+    @Test
+    public void requireThatSearchesWithoutKnownSourcesAreNotCached() throws ParseException {
+        SearchBuilder builder = new SearchBuilder();
+        builder.importString(parent("int"));
+        builder.build();
+        assertFalse(builder.getSearch("parent").contentHash().isPresent());
+    }
+
+    private SearchBuilder build(String ... searchDefinitions) throws ParseException {
+        SearchBuilder builder = new SearchBuilder(FilesApplicationPackage.fromFile(applicationDir.getRoot()),
+                                                  new RankProfileRegistry(), new QueryProfileRegistry());
+        for (String searchDefinition : searchDefinitions)
+            builder.importString(searchDefinition);
+        builder.build();
+        return builder;
+    }
+
+    private static DerivedConfiguration derive(SearchBuilder builder, String searchName, DerivedConfigurationCache cache) {
+        return new DerivedConfiguration(builder.getSearch(searchName), null, new BaseDeployLogger(),
+                                        builder.getRankProfileRegistry(), builder.getQueryProfileRegistry(), cache);
+    }
+
+    private static String parent(String fieldType) {
+        return parent(fieldType, "1");
+    }
+
+    private static String parent(String fieldType, String sharedFirstPhase) {
+        return "search parent {\n" +
+               "  document parent {\n" +
+               "    field value type " + fieldType + " {\n" +
+               "      indexing: attribute\n" +
+               "    }\n" +
+               "  }\n" +
+               "  rank-profile shared {\n" +
+               "    first-phase {\n" +
+               "      expression: " + sharedFirstPhase + "\n" +
+               "    }\n" +
+               "  }\n" +
+               "}";
+    }
+
+    private static String child(String titleIndexing) {
+        return "search child {\n" +
+               "  document child {\n" +
+               "    field parent_ref type reference<parent> {\n" +
+               "      indexing: attribute | summary\n" +
+               "    }\n" +
+               "    field title type string {\n" +
+               "      indexing: " + titleIndexing + "\n" +
+               "    }\n" +
+               "  }\n" +
+               "  import field parent_ref.value as parent_value {}\n" +
+               "}";
+    }
+
+    /** Returns a search which does not depend on the parent search, except through rank profile inheritance */
+    private static String inheriting() {
+        return "search inheriting {\n" +
+               "  document inheriting {\n" +
+               "    field value type int {\n" +
+               "      indexing: attribute\n" +
+               "    }\n" +
+               "  }\n" +
+               "  rank-profile inheriting inherits shared {}\n" +
+               "}";
+    }
+
+}
@@ -31,8 +31,9 @@ public class DeployHandlerLogger implements DeployLogger {
         this.app = app;
     }
 
+    /** Synchronized, as models for several versions may be built concurrently */
     @Override
-    public void log(Level level, String message) {
+    public synchronized void log(Level level, String message) {
         if ((level == LogLevel.FINE ||
              level == LogLevel.DEBUG ||
              level == LogLevel.SPAM) &&
@@ -17,7 +17,6 @@ import com.yahoo.vespa.config.Connection;
 import com.yahoo.vespa.config.ConnectionPool;
 import com.yahoo.vespa.config.JRTConnectionPool;
 import com.yahoo.vespa.config.server.ConfigServerSpec;
-import com.yahoo.vespa.filedistribution.CompressedFileReference;
 import com.yahoo.vespa.filedistribution.FileDownloader;
 import com.yahoo.vespa.filedistribution.FileReferenceData;
 import com.yahoo.vespa.filedistribution.FileReferenceDataBlob;
@@ -119,21 +118,17 @@ public class FileServer {
             log.warning(errorDescription + " for sending to '" + target.toString() + "'. " + e.toString());
         }
 
-        target.receive(fileData, new ReplayStatus(success ? 0 : 1, success ? "OK" : errorDescription));
-        fileData.close();
+        try {
+            target.receive(fileData, new ReplayStatus(success ? 0 : 1, success ? "OK" : errorDescription));
+        } finally {
+            fileData.close();
+        }
         log.log(LogLevel.DEBUG, "Done serving reference '" + reference.toString() + "' with file '" + file.getAbsolutePath() + "'");
     }
 
     private FileReferenceData readFileReferenceData(FileReference reference) throws IOException {
-        File file = root.getFile(reference);
-
-        if (file.isDirectory()) {
-            //TODO Here we should compress to file, but then we have to clean up too. Pending.
-            byte [] blob = CompressedFileReference.compress(file.getParentFile());
-            return new FileReferenceDataBlob(reference, file.getName(), FileReferenceData.Type.compressed, blob);
-        } else {
-            return new LazyFileReferenceData(reference, file.getName(), FileReferenceData.Type.file, file);
-        }
+        // Directories are compressed to a temporary file, which is deleted when the data is closed
+        return LazyFileReferenceData.fromFile(reference, root.getFile(reference), new File(System.getProperty("java.io.tmpdir")));
     }
     public void serveFile(Request request, Receiver receiver) {
         pullExecutor.execute(() -> serveFile(request.parameters().get(0).asString(), request, receiver));
@@ -2,6 +2,7 @@
 package com.yahoo.vespa.config.server.modelfactory;
 
 import com.yahoo.cloud.config.ConfigserverConfig;
+import com.yahoo.concurrent.ThreadFactoryFactory;
 import com.yahoo.config.application.api.ApplicationPackage;
 import com.yahoo.config.model.api.HostProvisioner;
 import com.yahoo.config.model.api.ModelContext;
@@ -22,6 +23,7 @@ import com.yahoo.vespa.config.server.http.InternalServerException;
 import com.yahoo.vespa.config.server.http.UnknownVespaVersionException;
 import com.yahoo.vespa.config.server.provision.StaticProvisioner;
 
+import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -30,6 +32,10 @@ import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
@@ -37,6 +43,9 @@ import java.util.stream.Collectors;
 /**
  * Responsible for building the right versions of application models for a given tenant and application generation.
  * Actual model building is implemented by subclasses because it differs in the prepare and activate phases.
+ * The newest version of a major is built first, as it decides the allocated hosts. The other versions of that major
+ * are then built concurrently, so subclasses must allow {@link #buildModelVersion} to be called from several threads.
+ * Only the newest version may allocate hosts: The older versions are given the hosts allocated by it.
  *
  * @author bratseth
  */
@@ -44,6 +53,11 @@ public abstract class ModelsBuilder<MODELRESULT extends ModelResult> {
 
     private static final Logger log = Logger.getLogger(ModelsBuilder.class.getName());
 
+    /** Builds older model versions, which are independent of each other, in parallel. Shared by all builders. */
+    private static final ExecutorService modelBuilderExecutor =
+            Executors.newFixedThreadPool(Math.max(2, Runtime.getRuntime().availableProcessors() / 2),
+                                         ThreadFactoryFactory.getDaemonThreadFactory("model-builder"));
+
     private final ModelFactoryRegistry modelFactoryRegistry;
 
     /** True if we are running in hosted mode */
@@ -121,13 +135,14 @@ public abstract class ModelsBuilder<MODELRESULT extends ModelResult> {
                                                 SettableOptional<AllocatedHosts> allocatedHosts,
                                                 Instant now) {
         Version latest = findLatest(versions);
-        // load latest application version
-        MODELRESULT latestModelVersion = buildModelVersion(modelFactoryRegistry.getFactory(latest), 
-                                                           applicationPackage, 
-                                                           applicationId, 
-                                                           wantedNodeVespaVersion, 
-                                                           allocatedHosts.asOptional(),
-                                                           now);
+        // load latest application version, which is the only one allowed to allocate hosts
+        MODELRESULT latestModelVersion = timedBuildModelVersion(latest,
+                                                                applicationPackage, 
+                                                                applicationId, 
+                                                                wantedNodeVespaVersion, 
+                                                                allocatedHosts.asOptional(),
+                                                                true,
+                                                                now);
         allocatedHosts.set(latestModelVersion.getModel().allocatedHosts()); // Update with additional clusters allocated
         
         if (latestModelVersion.getModel().skipOldConfigModels(now))
@@ -137,26 +152,74 @@ public abstract class ModelsBuilder<MODELRESULT extends ModelResult> {
         List<MODELRESULT> allApplicationVersions = new ArrayList<>();
         allApplicationVersions.add(latestModelVersion);
 
-        // TODO: We use the allocated hosts from the newest version when building older model versions.
-        // This is correct except for the case where an old model specifies a cluster which the new version
-        // does not. In that case we really want to extend the set of allocated hosts to include those of that
-        // cluster as well. To do that, create a new provisioner which uses static provisioning for known
-        // clusters and the node repository provisioner as fallback.
-        for (Version version : versions) {
-            if (version.equals(latest)) continue; // already loaded
-
-            MODELRESULT modelVersion = buildModelVersion(modelFactoryRegistry.getFactory(version),
-                                                         applicationPackage,
-                                                         applicationId,
-                                                         wantedNodeVespaVersion,
-                                                         allocatedHosts.asOptional(),
-                                                         now);
-            allocatedHosts.set(modelVersion.getModel().allocatedHosts()); // Update with additional clusters allocated
-            allApplicationVersions.add(modelVersion);
+        // Older versions are built concurrently with the hosts allocated by the latest version, and may not allocate
+        // more: Builds racing each other must not reserve hosts, and hosts of a cluster which only an older version
+        // specifies would not be kept when the latest version is deployed again anyway.
+        List<Version> oldVersions = versions.stream()
+                                            .filter(version -> ! version.equals(latest)) // already loaded
+                                            .sorted(Comparator.reverseOrder())
+                                            .collect(Collectors.toList());
+        Optional<AllocatedHosts> latestAllocatedHosts = allocatedHosts.asOptional();
+        List<Future<MODELRESULT>> oldModelVersions = new ArrayList<>();
+        for (Version version : oldVersions) {
+            oldModelVersions.add(modelBuilderExecutor.submit(() -> timedBuildModelVersion(version,
+                                                                                          applicationPackage,
+                                                                                          applicationId,
+                                                                                          wantedNodeVespaVersion,
+                                                                                          latestAllocatedHosts,
+                                                                                          false,
+                                                                                          now)));
+        }
+
+        // Wait for all builds, such that the error reported does not depend on which build fails first
+        RuntimeException failure = null;
+        for (Future<MODELRESULT> oldModelVersion : oldModelVersions) {
+            try {
+                allApplicationVersions.add(getModelResult(oldModelVersion));
+            }
+            catch (RuntimeException e) {
+                if (failure == null)
+                    failure = e;
+            }
         }
+        if (failure != null) throw failure;
         return allApplicationVersions;
     }
 
+    private MODELRESULT timedBuildModelVersion(Version version, ApplicationPackage applicationPackage,
+                                               ApplicationId applicationId,
+                                               com.yahoo.component.Version wantedNodeVespaVersion,
+                                               Optional<AllocatedHosts> allocatedHosts,
+                                               boolean mayAllocateHosts,
+                                               Instant now) {
+        Instant start = Instant.now();
+        MODELRESULT result = buildModelVersion(modelFactoryRegistry.getFactory(version),
+                                               applicationPackage,
+                                               applicationId,
+                                               wantedNodeVespaVersion,
+                                               allocatedHosts,
+                                               mayAllocateHosts,
+                                               now);
+        log.log(LogLevel.FINE, applicationId + ": Built model version " + version + " in " +
+                               Duration.between(start, Instant.now()).toMillis() + " ms");
+        return result;
+    }
+
+    private MODELRESULT getModelResult(Future<MODELRESULT> modelVersion) {
+        try {
+            return modelVersion.get();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while building models", e);
+        }
+        catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            if (e.getCause() instanceof Error) throw (Error) e.getCause();
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
     private Set<Version> filterByMajorVersion(int majorVersion, Set<Version> versions) {
         Set<Version> filteredVersions = versions.stream().filter(v -> v.getMajor() == majorVersion).collect(Collectors.toSet());
         if (filteredVersions.isEmpty())
@@ -170,10 +233,18 @@ public abstract class ModelsBuilder<MODELRESULT extends ModelResult> {
         return versionList.get(versionList.size() - 1);
     }
 
+    /**
+     * Builds a model version
+     *
+     * @param allocatedHosts the hosts allocated by the models built before this, if any
+     * @param mayAllocateHosts whether this model may allocate hosts in addition to the given ones,
+     *                         which is only the case for the newest version of a major
+     */
     protected abstract MODELRESULT buildModelVersion(ModelFactory modelFactory, ApplicationPackage applicationPackage,
                                                      ApplicationId applicationId, 
                                                      com.yahoo.component.Version wantedNodeVespaVersion,
                                                      Optional<AllocatedHosts> allocatedHosts,
+                                                     boolean mayAllocateHosts,
                                                      Instant now);
 
     protected ModelContext.Properties createModelContextProperties(ApplicationId applicationId,
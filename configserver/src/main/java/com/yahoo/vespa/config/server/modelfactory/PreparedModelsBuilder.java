@@ -83,6 +83,7 @@ public class PreparedModelsBuilder extends ModelsBuilder<PreparedModelsBuilder.P
                                                     ApplicationId applicationId, 
                                                     com.yahoo.component.Version wantedNodeVespaVersion,
                                                     Optional<AllocatedHosts> allocatedHosts,
+                                                    boolean mayAllocateHosts,
                                                     Instant now) {
         Version modelVersion = modelFactory.getVersion();
         log.log(LogLevel.DEBUG, "Building model " + modelVersion + " for " + applicationId);
@@ -92,7 +93,7 @@ public class PreparedModelsBuilder extends ModelsBuilder<PreparedModelsBuilder.P
                 properties.disableFileDistributor());
 
         // Use empty on non-hosted systems, use already allocated hosts if available, create connection to a host provisioner otherwise
-        Optional<HostProvisioner> hostProvisioner = createHostProvisioner(allocatedHosts);        
+        Optional<HostProvisioner> hostProvisioner = createHostProvisioner(allocatedHosts, mayAllocateHosts);
         Optional<Model> previousModel = currentActiveApplicationSet
                 .map(set -> set.getForVersionOrLatest(Optional.of(modelVersion), now).getModel());
         ModelContext modelContext = new ModelContextImpl(
@@ -117,15 +118,16 @@ public class PreparedModelsBuilder extends ModelsBuilder<PreparedModelsBuilder.P
 
     // This method is an excellent demonstration of what happens when one is too liberal with Optional   
     // -bratseth, who had to write the below  :-\
-    private Optional<HostProvisioner> createHostProvisioner(Optional<AllocatedHosts> allocatedHosts) {
+    private Optional<HostProvisioner> createHostProvisioner(Optional<AllocatedHosts> allocatedHosts, boolean mayAllocateHosts) {
         Optional<HostProvisioner> nodeRepositoryProvisioner = createNodeRepositoryProvisioner(properties);
         if ( ! allocatedHosts.isPresent()) return nodeRepositoryProvisioner;
         
         Optional<HostProvisioner> staticProvisioner = createStaticProvisioner(allocatedHosts);
         if ( ! staticProvisioner.isPresent()) return Optional.empty(); // Since we have hosts allocated this means we are on non-hosted
 
-        // The following option should not be possible, but since there is a right action for it we can take it
-        if ( ! nodeRepositoryProvisioner.isPresent())
+        // Models which may not allocate hosts get only the hosts already allocated.
+        // The missing node repository provisioner should not be possible, but since there is a right action for it we can take it
+        if ( ! mayAllocateHosts || ! nodeRepositoryProvisioner.isPresent())
             return Optional.of(new StaticProvisioner(allocatedHosts.get()));
             
         // Nodes are already allocated by a model and we should use them unless this model requests hosts from a
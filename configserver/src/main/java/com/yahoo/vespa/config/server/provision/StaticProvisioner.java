@@ -49,8 +49,12 @@ public class StaticProvisioner implements HostProvisioner {
                                          .collect(Collectors.toList());
         if ( ! hostsAlreadyAllocatedToCluster.isEmpty()) 
             return hostsAlreadyAllocatedToCluster;
-        else
+        else if (fallback != null)
             return fallback.prepare(cluster, capacity, groups, logger);
+        else
+            throw new IllegalArgumentException("No hosts are allocated to " + cluster + ": " +
+                                               "Clusters must be specified by the newest model version, " +
+                                               "as only that may allocate hosts");
     }
 
     private boolean matches(ClusterSpec nodeCluster, ClusterSpec requestedCluster) {
@@ -19,6 +19,8 @@ import org.apache.curator.framework.state.ConnectionState;
 import org.apache.curator.framework.state.ConnectionStateListener;
 import org.apache.zookeeper.KeeperException;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -182,9 +184,12 @@ public class Tenants implements ConnectionStateListener, PathChildrenCacheListen
         if (tenants.containsKey(tenantName)) return;
 
         try {
+            Instant start = Instant.now();
             Tenant tenant = TenantBuilder.create(globalComponentRegistry, tenantName).build();
             notifyNewTenant(tenant);
             tenants.putIfAbsent(tenantName, tenant);
+            log.log(LogLevel.FINE, "Created tenant '" + tenantName + "' in " +
+                                   Duration.between(start, Instant.now()).toMillis() + " ms");
         } catch (Exception e) {
             log.log(LogLevel.WARNING, "Error loading tenant '" + tenantName + "', skipping.", e);
         }
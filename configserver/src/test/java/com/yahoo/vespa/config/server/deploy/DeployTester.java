@@ -246,7 +246,7 @@ public class DeployTester {
         @Override
         public ModelCreateResult createAndValidateModel(ModelContext modelContext, boolean ignoreValidationErrors) {
             if ( ! ignoreValidationErrors)
-                throw new IllegalArgumentException("Validation fails");
+                throw new IllegalArgumentException("Validation fails for version " + version);
             return new ModelCreateResult(createModel(modelContext), Collections.emptyList());
         }
 
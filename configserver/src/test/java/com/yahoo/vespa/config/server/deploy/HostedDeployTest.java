@@ -64,6 +64,39 @@ public class HostedDeployTest {
         assertEquals(3, tester.getAllocatedHostsOf(app).getHosts().size());
     }
 
+    @Test
+    public void testDeployMultipleVersionsOfSameMajor() {
+        ManualClock clock = new ManualClock("2016-10-09T00:00:00");
+        List<ModelFactory> modelFactories = new ArrayList<>();
+        modelFactories.add(DeployTester.createModelFactory(Version.fromString("6.0.0"), clock));
+        modelFactories.add(DeployTester.createModelFactory(Version.fromString("6.1.0"), clock));
+        modelFactories.add(DeployTester.createModelFactory(Version.fromString("6.2.0"), clock));
+        modelFactories.add(DeployTester.createModelFactory(Version.fromString("6.3.0"), clock));
+        DeployTester tester = new DeployTester("src/test/apps/hosted/", modelFactories, createConfigserverConfig());
+        ApplicationId app = tester.deployApp("myApp", Instant.now());
+        assertEquals(3, tester.getAllocatedHostsOf(app).getHosts().size());
+    }
+
+    @Test
+    public void testFailureOfNewestFailingVersionIsReported() {
+        ManualClock clock = new ManualClock("2016-10-09T00:00:00");
+        List<ModelFactory> modelFactories = new ArrayList<>();
+        modelFactories.add(DeployTester.createFailingModelFactory(Version.fromString("6.0.0")));
+        modelFactories.add(DeployTester.createFailingModelFactory(Version.fromString("6.1.0")));
+        modelFactories.add(DeployTester.createModelFactory(Version.fromString("6.2.0"), clock));
+        DeployTester tester = new DeployTester("src/test/apps/hosted/", modelFactories, createConfigserverConfig());
+        try {
+            tester.deployApp("myApp", Instant.now());
+            fail("Expected deployment to fail");
+        }
+        catch (Exception e) {
+            Throwable cause = e;
+            while (cause.getCause() != null)
+                cause = cause.getCause();
+            assertEquals("Validation fails for version 6.1.0", cause.getMessage());
+        }
+    }
+
     @Test
     public void testRedeployAfterExpiredValidationOverride() throws InterruptedException, IOException {
         // Old version of model fails, but application disables loading old models until 2016-10-10, so deployment works
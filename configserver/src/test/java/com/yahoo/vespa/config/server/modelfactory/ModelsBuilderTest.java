@@ -0,0 +1,187 @@
+// Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespa.config.server.modelfactory;
+
+import com.yahoo.config.application.api.ApplicationPackage;
+import com.yahoo.config.model.api.Model;
+import com.yahoo.config.model.api.ModelContext;
+import com.yahoo.config.model.api.ModelCreateResult;
+import com.yahoo.config.model.api.ModelFactory;
+import com.yahoo.config.model.application.provider.FilesApplicationPackage;
+import com.yahoo.config.provision.AllocatedHosts;
+import com.yahoo.config.provision.ApplicationId;
+import com.yahoo.config.provision.HostSpec;
+import com.yahoo.config.provision.Version;
+import com.yahoo.lang.SettableOptional;
+import com.yahoo.vespa.config.server.ModelStub;
+import org.junit.Test;
+
+import java.io.File;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * @author agent
+ */
+public class ModelsBuilderTest {
+
+    private static final Version version0 = Version.fromString("6.0.0");
+    private static final Version version1 = Version.fromString("6.1.0");
+    private static final Version version2 = Version.fromString("6.2.0");
+
+    @Test
+    public void testOlderVersionsAreBuiltWithTheHostsOfTheLatestVersion() {
+        TestModelsBuilder builder = new TestModelsBuilder(Collections.emptyMap());
+        SettableOptional<AllocatedHosts> allocatedHosts = new SettableOptional<>();
+        List<TestResult> results = builder.build(allocatedHosts);
+
+        assertEquals(Arrays.asList(version2, version1, version0), versionsOf(results));
+        assertEquals(hosts(), results.get(0).builtWith);
+        assertEquals(hosts("host2"), results.get(1).builtWith);
+        assertEquals(hosts("host2"), results.get(2).builtWith);
+        assertEquals(hosts("host2"), hostnamesOf(allocatedHosts.get()));
+        for (Version version : Arrays.asList(version2, version1, version0))
+            assertEquals("Each version is built once", 1, builder.builds(version));
+        assertTrue("Only the latest version may allocate hosts", builder.mayAllocateHosts(version2));
+        assertFalse(builder.mayAllocateHosts(version1));
+        assertFalse(builder.mayAllocateHosts(version0));
+    }
+
+    @Test
+    public void testOlderVersionsCannotAllocateHosts() {
+        TestModelsBuilder builder = new TestModelsBuilder(Collections.singletonMap(version1, "host1"));
+        try {
+            builder.build(new SettableOptional<>());
+            fail("Expected 6.1 to fail as it needs a host not allocated by 6.2");
+        }
+        catch (IllegalArgumentException e) {
+            assertEquals("No hosts are allocated to host1", e.getCause().getMessage());
+        }
+        assertEquals("6.0 is still built", 1, builder.builds(version0));
+    }
+
+    private static List<Version> versionsOf(List<TestResult> results) {
+        return results.stream().map(result -> result.version).collect(Collectors.toList());
+    }
+
+    private static Set<String> hostnamesOf(AllocatedHosts allocatedHosts) {
+        return allocatedHosts.getHosts().stream().map(HostSpec::hostname).collect(Collectors.toSet());
+    }
+
+    private static Set<String> hosts(String ... hostnames) {
+        return new HashSet<>(Arrays.asList(hostnames));
+    }
+
+    /**
+     * Builds models which allocate the hosts they are given, or "host2" if none are given,
+     * plus the host given for their version, if any. Models which may not allocate hosts
+     * fail if they need a host they are not given.
+     */
+    private static class TestModelsBuilder extends ModelsBuilder<TestResult> {
+
+        private final Map<Version, String> addedHosts;
+        private final Map<Version, AtomicInteger> builds = new ConcurrentHashMap<>();
+        private final Map<Version, Boolean> mayAllocateHosts = new ConcurrentHashMap<>();
+
+        TestModelsBuilder(Map<Version, String> addedHosts) {
+            super(new ModelFactoryRegistry(Arrays.asList(new TestFactory(version0),
+                                                         new TestFactory(version1),
+                                                         new TestFactory(version2))),
+                  true);
+            this.addedHosts = addedHosts;
+        }
+
+        List<TestResult> build(SettableOptional<AllocatedHosts> allocatedHosts) {
+            ApplicationPackage applicationPackage = FilesApplicationPackage.fromFile(new File("src/test/apps/app"));
+            return buildModels(ApplicationId.defaultId(), com.yahoo.component.Version.fromString("6.2.0"),
+                               applicationPackage, allocatedHosts, Instant.now());
+        }
+
+        int builds(Version version) {
+            return builds.getOrDefault(version, new AtomicInteger()).get();
+        }
+
+        boolean mayAllocateHosts(Version version) {
+            return mayAllocateHosts.get(version);
+        }
+
+        @Override
+        protected TestResult buildModelVersion(ModelFactory modelFactory, ApplicationPackage applicationPackage,
+                                               ApplicationId applicationId,
+                                               com.yahoo.component.Version wantedNodeVespaVersion,
+                                               Optional<AllocatedHosts> allocatedHosts,
+                                               boolean mayAllocateHosts,
+                                               Instant now) {
+            Version version = modelFactory.getVersion();
+            builds.computeIfAbsent(version, v -> new AtomicInteger()).incrementAndGet();
+            this.mayAllocateHosts.put(version, mayAllocateHosts);
+            Set<String> given = allocatedHosts.map(ModelsBuilderTest::hostnamesOf).orElse(Collections.emptySet());
+            Set<String> allocated = new HashSet<>(given.isEmpty() ? hosts("host2") : given);
+            if (addedHosts.containsKey(version) && ! given.contains(addedHosts.get(version))) {
+                if ( ! mayAllocateHosts)
+                    throw new IllegalArgumentException("No hosts are allocated to " + addedHosts.get(version));
+                allocated.add(addedHosts.get(version));
+            }
+            return new TestResult(version, given, allocated);
+        }
+
+    }
+
+    private static class TestResult implements ModelResult {
+
+        final Version version;
+        final Set<String> builtWith;
+        private final Model model;
+
+        TestResult(Version version, Set<String> builtWith, Set<String> allocated) {
+            this.version = version;
+            this.builtWith = builtWith;
+            AllocatedHosts allocatedHosts = AllocatedHosts.withHosts(allocated.stream()
+                                                                              .map(hostname -> new HostSpec(hostname, Optional.empty()))
+                                                                              .collect(Collectors.toSet()));
+            this.model = new ModelStub() {
+                @Override
+                public AllocatedHosts allocatedHosts() { return allocatedHosts; }
+            };
+        }
+
+        @Override
+        public Model getModel() { return model; }
+
+    }
+
+    private static class TestFactory implements ModelFactory {
+
+        private final Version version;
+
+        TestFactory(Version version) {
+            this.version = version;
+        }
+
+        @Override
+        public Version getVersion() { return version; }
+
+        @Override
+        public Model createModel(ModelContext modelContext) { throw new UnsupportedOperationException(); }
+
+        @Override
+        public ModelCreateResult createAndValidateModel(ModelContext modelContext, boolean ignoreValidationErrors) {
+            throw new UnsupportedOperationException();
+        }
+
+    }
+
+}
@@ -32,4 +32,20 @@ public class AccessLog {
         }
     }
 
+    /** Returns the number of entries logged which are not yet written, summed over all the configured access logs */
+    public int queuedEntries() {
+        int queued = 0;
+        for (AccessLogInterface log : implementers.allComponents())
+            queued += log.queuedEntries();
+        return queued;
+    }
+
+    /** Returns the number of entries dropped since startup, summed over all the configured access logs */
+    public long droppedEntries() {
+        long dropped = 0;
+        for (AccessLogInterface log : implementers.allComponents())
+            dropped += log.droppedEntries();
+        return dropped;
+    }
+
 }
@@ -1,7 +1,6 @@
 // Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.container.logging;
 
-import com.yahoo.collections.ListMap;
 import org.apache.commons.lang.builder.ReflectionToStringBuilder;
 
 import javax.security.auth.x500.X500Principal;
@@ -15,6 +14,11 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 import java.util.function.Function;
 
 import static java.util.stream.Collectors.toMap;
@@ -29,7 +33,10 @@ import static java.util.stream.Collectors.toMap;
  * but the parameters should be different for each
  * invocation of the same method.</p>
  *
- * This class is thread-safe, but the inner class {@link AdInfo} is not.
+ * This class is thread-safe, but the inner class {@link AdInfo} is not. It takes no locks: each field is
+ * volatile, as an entry is typically populated by the threads handling a request and read by the thread
+ * writing the log, the single valued fields are assigned once by compare-and-set, and the fields holding
+ * multiple values are concurrent collections created on first use.
  *
  * @author tonytv
  * @author bakksjo
@@ -47,164 +54,204 @@ public class AccessLogEntry {
         M;
     }
 
-    // Sadly, there's no way to do compile-time validation of these field references.
-    private static final String[] FIELDS_EXCLUDED_FROM_TOSTRING = new String[] {
-            "monitor"
-    };
-
-    private final Object monitor = new Object();
-
-    private List<AdInfo> adInfos;
-    private String spaceID;
-
-    private String ipV4AddressInDotDecimalNotation;
-    private long timeStampMillis;
-    private long durationBetweenRequestResponseMillis;
-    private long numBytesReturned;
-    private URI uri;
-
-
-    private String remoteAddress;
-    private int remotePort;
-    private String peerAddress;
-    private int peerPort;
-
-    private CookieType cookieType;
-    private String cookie;
-    private String weekOfRegistration;
-    private String profile;
-    private String internationalInfo;
-    private String contentAttribute;
-    private String webfactsDigitalSignature;
-    private String errorMessage;
-    private String fileName;
-    private String userAgent;
-    private String referer;
-    private String user;
-    private HitCounts hitCounts;
-    private String requestExtra;
-    private String responseExtra;
-    private Boolean resultFromCache;
-    private String httpMethod;
-    private String httpVersion;
-    private String partner;
-    private String adRationale;
-    private String incrementSlotByOneRequest;
-    private String zDataIncrementSlotByOneRequest;
-    private String hostString;
-    private int statusCode;
-    private String scheme;
-    private int localPort;
-    private Principal principal;
-    private X500Principal sslPrincipal;
-    private String rawPath;
-    private String rawQuery;
-
-    private ListMap<String,String> keyValues=null;
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<AccessLogEntry, List> adInfosUpdater =
+            AtomicReferenceFieldUpdater.newUpdater(AccessLogEntry.class, List.class, "adInfos");
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<AccessLogEntry, Map> keyValuesUpdater =
+            AtomicReferenceFieldUpdater.newUpdater(AccessLogEntry.class, Map.class, "keyValues");
+    private static final AtomicReferenceFieldUpdater<AccessLogEntry, CookieType> cookieTypeUpdater =
+            AtomicReferenceFieldUpdater.newUpdater(AccessLogEntry.class, CookieType.class, "cookieType");
+    private static final AtomicReferenceFieldUpdater<AccessLogEntry, String> cookieUpdater =
+            AtomicReferenceFieldUpdater.newUpdater(AccessLogEntry.class, String.class, "cookie");
+    private static final AtomicReferenceFieldUpdater<AccessLogEntry, String> weekOfRegistrationUpdater =
+            AtomicReferenceFieldUpdater.newUpdater(AccessLogEntry.class, String.class, "weekOfRegistration");
+    private static final AtomicReferenceFieldUpdater<AccessLogEntry, String> profileUpdater =
+            AtomicReferenceFieldUpdater.newUpdater(AccessLogEntry.class, String.class, "profile");
+    private static final AtomicReferenceFieldUpdater<AccessLogEntry, String> internationalInfoUpdater =
+            AtomicReferenceFieldUpdater.newUpdater(AccessLogEntry.class, String.class, "internationalInfo");
+    private static final AtomicReferenceFieldUpdater<AccessLogEntry, String> contentAttributeUpdater =
+            AtomicReferenceFieldUpdater.newUpdater(AccessLogEntry.class, String.class, "contentAttribute");
+    private static final AtomicReferenceFieldUpdater<AccessLogEntry, String> spaceIDUpdater =
+            AtomicReferenceFieldUpdater.newUpdater(AccessLogEntry.class, String.class, "spaceID");
+    private static final AtomicReferenceFieldUpdater<AccessLogEntry, String> webfactsDigitalSignatureUpdater =
+            AtomicReferenceFieldUpdater.newUpdater(AccessLogEntry.class, String.class, "webfactsDigitalSignature");
+    private static final AtomicReferenceFieldUpdater<AccessLogEntry, String> errorMessageUpdater =
+            AtomicReferenceFieldUpdater.newUpdater(AccessLogEntry.class, String.class, "errorMessage");
+    private static final AtomicReferenceFieldUpdater<AccessLogEntry, String> fileNameUpdater =
+            AtomicReferenceFieldUpdater.newUpdater(AccessLogEntry.class, String.class, "fileName");
+    private static final AtomicReferenceFieldUpdater<AccessLogEntry, String> userAgentUpdater =
+            AtomicReferenceFieldUpdater.newUpdater(AccessLogEntry.class, String.class, "userAgent");
+    private static final AtomicReferenceFieldUpdater<AccessLogEntry, String> refererUpdater =
+            AtomicReferenceFieldUpdater.newUpdater(AccessLogEntry.class, String.class, "referer");
+    private static final AtomicReferenceFieldUpdater<AccessLogEntry, String> userUpdater =
+            AtomicReferenceFieldUpdater.newUpdater(AccessLogEntry.class, String.class, "user");
+    private static final AtomicReferenceFieldUpdater<AccessLogEntry, HitCounts> hitCountsUpdater =
+            AtomicReferenceFieldUpdater.newUpdater(AccessLogEntry.class, HitCounts.class, "hitCounts");
+    private static final AtomicReferenceFieldUpdater<AccessLogEntry, Boolean> resultFromCacheUpdater =
+            AtomicReferenceFieldUpdater.newUpdater(AccessLogEntry.class, Boolean.class, "resultFromCache");
+    private static final AtomicReferenceFieldUpdater<AccessLogEntry, String> httpMethodUpdater =
+            AtomicReferenceFieldUpdater.newUpdater(AccessLogEntry.class, String.class, "httpMethod");
+    private static final AtomicReferenceFieldUpdater<AccessLogEntry, String> httpVersionUpdater =
+            AtomicReferenceFieldUpdater.newUpdater(AccessLogEntry.class, String.class, "httpVersion");
+    private static final AtomicReferenceFieldUpdater<AccessLogEntry, String> partnerUpdater =
+            AtomicReferenceFieldUpdater.newUpdater(AccessLogEntry.class, String.class, "partner");
+    private static final AtomicReferenceFieldUpdater<AccessLogEntry, String> adRationaleUpdater =
+            AtomicReferenceFieldUpdater.newUpdater(AccessLogEntry.class, String.class, "adRationale");
+    private static final AtomicReferenceFieldUpdater<AccessLogEntry, String> incrementSlotByOneRequestUpdater =
+            AtomicReferenceFieldUpdater.newUpdater(AccessLogEntry.class, String.class, "incrementSlotByOneRequest");
+    private static final AtomicReferenceFieldUpdater<AccessLogEntry, String> zDataIncrementSlotByOneRequestUpdater =
+            AtomicReferenceFieldUpdater.newUpdater(AccessLogEntry.class, String.class, "zDataIncrementSlotByOneRequest");
+    private static final AtomicReferenceFieldUpdater<AccessLogEntry, String> hostStringUpdater =
+            AtomicReferenceFieldUpdater.newUpdater(AccessLogEntry.class, String.class, "hostString");
+    private static final AtomicReferenceFieldUpdater<AccessLogEntry, String> ipV4AddressInDotDecimalNotationUpdater =
+            AtomicReferenceFieldUpdater.newUpdater(AccessLogEntry.class, String.class, "ipV4AddressInDotDecimalNotation");
+    private static final AtomicLongFieldUpdater<AccessLogEntry> timeStampMillisUpdater =
+            AtomicLongFieldUpdater.newUpdater(AccessLogEntry.class, "timeStampMillis");
+    private static final AtomicLongFieldUpdater<AccessLogEntry> durationBetweenRequestResponseMillisUpdater =
+            AtomicLongFieldUpdater.newUpdater(AccessLogEntry.class, "durationBetweenRequestResponseMillis");
+    private static final AtomicLongFieldUpdater<AccessLogEntry> numBytesReturnedUpdater =
+            AtomicLongFieldUpdater.newUpdater(AccessLogEntry.class, "numBytesReturned");
+    private static final AtomicReferenceFieldUpdater<AccessLogEntry, URI> uriUpdater =
+            AtomicReferenceFieldUpdater.newUpdater(AccessLogEntry.class, URI.class, "uri");
+    private static final AtomicReferenceFieldUpdater<AccessLogEntry, String> remoteAddressUpdater =
+            AtomicReferenceFieldUpdater.newUpdater(AccessLogEntry.class, String.class, "remoteAddress");
+    private static final AtomicIntegerFieldUpdater<AccessLogEntry> remotePortUpdater =
+            AtomicIntegerFieldUpdater.newUpdater(AccessLogEntry.class, "remotePort");
+    private static final AtomicReferenceFieldUpdater<AccessLogEntry, String> peerAddressUpdater =
+            AtomicReferenceFieldUpdater.newUpdater(AccessLogEntry.class, String.class, "peerAddress");
+    private static final AtomicIntegerFieldUpdater<AccessLogEntry> peerPortUpdater =
+            AtomicIntegerFieldUpdater.newUpdater(AccessLogEntry.class, "peerPort");
+    private static final AtomicIntegerFieldUpdater<AccessLogEntry> statusCodeUpdater =
+            AtomicIntegerFieldUpdater.newUpdater(AccessLogEntry.class, "statusCode");
+    private static final AtomicReferenceFieldUpdater<AccessLogEntry, String> schemeUpdater =
+            AtomicReferenceFieldUpdater.newUpdater(AccessLogEntry.class, String.class, "scheme");
+    private static final AtomicIntegerFieldUpdater<AccessLogEntry> localPortUpdater =
+            AtomicIntegerFieldUpdater.newUpdater(AccessLogEntry.class, "localPort");
+    private static final AtomicReferenceFieldUpdater<AccessLogEntry, Principal> principalUpdater =
+            AtomicReferenceFieldUpdater.newUpdater(AccessLogEntry.class, Principal.class, "principal");
+    private static final AtomicReferenceFieldUpdater<AccessLogEntry, X500Principal> sslPrincipalUpdater =
+            AtomicReferenceFieldUpdater.newUpdater(AccessLogEntry.class, X500Principal.class, "sslPrincipal");
+    private static final AtomicReferenceFieldUpdater<AccessLogEntry, String> rawPathUpdater =
+            AtomicReferenceFieldUpdater.newUpdater(AccessLogEntry.class, String.class, "rawPath");
+    private static final AtomicReferenceFieldUpdater<AccessLogEntry, String> rawQueryUpdater =
+            AtomicReferenceFieldUpdater.newUpdater(AccessLogEntry.class, String.class, "rawQuery");
+
+    private volatile List<AdInfo> adInfos;
+    private volatile String spaceID;
+
+    private volatile String ipV4AddressInDotDecimalNotation;
+    private volatile long timeStampMillis;
+    private volatile long durationBetweenRequestResponseMillis;
+    private volatile long numBytesReturned;
+    private volatile URI uri;
+
+
+    private volatile String remoteAddress;
+    private volatile int remotePort;
+    private volatile String peerAddress;
+    private volatile int peerPort;
+
+    private volatile CookieType cookieType;
+    private volatile String cookie;
+    private volatile String weekOfRegistration;
+    private volatile String profile;
+    private volatile String internationalInfo;
+    private volatile String contentAttribute;
+    private volatile String webfactsDigitalSignature;
+    private volatile String errorMessage;
+    private volatile String fileName;
+    private volatile String userAgent;
+    private volatile String referer;
+    private volatile String user;
+    private volatile HitCounts hitCounts;
+    private volatile String requestExtra;
+    private volatile String responseExtra;
+    private volatile Boolean resultFromCache;
+    private volatile String httpMethod;
+    private volatile String httpVersion;
+    private volatile String partner;
+    private volatile String adRationale;
+    private volatile String incrementSlotByOneRequest;
+    private volatile String zDataIncrementSlotByOneRequest;
+    private volatile String hostString;
+    private volatile int statusCode;
+    private volatile String scheme;
+    private volatile int localPort;
+    private volatile Principal principal;
+    private volatile X500Principal sslPrincipal;
+    private volatile String rawPath;
+    private volatile String rawQuery;
+
+    private volatile Map<String, List<String>> keyValues = null;
 
     public void setCookie( CookieType type, String cookie) {
-        synchronized (monitor) {
-            requireNull(this.cookieType);
-            requireNull(this.cookie);
-            this.cookieType = type;
-            this.cookie = cookie;
-        }
+        setOnce(cookieTypeUpdater, type);
+        setOnce(cookieUpdater, cookie);
     }
 
     public CookieType getCookieType() {
-        synchronized (monitor) {
-            return cookieType;
-        }
+        return cookieType;
     }
 
     public String getCookie() {
-        synchronized (monitor) {
-            return cookie;
-        }
+        return cookie;
     }
 
     public void setWeekOfRegistration( String weekOfRegistration ) {
-        synchronized (monitor) {
-            requireNull(this.weekOfRegistration);
-            this.weekOfRegistration = weekOfRegistration;
-        }
+        setOnce(weekOfRegistrationUpdater, weekOfRegistration);
     }
 
     public String getWeekOfRegistration() {
-        synchronized (monitor) {
-            return weekOfRegistration;
-        }
+        return weekOfRegistration;
     }
 
     public void setProfile( String profile ) {
-        synchronized (monitor) {
-            requireNull(this.profile);
-            this.profile = profile;
-        }
+        setOnce(profileUpdater, profile);
     }
 
     public String getProfile() {
-        synchronized (monitor) {
-            return profile;
-        }
+        return profile;
     }
 
     public void setInternationalInfo( String intl ) {
-        synchronized (monitor) {
-            requireNull(this.internationalInfo);
-            this.internationalInfo = intl;
-        }
+        setOnce(internationalInfoUpdater, intl);
     }
 
     public String getInternationalInfo() {
-        synchronized (monitor) {
-            return internationalInfo;
-        }
+        return internationalInfo;
     }
 
     public void setContentAttribute( String contentAttribute ) {
-        synchronized (monitor) {
-            requireNull(this.contentAttribute);
-            this.contentAttribute = contentAttribute;
-        }
+        setOnce(contentAttributeUpdater, contentAttribute);
     }
 
     public String getContentAttribute() {
-        synchronized (monitor) {
-            return contentAttribute;
-        }
+        return contentAttribute;
     }
 
     public void setAdSpaceID(String spaceID) {
-        synchronized (monitor) {
-            requireNull(this.spaceID);
-            this.spaceID = spaceID;
-        }
+        setOnce(spaceIDUpdater, spaceID);
     }
 
     public String getAdSpaceID() {
-        synchronized (monitor) {
-            return spaceID;
-        }
+        return spaceID;
     }
 
     public void addAdInfo(AdInfo adInfo) {
-        synchronized (monitor) {
-            if (adInfos == null) {
-                adInfos = new ArrayList<>();
-            }
-            adInfos.add( adInfo );
+        if (adInfos == null) {
+            adInfosUpdater.compareAndSet(this, null, new CopyOnWriteArrayList<AdInfo>());
         }
+        adInfos.add( adInfo );
     }
 
     public List<AdInfo> getAdInfos() {
-        synchronized (monitor) {
-            if (adInfos == null) {
-                return Collections.emptyList();
-            }
-            // TODO: The returned list is unmodifiable, but its elements are not. But we're all friendly here, right?
-            return Collections.unmodifiableList(adInfos);
+        List<AdInfo> adInfos = this.adInfos;
+        if (adInfos == null) {
+            return Collections.emptyList();
         }
+        // TODO: The returned list is unmodifiable, but its elements are not. But we're all friendly here, right?
+        return Collections.unmodifiableList(adInfos);
     }
 
     /**
@@ -299,128 +346,86 @@ public class AccessLogEntry {
     }
 
     public void setWebfactsDigitalSignature(String signature) {
-        synchronized (monitor) {
-            requireNull(this.webfactsDigitalSignature);
-            this.webfactsDigitalSignature = signature;
-        }
+        setOnce(webfactsDigitalSignatureUpdater, signature);
     }
 
     public String getWebfactsDigitalSignature() {
-        synchronized (monitor) {
-            return webfactsDigitalSignature;
-        }
+        return webfactsDigitalSignature;
     }
 
     public void setErrorMessage(String errorMessage) {
-        synchronized (monitor) {
-            requireNull(this.errorMessage);
-            this.errorMessage = errorMessage;
-        }
+        setOnce(errorMessageUpdater, errorMessage);
     }
 
     public String getErrorMessage() {
-        synchronized (monitor) {
-            return errorMessage;
-        }
+        return errorMessage;
     }
 
     public void setFileName(String fileName) {
-        synchronized (monitor) {
-            requireNull(this.fileName);
-            this.fileName = fileName;
-        }
+        setOnce(fileNameUpdater, fileName);
     }
 
     public String getFileName() {
-        synchronized (monitor) {
-            return fileName;
-        }
+        return fileName;
     }
 
     public void setUserAgent(String userAgent) {
-        synchronized (monitor) {
-            requireNull(this.userAgent);
-            this.userAgent = userAgent;
-        }
+        setOnce(userAgentUpdater, userAgent);
     }
 
     public String getUserAgent() {
-        synchronized (monitor) {
-            return userAgent;
-        }
+        return userAgent;
     }
 
     public void setReferer(String referer) {
-        synchronized (monitor) {
-            requireNull(this.referer);
-            this.referer = referer;
-        }
+        setOnce(refererUpdater, referer);
     }
 
     public String getReferer() {
-        synchronized (monitor) {
-            return referer;
-        }
+        return referer;
     }
 
     public void setUser(final String user) {
-        synchronized (monitor) {
-            requireNull(this.user);
-            this.user = user;
-        }
+        setOnce(userUpdater, user);
     }
 
     public String getUser() {
-        synchronized (monitor) {
-            return user;
-        }
+        return user;
     }
 
     public void setHitCounts(final HitCounts hitCounts) {
-        synchronized (monitor) {
-            requireNull(this.hitCounts);
-            this.hitCounts = hitCounts;
-        }
+        setOnce(hitCountsUpdater, hitCounts);
     }
 
     public HitCounts getHitCounts() {
-        synchronized (monitor) {
-            return hitCounts;
-        }
+        return hitCounts;
     }
 
     public String getRequestExtra() {
-        synchronized (monitor) {
-            return requestExtra;
-        }
+        return requestExtra;
     }
 
     public String getResponseExtra() {
-        synchronized (monitor) {
-            return responseExtra;
-        }
+        return responseExtra;
     }
 
     public void addKeyValue(String key,String value) {
-        synchronized (monitor) {
-            if (keyValues == null) {
-                keyValues = new ListMap<>();
-            }
-            keyValues.put(key,value);
+        if (keyValues == null) {
+            keyValuesUpdater.compareAndSet(this, null, new ConcurrentHashMap<String, List<String>>());
         }
+        keyValues.computeIfAbsent(key, k -> new CopyOnWriteArrayList<>()).add(value);
     }
 
     public Map<String, List<String>> getKeyValues() {
-        synchronized (monitor) {
-            if (keyValues == null) {
-                return null;
-            }
-
-            final Map<String, List<String>> newMapWithImmutableValues = mapValues(
-                    keyValues.entrySet(),
-                    valueList -> Collections.unmodifiableList(new ArrayList<>(valueList)));
-            return Collections.unmodifiableMap(newMapWithImmutableValues);
+        Map<String, List<String>> keyValues = this.keyValues;
+        if (keyValues == null) {
+            return null;
         }
+
+        final Map<String, List<String>> newMapWithImmutableValues = mapValues(
+                keyValues.entrySet(),
+                valueList -> Collections.unmodifiableList(new ArrayList<>(valueList)));
+        return Collections.unmodifiableMap(newMapWithImmutableValues);
     }
 
     private static <K, V1, V2> Map<K, V2> mapValues(
@@ -433,16 +438,11 @@ public class AccessLogEntry {
     }
 
     public void setResultFromCache(boolean fromCache) {
-        synchronized (monitor) {
-            requireNull(this.resultFromCache);
-            this.resultFromCache = fromCache;
-        }
+        setOnce(resultFromCacheUpdater, fromCache);
     }
 
     public Boolean getResultFromCache() {
-        synchronized (monitor) {
-            return resultFromCache;
-        }
+        return resultFromCache;
     }
 
     public enum HttpMethod {
@@ -454,133 +454,83 @@ public class AccessLogEntry {
     }
 
     public void setHttpMethod(String method) {
-        synchronized (monitor) {
-            requireNull(this.httpMethod);
-            this.httpMethod = method;
-        }
+        setOnce(httpMethodUpdater, method);
     }
 
     public String getHttpMethod() {
-        synchronized (monitor) {
-            return httpMethod;
-        }
+        return httpMethod;
     }
 
     public void setHttpVersion(final String httpVersion) {
-        synchronized (monitor) {
-            requireNull(this.httpVersion);
-            this.httpVersion = httpVersion;
-        }
+        setOnce(httpVersionUpdater, httpVersion);
     }
 
     public String getHttpVersion() {
-        synchronized (monitor) {
-            return httpVersion;
-        }
+        return httpVersion;
     }
 
     public void setPartner(String partner) {
-        synchronized (monitor) {
-            requireNull(this.partner);
-            this.partner = partner;
-        }
+        setOnce(partnerUpdater, partner);
     }
 
     public String getPartner() {
-        synchronized (monitor) {
-            return partner;
-        }
+        return partner;
     }
 
     public void setAdRationale(String adRationale) {
-        synchronized (monitor) {
-            requireNull(this.adRationale);
-            this.adRationale = adRationale;
-        }
+        setOnce(adRationaleUpdater, adRationale);
     }
 
     public String getAdRationale() {
-        synchronized (monitor) {
-            return adRationale;
-        }
+        return adRationale;
     }
 
     public void setIncrementSlotByOneRequest(String slotName) {
-        synchronized (monitor) {
-            requireNull(this.incrementSlotByOneRequest);
-            this.incrementSlotByOneRequest = slotName;
-        }
+        setOnce(incrementSlotByOneRequestUpdater, slotName);
     }
 
     public String getIncrementSlotByOneRequest() {
-        synchronized (monitor) {
-            return incrementSlotByOneRequest;
-        }
+        return incrementSlotByOneRequest;
     }
 
     public void setZDataIncrementSlotByOneRequest(String slotName) {
-        synchronized (monitor) {
-            requireNull(this.zDataIncrementSlotByOneRequest);
-            this.zDataIncrementSlotByOneRequest = slotName;
-        }
+        setOnce(zDataIncrementSlotByOneRequestUpdater, slotName);
     }
 
     public String getZDataIncrementSlotByOneRequest() {
-        synchronized (monitor) {
-            return zDataIncrementSlotByOneRequest;
-        }
+        return zDataIncrementSlotByOneRequest;
     }
 
     public void setHostString(String hostString) {
-        synchronized (monitor) {
-            requireNull(this.hostString);
-            this.hostString = hostString;
-        }
+        setOnce(hostStringUpdater, hostString);
     }
 
     public String getHostString() {
-        synchronized (monitor) {
-            return hostString;
-        }
+        return hostString;
     }
 
     public void setIpV4Address(String ipV4AddressInDotDecimalNotation) {
-        synchronized (monitor) {
-            requireNull(this.ipV4AddressInDotDecimalNotation);
-            this.ipV4AddressInDotDecimalNotation = ipV4AddressInDotDecimalNotation;
-        }
+        setOnce(ipV4AddressInDotDecimalNotationUpdater, ipV4AddressInDotDecimalNotation);
     }
 
     public String getIpV4Address() {
-        synchronized (monitor) {
-            return ipV4AddressInDotDecimalNotation;
-        }
+        return ipV4AddressInDotDecimalNotation;
     }
 
     public void setTimeStamp(long numMillisSince1Jan1970AtMidnightUTC) {
-        synchronized (monitor) {
-            requireZero(this.timeStampMillis);
-            timeStampMillis = numMillisSince1Jan1970AtMidnightUTC;
-        }
+        setOnce(timeStampMillisUpdater, numMillisSince1Jan1970AtMidnightUTC);
     }
 
     public long getTimeStampMillis() {
-        synchronized (monitor) {
-            return timeStampMillis;
-        }
+        return timeStampMillis;
     }
 
     public void setDurationBetweenRequestResponse(long timeInMillis) {
-        synchronized (monitor) {
-            requireZero(this.durationBetweenRequestResponseMillis);
-            durationBetweenRequestResponseMillis = timeInMillis;
-        }
+        setOnce(durationBetweenRequestResponseMillisUpdater, timeInMillis);
     }
 
     public long getDurationBetweenRequestResponseMillis() {
-        synchronized (monitor) {
-            return durationBetweenRequestResponseMillis;
-        }
+        return durationBetweenRequestResponseMillis;
     }
 
     public void setReturnedContentSize(int byteCount) {
@@ -588,16 +538,11 @@ public class AccessLogEntry {
     }
 
     public void setReturnedContentSize(long byteCount) {
-        synchronized (monitor) {
-            requireZero(this.numBytesReturned);
-            numBytesReturned = byteCount;
-        }
+        setOnce(numBytesReturnedUpdater, byteCount);
     }
 
     public long getReturnedContentSize() {
-        synchronized (monitor) {
-            return numBytesReturned;
-        }
+        return numBytesReturned;
     }
 
     /**
@@ -605,10 +550,7 @@ public class AccessLogEntry {
      */
     @Deprecated
     public void setURI(final URI uri) {
-        synchronized (monitor) {
-            requireNull(this.uri);
-            this.uri = uri;
-        }
+        setOnce(uriUpdater, uri);
     }
 
     /**
@@ -616,16 +558,11 @@ public class AccessLogEntry {
      */
     @Deprecated
     public URI getURI() {
-        synchronized (monitor) {
-            return uri;
-        }
+        return uri;
     }
 
     public void setRemoteAddress(String remoteAddress) {
-        synchronized (monitor) {
-            requireNull(this.remoteAddress);
-            this.remoteAddress = remoteAddress;
-        }
+        setOnce(remoteAddressUpdater, remoteAddress);
     }
 
     public void setRemoteAddress(final InetSocketAddress remoteAddress) {
@@ -641,165 +578,109 @@ public class AccessLogEntry {
     }
 
     public String getRemoteAddress() {
-        synchronized (monitor) {
-            return remoteAddress;
-        }
+        return remoteAddress;
     }
 
     public void setRemotePort(int remotePort) {
-        synchronized (monitor) {
-            requireZero(this.remotePort);
-            this.remotePort = remotePort;
-        }
+        setOnce(remotePortUpdater, remotePort);
     }
 
     public int getRemotePort() {
-        synchronized (monitor) {
-            return remotePort;
-        }
+        return remotePort;
     }
 
     public void setPeerAddress(final String peerAddress) {
-        synchronized (monitor) {
-            requireNull(this.peerAddress);
-            this.peerAddress = peerAddress;
-        }
+        setOnce(peerAddressUpdater, peerAddress);
     }
 
     public void setPeerPort(int peerPort) {
-        synchronized (monitor) {
-            requireZero(this.peerPort);
-            this.peerPort = peerPort;
-        }
+        setOnce(peerPortUpdater, peerPort);
     }
 
     public int getPeerPort() {
-        synchronized (monitor) {
-            return peerPort;
-        }
+        return peerPort;
     }
 
     public String getPeerAddress() {
-        synchronized (monitor) {
-            return peerAddress;
-        }
+        return peerAddress;
     }
 
     public void setStatusCode(int statusCode) {
-        synchronized (monitor) {
-            requireZero(this.statusCode);
-            this.statusCode = statusCode;
-        }
+        setOnce(statusCodeUpdater, statusCode);
     }
 
     public int getStatusCode() {
-        synchronized (monitor) {
-            return statusCode;
-        }
+        return statusCode;
     }
 
     public String getScheme() {
-        synchronized (monitor) {
-            return scheme;
-        }
+        return scheme;
     }
 
     public void setScheme(String scheme) {
-        synchronized (monitor) {
-            requireNull(this.scheme);
-            this.scheme = scheme;
-        }
+        setOnce(schemeUpdater, scheme);
     }
 
     public int getLocalPort() {
-        synchronized (monitor) {
-            return localPort;
-        }
+        return localPort;
     }
 
     public void setLocalPort(int localPort) {
-        synchronized (monitor) {
-            requireZero(this.localPort);
-            this.localPort = localPort;
-        }
+        setOnce(localPortUpdater, localPort);
     }
 
     public Principal getUserPrincipal() {
-        synchronized (monitor) {
-            return principal;
-        }
+        return principal;
     }
 
     public void setUserPrincipal(Principal principal) {
-        synchronized (monitor) {
-            requireNull(this.principal);
-            this.principal = principal;
-        }
+        setOnce(principalUpdater, principal);
     }
 
     public Principal getSslPrincipal() {
-        synchronized (monitor) {
-            return sslPrincipal;
-        }
+        return sslPrincipal;
     }
 
     public void setSslPrincipal(X500Principal sslPrincipal) {
-        synchronized (monitor) {
-            requireNull(this.sslPrincipal);
-            this.sslPrincipal = sslPrincipal;
-        }
+        setOnce(sslPrincipalUpdater, sslPrincipal);
     }
 
     public void setRawPath(String rawPath) {
-        synchronized (monitor) {
-            requireNull(this.rawPath);
-            this.rawPath = rawPath;
-        }
+        setOnce(rawPathUpdater, rawPath);
     }
 
     public String getRawPath() {
-        synchronized (monitor) {
-            return rawPath;
-        }
+        return rawPath;
     }
 
     public void setRawQuery(String rawQuery) {
-        synchronized (monitor) {
-            requireNull(this.rawQuery);
-            this.rawQuery = rawQuery;
-        }
+        setOnce(rawQueryUpdater, rawQuery);
     }
 
     public Optional<String> getRawQuery() {
-        synchronized (monitor) {
-            return Optional.ofNullable(rawQuery);
-        }
+        return Optional.ofNullable(rawQuery);
     }
 
     @Override
     public String toString() {
-        synchronized (monitor) {
-            return new ReflectionToStringBuilder(this)
-                    .setExcludeFieldNames(FIELDS_EXCLUDED_FROM_TOSTRING)
-                    .toString();
-        }
+        return new ReflectionToStringBuilder(this).toString();
     }
 
-    private static void requireNull(final Object value) {
-        if (value != null) {
-            throw new IllegalStateException("Attempt to overwrite field that has been assigned. Value: " + value);
+    private <T> void setOnce(AtomicReferenceFieldUpdater<AccessLogEntry, T> field, T value) {
+        if ( ! field.compareAndSet(this, null, value)) {
+            throw new IllegalStateException("Attempt to overwrite field that has been assigned. Value: " + field.get(this));
         }
     }
 
-    private static void requireZero(final long value) {
-        if (value != 0) {
-            throw new IllegalStateException("Attempt to overwrite field that has been assigned. Value: " + value);
+    private void setOnce(AtomicLongFieldUpdater<AccessLogEntry> field, long value) {
+        if ( ! field.compareAndSet(this, 0, value)) {
+            throw new IllegalStateException("Attempt to overwrite field that has been assigned. Value: " + field.get(this));
         }
     }
 
-    private static void requireZero(final int value) {
-        if (value != 0) {
-            throw new IllegalStateException("Attempt to overwrite field that has been assigned. Value: " + value);
+    private void setOnce(AtomicIntegerFieldUpdater<AccessLogEntry> field, int value) {
+        if ( ! field.compareAndSet(this, 0, value)) {
+            throw new IllegalStateException("Attempt to overwrite field that has been assigned. Value: " + field.get(this));
         }
     }
 
@@ -18,7 +18,7 @@ class AccessLogHandler {
     public AccessLogHandler(AccessLogConfig.FileHandler config) {
         access.setUseParentHandlers(false);
 
-        logFileHandler = new LogFileHandler(config.rotateScheme());
+        logFileHandler = new LogFileHandler(config.rotateScheme(), config.compressOnRotation(), config.queueSize());
 
         logFileHandler.setFilePattern(config.pattern());
         logFileHandler.setRotationTimes(config.rotation());
@@ -38,12 +38,26 @@ class AccessLogHandler {
             handler.setSymlinkName(config.symlink());
     }
 
+    /** Queues the given entry to be written by the given writer, bypassing the logger */
+    <LOGTYPE> void log(LOGTYPE entry, LogWriter<LOGTYPE> writer) {
+        logFileHandler.publish(entry, writer);
+    }
+
     public void shutdown() {
-        logFileHandler.close();
         access.removeHandler(logFileHandler);
 
-        if (logFileHandler!=null)
+        if (logFileHandler!=null) {
             logFileHandler.shutdown();
+            logFileHandler.close();
+        }
+    }
+
+    int queuedEntries() {
+        return logFileHandler.getQueuedEntries();
+    }
+
+    long droppedEntries() {
+        return logFileHandler.getDroppedEntries();
     }
 
     void rotateNow() {
@@ -5,5 +5,13 @@ package com.yahoo.container.logging;
  * @author tonytv
  */
 public interface AccessLogInterface {
+
     void log(AccessLogEntry accessLogEntry);
+
+    /** Returns the number of entries logged to this which are not yet written */
+    default int queuedEntries() { return 0; }
+
+    /** Returns the number of entries logged to this which were dropped because they could not be written fast enough */
+    default long droppedEntries() { return 0; }
+
 }
@@ -3,7 +3,9 @@ package com.yahoo.container.logging;
 
 import com.yahoo.container.core.AccessLogConfig;
 
-import java.util.logging.Level;
+import java.io.IOException;
+import java.io.OutputStream;
+
 
 /**
  * Log a message in Vespa JSON access log format.
@@ -13,6 +15,16 @@ import java.util.logging.Level;
  */
 public final class JSONAccessLog implements  AccessLogInterface {
 
+    /** Writes entries as JSON lines straight into the buffered stream of the log file, on the log thread */
+    private static final LogWriter<AccessLogEntry> writer = new LogWriter<AccessLogEntry>() {
+        private final JSONFormatter formatter = new JSONFormatter();
+        @Override
+        public void write(AccessLogEntry entry, OutputStream outputStream) throws IOException {
+            formatter.write(entry, outputStream);
+            outputStream.write('\n');
+        }
+    };
+
     private final AccessLogHandler logHandler;
 
     public JSONAccessLog(AccessLogConfig config) {
@@ -21,7 +33,7 @@ public final class JSONAccessLog implements  AccessLogInterface {
 
     @Override
     public void log(AccessLogEntry logEntry) {
-        logHandler.access.log(Level.INFO, new JSONFormatter(logEntry).format() + '\n');
+        logHandler.log(logEntry, writer);
     }
 
     // TODO: This is never called. We should have a DI provider and call this method from its deconstruct.
@@ -33,4 +45,14 @@ public final class JSONAccessLog implements  AccessLogInterface {
         logHandler.rotateNow();
     }
 
+    @Override
+    public int queuedEntries() {
+        return logHandler.queuedEntries();
+    }
+
+    @Override
+    public long droppedEntries() {
+        return logHandler.droppedEntries();
+    }
+
 }
@@ -8,6 +8,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.security.Principal;
@@ -22,17 +23,27 @@ import java.util.logging.Logger;
  *
  * @author frodelu
  */
-public class JSONFormatter {
+public class JSONFormatter implements LogWriter<AccessLogEntry> {
 
-    private AccessLogEntry accessLogEntry;
-    private final JsonFactory generatorFactory;
+    /**
+     * Shared by all formatters, as creating a factory is costly. Generators leave the stream they write to
+     * open and unflushed, so entries may be written directly to the buffered stream of a log file.
+     */
+    private static final JsonFactory generatorFactory = new JsonFactory(new ObjectMapper())
+            .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+            .disable(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM);
+
+    private final AccessLogEntry accessLogEntry;
 
     private static Logger logger = Logger.getLogger(JSONFormatter.class.getName());
 
+    /** Creates a formatter which writes the entries given to {@link #write} */
+    public JSONFormatter() {
+        this(null);
+    }
+
     public JSONFormatter(final AccessLogEntry entry) {
         accessLogEntry = entry;
-        generatorFactory = new JsonFactory();
-        generatorFactory.setCodec(new ObjectMapper());
     }
 
     /**
@@ -43,86 +54,90 @@ public class JSONFormatter {
     public String format() {
         ByteArrayOutputStream logLine = new ByteArrayOutputStream();
         try {
-            JsonGenerator generator = generatorFactory.createGenerator(logLine, JsonEncoding.UTF8);
-            generator.writeStartObject();
-            generator.writeStringField("ip", accessLogEntry.getIpV4Address());
-            generator.writeNumberField("time", toTimestampInSeconds(accessLogEntry.getTimeStampMillis()));
-            generator.writeNumberField("duration",
-                                       durationAsSeconds(accessLogEntry.getDurationBetweenRequestResponseMillis()));
-            generator.writeNumberField("responsesize", accessLogEntry.getReturnedContentSize());
-            generator.writeNumberField("code", accessLogEntry.getStatusCode());
-            generator.writeStringField("method", accessLogEntry.getHttpMethod());
-            generator.writeStringField("uri", getNormalizedURI(accessLogEntry.getRawPath(), accessLogEntry.getRawQuery().orElse(null)));
-            generator.writeStringField("version", accessLogEntry.getHttpVersion());
-            generator.writeStringField("agent", accessLogEntry.getUserAgent());
-            generator.writeStringField("host", accessLogEntry.getHostString());
-            generator.writeStringField("scheme", accessLogEntry.getScheme());
-            generator.writeNumberField("localport", accessLogEntry.getLocalPort());
-
-            Principal principal = accessLogEntry.getUserPrincipal();
-            if (principal != null) {
-                generator.writeStringField("user-principal", principal.getName());
-            }
+            write(accessLogEntry, logLine);
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Unable to generate JSON access log entry: " + e.getMessage());
+        }
+        return logLine.toString();
+    }
 
-            Principal sslPrincipal = accessLogEntry.getSslPrincipal();
-            if (sslPrincipal != null) {
-                generator.writeStringField("ssl-principal", sslPrincipal.getName());
-            }
+    /** Writes the given entry as a Vespa JSON access log line, without trailing newline, to the given stream */
+    @Override
+    public void write(AccessLogEntry accessLogEntry, OutputStream outputStream) throws IOException {
+        JsonGenerator generator = generatorFactory.createGenerator(outputStream, JsonEncoding.UTF8);
+        generator.writeStartObject();
+        generator.writeStringField("ip", accessLogEntry.getIpV4Address());
+        generator.writeNumberField("time", toTimestampInSeconds(accessLogEntry.getTimeStampMillis()));
+        generator.writeNumberField("duration",
+                                   durationAsSeconds(accessLogEntry.getDurationBetweenRequestResponseMillis()));
+        generator.writeNumberField("responsesize", accessLogEntry.getReturnedContentSize());
+        generator.writeNumberField("code", accessLogEntry.getStatusCode());
+        generator.writeStringField("method", accessLogEntry.getHttpMethod());
+        generator.writeStringField("uri", getNormalizedURI(accessLogEntry.getRawPath(), accessLogEntry.getRawQuery().orElse(null)));
+        generator.writeStringField("version", accessLogEntry.getHttpVersion());
+        generator.writeStringField("agent", accessLogEntry.getUserAgent());
+        generator.writeStringField("host", accessLogEntry.getHostString());
+        generator.writeStringField("scheme", accessLogEntry.getScheme());
+        generator.writeNumberField("localport", accessLogEntry.getLocalPort());
+
+        Principal principal = accessLogEntry.getUserPrincipal();
+        if (principal != null) {
+            generator.writeStringField("user-principal", principal.getName());
+        }
 
-            // Only add remote address/port fields if relevant
-            if (remoteAddressDiffers(accessLogEntry.getIpV4Address(), accessLogEntry.getRemoteAddress())) {
-                generator.writeStringField("remoteaddr", accessLogEntry.getRemoteAddress());
-                if (accessLogEntry.getRemotePort() > 0) {
-                    generator.writeNumberField("remoteport", accessLogEntry.getRemotePort());
-                }
+        Principal sslPrincipal = accessLogEntry.getSslPrincipal();
+        if (sslPrincipal != null) {
+            generator.writeStringField("ssl-principal", sslPrincipal.getName());
+        }
+
+        // Only add remote address/port fields if relevant
+        if (remoteAddressDiffers(accessLogEntry.getIpV4Address(), accessLogEntry.getRemoteAddress())) {
+            generator.writeStringField("remoteaddr", accessLogEntry.getRemoteAddress());
+            if (accessLogEntry.getRemotePort() > 0) {
+                generator.writeNumberField("remoteport", accessLogEntry.getRemotePort());
             }
+        }
 
-            // Only add peer address/port fields if relevant
-            if (accessLogEntry.getPeerAddress() != null) {
-                generator.writeStringField("peeraddr", accessLogEntry.getPeerAddress());
+        // Only add peer address/port fields if relevant
+        if (accessLogEntry.getPeerAddress() != null) {
+            generator.writeStringField("peeraddr", accessLogEntry.getPeerAddress());
 
-                int peerPort = accessLogEntry.getPeerPort();
-                if (peerPort > 0 && peerPort != accessLogEntry.getRemotePort()) {
-                    generator.writeNumberField("peerport", peerPort);
-                }
+            int peerPort = accessLogEntry.getPeerPort();
+            if (peerPort > 0 && peerPort != accessLogEntry.getRemotePort()) {
+                generator.writeNumberField("peerport", peerPort);
             }
+        }
 
-            // Only add search sub block of this is a search request
-            if (isSearchRequest(accessLogEntry)) {
-                generator.writeObjectFieldStart("search");
-                generator.writeNumberField("totalhits", getTotalHitCount(accessLogEntry.getHitCounts()));
-                generator.writeNumberField("hits", getRetrievedHitCount(accessLogEntry.getHitCounts()));
-                generator.writeEndObject();
-            }
+        // Only add search sub block of this is a search request
+        if (isSearchRequest(accessLogEntry)) {
+            generator.writeObjectFieldStart("search");
+            generator.writeNumberField("totalhits", getTotalHitCount(accessLogEntry.getHitCounts()));
+            generator.writeNumberField("hits", getRetrievedHitCount(accessLogEntry.getHitCounts()));
+            generator.writeEndObject();
+        }
 
-            // Add key/value access log entries. Keys with single values are written as single
-            // string value fields while keys with multiple values are written as string arrays
-            Map<String,List<String>> keyValues = accessLogEntry.getKeyValues();
-            if (keyValues != null && !keyValues.isEmpty()) {
-                generator.writeObjectFieldStart("attributes");
-                for (Map.Entry<String,List<String>> entry : keyValues.entrySet()) {
-                    if (entry.getValue().size() == 1) {
-                        generator.writeStringField(entry.getKey(), entry.getValue().get(0));
-                    } else {
-                        generator.writeFieldName(entry.getKey());
-                        generator.writeStartArray();
-                        for (String s : entry.getValue()) {
-                            generator.writeString(s);
-                        }
-                        generator.writeEndArray();
+        // Add key/value access log entries. Keys with single values are written as single
+        // string value fields while keys with multiple values are written as string arrays
+        Map<String,List<String>> keyValues = accessLogEntry.getKeyValues();
+        if (keyValues != null && !keyValues.isEmpty()) {
+            generator.writeObjectFieldStart("attributes");
+            for (Map.Entry<String,List<String>> entry : keyValues.entrySet()) {
+                if (entry.getValue().size() == 1) {
+                    generator.writeStringField(entry.getKey(), entry.getValue().get(0));
+                } else {
+                    generator.writeFieldName(entry.getKey());
+                    generator.writeStartArray();
+                    for (String s : entry.getValue()) {
+                        generator.writeString(s);
                     }
+                    generator.writeEndArray();
                 }
-                generator.writeEndObject();
             }
-
             generator.writeEndObject();
-            generator.close();
-
-        } catch (IOException e) {
-            logger.log(Level.WARNING, "Unable to generate JSON access log entry: " + e.getMessage());
         }
 
-        return logLine.toString();
+        generator.writeEndObject();
+        generator.close();
     }
 
 
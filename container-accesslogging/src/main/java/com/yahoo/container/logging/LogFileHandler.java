@@ -3,48 +3,76 @@ package com.yahoo.container.logging;
 
 import com.yahoo.container.core.AccessLogConfig;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
-import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.ErrorManager;
+import java.util.logging.Filter;
 import java.util.logging.Formatter;
 import java.util.logging.Level;
 import java.util.logging.LogRecord;
+import java.util.logging.Logger;
 import java.util.logging.StreamHandler;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
 
 
 /**
  * <p>Implements log file naming/rotating logic for container logs.</p>
  *
- * <p>Overridden methods: publish</p>
+ * <p>Overridden methods: publish, flush, close</p>
  *
  * <p>Added methods: setFilePattern, setRotationTimes, rotateNow (+ few others)</p>
  *
+ * <p>Entries are queued in a ring buffer and written by a single log thread, directly into a buffered
+ * stream to the current file. Publishing never blocks: entries published while the queue is full are dropped
+ * and counted, see {@link #getDroppedEntries}.</p>
+ *
  * @author Bob Travis
  */
 public class LogFileHandler extends StreamHandler {
 
+    private static final Logger logger = Logger.getLogger(LogFileHandler.class.getName());
+
+    private static final int defaultQueueSize = 100000;
+    private static final int outputBufferSize = 64 * 1024;
+
     /** True to use the sequence file name scheme, false (default) to use the date scheme */
     private final boolean useSequenceNameScheme;
+    /** True to gzip the previous file after each rotation */
+    private final boolean compressOnRotation;
     private long[] rotationTimes = {0}; //default to one log per day, at midnight
     private String filePattern = "./log.%T";  // default to current directory, ms time stamp
     private long lastRotationTime = -1; // absolute time (millis since epoch) of current file start
     private int numberOfRecords = -1;
     private long nextRotationTime = 0;
-    private OutputStream currentOutputStream = null;
+    private volatile OutputStream currentOutputStream = null;
     private String fileName;
     private String symlinkName = null;
-    private ArrayBlockingQueue<LogRecord> logQueue = new ArrayBlockingQueue<>(100000);
-    LogRecord rotateCmd = new LogRecord(Level.SEVERE, "rotateNow");
+    private final RingBuffer logQueue;
+    private final LongAdder droppedEntries = new LongAdder();
+    /** Set when a rotation is requested while the queue is full, such that it can not be queued in order */
+    private final AtomicBoolean rotateRequested = new AtomicBoolean(false);
+    /** Marks a rotation request in the queue; it is never asked to write anything */
+    private static final LogWriter<Object> rotateCommand = (entry, out) -> { };
+    private final LogWriter<LogRecord> recordWriter = (record, out) -> out.write(getFormatter().format(record).getBytes(charset()));
 
     static private class LogThread extends Thread {
         LogFileHandler logFileHandler;
         long lastFlush = 0;
+        /** Whether this may be parked, waiting for entries. Publishers only unpark this when it is set */
+        volatile boolean idle = false;
         public LogThread(LogFileHandler logFile) {
             super("Logger");
             setDaemon(true);
@@ -59,21 +87,26 @@ public class LogFileHandler extends StreamHandler {
                 com.yahoo.protect.Process.logAndDie("Failed storing log records", e);
             }
 
+            try {
+                while (logFileHandler.writeNext()) { } // write what was queued before shutdown
+            } catch (InterruptedException e) {
+            }
             logFileHandler.flush();
         }
 
         private void storeLogRecords() throws InterruptedException {
             while (!isInterrupted()) {
-                LogRecord r = logFileHandler.logQueue.poll(100, TimeUnit.MILLISECONDS);
-                if (r != null) {
-                    if (r == logFileHandler.rotateCmd) {
-                        logFileHandler.internalRotateNow();
-                        lastFlush = System.nanoTime();
-                    } else {
-                        logFileHandler.internalPublish(r);
-                    }
+                if (logFileHandler.rotateRequested.getAndSet(false)) {
+                    logFileHandler.internalRotateNow();
+                    lastFlush = System.nanoTime();
+                }
+                if (logFileHandler.writeNext()) {
                     flushIfOld(3, TimeUnit.SECONDS);
                 } else {
+                    idle = true;
+                    if (logFileHandler.logQueue.isEmpty() && ! logFileHandler.rotateRequested.get())
+                        LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(100));
+                    idle = false;
                     flushIfOld(100, TimeUnit.MILLISECONDS);
                 }
             }
@@ -86,6 +119,11 @@ public class LogFileHandler extends StreamHandler {
                 lastFlush = now;
             }
         }
+
+        void wakeUp() {
+            if (idle)
+                LockSupport.unpark(this);
+        }
     }
     LogThread logThread = null;
 
@@ -94,8 +132,21 @@ public class LogFileHandler extends StreamHandler {
     }
 
     public LogFileHandler(AccessLogConfig.FileHandler.RotateScheme.Enum rotateScheme) {
+        this(rotateScheme, false, defaultQueueSize);
+    }
+
+    /**
+     * Constructs a log handler
+     *
+     * @param rotateScheme the file naming scheme to use
+     * @param compressOnRotation true to gzip each file when rotating away from it
+     * @param queueSize the max number of entries waiting to be written before further entries are dropped
+     */
+    public LogFileHandler(AccessLogConfig.FileHandler.RotateScheme.Enum rotateScheme, boolean compressOnRotation, int queueSize) {
         super();
         this.useSequenceNameScheme = rotateScheme == AccessLogConfig.FileHandler.RotateScheme.Enum.SEQUENCE;
+        this.compressOnRotation = compressOnRotation;
+        this.logQueue = new RingBuffer(queueSize);
         init();
     }
 
@@ -107,6 +158,8 @@ public class LogFileHandler extends StreamHandler {
     public LogFileHandler(OutputStream out, Formatter formatter,boolean useSequenceNameScheme) {
         super(out,formatter);
         this.useSequenceNameScheme=useSequenceNameScheme;
+        this.compressOnRotation = false;
+        this.logQueue = new RingBuffer(defaultQueueSize);
         init();
     }
 
@@ -120,17 +173,45 @@ public class LogFileHandler extends StreamHandler {
      *
      * @param r logrecord to publish
      */
+    @Override
     public void publish(LogRecord r) {
-        try {
-            logQueue.put(r);
-        } catch (InterruptedException e) {
+        if ( ! isAccepted(r)) return;
+        publish(r, recordWriter);
+    }
+
+    /** Queues the given entry to be written to file by the given writer, or drops it if the queue is full */
+    <LOGTYPE> void publish(LOGTYPE entry, LogWriter<LOGTYPE> writer) {
+        if ( ! logQueue.offer(entry, writer)) {
+            droppedEntries.increment();
+            return;
         }
+        logThread.wakeUp();
+    }
+
+    /** Same as Handler.isLoggable, which StreamHandler overrides to reject everything when it has no stream of its own */
+    private boolean isAccepted(LogRecord r) {
+        if (r == null) return false;
+        int level = getLevel().intValue();
+        if (r.getLevel().intValue() < level || level == Level.OFF.intValue()) return false;
+        Filter filter = getFilter();
+        return filter == null || filter.isLoggable(r);
+    }
+
+    private Charset charset() {
+        return getEncoding() == null ? Charset.defaultCharset() : Charset.forName(getEncoding());
     }
 
-    private void internalPublish(LogRecord r) throws InterruptedException {
+    /** Writes the next queued entry to file, first rotating file if needed. Returns false if there was none */
+    private boolean writeNext() throws InterruptedException {
+        if (logQueue.isEmpty()) return false;
+
+        if (logQueue.removeNextIf(rotateCommand)) {
+            internalRotateNow();
+            return true;
+        }
+
         // first check to see if new file needed.
         // if so, use this.internalRotateNow() to do it
-
         long now = System.currentTimeMillis();
         if (nextRotationTime <= 0) {
             nextRotationTime = getNextRotationTime(now); // lazy initialization
@@ -138,9 +219,35 @@ public class LogFileHandler extends StreamHandler {
         if (now > nextRotationTime || currentOutputStream == null) {
             internalRotateNow();
         }
-        // count records, and publish
+        try {
+            if ( ! logQueue.writeNext(currentOutputStream)) return false;
+        } catch (IOException e) {
+            reportError("Failed writing to log file '" + fileName + "'", e, ErrorManager.WRITE_FAILURE);
+        } catch (RuntimeException e) { // a formatting failure must not stop the log thread
+            reportError("Failed formatting log entry", e, ErrorManager.FORMAT_FAILURE);
+            return true;
+        }
+        // count records
         numberOfRecords++;
-        super.publish(r);
+        return true;
+    }
+
+    /** Flushes written entries to the current file */
+    @Override
+    public void flush() {
+        OutputStream out = currentOutputStream;
+        if (out == null) return;
+        try {
+            out.flush();
+        } catch (IOException e) {
+            // the file was closed by a rotation - all its entries are flushed
+        }
+    }
+
+    /** Closes this handler to further use. Call {@link #shutdown} to stop writing entries and close the file */
+    @Override
+    public void close() {
+        super.close();
     }
 
     /**
@@ -210,28 +317,32 @@ public class LogFileHandler extends StreamHandler {
      * Force file rotation now, independent of schedule.
      */
     public void rotateNow () {
-        publish(rotateCmd);
+        if ( ! logQueue.offer(this, rotateCommand))
+            rotateRequested.set(true);
+        logThread.wakeUp();
     }
 
     // Throw InterruptedException upwards rather than relying on isInterrupted to stop the thread as
     // isInterrupted() returns false after inerruption in p.waitFor
     private void internalRotateNow() throws InterruptedException {
         // figure out new file name, then
-        // use super.setOutputStream to switch to a new file
+        // switch to a new file
 
         long now = System.currentTimeMillis();
+        String previousFileName = fileName;
         fileName = LogFormatter.insertDate(filePattern, now);
-        super.flush();
-        super.close();
+        closeCurrentFile();
 
+        File previousFile = null;
         if (useSequenceNameScheme)
-            moveCurrentFile();
+            previousFile = moveCurrentFile();
+        else if (previousFileName != null && ! previousFileName.equals(fileName))
+            previousFile = new File(previousFileName);
 
         try {
             checkAndCreateDir(fileName);
             FileOutputStream os = new FileOutputStream(fileName, true); // append mode, for safety
-            super.setOutputStream(os);
-            currentOutputStream = os;
+            currentOutputStream = new BufferedOutputStream(os, outputBufferSize);
         }
         catch (IOException e) {
             throw new RuntimeException("Couldn't open log file '" + fileName + "'", e);
@@ -240,11 +351,50 @@ public class LogFileHandler extends StreamHandler {
         if ( ! useSequenceNameScheme)
             createSymlinkToCurrentFile();
 
+        if (compressOnRotation && previousFile != null)
+            startCompression(previousFile);
+
         numberOfRecords = 0;
         lastRotationTime = now;
         nextRotationTime = 0; //figure it out later (lazy evaluation)
     }
 
+    private void closeCurrentFile() {
+        OutputStream out = currentOutputStream;
+        if (out == null) return;
+        currentOutputStream = null;
+        try {
+            out.close();
+        } catch (IOException e) {
+            reportError("Failed closing log file", e, ErrorManager.CLOSE_FAILURE);
+        }
+    }
+
+    /** Gzips the given file in the background, as compressing a large file would stall the log thread */
+    private static void startCompression(File file) {
+        Thread compressor = new Thread(() -> compress(file), "logfilehandler.compression");
+        compressor.setDaemon(true);
+        compressor.start();
+    }
+
+    /** Writes the given file to the same name with .gz appended, and deletes the uncompressed file */
+    static void compress(File file) {
+        if ( ! file.exists()) return;
+        File compressed = new File(file.getPath() + ".gz");
+        try (InputStream in = new FileInputStream(file);
+             OutputStream out = new GZIPOutputStream(new FileOutputStream(compressed), outputBufferSize)) {
+            byte[] buffer = new byte[outputBufferSize];
+            for (int read; (read = in.read(buffer)) >= 0; )
+                out.write(buffer, 0, read);
+        }
+        catch (IOException e) {
+            logger.log(Level.WARNING, "Failed compressing log file '" + file + "'", e);
+            compressed.delete();
+            return;
+        }
+        file.delete();
+    }
+
     /** Name files by date - create a symlink with a constant name to the newest file */
     private void createSymlinkToCurrentFile() throws InterruptedException {
         if (symlinkName == null) return;
@@ -264,12 +414,14 @@ public class LogFileHandler extends StreamHandler {
     /**
      * Name the current file to "name.n" where n
      * 1+ the largest integer in existing file names
+     *
+     * @return the file as renamed, or null if there was no current file
      */
-    private void moveCurrentFile() {
+    private File moveCurrentFile() {
         File file=new File(fileName);
-        if ( ! file.exists()) return; // no current file
+        if ( ! file.exists()) return null; // no current file
         File dir=file.getParentFile();
-        Pattern logFilePattern=Pattern.compile(".*\\.(\\d+)");
+        Pattern logFilePattern=Pattern.compile(".*\\.(\\d+)(\\.gz)?");
         long largestN=0;
         for (File existingFile : dir.listFiles()) {
             Matcher matcher=logFilePattern.matcher(existingFile.getName());
@@ -278,7 +430,8 @@ public class LogFileHandler extends StreamHandler {
             if (thisN>largestN)
                 largestN=thisN;
         }
-        file.renameTo(new File(dir,file.getName() + "." + (largestN + 1)));
+        File movedFile = new File(dir,file.getName() + "." + (largestN + 1));
+        return file.renameTo(movedFile) ? movedFile : null;
     }
 
     /**
@@ -295,6 +448,16 @@ public class LogFileHandler extends StreamHandler {
         return numberOfRecords;
     }
 
+    /** Returns the number of entries waiting to be written */
+    public int getQueuedEntries() {
+        return logQueue.size();
+    }
+
+    /** Returns the number of entries dropped since this was created, because the queue was full */
+    public long getDroppedEntries() {
+        return droppedEntries.sum();
+    }
+
     /**
      * Calculate rotation times array, given times in minutes, as "0 60 ..."
      *
@@ -367,6 +530,7 @@ public class LogFileHandler extends StreamHandler {
         }
         catch (InterruptedException e) {
         }
+        closeCurrentFile();
     }
 
     /**
@@ -0,0 +1,17 @@
+// Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.container.logging;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes log entries of some type to a stream.
+ *
+ * @author agent
+ */
+public interface LogWriter<LOGTYPE> {
+
+    /** Writes the given entry, including any line terminator, to the given stream */
+    void write(LOGTYPE entry, OutputStream outputStream) throws IOException;
+
+}
@@ -0,0 +1,108 @@
+// Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.container.logging;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A bounded queue of log entries, and the writers to write them with, for any number of producers and
+ * a single consumer. Slots are preallocated and claimed without locking, so adding an entry neither
+ * allocates nor blocks; when the buffer is full the entry is rejected instead.
+ *
+ * @author agent
+ */
+final class RingBuffer {
+
+    private final Object[] entries;
+    private final LogWriter<?>[] writers;
+    /** The position each slot may next be claimed for, or that position + 1 when the slot holds an entry */
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private volatile long head = 0;
+
+    /** Creates a buffer holding at least the given number of entries */
+    RingBuffer(int capacity) {
+        if (capacity < 1) throw new IllegalArgumentException("Capacity must be positive, was " + capacity);
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) size <<= 1;
+        entries = new Object[size];
+        writers = new LogWriter<?>[size];
+        sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++)
+            sequences.set(i, i);
+        mask = size - 1;
+    }
+
+    /** Adds the given entry to be written by the given writer, or returns false if this is full */
+    <LOGTYPE> boolean offer(LOGTYPE entry, LogWriter<LOGTYPE> writer) {
+        long position = tail.get();
+        while (true) {
+            int slot = (int) position & mask;
+            long sequence = sequences.get(slot);
+            if (sequence == position) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    entries[slot] = entry;
+                    writers[slot] = writer;
+                    sequences.lazySet(slot, position + 1);
+                    return true;
+                }
+            }
+            else if (sequence < position) {
+                return false;
+            }
+            position = tail.get();
+        }
+    }
+
+    /**
+     * Writes the oldest entry of this to the given stream and removes it. Must only be called by the consumer thread.
+     *
+     * @return false if there was no entry ready to be written
+     */
+    @SuppressWarnings("unchecked")
+    boolean writeNext(OutputStream out) throws IOException {
+        long position = head;
+        int slot = (int) position & mask;
+        if (sequences.get(slot) != position + 1) return false;
+
+        Object entry = entries[slot];
+        LogWriter<Object> writer = (LogWriter<Object>) writers[slot];
+        entries[slot] = null;
+        writers[slot] = null;
+        sequences.lazySet(slot, position + mask + 1);
+        head = position + 1;
+        writer.write(entry, out);
+        return true;
+    }
+
+    /**
+     * Removes the oldest entry of this without writing it, if it is ready and is to be written by the given writer.
+     * Must only be called by the consumer thread.
+     *
+     * @return whether the entry was removed
+     */
+    boolean removeNextIf(LogWriter<?> writer) {
+        long position = head;
+        int slot = (int) position & mask;
+        if (sequences.get(slot) != position + 1 || writers[slot] != writer) return false;
+
+        entries[slot] = null;
+        writers[slot] = null;
+        sequences.lazySet(slot, position + mask + 1);
+        head = position + 1;
+        return true;
+    }
+
+    /** Returns whether any entry has been added which is not yet removed */
+    boolean isEmpty() { return tail.get() == head; }
+
+    /** Returns the number of entries in this */
+    int size() { return (int) Math.max(0, tail.get() - head); }
+
+    /** Returns the max number of entries this can hold */
+    int capacity() { return mask + 1; }
+
+}
@@ -108,4 +108,15 @@ public final class VespaAccessLog implements AccessLogInterface {
                 accessLogEntry.getHitCounts(),
                 accessLogEntry.getStatusCode());
     }
+
+    @Override
+    public int queuedEntries() {
+        return logHandler.queuedEntries();
+    }
+
+    @Override
+    public long droppedEntries() {
+        return logHandler.droppedEntries();
+    }
+
 }
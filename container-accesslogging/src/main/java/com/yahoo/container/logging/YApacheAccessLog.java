@@ -33,4 +33,14 @@ public final class YApacheAccessLog implements  AccessLogInterface {
         logHandler.rotateNow();
     }
 
+    @Override
+    public int queuedEntries() {
+        return logHandler.queuedEntries();
+    }
+
+    @Override
+    public long droppedEntries() {
+        return logHandler.droppedEntries();
+    }
+
 }
@@ -0,0 +1,86 @@
+// Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.container.logging;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author agent
+ */
+public class RingBufferTest {
+
+    private static final LogWriter<String> lineWriter = (line, out) -> out.write((line + "\n").getBytes(StandardCharsets.UTF_8));
+
+    @Test
+    public void requireThatEntriesAreWrittenInOrderAndRejectedWhenFull() throws IOException {
+        RingBuffer buffer = new RingBuffer(3);
+        assertEquals(4, buffer.capacity());
+        assertTrue(buffer.isEmpty());
+        for (int i = 0; i < 4; i++)
+            assertTrue(buffer.offer("entry" + i, lineWriter));
+        assertFalse(buffer.offer("entry4", lineWriter));
+        assertEquals(4, buffer.size());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertTrue(buffer.writeNext(out));
+        assertTrue(buffer.offer("entry5", lineWriter));
+        while (buffer.writeNext(out)) { }
+        assertTrue(buffer.isEmpty());
+        assertEquals("entry0\nentry1\nentry2\nentry3\nentry5\n", out.toString("UTF-8"));
+    }
+
+    @Test
+    public void requireThatEntriesFromConcurrentProducersAreAllWrittenOnce() throws Exception {
+        int producers = 4, entriesPerProducer = 10000;
+        RingBuffer buffer = new RingBuffer(64);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            int producer = p;
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                }
+                catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < entriesPerProducer; i++)
+                    while ( ! buffer.offer(producer + ":" + i, lineWriter))
+                        Thread.yield();
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int written = 0;
+        while (written < producers * entriesPerProducer) {
+            if (buffer.writeNext(out)) written++;
+            else Thread.yield();
+        }
+        for (Thread thread : threads)
+            thread.join();
+        assertTrue(buffer.isEmpty());
+
+        int[] next = new int[producers];
+        for (String line : out.toString("UTF-8").split("\n")) {
+            String[] parts = line.split(":");
+            int producer = Integer.parseInt(parts[0]);
+            assertEquals("Entries of each producer are written in order", next[producer]++, Integer.parseInt(parts[1]));
+        }
+        for (int count : next)
+            assertEquals(entriesPerProducer, count);
+    }
+
+}
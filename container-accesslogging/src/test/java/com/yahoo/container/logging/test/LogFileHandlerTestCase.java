@@ -1,20 +1,34 @@
 // Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.container.logging.test;
 
+import com.yahoo.container.core.AccessLogConfig;
 import com.yahoo.container.logging.LogFileHandler;
 import com.yahoo.io.IOUtils;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
+import java.util.Collections;
 import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.ErrorManager;
 import java.util.logging.Formatter;
 import java.util.logging.Level;
 import java.util.logging.LogRecord;
 import java.util.logging.SimpleFormatter;
+import java.util.zip.GZIPInputStream;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 /**
  * @author <a href="mailto:travisb@yahoo-inc.com">Bob Travis</a>
@@ -23,6 +37,9 @@ import static org.junit.Assert.assertEquals;
 // These tests take too long, and are not cleaning up properly. See how this should be done in YApacheLogTestCase
 public class LogFileHandlerTestCase {
 
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
     /**
      * The scenario
      */
@@ -169,4 +186,68 @@ public class LogFileHandlerTestCase {
             deleteOnExit(f2);
     }
 
+    @Test
+    public void testCompressionOnRotation() throws IOException, InterruptedException {
+        File root = temporaryFolder.newFolder("compressionlogs");
+        LogFileHandler h = new LogFileHandler(AccessLogConfig.FileHandler.RotateScheme.Enum.SEQUENCE, true, 16);
+        h.setFilePattern(root.getAbsolutePath() + "/log");
+        h.setFormatter(new Formatter() {
+            public String format(LogRecord r) {
+                return formatMessage(r) + "\n";
+            }
+        });
+        h.publish(new LogRecord(Level.INFO, "first"));
+        h.publish(new LogRecord(Level.INFO, "second"));
+        while (h.getFileName() == null || h.getNumberRecords() < 2)
+            Thread.sleep(1);
+        h.rotateNow();
+        h.publish(new LogRecord(Level.INFO, "third"));
+        File compressed = new File(root, "log.1.gz");
+        for (int i = 0; i < 10000 && (new File(root, "log.1").exists() || ! compressed.exists()); i++)
+            Thread.sleep(1);
+        h.shutdown();
+
+        assertFalse(new File(root, "log.1").exists());
+        assertEquals("first\nsecond\n", gunzip(compressed));
+        assertEquals("third\n", new String(IOUtils.readFileBytes(new File(root, "log")), "UTF-8"));
+        assertEquals(0, h.getDroppedEntries());
+    }
+
+    @Test
+    public void testFormattingFailureIsReportedAndSkipped() throws IOException, InterruptedException {
+        File root = temporaryFolder.newFolder("failinglogs");
+        LogFileHandler h = new LogFileHandler(AccessLogConfig.FileHandler.RotateScheme.Enum.SEQUENCE, false, 16);
+        h.setFilePattern(root.getAbsolutePath() + "/log");
+        h.setFormatter(new Formatter() {
+            public String format(LogRecord r) {
+                if (r.getMessage().equals("failing")) throw new IllegalStateException("Failed formatting");
+                return formatMessage(r) + "\n";
+            }
+        });
+        List<Integer> errorCodes = new CopyOnWriteArrayList<>();
+        h.setErrorManager(new ErrorManager() {
+            @Override
+            public void error(String message, Exception e, int code) { errorCodes.add(code); }
+        });
+        h.publish(new LogRecord(Level.INFO, "first"));
+        h.publish(new LogRecord(Level.INFO, "failing"));
+        h.publish(new LogRecord(Level.INFO, "third"));
+        while (h.getFileName() == null || h.getNumberRecords() < 2)
+            Thread.sleep(1);
+        h.shutdown();
+
+        assertEquals("first\nthird\n", new String(IOUtils.readFileBytes(new File(root, "log")), "UTF-8"));
+        assertEquals(Collections.singletonList(ErrorManager.FORMAT_FAILURE), errorCodes);
+    }
+
+    private static String gunzip(File file) throws IOException {
+        try (InputStream in = new GZIPInputStream(new FileInputStream(file))) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[1024];
+            for (int read; (read = in.read(buffer)) >= 0; )
+                out.write(buffer, 0, read);
+            return out.toString("UTF-8");
+        }
+    }
+
 }
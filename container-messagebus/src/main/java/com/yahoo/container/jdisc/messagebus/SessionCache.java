@@ -83,7 +83,8 @@ public final class SessionCache extends AbstractComponent {
             documentTypeManager.configure(documentManagerConfigId);
         }
         LoadTypeSet loadTypeSet = new LoadTypeSet(loadTypeConfigId);
-        DocumentProtocol protocol = new DocumentProtocol(documentTypeManager, identity, loadTypeSet);
+        DocumentProtocol protocol = new DocumentProtocol(documentTypeManager, identity, loadTypeSet)
+                .setLazyFieldDecoding(mbusConfig.lazyFieldDecoding());
         messageBus = createSharedMessageBus(mbusConfig, slobrokConfigId, identity, protocol);
         // TODO: stop doing subscriptions to config when that is to be solved in slobrok as well
         configAgent = new ConfigAgent(messagebusConfigId, messageBus.messageBus());
@@ -110,7 +111,8 @@ public final class SessionCache extends AbstractComponent {
         final RPCNetworkParams netParams = new RPCNetworkParams()
                 .setSlobrokConfigId(slobrokConfigId)
                 .setIdentity(new Identity(identity))
-                .setListenPort(mbusConfig.port());
+                .setListenPort(mbusConfig.port())
+                .setNumNetworkThreads(mbusConfig.numnetworkthreads());
         return SharedMessageBus.newInstance(mbusParams, netParams);
     }
 
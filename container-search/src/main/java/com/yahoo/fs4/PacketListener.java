@@ -7,6 +7,8 @@ import com.yahoo.fs4.mplex.FS4Channel;
 
 /**
  * Interface for recieving notifications of packets sent or recieved.
+ * The serialized form of received packets is a view into a buffer which is reused
+ * after the notification returns, so it must not be retained by listeners.
  *
  * @author tonytv
  */
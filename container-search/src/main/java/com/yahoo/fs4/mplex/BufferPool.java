@@ -0,0 +1,106 @@
+// Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.fs4.mplex;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A pool of direct byte buffers shared by all connections, to avoid allocating a buffer per connection
+ * and new heap buffers for each large packet received.
+ * Buffers have sizes which are the minimum size times a power of two, and each size has a separate
+ * free list. The free buffers of all sizes together hold at most a given number of bytes, and buffers
+ * larger than the largest pooled size are allocated on the heap when needed and not pooled.
+ *
+ * <p>Thread safe.</p>
+ *
+ * @author agent
+ */
+final class BufferPool {
+
+    private final int minSize;
+    private final long maxPooledBytes;
+    private final SizeClass[] sizeClasses;
+
+    /** The total capacity of the free buffers held by this */
+    private final AtomicLong pooledBytes = new AtomicLong(0);
+
+    /**
+     * Creates a buffer pool
+     *
+     * @param minSize the smallest buffer size, in bytes
+     * @param maxPooledSize the largest buffer size which is pooled, in bytes
+     * @param maxPooledBytes the max total capacity of the free buffers kept by this, in bytes
+     */
+    BufferPool(int minSize, int maxPooledSize, long maxPooledBytes) {
+        if (Integer.bitCount(minSize) != 1) throw new IllegalArgumentException("Min size must be a power of two");
+        this.minSize = minSize;
+        this.maxPooledBytes = maxPooledBytes;
+        this.sizeClasses = new SizeClass[sizeClassOf(maxPooledSize) + 1];
+        for (int i = 0; i < sizeClasses.length; i++)
+            sizeClasses[i] = new SizeClass(minSize << i);
+    }
+
+    /** Returns the index of the smallest size class holding the given number of bytes */
+    private int sizeClassOf(int size) {
+        if (size <= minSize) return 0;
+        return 32 - Integer.numberOfLeadingZeros((size - 1) / minSize);
+    }
+
+    /**
+     * Returns a cleared buffer with at least the given capacity.
+     * The buffer should be returned to this by calling {@link #release} when it is no longer used.
+     */
+    ByteBuffer acquire(int size) {
+        int sizeClass = sizeClassOf(size);
+        if (sizeClass >= sizeClasses.length) return ByteBuffer.allocate(size);
+
+        ByteBuffer buffer = sizeClasses[sizeClass].free.poll();
+        if (buffer == null) return ByteBuffer.allocateDirect(sizeClasses[sizeClass].size);
+        sizeClasses[sizeClass].freeCount.decrementAndGet();
+        pooledBytes.addAndGet(-buffer.capacity());
+        return buffer;
+    }
+
+    /** Returns a buffer acquired from this to the pool. The buffer must not be used by the caller after this. */
+    void release(ByteBuffer buffer) {
+        if ( ! buffer.isDirect()) return;
+        int sizeClass = sizeClassOf(buffer.capacity());
+        if (sizeClass >= sizeClasses.length || sizeClasses[sizeClass].size != buffer.capacity()) return;
+
+        if (pooledBytes.addAndGet(buffer.capacity()) > maxPooledBytes) {
+            pooledBytes.addAndGet(-buffer.capacity()); // drop it
+            return;
+        }
+        SizeClass pool = sizeClasses[sizeClass];
+        buffer.clear();
+        pool.freeCount.incrementAndGet();
+        pool.free.offer(buffer);
+    }
+
+    /** Returns the total capacity of the free buffers currently held by this */
+    long pooledBytes() { return pooledBytes.get(); }
+
+    /** Returns the number of free buffers currently held by this */
+    int freeCount() {
+        int count = 0;
+        for (SizeClass sizeClass : sizeClasses)
+            count += sizeClass.freeCount.get();
+        return count;
+    }
+
+    private static class SizeClass {
+
+        final int size;
+        final Queue<ByteBuffer> free = new ConcurrentLinkedQueue<>();
+        final AtomicInteger freeCount = new AtomicInteger(0);
+
+        SizeClass(int size) {
+            this.size = size;
+        }
+
+    }
+
+}
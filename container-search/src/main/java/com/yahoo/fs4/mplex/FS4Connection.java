@@ -7,7 +7,8 @@ import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.SocketChannel;
-import java.util.LinkedList;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -29,6 +30,17 @@ import com.yahoo.search.Query;
 public class FS4Connection implements Connection
 {
     private static Logger log = Logger.getLogger(FS4Connection.class.getName());
+
+    /** The max number of buffers to write in one gathering write */
+    private static final int maxBuffersPerWrite = 64;
+
+    /**
+     * Read buffers shared by all connections, which each hold a buffer only while it has unprocessed data.
+     * Buffers up to 4 Mb are pooled, with at most 64 Mb of free buffers in total, while larger buffers
+     * are allocated when needed.
+     */
+    private static final BufferPool readBuffers = new BufferPool(256 * 1024, 4 * 1024 * 1024, 64 * 1024 * 1024);
+
     private Backend backend;
     private Listener listener;
     private SocketChannel channel;
@@ -40,12 +52,10 @@ public class FS4Connection implements Connection
     private int maxInitialSize = 1024;
 
     // outbound data
-    private ByteBuffer writeBuffer;
-    private LinkedList<ByteBuffer> writeBufferList = new LinkedList<>();
+    private final Deque<ByteBuffer> writeBuffers = new ArrayDeque<>();
 
-    // inbound data
-    private ByteBuffer fixedReadBuffer = ByteBuffer.allocateDirect(256 * 1024);
-    private ByteBuffer readBuffer = fixedReadBuffer;
+    // inbound data, null when there is no unprocessed data. Only accessed by the listener thread
+    private ByteBuffer readBuffer = null;
 
     private volatile boolean valid = true;
 
@@ -83,12 +93,7 @@ public class FS4Connection implements Connection
             if (buffer.capacity() > maxInitialSize) {
                 maxInitialSize = buffer.limit();
             }
-            if (writeBuffer == null) {
-                writeBuffer = buffer;
-            } else {
-                writeBufferList.addLast(buffer);
-                enableWrite();
-            }
+            writeBuffers.addLast(buffer);
             write();
         }
 
@@ -101,7 +106,8 @@ public class FS4Connection implements Connection
      * The write event handler.  This can be called both from the client
      * thread and from the IO thread, so it needs to be synchronized.  It
      * assumes that IO is nonblocking, and will attempt to keep writing
-     * data until the system won't accept more data.
+     * data until the system won't accept more data. All queued buffers
+     * are written in a single gathering write when possible.
      *
      */
     public synchronized void write () throws IOException {
@@ -110,32 +116,35 @@ public class FS4Connection implements Connection
         }
 
         try {
-            int bytesWritten = 0;
-            boolean isFinished = false;
-            do {
-                // if writeBuffer is not set we need to fetch the next buffer
-                if (writeBuffer == null) {
-
-                    // if the list is empty, signal the selector we do not need
-                    // to do any writing for a while yet and bail
-                    if (writeBufferList.isEmpty()) {
-                        disableWrite();
-                        isFinished = true;
-                        break;
+            while ( ! writeBuffers.isEmpty()) {
+                long bytesWritten;
+                if (writeBuffers.size() == 1) {
+                    bytesWritten = channel.write(writeBuffers.peekFirst());
+                } else {
+                    ByteBuffer[] buffers = new ByteBuffer[Math.min(writeBuffers.size(), maxBuffersPerWrite)];
+                    int i = 0;
+                    for (ByteBuffer buffer : writeBuffers) {
+                        if (i == buffers.length) break;
+                        buffers[i++] = buffer;
                     }
-                    writeBuffer = writeBufferList.removeFirst();
+                    bytesWritten = channel.write(buffers);
                 }
 
-                // invariants: we have a writeBuffer
-                bytesWritten = channel.write(writeBuffer);
+                // forget the drained buffers
+                while ( ! writeBuffers.isEmpty() && ! writeBuffers.peekFirst().hasRemaining()) {
+                    writeBuffers.removeFirst();
+                }
 
-                // buffer drained so we forget it and see what happens when we
-                // go around.  if indeed we go around
-                if (!writeBuffer.hasRemaining()) {
-                    writeBuffer = null;
+                // the system won't accept more data for now
+                if (bytesWritten == 0) {
+                    break;
                 }
-            } while (bytesWritten > 0);
-            if (!isFinished) {
+            }
+
+            // signal the selector whether we need to do more writing
+            if (writeBuffers.isEmpty()) {
+                disableWrite();
+            } else {
                 enableWrite();
             }
         } catch (IOException e) {
@@ -172,22 +181,15 @@ public class FS4Connection implements Connection
             throw new IOException("Channel not open in read(), address=" + backend.getAddress());
         }
 
+        if (readBuffer == null) {
+            readBuffer = readBuffers.acquire(0);
+        }
+
         int bytesRead = 0;
 
         do {
             try {
-                if (readBuffer == fixedReadBuffer) {
-                    bytesRead = channel.read(readBuffer);
-                } else {
-                    fixedReadBuffer.clear();
-                    if (readBuffer.remaining() < fixedReadBuffer.capacity()) {
-                        fixedReadBuffer.limit(readBuffer.remaining());
-                    }
-                    bytesRead = channel.read(fixedReadBuffer);
-                    fixedReadBuffer.flip();
-                    readBuffer.put(fixedReadBuffer);
-                    fixedReadBuffer.clear();
-                }
+                bytesRead = channel.read(readBuffer);
             }
             catch (IOException e) {
                 // this is the "normal" way that connection closes.
@@ -223,6 +225,10 @@ public class FS4Connection implements Connection
 
         // hand off packet extraction
         extractPackets(readBuffer);
+
+        if ( ! valid) {
+            resetReadBuffer();
+        }
     }
 
     private void extractPackets(ByteBuffer readBuffer) {
@@ -314,9 +320,9 @@ public class FS4Connection implements Connection
 
 
     /**
-     * Extend the readBuffer.  Make a new buffer of the requested size
-     * copy the contents of the readBuffer into it and assign reference
-     * to readBuffer instance variable.
+     * Extend the readBuffer.  Get a pooled buffer of at least the requested
+     * size, copy the contents of the readBuffer into it, release the old
+     * buffer and assign reference to readBuffer instance variable.
      *
      * <P>
      * <b>The readBuffer needs to be in "readable" (flipped) state before
@@ -340,25 +346,24 @@ public class FS4Connection implements Connection
             size = readBuffer.capacity() * 2;
         }
 
-        ByteBuffer tmp = ByteBuffer.allocate(size);
+        ByteBuffer tmp = readBuffers.acquire(size);
         tmp.put(readBuffer);
-        log.fine("Extended readBuffer to " + size + " bytes"
+        log.fine("Extended readBuffer to " + tmp.capacity() + " bytes"
                  + "from " + readBuffer.capacity() + " bytes");
+        readBuffers.release(readBuffer);
         readBuffer = tmp;
     }
 
     /**
-     * Clear the readBuffer, and if temporarily allocated bigger
-     * buffer is in use: ditch it and reset the reference to the
-     * fixed readBuffer.
+     * Return the readBuffer to the pool when it holds no more data,
+     * so that idle connections do not hold on to a buffer.
      */
     private void resetReadBuffer () {
-        fixedReadBuffer.clear();
-        if (readBuffer == fixedReadBuffer) {
+        if (readBuffer == null) {
             return;
         }
-        log.fine("Resetting readbuffer");
-        readBuffer = fixedReadBuffer;
+        readBuffers.release(readBuffer);
+        readBuffer = null;
     }
 
     /**
@@ -1,10 +1,6 @@
 // Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.prelude.cache;
 
-import java.util.Iterator;
-import java.util.LinkedHashMap;
-import java.util.Map;
-
 import com.yahoo.cache.SizeCalculator;
 import com.yahoo.search.Result;
 import com.yahoo.statistics.Statistics;
@@ -14,7 +10,7 @@ import com.yahoo.statistics.Value;
  * <p>A generic cache which keeps the total memory consumed by its content
  * below a configured maximum.</p>
  *
- * <p>Thread safe.</p>
+ * <p>Thread safe. The content is held in a {@link SegmentedCache}, so concurrent lookups rarely contend.</p>
  *
  * @author vegardh
  */
@@ -22,15 +18,10 @@ public class Cache<K, V> {
     private Value elems = null;
     private Value entrySizes = null;
 
-    private Map<CacheKey<K>,CacheValue<K, V>> content=new LinkedHashMap<>(12500, 1.0f, true);
+    private final SegmentedCache<K, V> content;
     private SizeCalculator calc = new SizeCalculator();
     private long maxSizeBytes;
 
-    private long currentSizeBytes=0;
-
-    /** The time an element is allowed to live, negative for indefinite lifespan */
-    private long timeToLiveMillis=-1;
-
     /** The max allowed size of an entry */
     private long maxEntrySizeBytes=10000;
 
@@ -44,8 +35,8 @@ public class Cache<K, V> {
      */
     public Cache(long maxSizeBytes,long timeToLiveMillis, long maxEntrySizeBytes, Statistics manager) {
         this.maxSizeBytes=maxSizeBytes;
-        this.timeToLiveMillis=timeToLiveMillis;
         this.maxEntrySizeBytes=maxEntrySizeBytes;
+        this.content = new SegmentedCache<>(maxSizeBytes, Math.min(maxEntrySizeBytes, maxSizeBytes), timeToLiveMillis);
         initStats(manager);
     }
 
@@ -55,26 +46,18 @@ public class Cache<K, V> {
         entrySizes = new Value("querycache_entry_sizes", manager,
                 new Value.Parameters().setLogRaw(false).setLogMean(true)
                         .setNameExtension(true).setLogMax(true));
+        new Value("querycache_hits", manager, new Value.Parameters().setLogRaw(true).setNameExtension(true)
+                .setCallback((handle, firstTime) -> ((Value)handle).put(content.hits())));
+        new Value("querycache_misses", manager, new Value.Parameters().setLogRaw(true).setNameExtension(true)
+                .setCallback((handle, firstTime) -> ((Value)handle).put(content.misses())));
+        new Value("querycache_evictions", manager, new Value.Parameters().setLogRaw(true).setNameExtension(true)
+                .setCallback((handle, firstTime) -> ((Value)handle).put(content.evictions())));
     }
 
-    private synchronized CacheValue<K, V> synchGet(CacheKey<K> k) {
-        return content.get(k);
-    }
-
-    private synchronized boolean synchPut(K key,V value, long keySizeBytes, long valueSizeBytes) {
-        // log.info("Put "+key.toString()+ " key size:"+keySizeBytes+" val size:"+valueSizeBytes);
-        makeRoomForBytes(valueSizeBytes+keySizeBytes);
-        CacheKey<K> cacheKey = new CacheKey<>(keySizeBytes, key);
-        CacheValue<K, V> cacheValue;
-        if (timeToLiveMillis<0) {
-            cacheValue=new CacheValue<>(valueSizeBytes,value, cacheKey);
-        } else {
-            cacheValue=new AgingCacheValue<>(valueSizeBytes,value, cacheKey);
-        }
-        currentSizeBytes+=(valueSizeBytes+keySizeBytes);
+    private boolean put(K key, V value, long sizeBytes) {
+        boolean added = content.put(key, value, sizeBytes, System.currentTimeMillis());
         elems.put(content.size());
-        content.put(cacheKey, cacheValue);
-        return true;
+        return added;
     }
 
     /**
@@ -91,7 +74,7 @@ public class Cache<K, V> {
                 return false;
             }
             entrySizes.put(totalSizeBytes);
-            return synchPut(key, value, 0, totalSizeBytes);
+            return put(key, value, totalSizeBytes);
         }
         long keySizeBytes=calc.sizeOf(key);
         long valueSizeBytes=calc.sizeOf(value);
@@ -99,7 +82,7 @@ public class Cache<K, V> {
             return false;
         }
         entrySizes.put(keySizeBytes+valueSizeBytes);
-        return synchPut(key, value, keySizeBytes, valueSizeBytes);
+        return put(key, value, keySizeBytes + valueSizeBytes);
     }
 
     /**
@@ -115,51 +98,13 @@ public class Cache<K, V> {
         return false;
     }
 
-    private void makeRoomForBytes(long bytes) {
-        if ((maxSizeBytes-currentSizeBytes) > bytes) {
-                return;
-        }
-        if (content.isEmpty()) {
-            return;
-        }
-        for (Iterator<Map.Entry<CacheKey<K>, CacheValue<K, V>>> i = content.entrySet().iterator() ; i.hasNext() ; ) {
-                Map.Entry<CacheKey<K>, CacheValue<K, V>> entry = i.next();
-            CacheKey<K> key = entry.getKey();
-            CacheValue<K, V> value = entry.getValue();
-            // Can't call this.removeField(), breaks iterator.
-            i.remove();  // Access order: first ones are LRU.
-            currentSizeBytes-=key.sizeBytes();
-            currentSizeBytes-=value.sizeBytes();
-            if ((maxSizeBytes-currentSizeBytes) > bytes) {
-                break;
-            }
-        }
-    }
-
     public boolean containsKey(K k) {
-        return content.containsKey(new CacheKey<>(-1, k));
+        return content.containsKey(k);
     }
 
     /** Returns a value, if it is present in the cache */
     public V get(K key) {
-        // Currently it works to make a new CacheKey object without size
-        // because we have changed hashCode() there.
-        CacheKey<K> cacheKey = new CacheKey<>(-1, key);
-        CacheValue<K, V> value=synchGet(cacheKey);
-        if (value==null) {
-            return null;
-        }
-        if (timeToLiveMillis<0) {
-            return value.value();
-        }
-
-        if (value.expired(timeToLiveMillis)) {
-            //  There was a value, which has now expired
-            remove(key);
-            return null;
-        } else {
-            return value.value();
-        }
+        return content.get(key);
     }
 
     /**
@@ -167,13 +112,10 @@ public class Cache<K, V> {
      *
      * @return true if the value was removed, false if it was not present
      */
-    public synchronized boolean remove(K key) {
-        CacheValue<K, V> value=content.remove(key);
-        if (value==null) {
+    public boolean remove(K key) {
+        if (content.remove(key) == null) {
             return false;
         }
-        currentSizeBytes-=value.sizeBytes();
-        currentSizeBytes-=value.getKey().sizeBytes();
         elems.put(content.size());
         return true;
     }
@@ -182,93 +124,4 @@ public class Cache<K, V> {
         return content.size();
     }
 
-    private static class CacheKey<K> {
-        private long sizeBytes;
-        private K key;
-        public CacheKey(long sizeBytes,K key) {
-                this.sizeBytes=sizeBytes;
-            this.key=key;
-        }
-
-        public long sizeBytes() {
-            return sizeBytes;
-        }
-
-        public K getKey() {
-            return key;
-        }
-
-        public int hashCode() {
-                return key.hashCode();
-        }
-
-        @SuppressWarnings("rawtypes")
-        public boolean equals(Object k) {
-                if (key==null) {
-                return false;
-            }
-            if (k==null) {
-                return false;
-            }
-            if (k instanceof CacheKey) {
-                return key.equals(((CacheKey)k).getKey());
-            }
-            return false;
-        }
-
-        public String toString() {
-            return key.toString();
-        }
-
-    }
-
-    private static class CacheValue<K, V> {
-        private long sizeBytes;
-        private V value;
-        private CacheKey<K> key;
-        public CacheValue(long sizeBytes, V value, CacheKey<K> key) {
-            this.sizeBytes=sizeBytes;
-            this.value=value;
-            this.key = key;
-        }
-
-        public boolean expired(long ttl) {
-            return false;
-        }
-
-        public V value() {
-            return value;
-        }
-
-        public long sizeBytes() {
-            return sizeBytes;
-        }
-
-        public CacheKey<K> getKey() {
-            return key;
-        }
-
-        public String toString() {
-            return value.toString();
-        }
-
-    }
-
-    private static class AgingCacheValue<K, V> extends CacheValue<K, V> {
-        private long birthTimeMillis;
-
-        public AgingCacheValue(long sizeBytes,V value, CacheKey<K> key) {
-            super(sizeBytes,value, key);
-            this.birthTimeMillis=System.currentTimeMillis();
-        }
-
-        public long ageMillis() {
-            return System.currentTimeMillis()-birthTimeMillis;
-        }
-
-        public boolean expired(long ttl) {
-            return (ageMillis() >= ttl);
-        }
-    }
-
 }
@@ -0,0 +1,259 @@
+// Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.prelude.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>An LRU cache which keeps the total size in bytes of its content below a configured maximum.</p>
+ *
+ * <p>The content is split into a number of segments by key hash, each with its own lock, LRU order and
+ * an equal share of the total byte budget, so that concurrent lookups of different keys rarely contend.
+ * Small caches use a single segment, which gives exact LRU ordering over all entries.</p>
+ *
+ * <p>Entries larger than the max entry size given on construction are not admitted. The number of segments
+ * is limited such that the share of each segment is at least this size, so that an entry of the max size
+ * can always be cached.</p>
+ *
+ * <p>Thread safe.</p>
+ *
+ * @author agent
+ */
+public class SegmentedCache<K, V> {
+
+    /** The smallest byte budget we want a segment to have, to keep the LRU order of each segment meaningful */
+    private static final long minSegmentSizeBytes = 1 << 20;
+
+    /** The max number of segments created by default */
+    private static final int maxDefaultSegments = 64;
+
+    private final Segment<K, V>[] segments;
+    private final int segmentMask;
+
+    /** The max size of a single entry, which is never larger than the byte budget of a segment */
+    private final long maxEntrySizeBytes;
+
+    /** The max age of an entry in milliseconds, negative for indefinite lifespan */
+    private final long maxAgeMillis;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Creates a cache with as many segments as is suitable for the given sizes
+     *
+     * @param maxSizeBytes the max total size of the entries in this
+     * @param maxEntrySizeBytes the max size of a single entry, at most maxSizeBytes.
+     *                          Fewer segments are used the larger this is, and a single one if it is maxSizeBytes.
+     * @param maxAgeMillis the max age of an entry, a negative value means unlimited time
+     */
+    public SegmentedCache(long maxSizeBytes, long maxEntrySizeBytes, long maxAgeMillis) {
+        this(maxSizeBytes, maxEntrySizeBytes, maxAgeMillis, defaultSegmentCount(maxSizeBytes, maxEntrySizeBytes));
+    }
+
+    /**
+     * Creates a cache
+     *
+     * @param maxSizeBytes the max total size of the entries in this
+     * @param maxEntrySizeBytes the max size of a single entry
+     * @param maxAgeMillis the max age of an entry, a negative value means unlimited time
+     * @param segmentCount the number of independently locked segments, rounded up to the nearest power of two
+     * @throws IllegalArgumentException if the share of the byte budget of each segment is smaller than maxEntrySizeBytes
+     */
+    @SuppressWarnings("unchecked")
+    public SegmentedCache(long maxSizeBytes, long maxEntrySizeBytes, long maxAgeMillis, int segmentCount) {
+        if (segmentCount < 1) throw new IllegalArgumentException("A cache must have at least one segment");
+        int size = Integer.highestOneBit(segmentCount);
+        if (size < segmentCount) size <<= 1;
+        if (maxSizeBytes / size < maxEntrySizeBytes)
+            throw new IllegalArgumentException("A cache of " + maxSizeBytes + " bytes cannot have " + size +
+                                               " segments and fit entries of " + maxEntrySizeBytes + " bytes");
+        this.segments = new Segment[size];
+        this.segmentMask = size - 1;
+        this.maxEntrySizeBytes = maxEntrySizeBytes;
+        this.maxAgeMillis = maxAgeMillis;
+        for (int i = 0; i < size; i++)
+            segments[i] = new Segment<>(maxSizeBytes / size);
+    }
+
+    /** Returns the largest power of two number of segments suitable for the given sizes */
+    private static int defaultSegmentCount(long maxSizeBytes, long maxEntrySizeBytes) {
+        long bySize = maxSizeBytes / Math.max(minSegmentSizeBytes, maxEntrySizeBytes);
+        int byCpu = Runtime.getRuntime().availableProcessors() * 2;
+        int count = (int)Math.max(1, Math.min(bySize, Math.min(byCpu, maxDefaultSegments)));
+        return Integer.highestOneBit(count); // round down, such that each segment still fits the largest entry
+    }
+
+    private Segment<K, V> segmentOf(Object key) {
+        int hash = key.hashCode();
+        hash ^= (hash >>> 16); // spread the high bits, as keys may have poorly distributed low bits
+        return segments[hash & segmentMask];
+    }
+
+    /**
+     * Adds a value to this cache, replacing any previous value of the same key,
+     * and evicts the least recently used entries of its segment as necessary to stay below the max size.
+     *
+     * @param key the key of the value
+     * @param value the value to add
+     * @param sizeBytes the size of this entry, including the key
+     * @param timestamp the time this value was created, used to expire it
+     * @return true if the value was added, false if it is larger than the max entry size of this
+     */
+    public boolean put(K key, V value, long sizeBytes, long timestamp) {
+        if (sizeBytes > maxEntrySizeBytes) {
+            remove(key); // the old value is now stale
+            return false;
+        }
+        evictions.add(segmentOf(key).put(key, new Entry<>(value, sizeBytes, timestamp)));
+        return true;
+    }
+
+    /** Returns the value of the given key, or null if it is not present or has expired */
+    public V get(K key) {
+        return get(key, System.currentTimeMillis());
+    }
+
+    /** Returns the value of the given key, or null if it is not present or expired at the given time */
+    public V get(K key, long now) {
+        Segment<K, V> segment = segmentOf(key);
+        Entry<V> entry = segment.get(key);
+        if (entry != null && maxAgeMillis >= 0 && now - entry.timestamp >= maxAgeMillis) {
+            segment.remove(key, entry);
+            entry = null;
+        }
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.value;
+    }
+
+    /** Returns whether this contains a value for the given key, without updating its LRU position */
+    public boolean containsKey(K key) {
+        return segmentOf(key).containsKey(key);
+    }
+
+    /** Removes the value of the given key and returns it, or null if it was not present */
+    public V remove(K key) {
+        Entry<V> removed = segmentOf(key).remove(key);
+        return removed == null ? null : removed.value;
+    }
+
+    /** Removes all the content of this */
+    public void clear() {
+        for (Segment<K, V> segment : segments)
+            segment.clear();
+    }
+
+    /** Returns the number of entries in this */
+    public int size() {
+        int size = 0;
+        for (Segment<K, V> segment : segments)
+            size += segment.size();
+        return size;
+    }
+
+    /** Returns the total size in bytes of the entries in this */
+    public long sizeBytes() {
+        long sizeBytes = 0;
+        for (Segment<K, V> segment : segments)
+            sizeBytes += segment.sizeBytes();
+        return sizeBytes;
+    }
+
+    /** Returns the max size of a single entry in this */
+    public long maxEntrySizeBytes() { return maxEntrySizeBytes; }
+
+    /** Returns the number of segments of this */
+    public int segmentCount() { return segments.length; }
+
+    /** Returns the number of lookups which have found a value in this */
+    public long hits() { return hits.sum(); }
+
+    /** Returns the number of lookups which have not found a value in this, including lookups of expired values */
+    public long misses() { return misses.sum(); }
+
+    /** Returns the number of entries which have been removed to make room for new ones */
+    public long evictions() { return evictions.sum(); }
+
+    private static class Entry<V> {
+
+        final V value;
+        final long sizeBytes;
+        final long timestamp;
+
+        Entry(V value, long sizeBytes, long timestamp) {
+            this.value = value;
+            this.sizeBytes = sizeBytes;
+            this.timestamp = timestamp;
+        }
+
+    }
+
+    /** A part of the cache with its own lock and byte budget. All access to a segment is synchronized on it. */
+    private static class Segment<K, V> {
+
+        private final Map<Object, Entry<V>> content = new LinkedHashMap<>(16, 0.75f, true);
+        private final long maxSizeBytes;
+        private long sizeBytes = 0;
+
+        Segment(long maxSizeBytes) {
+            this.maxSizeBytes = maxSizeBytes;
+        }
+
+        synchronized Entry<V> get(Object key) {
+            return content.get(key);
+        }
+
+        synchronized boolean containsKey(Object key) {
+            return content.containsKey(key);
+        }
+
+        /** Adds an entry and returns the number of entries evicted to make room for it */
+        synchronized int put(K key, Entry<V> entry) {
+            Entry<V> previous = content.put(key, entry);
+            if (previous != null)
+                sizeBytes -= previous.sizeBytes;
+            sizeBytes += entry.sizeBytes;
+
+            int evicted = 0;
+            for (Iterator<Entry<V>> i = content.values().iterator(); sizeBytes > maxSizeBytes && i.hasNext(); ) {
+                Entry<V> eldest = i.next(); // access order: first ones are least recently used
+                if (eldest == entry) continue;
+                i.remove();
+                sizeBytes -= eldest.sizeBytes;
+                evicted++;
+            }
+            return evicted;
+        }
+
+        synchronized Entry<V> remove(Object key) {
+            Entry<V> removed = content.remove(key);
+            if (removed != null)
+                sizeBytes -= removed.sizeBytes;
+            return removed;
+        }
+
+        /** Removes the given entry if it is still the current value of the key */
+        synchronized void remove(Object key, Entry<V> entry) {
+            if (content.remove(key, entry))
+                sizeBytes -= entry.sizeBytes;
+        }
+
+        synchronized void clear() {
+            content.clear();
+            sizeBytes = 0;
+        }
+
+        synchronized int size() { return content.size(); }
+
+        synchronized long sizeBytes() { return sizeBytes; }
+
+    }
+
+}
@@ -38,13 +38,20 @@ import com.yahoo.statistics.Statistics;
 import com.yahoo.statistics.Value;
 import com.yahoo.vespa.config.search.DispatchConfig;
 import com.yahoo.vespa.streamingvisitors.VdsStreamingSearcher;
+import com.yahoo.yolean.Exceptions;
 
 import java.io.IOException;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -484,8 +491,7 @@ public class ClusterSearcher extends Searcher {
             return searcher.search(queries.get(0), execution);
         } else {
             Result mergedResult = new Result(query.clone());
-            for (Query q : queries) {
-                Result result = searcher.search(q, execution);
+            for (Result result : searchAll(searcher, queries, execution)) {
                 mergedResult.mergeWith(result);
                 mergedResult.hits().addAll(result.hits().asUnorderedHits());
             }
@@ -501,6 +507,55 @@ public class ClusterSearcher extends Searcher {
         }
     }
 
+    /**
+     * Searches the given queries in parallel, the first in this thread and the others asynchronously,
+     * and returns the results in the same order as the queries.
+     */
+    private List<Result> searchAll(Searcher searcher, List<Query> queries, Execution execution) {
+        List<CompletableFuture<Result>> futureResults = new ArrayList<>(queries.size() - 1);
+        for (Query query : queries.subList(1, queries.size()))
+            futureResults.add(new Execution(searcher, execution.context()).searchAsync(query));
+
+        List<Result> results = new ArrayList<>(queries.size());
+        results.add(searcher.search(queries.get(0), execution));
+        try {
+            CompletableFuture.allOf(futureResults.toArray(new CompletableFuture[futureResults.size()]))
+                    .get(queries.get(0).getTimeLeft(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException | ExecutionException | TimeoutException e) {
+            // Searches which did not complete are handled below
+        }
+        for (int i = 0; i < futureResults.size(); i++)
+            results.add(resultOf(futureResults.get(i), queries.get(i + 1)));
+        return results;
+    }
+
+    /**
+     * Returns the result of the given future if it is complete, a result with an error if it failed, or
+     * a result with a timeout error if it timed out, in which case the search is cancelled as it is not needed
+     */
+    private Result resultOf(CompletableFuture<Result> futureResult, Query query) {
+        if ( ! futureResult.isDone() && futureResult.cancel(true))
+            return new Result(query, createTimeout(query));
+        try {
+            return futureResult.join();
+        }
+        catch (CancellationException e) {
+            return new Result(query, createTimeout(query));
+        }
+        catch (CompletionException e) {
+            if (e.getCause() instanceof TimeoutException)
+                return new Result(query, createTimeout(query));
+            return new Result(query, ErrorMessage.createErrorInPluginSearcher("Error searching document type " +
+                                                                              query.getModel().getRestrict() + ": " +
+                                                                              Exceptions.toMessageString(e.getCause()),
+                                                                              e.getCause()));
+        }
+    }
+
+    private ErrorMessage createTimeout(Query query) {
+        return ErrorMessage.createTimeout("Timed out searching document type " + query.getModel().getRestrict());
+    }
+
     Set<String> resolveDocumentTypes(Query query, IndexFacts indexFacts) {
         Set<String> restrict = query.getModel().getRestrict();
         if (restrict == null || restrict.isEmpty()) {
@@ -117,4 +117,10 @@ public abstract class DocsumField {
      **/
     public abstract Object convert(Inspector value);
 
+    /**
+     * Returns whether string values of this field are used as-is, such that they
+     * may be rendered directly from their UTF-8 bytes without being converted.
+     */
+    public boolean isString() { return false; }
+
 }
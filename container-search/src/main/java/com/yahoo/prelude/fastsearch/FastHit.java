@@ -2,6 +2,7 @@
 package com.yahoo.prelude.fastsearch;
 
 import com.google.common.annotations.Beta;
+import com.google.common.collect.ForwardingMapEntry;
 import com.yahoo.document.GlobalId;
 import com.yahoo.fs4.QueryPacketData;
 import com.yahoo.net.URI;
@@ -11,6 +12,9 @@ import com.yahoo.data.access.Inspector;
 import com.yahoo.data.access.Type;
 import com.yahoo.data.access.simple.Value.StringValue;
 
+import java.util.Iterator;
+import java.util.Map;
+
 /**
  * A regular hit from a Vespa backend
  *
@@ -117,7 +121,7 @@ public class FastHit extends Hit {
         if (uri != null) return uri;
 
         // TODO: Remove, this should be one of the last vestiges of URL field magic
-        if (fields().containsKey("uri")) {
+        if (fieldKeys().contains("uri")) {
             // trigger decoding
             Object o = getField("uri");
             setId(o.toString());
@@ -240,10 +244,40 @@ public class FastHit extends Hit {
 
     private Object getAndCacheLazyValue(String key, LazyValue value) {
         Object forcedValue = value.getValue(key);
-        setField(key, forcedValue);
+        super.setField(key, forcedValue);
         return forcedValue;
     }
 
+    @Override
+    public Object setField(String key, Object value) {
+        return decoded(key, super.setField(key, value));
+    }
+
+    @Override
+    public Object removeField(String key) {
+        return decoded(key, super.removeField(key));
+    }
+
+    /** Returns the fields of this as a read-only map. This decodes all fields which are not already decoded. */
+    @Override
+    public Map<String, Object> fields() {
+        for (Map.Entry<String, Object> field : super.fields().entrySet()) {
+            if (field.getValue() instanceof LazyValue)
+                getAndCacheLazyValue(field.getKey(), (LazyValue) field.getValue());
+        }
+        return super.fields();
+    }
+
+    /** Returns an iterator over the fields of this, where values are decoded when they are accessed */
+    @Override
+    public Iterator<Map.Entry<String, Object>> fieldIterator() {
+        return new DecodingFieldIterator(super.fieldIterator());
+    }
+
+    private static Object decoded(String key, Object value) {
+        return value instanceof LazyValue ? ((LazyValue) value).getValue(key) : value;
+    }
+
     /** Returns false - this is a concrete hit containing requested content */
     public boolean isMeta() {
         return false;
@@ -273,14 +307,14 @@ public class FastHit extends Hit {
             String fieldName = field.getName();
             Inspector f = value.field(fieldName);
             if (field.getEmulConfig().forceFillEmptyFields() || f.valid()) {
-                setDocsumFieldIfNotPresent(fieldName, field.convert(f));
+                setDocsumFieldIfNotPresent(fieldName, new LazyDocsumValue(field, f));
             }
         }
     }
 
     private void setDocsumFieldIfNotPresent(String fieldName, Object value) {
         if (super.getField(fieldName) == null) {
-            setField(fieldName, value);
+            super.setField(fieldName, value);
         }
     }
 
@@ -297,7 +331,7 @@ public class FastHit extends Hit {
      */
     @Beta
     public void setLazyStringField(String fieldName, byte[] value) {
-        setField(fieldName, new LazyString(new StringField(fieldName), new StringValue(value)));
+        super.setField(fieldName, new LazyString(new StringField(fieldName), new StringValue(value)));
     }
 
     /**
@@ -378,6 +412,31 @@ public class FastHit extends Hit {
         abstract RawField getFieldAsUtf8(String fieldName);
     }
 
+    /**
+     * A docsum field which is converted to its Java representation when it is accessed.
+     * String values may be rendered directly from their UTF-8 bytes instead.
+     */
+    private static class LazyDocsumValue extends LazyValue {
+
+        private final DocsumField fieldType;
+        private final Inspector value;
+
+        LazyDocsumValue(DocsumField fieldType, Inspector value) {
+            this.fieldType = fieldType;
+            this.value = value;
+        }
+
+        Object getValue(String fieldName) {
+            return fieldType.convert(value);
+        }
+
+        RawField getFieldAsUtf8(String fieldName) {
+            if ( ! fieldType.isString() || value.type() != Type.STRING) return null;
+            return new RawField(fieldType, value.asUtf8());
+        }
+
+    }
+
     private static class LazyString extends LazyValue {
 
         private final Inspector value;
@@ -399,4 +458,55 @@ public class FastHit extends Hit {
 
     }
 
+    /** Decodes field values as they are accessed, such that unaccessed fields are never decoded */
+    private static class DecodingFieldIterator implements Iterator<Map.Entry<String, Object>> {
+
+        private final Iterator<Map.Entry<String, Object>> fields;
+
+        DecodingFieldIterator(Iterator<Map.Entry<String, Object>> fields) {
+            this.fields = fields;
+        }
+
+        @Override
+        public boolean hasNext() { return fields.hasNext(); }
+
+        @Override
+        public Map.Entry<String, Object> next() {
+            Map.Entry<String, Object> field = fields.next();
+            if ( ! (field.getValue() instanceof LazyValue)) return field;
+            return new DecodingEntry(field);
+        }
+
+        @Override
+        public void remove() { fields.remove(); }
+
+    }
+
+    private static class DecodingEntry extends ForwardingMapEntry<String, Object> {
+
+        private final Map.Entry<String, Object> field;
+
+        DecodingEntry(Map.Entry<String, Object> field) {
+            this.field = field;
+        }
+
+        @Override
+        protected Map.Entry<String, Object> delegate() { return field; }
+
+        @Override
+        public Object getValue() {
+            Object value = field.getValue();
+            if ( ! (value instanceof LazyValue)) return value;
+            Object decoded = ((LazyValue) value).getValue(field.getKey());
+            field.setValue(decoded);
+            return decoded;
+        }
+
+        @Override
+        public Object setValue(Object value) {
+            return decoded(field.getKey(), field.setValue(value));
+        }
+
+    }
+
 }
@@ -6,6 +6,7 @@ import java.util.Optional;
 import com.yahoo.compress.CompressionType;
 import com.yahoo.fs4.BasicPacket;
 import com.yahoo.fs4.ChannelTimeoutException;
+import com.yahoo.fs4.DocumentInfo;
 import com.yahoo.fs4.GetDocSumsPacket;
 import com.yahoo.fs4.Packet;
 import com.yahoo.fs4.PingPacket;
@@ -27,6 +28,7 @@ import com.yahoo.search.dispatch.SearchCluster;
 import com.yahoo.search.grouping.GroupingRequest;
 import com.yahoo.search.grouping.request.GroupingOperation;
 import com.yahoo.search.query.Ranking;
+import com.yahoo.search.result.Coverage;
 import com.yahoo.search.result.ErrorMessage;
 import com.yahoo.search.result.Hit;
 import com.yahoo.search.result.HitGroup;
@@ -34,7 +36,11 @@ import com.yahoo.search.searchchain.Execution;
 import edu.umd.cs.findbugs.annotations.NonNull;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Iterator;
+import java.util.List;
 import java.util.logging.Level;
 
 import static com.yahoo.container.util.Util.quote;
@@ -56,6 +62,12 @@ public class FastSearcher extends VespaBackEndSearcher {
     /** If this is turned on this will make search queries directly to the local search node when possible */
     private final static CompoundName dispatchDirect = new CompoundName("dispatch.direct");
 
+    /**
+     * If this is turned on this will make search queries directly to all the nodes of a group chosen by
+     * the load balancer of the dispatcher, instead of going through a dispatch node, when possible
+     */
+    private final static CompoundName dispatchInternal = new CompoundName("dispatch.internal");
+
     /** The compression method which will be used with rpc dispatch. "lz4" (default) and "none" is supported. */
     private final static CompoundName dispatchCompression = new CompoundName("dispatch.compression");
 
@@ -170,12 +182,19 @@ public class FastSearcher extends VespaBackEndSearcher {
     public Result doSearch2(Query query, QueryPacket queryPacket, CacheKey cacheKey, Execution execution) {
         FS4Channel channel = null;
         try {
-            if (dispatcher.searchCluster().groupSize() == 1)
-                forceSinglePassGrouping(query);
-            channel = chooseBackend(query).openChannel();
-            channel.setQuery(query);
+            Result result;
+            Optional<SearchCluster.Group> group = chooseGroup(query);
+            if (group.isPresent()) {
+                result = searchGroup(group.get(), query);
+            }
+            else {
+                if (dispatcher.searchCluster().groupSize() == 1)
+                    forceSinglePassGrouping(query);
+                channel = chooseBackend(query).openChannel();
+                channel.setQuery(query);
 
-            Result result = searchTwoPhase(channel, query, queryPacket, cacheKey);
+                result = searchTwoPhase(channel, query, queryPacket, cacheKey);
+            }
 
             if (query.properties().getBoolean(Ranking.RANKFEATURES, false)) {
                 // There is currently no correct choice for which
@@ -236,6 +255,128 @@ public class FastSearcher extends VespaBackEndSearcher {
                                           directDispatchRecipient.get().fs4port());
     }
 
+    /**
+     * Returns the group we should dispatch this query to directly (bypassing fdispatch),
+     * or empty if it should be sent to the dispatch node.
+     * Grouping and sorting data can currently only be merged by dispatch nodes, so such queries are never
+     * dispatched directly. If a group is returned it must be released to the load balancer after use.
+     */
+    private Optional<SearchCluster.Group> chooseGroup(Query query) {
+        if ( ! query.properties().getBoolean(dispatchInternal, false)) return Optional.empty();
+        if (dispatcher.loadBalancer() == null) return Optional.empty();
+        if ( ! GroupingRequest.getRequests(query).isEmpty()) return Optional.empty();
+        if (query.getRanking().getSorting() != null) return Optional.empty();
+
+        return dispatcher.loadBalancer().takeGroupForQuery(query);
+    }
+
+    /**
+     * Sends the query to all the nodes of the given group and merges their results.
+     * The query is sent to all nodes before waiting for any response, so the nodes are searched in parallel.
+     */
+    private Result searchGroup(SearchCluster.Group group, Query query) throws IOException {
+        long startTime = System.currentTimeMillis();
+        boolean success = false;
+        List<FS4Channel> channels = new ArrayList<>(group.nodes().size());
+        try {
+            // Each node must return all hits up to the last one requested, as we can only apply the offset after merging
+            Query nodeQuery = query.clone();
+            nodeQuery.setOffset(0);
+            nodeQuery.setHits(query.getOffset() + query.getHits());
+
+            for (SearchCluster.Node node : group.nodes()) {
+                FS4Channel channel = fs4ResourcePool.getBackend(node.hostname(), node.fs4port()).openChannel();
+                channel.setQuery(nodeQuery);
+                channels.add(channel);
+                if ( ! channel.sendPacket(QueryPacket.create(nodeQuery)))
+                    return new Result(query, ErrorMessage.createBackendCommunicationError("Could not reach " + node));
+            }
+
+            List<QueryResultPacket> resultPackets = new ArrayList<>(channels.size());
+            for (int i = 0; i < channels.size(); i++) {
+                BasicPacket[] basicPackets = channels.get(i).receivePackets(query.getTimeLeft(), 1);
+                if (basicPackets.length == 0)
+                    return new Result(query, ErrorMessage.createBackendCommunicationError(getName() + " got no packets back from " +
+                                                                                          group.nodes().get(i)));
+                ensureInstanceOf(QueryResultPacket.class, basicPackets[0], getName());
+                resultPackets.add((QueryResultPacket) basicPackets[0]);
+            }
+
+            Result result = mergeResults(query, group.nodes(), resultPackets);
+            success = true;
+            return result;
+        } catch (InvalidChannelException e) {
+            return new Result(query, ErrorMessage.createBackendCommunicationError("Invalid channel to " + group));
+        } catch (ChannelTimeoutException e) {
+            return new Result(query, ErrorMessage.createTimeout("Timeout while waiting for " + group));
+        } catch (IllegalStateException e) {
+            return new Result(query, ErrorMessage.createBackendCommunicationError("Illegal state in FS4: " + e.getMessage()));
+        } finally {
+            for (FS4Channel channel : channels)
+                channel.close();
+            dispatcher.loadBalancer().releaseGroup(group, success, System.currentTimeMillis() - startTime);
+        }
+    }
+
+    /**
+     * Merges the results from the nodes of a group into a single result containing the requested window of hits.
+     *
+     * @param nodes the nodes of the group, in the same order as the result packets they returned
+     */
+    private Result mergeResults(Query query, List<SearchCluster.Node> nodes, List<QueryResultPacket> resultPackets) {
+        if (query.getPresentation().getSummary() == null)
+            query.getPresentation().setSummary(getDefaultDocsumClass());
+
+        // The hits of this result can only be filled by the node which returned them, which only the rpc fill knows
+        query.properties().set(dispatchSummaries, true);
+
+        Result result = new Result(query);
+        long totalHitCount = 0;
+        Coverage coverage = null;
+        List<NodeDocument> documents = new ArrayList<>();
+        for (int i = 0; i < resultPackets.size(); i++) {
+            QueryResultPacket resultPacket = resultPackets.get(i);
+            totalHitCount += resultPacket.getTotalDocumentCount();
+            if (resultPacket.getCoverageFeature()) {
+                Coverage nodeCoverage = new Coverage(resultPacket.getCoverageDocs(), resultPacket.getActiveDocs())
+                        .setSoonActive(resultPacket.getSoonActiveDocs())
+                        .setDegradedReason(resultPacket.getDegradedReason());
+                if (coverage == null)
+                    coverage = nodeCoverage;
+                else
+                    coverage.merge(nodeCoverage);
+            }
+            for (DocumentInfo document : resultPacket.getDocuments())
+                documents.add(new NodeDocument(nodes.get(i), document));
+        }
+        result.setTotalHitCount(totalHitCount);
+        if (coverage != null)
+            result.setCoverage(coverage);
+
+        documents.sort(Comparator.comparingDouble((NodeDocument document) -> document.document.getMetric()).reversed());
+        int from = Math.min(query.getOffset(), documents.size());
+        int to = Math.min(from + query.getHits(), documents.size());
+        for (NodeDocument document : documents.subList(from, to)) {
+            // Search nodes do not return the distribution key, which the fill needs to find the node holding the hit
+            if (addUnfilledHits(result, Collections.singletonList(document.document), false, null, null))
+                ((FastHit)result.hits().get(result.hits().size() - 1)).setDistributionKey(document.node.key());
+        }
+        return result;
+    }
+
+    /** A document returned from a search node */
+    private static class NodeDocument {
+
+        final SearchCluster.Node node;
+        final DocumentInfo document;
+
+        NodeDocument(SearchCluster.Node node, DocumentInfo document) {
+            this.node = node;
+            this.document = document;
+        }
+
+    }
+
     /**
      * Only used to fill the sddocname field when using direct dispatching as that is normally done in VespaBackEndSearcher.decodeSummary
      * @param result The result
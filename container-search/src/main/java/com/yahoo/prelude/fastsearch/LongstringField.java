@@ -83,4 +83,8 @@ public class LongstringField extends DocsumField implements VariableLengthField
     public Object convert(Inspector value) {
         return value.asString("");
     }
+
+    @Override
+    public boolean isString() { return true; }
+
 }
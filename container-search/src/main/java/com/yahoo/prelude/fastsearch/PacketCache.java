@@ -2,50 +2,52 @@
 package com.yahoo.prelude.fastsearch;
 
 
-import java.util.Iterator;
-import java.util.LinkedHashMap;
-import java.util.Map;
 import java.util.logging.Logger;
 
 import com.yahoo.log.LogLevel;
+import com.yahoo.prelude.cache.SegmentedCache;
 
 
 /**
  * An LRU cache using number of hits cached inside the results as
- * size limiting factor. Directly modelled after com.yahoo.collections.Cache.
+ * size limiting factor. The content is held in a {@link SegmentedCache}, so
+ * this is thread safe and need not be externally synchronized.
  *
  * @author  <a href="mailto:steinar@yahoo-inc.com">Steinar Knutsen</a>
  * @author  bratseth
  */
-public class PacketCache extends LinkedHashMap<CacheKey, PacketWrapper> {
+public class PacketCache {
 
-    private static final long serialVersionUID = -7403077211906108356L;
-
-    /** The <i>current</i> number of bytes of packets in this cache */
-    private int totalSize;
+    private volatile SegmentedCache<CacheKey, PacketWrapper> content;
 
     /** The maximum number of bytes of packets in this cache */
     private final int capacity;
 
-    /** The max size of a cached item compared to the total size */
-    private int maxCacheItemPercentage = 1;
+    /** The max age of a cache entry in milliseconds */
+    private final long maxAgeMillis;
 
-    /** The max age for a valid cache entry, 0 mean infinite */
-    private final long maxAge;
+    /** The max size of a cached item compared to the total size */
+    private volatile int maxCacheItemPercentage = 1;
 
     private static final Logger log = Logger.getLogger(PacketCache.class.getName());
 
     public void clear() {
-        super.clear();
-        totalSize = 0;
+        content.clear();
     }
 
     /**
      * Sets the max size of a cached item compared to the total size
-     * Cache requests for larger objects will be ignored
+     * Cache requests for larger objects will be ignored.
+     * This clears the cache, as the number of segments of the content depends on the max item size.
      */
     public void setMaxCacheItemPercentage(int maxCapacityPercentage) {
         maxCacheItemPercentage = maxCapacityPercentage;
+        content = createContent();
+    }
+
+    private SegmentedCache<CacheKey, PacketWrapper> createContent() {
+        long maxItemSize = Math.min(capacity, (long)capacity * maxCacheItemPercentage / 100);
+        return new SegmentedCache<>(capacity, maxItemSize, maxAgeMillis);
     }
 
     /**
@@ -57,9 +59,6 @@ public class PacketCache extends LinkedHashMap<CacheKey, PacketWrapper> {
      * @param maxAge seconds a cache entry is valid, 0 or less are illegal arguments
      */
     public PacketCache(int capacityMegaBytes,int capacityBytes,double maxAge) {
-        // hardcoded inital entry capacity, won't matter much anyway
-        // after a while
-        super(12500, 1.0f, true);
         if (maxAge <= 0.0d) {
             throw new IllegalArgumentException("maxAge <= 0 not legal on 5.1, use some very large number for no timeout.");
         }
@@ -72,33 +71,8 @@ public class PacketCache extends LinkedHashMap<CacheKey, PacketWrapper> {
         if (this.capacity <= 0) {
             throw new IllegalArgumentException("Total cache size set to 0 or less bytes. If no caching is desired, avoid creating this object instead.");
         }
-        this.maxAge = (long) (maxAge * 1000.0d);
-    }
-
-    /**
-     * Overrides LinkedHashMap.removeEldestEntry as suggested to implement LRU cache.
-     */
-    protected boolean removeEldestEntry(Map.Entry<CacheKey, PacketWrapper> eldest)
-    {
-        if (totalSize > capacity) {
-            totalSize -= eldest.getValue().getPacketsSize();
-            return true;
-        }
-        return false;
-    }
-
-    private void removeOverflow() {
-        if (totalSize < capacity) return;
-
-        for (Iterator<PacketWrapper> i = values().iterator(); i.hasNext();) {
-            PacketWrapper eldestEntry = i.next();
-            totalSize -= eldestEntry.getPacketsSize();
-
-            i.remove();
-            if (totalSize < capacity) {
-                break;
-            }
-        }
+        this.maxAgeMillis = (long) (maxAge * 1000.0d);
+        this.content = createContent();
     }
 
     public int getCapacity() {
@@ -113,8 +87,8 @@ public class PacketCache extends LinkedHashMap<CacheKey, PacketWrapper> {
      * Adds a PacketWrapper object to this cache,
      * unless the size is more than maxCacheItemPercentage of the total size
      */
-    public PacketWrapper put(CacheKey key, PacketWrapper value) {
-        return put(key, value, System.currentTimeMillis());
+    public void put(CacheKey key, PacketWrapper value) {
+        put(key, value, System.currentTimeMillis());
     }
 
     /**
@@ -124,7 +98,7 @@ public class PacketCache extends LinkedHashMap<CacheKey, PacketWrapper> {
      * @param timestamp the timestamp for the first packet in the array,
      * unit milliseconds
      */
-    public PacketWrapper put(CacheKey key, PacketWrapper result, long timestamp) {
+    public void put(CacheKey key, PacketWrapper result, long timestamp) {
         int size = result.getPacketsSize();
 
         if (size > 0) {
@@ -132,21 +106,13 @@ public class PacketCache extends LinkedHashMap<CacheKey, PacketWrapper> {
         }
 
         // don't insert if it is too big
-        if (size * 100 > capacity * maxCacheItemPercentage) {
-            // removeField the old one since that is now stale.
-            return remove(key);
-        }
-
-        totalSize += size;
-        PacketWrapper previous = super.put(key, result);
-        if (previous != null) {
-            totalSize -= previous.getPacketsSize();
-        }
-        if (totalSize > (capacity * 1.1)) {
-            removeOverflow();
+        if ((long)size * 100 > (long)capacity * maxCacheItemPercentage) {
+            // remove the old one since that is now stale.
+            remove(key);
+            return;
         }
 
-        return previous;
+        content.put(key, result, size, timestamp);
     }
 
     public PacketWrapper get(CacheKey key) {
@@ -154,33 +120,29 @@ public class PacketCache extends LinkedHashMap<CacheKey, PacketWrapper> {
     }
 
     public PacketWrapper get(CacheKey key, long now) {
-        PacketWrapper result = super.get(key);
-
-        if (result == null) {
-            return result;
-        }
-
-        long timestamp = result.getTimestamp();
-
-        if ((now - timestamp) > maxAge) {
-            remove(key);
-            return null;
-        } else {
-            return result;
-        }
+        return content.get(key, now);
     }
 
     public PacketWrapper remove(CacheKey key) {
-        PacketWrapper removed = super.remove(key);
+        return content.remove(key);
+    }
 
-        if (removed != null) {
-            totalSize -= removed.getPacketsSize();
-        }
-        return removed;
+    /** Returns the number of entries in this */
+    public int size() {
+        return content.size();
     }
 
     public int totalPacketSize() {
-        return totalSize;
+        return (int)content.sizeBytes();
     }
 
+    /** Returns the number of lookups which have found an entry in this */
+    public long hits() { return content.hits(); }
+
+    /** Returns the number of lookups which have not found an entry in this */
+    public long misses() { return content.misses(); }
+
+    /** Returns the number of entries which have been removed to make room for new ones */
+    public long evictions() { return content.evictions(); }
+
 }
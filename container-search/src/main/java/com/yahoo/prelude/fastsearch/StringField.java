@@ -61,4 +61,7 @@ public class StringField extends DocsumField implements VariableLengthField {
         return value.asString("");
     }
 
+    @Override
+    public boolean isString() { return true; }
+
 }
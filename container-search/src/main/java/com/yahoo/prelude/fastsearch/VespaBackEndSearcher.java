@@ -56,7 +56,7 @@ public abstract class VespaBackEndSearcher extends PingableSearcher {
     private static final CompoundName grouping=new CompoundName("grouping");
     private static final CompoundName combinerows=new CompoundName("combinerows");
     /** If this is turned on this will fill summaries by dispatching directly to search nodes over RPC */
-    private final static CompoundName dispatchSummaries = new CompoundName("dispatch.summaries");
+    protected final static CompoundName dispatchSummaries = new CompoundName("dispatch.summaries");
 
     protected static final CompoundName PACKET_COMPRESSION_LIMIT = new CompoundName("packetcompressionlimit");
     protected static final CompoundName PACKET_COMPRESSION_TYPE = new CompoundName("packetcompressiontype");
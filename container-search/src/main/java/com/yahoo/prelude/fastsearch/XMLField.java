@@ -91,5 +91,8 @@ public class XMLField extends DocsumField implements VariableLengthField {
     public Object convert(Inspector value) {
         return convert(value.asString(""));
     }
-        
+
+    @Override
+    public boolean isString() { return true; }
+
 }
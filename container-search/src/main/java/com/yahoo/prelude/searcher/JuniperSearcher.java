@@ -107,7 +107,7 @@ public class JuniperSearcher extends Searcher {
             if (searchDefinitionField == null) continue;
             String searchDefinitionName = searchDefinitionField.toString();
 
-            for (String fieldName : hit.fields().keySet()) {
+            for (String fieldName : hit.fieldKeys()) {
                 Index index = indexFacts.getIndex(fieldName, searchDefinitionName);
                 if (index.getDynamicSummary() || index.getHighlightSummary())
                     insertTags(hit.buildHitField(fieldName, true, true), bolding, index.getDynamicSummary());
@@ -14,6 +14,7 @@ import com.yahoo.search.Result;
 import com.yahoo.search.Searcher;
 import com.yahoo.search.result.ErrorHit;
 import com.yahoo.search.result.ErrorMessage;
+import com.yahoo.search.searchchain.AsyncExecution;
 import com.yahoo.search.searchchain.Execution;
 import com.yahoo.search.searchchain.PhaseNames;
 import com.yahoo.statistics.Callback;
@@ -54,6 +55,7 @@ public class StatisticsSearcher extends Searcher {
     private static final String QUERY_LATENCY_METRIC = "query_latency";
     private static final String QUERIES_METRIC = "queries";
     private static final String ACTIVE_QUERIES_METRIC = "active_queries";
+    private static final String ACTIVE_ASYNC_BRANCHES_METRIC = "active_async_branches";
     private static final String PEAK_QPS_METRIC = "peak_qps";
 
     private Counter queries; // basic counter
@@ -97,17 +99,19 @@ public class StatisticsSearcher extends Searcher {
         metricReceiver.declareGauge(QUERY_LATENCY_METRIC, Optional.empty(), new MetricSettings.Builder().histogram(true).build());
     }
 
-    // Callback to measure queries in flight every five minutes
+    // Callback to measure queries and asynchronous search chain executions in flight every five minutes
     private class ActivitySampler implements Callback {
         public void run(Handle h, boolean firstRun) {
             if (firstRun) {
                 metric.set(ACTIVE_QUERIES_METRIC, 0, null);
+                metric.set(ACTIVE_ASYNC_BRANCHES_METRIC, 0, null);
                 return;
             }
             // TODO Server.get() is to be removed
             int searchQueriesInFlight = Server.get().searchQueriesInFlight();
             ((Value) h).put(searchQueriesInFlight);
             metric.set(ACTIVE_QUERIES_METRIC, searchQueriesInFlight, null);
+            metric.set(ACTIVE_ASYNC_BRANCHES_METRIC, AsyncExecution.inFlightCount(), null);
         }
     }
     private class PeakQpsReporter extends java.util.TimerTask {
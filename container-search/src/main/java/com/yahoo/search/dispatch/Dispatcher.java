@@ -21,6 +21,7 @@ import com.yahoo.search.result.ErrorMessage;
 import com.yahoo.search.result.Hit;
 import com.yahoo.data.access.Inspector;
 import com.yahoo.slime.BinaryFormat;
+import com.yahoo.slime.BinaryView;
 import com.yahoo.slime.Cursor;
 import com.yahoo.slime.JsonFormat;
 import com.yahoo.slime.Slime;
@@ -38,7 +39,7 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
- * A dispatcher communicates with search nodes to (in the future) perform queries and (now) fill hits.
+ * A dispatcher communicates with search nodes to perform queries and fill hits.
  * This class is multithread safe.
  *
  * @author bratseth
@@ -51,6 +52,9 @@ public class Dispatcher extends AbstractComponent {
 
     /** A model of the search cluster this dispatches to */
     private final SearchCluster searchCluster;
+
+    /** Chooses the group which should receive each query dispatched directly to the search cluster */
+    private final LoadBalancer loadBalancer;
     
     /** Connections to the search nodes this talks to, indexed by node id ("partid") */
     private final ImmutableMap<Integer, Client.NodeConnection> nodeConnections;
@@ -59,8 +63,9 @@ public class Dispatcher extends AbstractComponent {
 
     public Dispatcher(DispatchConfig dispatchConfig, FS4ResourcePool fs4ResourcePool,
                       int containerClusterSize, VipStatus vipStatus) {
-        this.client = new RpcClient();
+        this.client = new RpcClient(dispatchConfig.numTransportThreads());
         this.searchCluster = new SearchCluster(dispatchConfig, fs4ResourcePool, containerClusterSize, vipStatus);
+        this.loadBalancer = new LoadBalancer(searchCluster);
 
         // Create node rpc connections, indexed by the legacy "partid", which allows us to bridge
         // between fs4 calls (for search) and rpc calls (for summary fetch)
@@ -74,6 +79,7 @@ public class Dispatcher extends AbstractComponent {
     /** For testing */
     public Dispatcher(Map<Integer, Client.NodeConnection> nodeConnections, Client client) {
         this.searchCluster = null;
+        this.loadBalancer = null;
         this.nodeConnections = ImmutableMap.copyOf(nodeConnections);
         this.client = client;
     }
@@ -81,6 +87,9 @@ public class Dispatcher extends AbstractComponent {
     /** Returns the search cluster this dispatches to */
     public SearchCluster searchCluster() { return searchCluster; }
 
+    /** Returns the load balancer choosing which group of the search cluster should receive each query */
+    public LoadBalancer loadBalancer() { return loadBalancer; }
+
     /** Fills the given summary class by sending RPC requests to the right search nodes */
     public void fill(Result result, String summaryClass, CompressionType compression) {
         try {
@@ -237,7 +246,7 @@ public class Dispatcher extends AbstractComponent {
         }
 
         private void fill(List<FastHit> hits, byte[] slimeBytes) {
-            com.yahoo.slime.Inspector root = BinaryFormat.decode(slimeBytes).get();
+            com.yahoo.slime.Inspector root = BinaryView.inspect(slimeBytes);
             com.yahoo.slime.Inspector errors = root.field("errors");
             boolean hasErrors = errors.valid() && (errors.entries() > 0);
             if (hasErrors) {
@@ -0,0 +1,137 @@
+// Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.dispatch;
+
+import com.google.common.annotations.Beta;
+import com.google.common.collect.ImmutableList;
+import com.yahoo.search.Query;
+
+import java.util.Collection;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Chooses the group of a search cluster which should receive the next query, based on
+ * the measured latency of each group and the number of queries currently in flight to it.
+ * Callers must release each group taken by calling {@link #releaseGroup} once the query has completed.
+ * This class is multithread safe.
+ *
+ * @author agent
+ */
+@Beta
+public class LoadBalancer {
+
+    /** The weight given to the latest sample when updating the latency average of a group */
+    private static final double latencyDecayRate = 0.05;
+
+    /** The latency assumed for a group until it has been measured */
+    private static final double initialLatencyMillis = 1.0;
+
+    private final ImmutableList<GroupStatus> scoreboard;
+
+    /** Where to start looking for the best group, rotated on each query to spread load evenly between equal groups */
+    private final AtomicInteger nextStart = new AtomicInteger(0);
+
+    public LoadBalancer(SearchCluster searchCluster) {
+        this(searchCluster.groups().values());
+    }
+
+    public LoadBalancer(Collection<SearchCluster.Group> groups) {
+        ImmutableList.Builder<GroupStatus> scoreboardBuilder = new ImmutableList.Builder<>();
+        for (SearchCluster.Group group : groups)
+            scoreboardBuilder.add(new GroupStatus(group));
+        this.scoreboard = scoreboardBuilder.build();
+    }
+
+    /**
+     * Allocates the group which should receive the given query, or returns empty if no group
+     * is currently able to serve it, in which case the query should be dispatched elsewhere.
+     * A group is only chosen if all its nodes are working and it has sufficient coverage.
+     */
+    public Optional<SearchCluster.Group> takeGroupForQuery(Query query) {
+        if (scoreboard.isEmpty()) return Optional.empty();
+
+        int start = Math.floorMod(nextStart.getAndIncrement(), scoreboard.size());
+        GroupStatus best = null;
+        double bestScore = Double.MAX_VALUE;
+        for (int i = 0; i < scoreboard.size(); i++) {
+            GroupStatus candidate = scoreboard.get((start + i) % scoreboard.size());
+            if ( ! candidate.group.hasSufficientCoverage() || ! candidate.group.isFullyWorking()) continue;
+
+            double score = candidate.score();
+            if (score < bestScore) {
+                best = candidate;
+                bestScore = score;
+            }
+        }
+        if (best == null) return Optional.empty();
+
+        best.allocate();
+        query.trace(false, 3, "Dispatching to ", best.group, " (", best, ")");
+        return Optional.of(best.group);
+    }
+
+    /**
+     * Releases a group previously returned from {@link #takeGroupForQuery}.
+     *
+     * @param group the group to release
+     * @param success whether the query completed successfully. The latency of failed queries is not recorded.
+     * @param latencyMillis the time the query spent in the group
+     */
+    public void releaseGroup(SearchCluster.Group group, boolean success, long latencyMillis) {
+        for (GroupStatus status : scoreboard) {
+            if (status.group.id() == group.id()) {
+                status.release(success, latencyMillis);
+                return;
+            }
+        }
+        throw new IllegalArgumentException("Attempted to release " + group + " which is not part of this load balancer");
+    }
+
+    /** Returns the number of queries currently in flight to the given group */
+    public int allocations(SearchCluster.Group group) {
+        for (GroupStatus status : scoreboard)
+            if (status.group.id() == group.id()) return status.allocations();
+        return 0;
+    }
+
+    /** The load statistics of a single group */
+    private static class GroupStatus {
+
+        private final SearchCluster.Group group;
+
+        private final AtomicInteger allocations = new AtomicInteger(0);
+
+        /** The exponentially decaying average latency of this group. All updates must be synchronized */
+        private volatile double averageLatencyMillis = initialLatencyMillis;
+
+        GroupStatus(SearchCluster.Group group) {
+            this.group = group;
+        }
+
+        void allocate() {
+            allocations.incrementAndGet();
+        }
+
+        void release(boolean success, long latencyMillis) {
+            allocations.decrementAndGet();
+            if ( ! success) return;
+            synchronized (this) {
+                averageLatencyMillis += (Math.max(latencyMillis, 0) - averageLatencyMillis) * latencyDecayRate;
+            }
+        }
+
+        int allocations() { return allocations.get(); }
+
+        /** Returns the expected time to complete a new query in this group. Lower is better. */
+        double score() {
+            return (allocations.get() + 1) * Math.max(averageLatencyMillis, initialLatencyMillis);
+        }
+
+        @Override
+        public String toString() {
+            return "allocations: " + allocations.get() + ", average latency: " + String.format("%.1f", averageLatencyMillis) + " ms";
+        }
+
+    }
+
+}
@@ -24,7 +24,16 @@ import java.util.concurrent.atomic.AtomicReference;
  */
 class RpcClient implements Client {
 
-    private final Supervisor supervisor = new Supervisor(new Transport());
+    private final Supervisor supervisor;
+
+    /**
+     * Creates a client
+     *
+     * @param transportThreads the number of threads doing network IO for the connections of this
+     */
+    RpcClient(int transportThreads) {
+        supervisor = new Supervisor(new Transport(transportThreads));
+    }
 
     @Override
     public NodeConnection createConnection(String hostname, int port) {
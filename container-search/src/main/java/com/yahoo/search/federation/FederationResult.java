@@ -2,14 +2,19 @@
 package com.yahoo.search.federation;
 
 import com.google.common.collect.ImmutableList;
+import com.yahoo.search.Query;
 import com.yahoo.search.Result;
-import com.yahoo.search.searchchain.FutureResult;
+import com.yahoo.search.result.ErrorMessage;
 
 import java.time.Clock;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.stream.Collectors;
 
 /**
@@ -45,6 +50,7 @@ class FederationResult {
      * drive the timeout above their own timeout value.
      * When this completes, results can be accessed from the TargetResults with no blocking
      * (i.e getOrTimeout) without breaking any contract.
+     * The targets which are not complete at that point are cancelled, as their results will not be used.
      */
     public void waitForAll(int queryTimeout, Clock clock) {
         long startTime = clock.millis();
@@ -54,6 +60,8 @@ class FederationResult {
             nextToWaitFor.getIfAvailable(timeLeftOfNextTimeout);
             targetsToWaitFor.remove(nextToWaitFor);
         }
+        for (TargetResult targetResult : targetResults)
+            targetResult.cancelIfNotDone();
     }
     
     /** Returns an immutable list of the results of this */
@@ -71,7 +79,8 @@ class FederationResult {
     static class TargetResult {
 
         final FederationSearcher.Target target;
-        private final FutureResult futureResult;
+        private final Query query;
+        private final CompletableFuture<Result> futureResult;
 
         /** 
          * Single threaded access to result already returned from futureResult, if any.
@@ -79,8 +88,9 @@ class FederationResult {
          */
         private Optional<Result> availableResult = Optional.empty();
 
-        private TargetResult(FederationSearcher.Target target, FutureResult futureResult) {
+        private TargetResult(FederationSearcher.Target target, Query query, CompletableFuture<Result> futureResult) {
             this.target = target;
+            this.query = query;
             this.futureResult = futureResult;
         }
 
@@ -93,18 +103,32 @@ class FederationResult {
          */
         public Optional<Result> getIfAvailable(long timeout) {
             if (availableResult.isPresent()) return availableResult;
-            availableResult = futureResult.getIfAvailable(timeout, TimeUnit.MILLISECONDS);
+            try {
+                availableResult = Optional.of(futureResult.get(Math.max(0, timeout), TimeUnit.MILLISECONDS));
+            }
+            catch (InterruptedException e) {
+                availableResult = Optional.of(new Result(query, ErrorMessage.createUnspecifiedError("Interrupted while waiting for " + target)));
+            }
+            catch (TimeoutException | ExecutionException | CancellationException e) {
+                // Not available: An execution only fails exceptionally by timing out or being cancelled
+            }
             return availableResult;
         }
         
         /** Returns a result without blocking; if the result is not available one with a timeout error is produced */
         public Result getOrTimeoutError() {
-            // The else part is to offload creation of the timeout error
-            return getIfAvailable(0).orElse(futureResult.get(0, TimeUnit.MILLISECONDS));
+            return getIfAvailable(0).orElseGet(() -> new Result(query, ErrorMessage.createTimeout(
+                    "Error executing '" + target.getChain().getId() + "': Chain timed out.")));
         }
         
         public boolean successfullyCompleted() {
-            return futureResult.isDone() && ! futureResult.isCancelled();
+            return futureResult.isDone() && ! futureResult.isCompletedExceptionally();
+        }
+
+        /** Cancels the execution of this target if it is not complete, interrupting it if it is running */
+        private void cancelIfNotDone() {
+            if ( ! futureResult.isDone())
+                futureResult.cancel(true);
         }
 
         private int timeout(long queryTimeout) {
@@ -122,8 +146,8 @@ class FederationResult {
         
         private final ImmutableList.Builder<TargetResult> results = new ImmutableList.Builder();
         
-        public void add(FederationSearcher.Target target, FutureResult futureResult) {
-            results.add(new TargetResult(target, futureResult));
+        public void add(FederationSearcher.Target target, Query query, CompletableFuture<Result> futureResult) {
+            results.add(new TargetResult(target, query, futureResult));
         }
         
         public FederationResult build() {
@@ -32,10 +32,8 @@ import com.yahoo.search.result.ErrorMessage;
 import com.yahoo.search.result.Hit;
 import com.yahoo.search.result.HitGroup;
 import com.yahoo.search.result.HitOrderer;
-import com.yahoo.search.searchchain.AsyncExecution;
 import com.yahoo.search.searchchain.Execution;
 import com.yahoo.search.searchchain.ForkingSearcher;
-import com.yahoo.search.searchchain.FutureResult;
 import com.yahoo.search.searchchain.SearchChainRegistry;
 import com.yahoo.search.searchchain.model.federation.FederationOptions;
 import org.apache.commons.lang.StringUtils;
@@ -53,6 +51,8 @@ import java.util.Map.Entry;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 
@@ -245,16 +245,21 @@ public class FederationSearcher extends ForkingSearcher {
     private FederationResult search(Query query, Execution execution, Collection<Target> targets) {
         FederationResult.Builder result = new FederationResult.Builder();
         for (Target target : targets)
-            result.add(target, searchAsynchronously(query, execution, Window.from(targets, query), target));
+            searchAsynchronously(query, execution, Window.from(targets, query), target, result);
         return result.build();
     }
 
-    private FutureResult searchAsynchronously(Query query, Execution execution, Window window, Target target) {
+    private void searchAsynchronously(Query query, Execution execution, Window window, Target target,
+                                      FederationResult.Builder result) {
         long timeout = target.federationOptions().getSearchChainExecutionTimeoutInMilliseconds(query.getTimeLeft());
-        if (timeout <= 0)
-            return new FutureResult(() -> new Result(query, ErrorMessage.createTimeout("Timed out before federation")), execution, query);
+        if (timeout <= 0) {
+            CompletableFuture<Result> timedOut = new CompletableFuture<>();
+            timedOut.completeExceptionally(new java.util.concurrent.TimeoutException("Timed out before federation"));
+            result.add(target, query, timedOut);
+            return;
+        }
         Query clonedQuery = cloneFederationQuery(query, window, timeout, target);
-        return new AsyncExecution(target.getChain(), execution).search(clonedQuery);
+        result.add(target, clonedQuery, new Execution(target.getChain(), execution.context()).searchAsync(clonedQuery));
     }
 
     private Query cloneFederationQuery(Query query, Window window, long timeout, Target target) {
@@ -420,7 +425,7 @@ public class FederationSearcher extends ForkingSearcher {
             numberOfCallsToFillNeeded += resultsToFillForAChain.getValue().size();
         }
 
-        List<Pair<Result, FutureResult>> futureFilledResults = new ArrayList<>();
+        List<Pair<Result, CompletableFuture<Result>>> futureFilledResults = new ArrayList<>();
         for (Entry<Chain<Searcher>, Map<Query, Result>> resultsToFillForAChain : resultsForAllChains) {
             Chain<Searcher> chain = resultsToFillForAChain.getKey();
             Execution chainExecution = (chain == null) ? execution : new Execution(chain, execution.context());
@@ -431,19 +436,28 @@ public class FederationSearcher extends ForkingSearcher {
                     chainExecution.fill(resultToFill, summaryClass);
                     propagateErrors(resultToFill, result);
                 } else {
-                    AsyncExecution asyncFill = new AsyncExecution(chainExecution);
-                    futureFilledResults.add(new Pair<>(resultToFill, asyncFill.fill(resultToFill, summaryClass)));
+                    futureFilledResults.add(new Pair<>(resultToFill, chainExecution.fillAsync(resultToFill, summaryClass)));
                 }
             }
         }
-        for (Pair<Result, FutureResult> futureFilledResult : futureFilledResults) {
+        if (futureFilledResults.isEmpty()) return;
+
+        // Wait for all fills at once rather than for each in turn
+        try {
+            CompletableFuture.allOf(futureFilledResults.stream().map(Pair::getSecond).toArray(CompletableFuture[]::new))
+                    .get(result.getQuery().getTimeLeft(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException | ExecutionException | java.util.concurrent.TimeoutException e) {
+            // Fills which did not complete are handled below
+        }
+        for (Pair<Result, CompletableFuture<Result>> futureFilledResult : futureFilledResults) {
             // futureFilledResult is a pair of a result to be filled and the future in which that same result is filled
-            Optional<Result> filledResult = futureFilledResult.getSecond().getIfAvailable(result.getQuery().getTimeLeft(), TimeUnit.MILLISECONDS);
-            if (filledResult.isPresent()) { // fill completed
-                propagateErrors(filledResult.get(), result);
+            CompletableFuture<Result> filledResult = futureFilledResult.getSecond();
+            if (filledResult.isDone() && ! filledResult.isCompletedExceptionally()) { // fill completed
+                propagateErrors(filledResult.join(), result);
             }
             else { // fill timed out: Remove these hits as they are incomplete and may cause a race when accessed later
-                result.hits().addError(futureFilledResult.getSecond().createTimeoutError());
+                filledResult.cancel(true); // the fill is no longer needed
+                result.hits().addError(ErrorMessage.createTimeout("Fill of summary class '" + summaryClass + "' timed out"));
                 for (Iterator<Hit> i = futureFilledResult.getFirst().hits().unorderedDeepIterator(); i.hasNext(); ) {
                     // Note that some of these hits may be filled, but as the fill thread may still be working on them
                     // and we do not synchronize with it we need to discard all
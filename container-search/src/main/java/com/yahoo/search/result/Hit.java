@@ -401,7 +401,7 @@ public class Hit extends ListenableFreezableClass implements Data, Comparable<Hi
      * @return An readonly map of the fields
      **/
     //TODO Should it be deprecated ?
-    public final Map<String,Object> fields() { return getUnmodifiableFieldMap(); }
+    public Map<String,Object> fields() { return getUnmodifiableFieldMap(); }
 
     /**
      * Will preallocate in order to avoid resizing.
@@ -416,7 +416,7 @@ public class Hit extends ListenableFreezableClass implements Data, Comparable<Hi
      * 
      * @return an iterator for traversing the fields of this hit
      */
-    public final Iterator<Map.Entry<String,Object>> fieldIterator() { return getFieldMap().entrySet().iterator(); }
+    public Iterator<Map.Entry<String,Object>> fieldIterator() { return getFieldMap().entrySet().iterator(); }
 
     /** Returns a field value */
     public Object getField(String value) { return fields != null ? fields.get(value) : null; }
@@ -11,6 +11,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Provides asynchronous execution of searchchains.
@@ -39,6 +40,13 @@ import java.util.concurrent.*;
  * created for each AsyncExecution instance.
  * </p>
  *
+ * <p>
+ * The executions run in a shared, bounded thread pool. When all its threads are busy, an execution
+ * is not started, and its future is completed at once with a result containing an error, such that
+ * load spikes neither create an unbounded number of threads nor make the caller run executions serially.
+ * To compose executions without blocking, see {@link Execution#searchAsync} and {@link Execution#fillAsync}.
+ * </p>
+ *
  * @see com.yahoo.search.searchchain.Execution
  * @author Arne Bergene Fossaa
  */
@@ -46,10 +54,15 @@ public class AsyncExecution {
 
     private static final ThreadFactory threadFactory = ThreadFactoryFactory.getThreadFactory("search");
 
+    private static final int maxThreads = Math.max(100, 16 * Runtime.getRuntime().availableProcessors());
+
     private static final Executor executorMain = createExecutor();
 
+    /** The number of executions started and not yet completed */
+    private static final AtomicInteger inFlight = new AtomicInteger();
+
     private static Executor createExecutor() {
-        ThreadPoolExecutor executor = new ThreadPoolExecutor(100, Integer.MAX_VALUE, 1L, TimeUnit.SECONDS,
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(100, maxThreads, 1L, TimeUnit.SECONDS,
                                                             new SynchronousQueue<>(false), threadFactory);
         // Prestart needed, if not all threads will be created by the fist N tasks and hence they might also
         // get the dreaded thread locals initialized even if they will never run.
@@ -146,25 +159,24 @@ public class AsyncExecution {
 
     }
 
-    private static <T> Future<T> getFuture(Callable<T> callable) {
-        final FutureTask<T> future = new FutureTask<>(callable);
-        getExecutor().execute(future);
-        return future;
-    }
-
-    private static Future<Void> runTask(Runnable runnable) {
-        return getFuture(() -> {
-            runnable.run();
-            return null;
-        });
-    }
-
     private FutureResult getFutureResult(Callable<Result> callable, Query query) {
         FutureResult future = new FutureResult(callable, execution, query);
-        getExecutor().execute(future);
+        inFlight.incrementAndGet();
+        future.toCompletableFuture().whenComplete((result, exception) -> inFlight.decrementAndGet());
+        try {
+            getExecutor().execute(future);
+        }
+        catch (RejectedExecutionException e) {
+            future.reject("All " + maxThreads + " search threads are busy");
+        }
         return future;
     }
 
+    /** Returns the number of asynchronous executions which are started and not yet completed */
+    public static int inFlightCount() {
+        return inFlight.get();
+    }
+
     /*
      * Waits for all futures until the given timeout. If a FutureResult isn't
      * done when the timeout expires, it will be cancelled, and it will return a
@@ -176,12 +188,12 @@ public class AsyncExecution {
     public static List<Result> waitForAll(Collection<FutureResult> tasks, long timeoutMs) {
         // Copy the list in case it is modified while we are waiting
         List<FutureResult> workingTasks = new ArrayList<>(tasks);
+        CompletableFuture<?>[] completions = workingTasks.stream()
+                .map(FutureResult::toCompletableFuture)
+                .toArray(CompletableFuture<?>[]::new);
         try {
-            runTask(() -> {
-                for (FutureResult task : workingTasks)
-                    task.get();
-            }).get(timeoutMs, TimeUnit.MILLISECONDS);
-        }catch (TimeoutException | InterruptedException | ExecutionException e) {
+            CompletableFuture.allOf(completions).get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException | InterruptedException | ExecutionException e) {
             // Handle timeouts below
         }
 
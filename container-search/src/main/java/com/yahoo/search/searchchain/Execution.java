@@ -19,6 +19,7 @@ import com.yahoo.search.cluster.PingableSearcher;
 import com.yahoo.search.rendering.RendererRegistry;
 import com.yahoo.search.statistics.TimeTracker;
 
+import java.util.concurrent.CompletableFuture;
 import java.util.logging.Logger;
 
 /**
@@ -31,7 +32,9 @@ import java.util.logging.Logger;
  * </pre>
  *
  *
- * <p>See also {@link AsyncExecution}, which performs an execution in a separate thread than the caller.</p>
+ * <p>See also {@link #searchAsync} and {@link #fillAsync}, which continue the execution in another thread
+ * than the caller and return futures which can be composed without blocking,
+ * and {@link AsyncExecution}, which these are implemented by.</p>
  *
  * <p>Execution instances should not be reused for multiple separate executions.</p>
  *
@@ -579,6 +582,29 @@ public class Execution extends com.yahoo.processing.execution.Execution {
         }
     }
 
+    /**
+     * Calls search on the next searcher in this chain in another thread than the caller,
+     * as {@link AsyncExecution#AsyncExecution(Execution)}. This execution may be used for other purposes
+     * when this returns, but the query must not be used by any other search until the returned future is complete.
+     *
+     * @return a future which is completed with the result, or with a result containing an error if the search fails,
+     *         see {@link FutureResult#toCompletableFuture}
+     */
+    public CompletableFuture<Result> searchAsync(Query query) {
+        return new AsyncExecution(this).search(query).toCompletableFuture();
+    }
+
+    /**
+     * Calls fill on the next searcher in this chain in another thread than the caller.
+     * The hits of the result must not be accessed by the caller until the returned future is complete.
+     *
+     * @return a future which is completed with the given result when it is filled,
+     *         or with a result containing an error if the fill fails, see {@link FutureResult#toCompletableFuture}
+     */
+    public CompletableFuture<Result> fillAsync(Result result, String summaryClass) {
+        return new AsyncExecution(this).fill(result, summaryClass).toCompletableFuture();
+    }
+
     private void onInvokingFill(Searcher searcher, Result result, String summaryClass) {
         int traceFillAt = 5;
         if (trace().getTraceLevel() < traceFillAt) return;
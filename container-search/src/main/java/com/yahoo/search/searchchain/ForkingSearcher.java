@@ -9,6 +9,9 @@ import java.util.Collection;
 
 /**
  * Searchers which invokes other search chains should override this.
+ * <p>
+ * To invoke several chains in parallel, use {@link Execution#searchAsync} and {@link Execution#fillAsync}
+ * on an execution of each chain, and wait for all the returned futures together rather than for each in turn.
  *
  * @author bratseth
  */
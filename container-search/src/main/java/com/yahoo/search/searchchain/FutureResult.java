@@ -8,6 +8,7 @@ import com.yahoo.yolean.Exceptions;
 
 import java.util.Optional;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.FutureTask;
 import java.util.concurrent.TimeUnit;
@@ -17,6 +18,7 @@ import java.util.logging.Logger;
 
 /**
  * Extends a {@code FutureTask<Result>}, with some added error handling
+ * and a {@link CompletableFuture} view which can be composed without blocking.
  * 
  * @author bratseth
  */
@@ -27,12 +29,55 @@ public class FutureResult extends FutureTask<Result> {
     /** Only used for generating messages */
     private final Execution execution;
 
+    /** Completed with the result of this when this is done */
+    private final CompletableFuture<Result> completion = new CompletableFuture<>();
+
     private final static Logger log = Logger.getLogger(FutureResult.class.getName());
 
     public FutureResult(Callable<Result> callable, Execution execution, Query query) {
         super(callable);
         this.query = query;
         this.execution = execution;
+        completion.whenComplete((result, exception) -> {
+            if (completion.isCancelled())
+                cancel(true);
+        });
+    }
+
+    /** Completes the completable future of this with the outcome of this. This logs a failure once. */
+    @Override
+    protected void done() {
+        if (isCancelled()) {
+            completion.cancel(false);
+            return;
+        }
+        try {
+            completion.complete(super.get()); // Does not block, as this is done
+        }
+        catch (InterruptedException e) {
+            completion.complete(new Result(getQuery(), createInterruptedError(e)));
+        }
+        catch (ExecutionException e) {
+            if (e.getCause() instanceof com.yahoo.search.federation.TimeoutException) {
+                completion.completeExceptionally(new TimeoutException("'" + execution + "' timed out"));
+            }
+            else {
+                log.log(Level.WARNING, "Exception on executing " + execution + " for " + query, e);
+                completion.complete(new Result(getQuery(), createExecutionError(e)));
+            }
+        }
+    }
+
+    /**
+     * Returns a future which is completed with the result of this when it is done, without blocking any thread
+     * while waiting. As with {@link #get()}, a failed execution completes it with a result containing an error.
+     * If the execution signals a timeout by throwing {@link com.yahoo.search.federation.TimeoutException}
+     * it is completed exceptionally by a {@link TimeoutException}, and if this is cancelled it is cancelled.
+     * Cancelling the returned future cancels this, interrupting the execution if it is running,
+     * which should be done when the result is no longer wanted.
+     */
+    public CompletableFuture<Result> toCompletableFuture() {
+        return completion;
     }
 
     /** 
@@ -85,6 +130,11 @@ public class FutureResult extends FutureTask<Result> {
         }
     }
 
+    /** Completes this with a result containing an error without executing it, as it cannot be started now */
+    void reject(String reason) {
+        set(new Result(getQuery(), ErrorMessage.createUnspecifiedError("'" + execution + "' was not executed: " + reason)));
+    }
+
     /** Returns the query used in this execution, never null */
     public Query getQuery() {
         return query;
@@ -95,8 +145,8 @@ public class FutureResult extends FutureTask<Result> {
                                                    Exceptions.toMessageString(e));
     }
     
+    /** Returns an error for a failed execution, which is logged when this is done */
     private ErrorMessage createExecutionError(Exception e) {
-        log.log(Level.WARNING,"Exception on executing " + execution + " for " + query,e);
         return ErrorMessage.createErrorInPluginSearcher("Error in '" + execution + "': " + Exceptions.toMessageString(e),
                                                         e.getCause());
     }
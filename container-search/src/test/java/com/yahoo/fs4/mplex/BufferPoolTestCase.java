@@ -0,0 +1,67 @@
+// Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.fs4.mplex;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author agent
+ */
+public class BufferPoolTestCase {
+
+    @Test
+    public void testSizes() {
+        BufferPool pool = new BufferPool(1024, 8 * 1024, 16 * 1024);
+        assertEquals(1024, pool.acquire(0).capacity());
+        assertEquals(1024, pool.acquire(1024).capacity());
+        assertEquals(2048, pool.acquire(1025).capacity());
+        assertEquals(8192, pool.acquire(5000).capacity());
+        assertTrue(pool.acquire(8192).isDirect());
+
+        ByteBuffer unpooled = pool.acquire(8193);
+        assertEquals(8193, unpooled.capacity());
+        assertFalse(unpooled.isDirect());
+    }
+
+    @Test
+    public void testReuse() {
+        BufferPool pool = new BufferPool(1024, 8 * 1024, 16 * 1024);
+        ByteBuffer buffer = pool.acquire(3000);
+        buffer.putInt(7);
+        pool.release(buffer);
+        assertEquals(1, pool.freeCount());
+
+        assertNotSame(buffer, pool.acquire(1000));
+        ByteBuffer reused = pool.acquire(4000);
+        assertSame(buffer, reused);
+        assertEquals("Reused buffers are cleared", 0, reused.position());
+        assertEquals(0, pool.freeCount());
+    }
+
+    @Test
+    public void testRetainedBuffersAreLimited() {
+        BufferPool pool = new BufferPool(1024, 8 * 1024, 4 * 1024);
+        for (int i = 0; i < 3; i++)
+            pool.release(ByteBuffer.allocateDirect(2048));
+        pool.release(ByteBuffer.allocate(2048)); // not from this pool
+        pool.release(ByteBuffer.allocateDirect(3000)); // not from this pool
+        pool.release(pool.acquire(10000)); // not pooled
+        assertEquals(2, pool.freeCount());
+        assertEquals(4 * 1024, pool.pooledBytes());
+
+        pool.acquire(2048);
+        assertEquals(2 * 1024, pool.pooledBytes());
+        pool.release(ByteBuffer.allocateDirect(1024));
+        assertEquals(3 * 1024, pool.pooledBytes());
+        pool.release(ByteBuffer.allocateDirect(2048)); // would exceed the max pooled bytes
+        assertEquals(2, pool.freeCount());
+    }
+
+}
@@ -0,0 +1,65 @@
+// Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.prelude.cache.test;
+
+import com.yahoo.prelude.cache.SegmentedCache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A multithreaded benchmark of cache lookups and insertions, comparing a cache with a single segment
+ * (one lock for all content, as with a synchronized LinkedHashMap) to one with the default number of segments.
+ *
+ * @author agent
+ */
+public class SegmentedCacheBenchmark {
+
+    private static final int threadCount = 32;
+    private static final int operationsPerThread = 2 * 1000 * 1000;
+    private static final int keyCount = 100 * 1000;
+    private static final long cacheSizeBytes = 64L * 1024 * 1024;
+    private static final int entrySizeBytes = 1024; // room for 2/3 of the keys
+    private static final int putPercentage = 10;
+
+    public void run() throws InterruptedException {
+        for (int i = 0; i < 3; i++) { // repeat to warm up
+            benchmark("1 segment  ", new SegmentedCache<>(cacheSizeBytes, entrySizeBytes, -1, 1));
+            benchmark("segmented  ", new SegmentedCache<>(cacheSizeBytes, entrySizeBytes, -1));
+        }
+    }
+
+    private void benchmark(String name, SegmentedCache<Integer, Integer> cache) throws InterruptedException {
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < threadCount; i++)
+            threads.add(new Thread(() -> runOperations(cache)));
+
+        long startTime = System.nanoTime();
+        for (Thread thread : threads)
+            thread.start();
+        for (Thread thread : threads)
+            thread.join();
+        long totalTimeNanos = Math.max(1, System.nanoTime() - startTime);
+
+        double operationsPerSecond = (double)threadCount * operationsPerThread * 1_000_000_000 / totalTimeNanos;
+        System.out.println(String.format("%s %2d segments: %,12.0f ops/s, hit ratio %.2f, evictions %d",
+                                         name, cache.segmentCount(), operationsPerSecond,
+                                         (double)cache.hits() / (cache.hits() + cache.misses()), cache.evictions()));
+    }
+
+    private void runOperations(SegmentedCache<Integer, Integer> cache) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < operationsPerThread; i++) {
+            Integer key = random.nextInt(keyCount);
+            if (random.nextInt(100) < putPercentage)
+                cache.put(key, key, entrySizeBytes, 0);
+            else
+                cache.get(key, 0);
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        new SegmentedCacheBenchmark().run();
+    }
+
+}
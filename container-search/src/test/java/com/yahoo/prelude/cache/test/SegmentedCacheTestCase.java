@@ -0,0 +1,102 @@
+// Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.prelude.cache.test;
+
+import com.yahoo.prelude.cache.SegmentedCache;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author agent
+ */
+public class SegmentedCacheTestCase {
+
+    @Test
+    public void testEvictsLeastRecentlyUsed() {
+        SegmentedCache<String, String> cache = new SegmentedCache<>(30, 30, -1, 1);
+        assertTrue(cache.put("a", "A", 10, 0));
+        assertTrue(cache.put("b", "B", 10, 0));
+        assertTrue(cache.put("c", "C", 10, 0));
+        assertEquals("A", cache.get("a")); // makes b least recently used
+        assertTrue(cache.put("d", "D", 10, 0));
+        assertNull(cache.get("b"));
+        assertEquals("A", cache.get("a"));
+        assertEquals("C", cache.get("c"));
+        assertEquals("D", cache.get("d"));
+        assertEquals(30, cache.sizeBytes());
+        assertEquals(1, cache.evictions());
+        assertEquals(4, cache.hits());
+        assertEquals(1, cache.misses());
+    }
+
+    @Test
+    public void testReplacingUpdatesSize() {
+        SegmentedCache<String, String> cache = new SegmentedCache<>(100, 100, -1, 1);
+        cache.put("a", "A", 10, 0);
+        cache.put("a", "AA", 20, 0);
+        assertEquals(1, cache.size());
+        assertEquals(20, cache.sizeBytes());
+        assertEquals("AA", cache.remove("a"));
+        assertEquals(0, cache.sizeBytes());
+    }
+
+    @Test
+    public void testTooLargeEntriesAreNotCached() {
+        SegmentedCache<String, String> cache = new SegmentedCache<>(100, 50, -1, 1);
+        cache.put("a", "A", 10, 0);
+        assertTrue(cache.put("b", "B", 50, 0));
+        assertFalse(cache.put("a", "A2", 51, 0));
+        assertFalse(cache.containsKey("a"));
+    }
+
+    @Test
+    public void testSegmentsFitTheMaxEntrySize() {
+        long mb = 1 << 20;
+        SegmentedCache<String, String> cache = new SegmentedCache<>(64 * mb, 20 * mb, -1);
+        assertTrue(cache.segmentCount() <= 2);
+        assertTrue(cache.put("a", "A", 20 * mb, 0));
+        assertEquals("A", cache.get("a"));
+
+        assertEquals(1, new SegmentedCache<String, String>(64 * mb, 64 * mb, -1).segmentCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTooManySegmentsForTheMaxEntrySize() {
+        new SegmentedCache<String, String>(100, 30, -1, 4);
+    }
+
+    @Test
+    public void testExpiry() {
+        SegmentedCache<String, String> cache = new SegmentedCache<>(100, 100, 1000, 1);
+        cache.put("a", "A", 10, 5000);
+        assertEquals("A", cache.get("a", 5999));
+        assertNull(cache.get("a", 6000));
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.sizeBytes());
+    }
+
+    @Test
+    public void testSegments() {
+        SegmentedCache<Integer, Integer> cache = new SegmentedCache<>(1000 * 10, 1, -1, 5);
+        assertEquals(8, cache.segmentCount());
+        for (int i = 0; i < 1000; i++)
+            cache.put(i, i, 1, 0);
+        for (int i = 0; i < 1000; i++)
+            assertEquals(i, (int)cache.get(i));
+        assertEquals(1000, cache.size());
+        assertEquals(1000, cache.sizeBytes());
+
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.sizeBytes());
+    }
+
+    @Test
+    public void testSmallCachesUseOneSegment() {
+        assertEquals(1, new SegmentedCache<String, String>(100 * 1024, 1, -1).segmentCount());
+    }
+
+}
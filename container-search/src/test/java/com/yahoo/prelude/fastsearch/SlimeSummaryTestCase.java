@@ -14,6 +14,10 @@ import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 
 import com.yahoo.tensor.Tensor;
 import com.yahoo.tensor.serialization.TypedBinaryFormat;
@@ -21,7 +25,9 @@ import org.junit.Test;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.CoreMatchers.*;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 
 public class SlimeSummaryTestCase {
@@ -156,6 +162,51 @@ public class SlimeSummaryTestCase {
         assertEquals(tensor2, hit.getField("tensor_field2"));
     }
 
+    @Test
+    public void testFieldsAreDecodedWhenAccessed() {
+        Tensor tensor1 = Tensor.from("tensor(x{},y{}):{{x:foo,y:bar}:0.1}");
+        Tensor tensor2 = Tensor.from("tensor(x[],y[1]):{{x:0,y:0}:-0.3}");
+
+        String summary_cf = "file:src/test/java/com/yahoo/prelude/fastsearch/summary.cfg";
+        DocsumDefinitionSet set = createDocsumDefinitionSet(summary_cf);
+        FastHit hit = new FastHit();
+        assertNull(set.lazyDecode("default", makeDocsum(tensor1, tensor2), hit));
+        assertTrue(hit.fieldIsNotDecoded("string_field"));
+        assertTrue(hit.fieldIsNotDecoded("integer_field"));
+
+        assertEquals("string_value", new String(hit.fetchFieldAsUtf8("string_field").getUtf8(), StandardCharsets.UTF_8));
+        assertTrue(hit.fetchFieldAsUtf8("string_field").needXmlEscape());
+        assertFalse(hit.fetchFieldAsUtf8("xmlstring_field").needXmlEscape());
+        assertNull("Non-string fields must be decoded", hit.fetchFieldAsUtf8("integer_field"));
+        assertTrue(hit.fieldIsNotDecoded("string_field"));
+
+        assertThat(hit.getField("integer_field"), equalTo(4));
+        assertFalse(hit.fieldIsNotDecoded("integer_field"));
+        assertTrue(hit.fieldIsNotDecoded("short_field"));
+
+        assertEquals("string_value", hit.setField("string_field", "new_value"));
+        assertEquals("longstring_value", hit.removeField("longstring_field"));
+
+        List<String> fieldNames = new ArrayList<>();
+        for (Iterator<Map.Entry<String, Object>> i = hit.fieldIterator(); i.hasNext(); ) {
+            Map.Entry<String, Object> field = i.next();
+            fieldNames.add(field.getKey());
+            if (field.getKey().equals("short_field"))
+                assertTrue("Not decoded until the value is accessed", hit.fieldIsNotDecoded("short_field"));
+            if (field.getKey().equals("float_field"))
+                assertThat(field.getValue(), equalTo(4.5f));
+        }
+        assertFalse(hit.fieldIsNotDecoded("float_field"));
+        assertEquals("[integer_field, short_field, byte_field, float_field, double_field, int64_field, string_field, " +
+                     "data_field, longdata_field, xmlstring_field, jsonstring_field, tensor_field1, tensor_field2]",
+                     fieldNames.toString());
+
+        assertThat(hit.fields().get("short_field"), equalTo((short)2));
+        assertThat(hit.fields().get("string_field"), equalTo("new_value"));
+        assertEquals(tensor1, hit.fields().get("tensor_field1"));
+        assertFalse(hit.fieldIsNotDecoded("tensor_field2"));
+    }
+
     private DocsumDefinitionSet createDocsumDefinitionSet(String configID) {
         DocumentdbInfoConfig config = new ConfigGetter<>(DocumentdbInfoConfig.class).getConfig(configID);
         return new DocsumDefinitionSet(config.documentdb(0));
@@ -3,8 +3,11 @@ package com.yahoo.prelude.fastsearch.test;
 
 import com.google.common.collect.ImmutableList;
 import com.yahoo.component.chain.Chain;
+import com.yahoo.compress.CompressionType;
 import com.yahoo.config.subscription.ConfigGetter;
+import com.yahoo.container.handler.VipStatus;
 import com.yahoo.container.search.Fs4Config;
+import com.yahoo.document.GlobalId;
 import com.yahoo.fs4.mplex.*;
 import com.yahoo.fs4.test.QueryTestCase;
 import com.yahoo.language.simple.SimpleLinguistics;
@@ -29,6 +32,7 @@ import com.yahoo.search.grouping.request.GroupingOperation;
 import com.yahoo.search.query.SessionId;
 import com.yahoo.search.rendering.RendererRegistry;
 import com.yahoo.search.result.ErrorMessage;
+import com.yahoo.search.result.Hit;
 import com.yahoo.search.searchchain.Execution;
 import com.yahoo.yolean.trace.TraceNode;
 import com.yahoo.yolean.trace.TraceVisitor;
@@ -39,7 +43,10 @@ import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -426,7 +433,7 @@ public class FastSearcherTestCase {
     public void testSinglePassGroupingIsForcedWithSingleNodeGroups() {
         FastSearcher fastSearcher = new FastSearcher(new MockBackend(),
                                                      new FS4ResourcePool(1),
-                                                     new MockDispatcher(new SearchCluster.Node("host0", 123, 0)),
+                                                     new MockDispatcher(new SearchCluster.Node(0, "host0", 123, 0)),
                                                      new SummaryParameters(null),
                                                      new ClusterParams("testhittype"),
                                                      new CacheParams(100, 1e64),
@@ -449,8 +456,8 @@ public class FastSearcherTestCase {
     @Test
     public void testSinglePassGroupingIsNotForcedWithSingleNodeGroups() {
         MockDispatcher dispatcher = 
-                new MockDispatcher(ImmutableList.of(new SearchCluster.Node("host0", 123, 0),
-                                                    new SearchCluster.Node("host1", 123, 0)));
+                new MockDispatcher(ImmutableList.of(new SearchCluster.Node(0, "host0", 123, 0),
+                                                    new SearchCluster.Node(1, "host1", 123, 0)));
 
         FastSearcher fastSearcher = new FastSearcher(new MockBackend(),
                                                      new FS4ResourcePool(1),
@@ -474,6 +481,69 @@ public class FastSearcherTestCase {
         assertForceSinglePassIs(false, q);
     }
 
+    @Test
+    public void testHitsDispatchedToAGroupAreFilledFromTheNodeReturningThem() {
+        List<SearchCluster.Node> nodes = ImmutableList.of(new SearchCluster.Node(0, "host0", 123, 0),
+                                                          new SearchCluster.Node(1, "host1", 123, 0));
+        FS4ResourcePool resourcePool = new FS4ResourcePool(1) {
+            @Override
+            public Backend getBackend(String hostname, int port) {
+                int docId = hostname.equals("host0") ? 10 : 20;
+                return new MockBackend(hostname, () -> new SingleDocumentChannel(docId));
+            }
+        };
+        Map<GlobalId, String> filledFrom = new HashMap<>();
+        MockDispatcher dispatcher = new MockDispatcher(nodes, resourcePool, 1, new VipStatus()) {
+            @Override
+            public void fill(Result result, String summaryClass, CompressionType compression) {
+                for (Iterator<Hit> i = result.hits().unorderedDeepIterator(); i.hasNext(); ) {
+                    FastHit hit = (FastHit)i.next();
+                    filledFrom.put(hit.getGlobalId(), nodes.get(hit.getDistributionKey()).hostname());
+                }
+            }
+        };
+        DocumentdbInfoConfig documentdbConfigWithOneDb =
+                new DocumentdbInfoConfig(new DocumentdbInfoConfig.Builder().documentdb(new DocumentdbInfoConfig.Documentdb.Builder().name("testDb")));
+        FastSearcher fastSearcher = new FastSearcher(new MockBackend(),
+                                                     resourcePool,
+                                                     dispatcher,
+                                                     new SummaryParameters(null),
+                                                     new ClusterParams("testhittype"),
+                                                     new CacheParams(0, 0.0d),
+                                                     documentdbConfigWithOneDb);
+
+        Result result = doSearch(fastSearcher, new Query("?query=test&dispatch.internal=true"), 0, 10);
+        assertNull(result.hits().getError());
+        assertEquals(2, result.getConcreteHitCount());
+        assertEquals(DocsumDefinitionTestCase.createGlobalId(20), ((FastHit)result.hits().get(0)).getGlobalId());
+        assertEquals(DocsumDefinitionTestCase.createGlobalId(10), ((FastHit)result.hits().get(1)).getGlobalId());
+
+        createExecution(fastSearcher).fill(result, "default");
+        assertEquals("host0", filledFrom.get(DocsumDefinitionTestCase.createGlobalId(10)));
+        assertEquals("host1", filledFrom.get(DocsumDefinitionTestCase.createGlobalId(20)));
+    }
+
+    /** A channel which returns a single document with the given id and a rank score equal to it */
+    private static class SingleDocumentChannel extends MockFSChannel {
+
+        private final int docId;
+
+        SingleDocumentChannel(int docId) {
+            this.docId = docId;
+        }
+
+        @Override
+        public BasicPacket[] receivePackets(long timeout, int packetCount) {
+            if ( ! (getLastReceived() instanceof QueryPacket)) return super.receivePackets(timeout, packetCount);
+
+            QueryResultPacket result = QueryResultPacket.create();
+            result.setTotalDocumentCount(1);
+            result.addDocument(new DocumentInfo(DocsumDefinitionTestCase.createGlobalId(docId), docId, 0, 0));
+            return new BasicPacket[] { result };
+        }
+
+    }
+
     private void assertForceSinglePassIs(boolean expected, Query query) {
         for (GroupingRequest request : GroupingRequest.getRequests(query))
             assertForceSinglePassIs(expected, request.getRootOperation());
@@ -0,0 +1,69 @@
+// Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.dispatch;
+
+import com.google.common.collect.ImmutableList;
+import com.yahoo.search.Query;
+import org.junit.Test;
+
+import java.util.Optional;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author agent
+ */
+public class LoadBalancerTest {
+
+    private final SearchCluster.Group group0 = new SearchCluster.Group(0, ImmutableList.of(new SearchCluster.Node(0, "host0", 123, 0),
+                                                                                           new SearchCluster.Node(1, "host1", 123, 0)));
+    private final SearchCluster.Group group1 = new SearchCluster.Group(1, ImmutableList.of(new SearchCluster.Node(2, "host2", 123, 1),
+                                                                                           new SearchCluster.Node(3, "host3", 123, 1)));
+
+    @Test
+    public void testSpreadsLoadBetweenEqualGroups() {
+        LoadBalancer loadBalancer = new LoadBalancer(ImmutableList.of(group0, group1));
+        SearchCluster.Group first = loadBalancer.takeGroupForQuery(new Query()).get();
+        SearchCluster.Group second = loadBalancer.takeGroupForQuery(new Query()).get();
+        assertNotEquals(first, second);
+        assertEquals(1, loadBalancer.allocations(group0));
+        assertEquals(1, loadBalancer.allocations(group1));
+
+        loadBalancer.releaseGroup(first, true, 1);
+        loadBalancer.releaseGroup(second, true, 1);
+        assertEquals(0, loadBalancer.allocations(group0));
+        assertEquals(0, loadBalancer.allocations(group1));
+    }
+
+    @Test
+    public void testPrefersFasterGroup() {
+        LoadBalancer loadBalancer = new LoadBalancer(ImmutableList.of(group0, group1));
+        for (int i = 0; i < 100; i++) {
+            SearchCluster.Group group = loadBalancer.takeGroupForQuery(new Query()).get();
+            loadBalancer.releaseGroup(group, true, group.equals(group0) ? 1000 : 10);
+        }
+        for (int i = 0; i < 10; i++) {
+            SearchCluster.Group group = loadBalancer.takeGroupForQuery(new Query()).get();
+            assertEquals(group1, group);
+            loadBalancer.releaseGroup(group, true, 10);
+        }
+    }
+
+    @Test
+    public void testSkipsGroupsWhichCannotServe() {
+        LoadBalancer loadBalancer = new LoadBalancer(ImmutableList.of(group0, group1));
+        group0.nodes().get(1).setWorking(false);
+        group1.setHasSufficientCoverage(false);
+        assertFalse(loadBalancer.takeGroupForQuery(new Query()).isPresent());
+
+        group1.setHasSufficientCoverage(true);
+        for (int i = 0; i < 4; i++) {
+            Optional<SearchCluster.Group> group = loadBalancer.takeGroupForQuery(new Query());
+            assertTrue(group.isPresent());
+            assertEquals(group1, group.get());
+        }
+    }
+
+}
@@ -7,17 +7,15 @@ import com.yahoo.search.Query;
 import com.yahoo.search.Result;
 import com.yahoo.search.Searcher;
 import com.yahoo.search.result.ErrorMessage;
-import com.yahoo.search.searchchain.Execution;
-import com.yahoo.search.searchchain.FutureResult;
 import com.yahoo.search.searchchain.model.federation.FederationOptions;
 import com.yahoo.test.ManualClock;
 import org.junit.Test;
 
-import java.time.Clock;
 import java.time.Duration;
-import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import static junit.framework.TestCase.assertTrue;
 import static org.junit.Assert.assertEquals;
@@ -47,9 +45,9 @@ public class FederationResultTest {
 
     private void assertTimeout(Set<String> expectedTimeoutNames, int ... responseTimes) {
         FederationResult.Builder builder = new FederationResult.Builder();
-        builder.add(organic, resultAfter(responseTimes[0]));
-        builder.add(dsp1,    resultAfter(responseTimes[1]));
-        builder.add(dsp2,    resultAfter(responseTimes[2]));
+        builder.add(organic, new Query(), resultAfter(responseTimes[0]));
+        builder.add(dsp1,    new Query(), resultAfter(responseTimes[1]));
+        builder.add(dsp2,    new Query(), resultAfter(responseTimes[2]));
         FederationResult federationResult = builder.build();
         federationResult.waitForAll(50, clock);
         assertEquals(3, federationResult.all().size());
@@ -63,7 +61,7 @@ public class FederationResultTest {
     }
     
     private MockFutureResult resultAfter(int time) {
-        return new MockFutureResult(new Query(), time);        
+        return new MockFutureResult(time);
     }
     
     private boolean timedOut(Result result) {
@@ -72,43 +70,45 @@ public class FederationResultTest {
         return error.getCode() == ErrorMessage.timeoutCode;
     }
 
-    private class MockFutureResult extends FutureResult {
+    private class MockFutureResult extends CompletableFuture<Result> {
         
         private final int responseTime;
-        private final Query query;
         private final long startTime;
         
-        MockFutureResult(Query query, int responseTime) {
-            super(() -> new Result(query), new Execution(Execution.Context.createContextStub()), query);
+        MockFutureResult(int responseTime) {
             this.responseTime = responseTime;
-            this.query = query;
             startTime = clock.millis();
         }
 
         @Override
         public Result get() { throw new RuntimeException(); }
 
+        /** Completes this if the response time has passed, as a real execution would have done in the meantime */
         @Override
-        public Optional<Result> getIfAvailable(long timeout, TimeUnit timeunit) {
+        public boolean isDone() {
+            if (clock.millis() - startTime >= responseTime)
+                complete(new Result(new Query()));
+            return super.isDone();
+        }
+
+        @Override
+        public Result get(long timeout, TimeUnit timeunit) throws TimeoutException {
             if (timeunit != TimeUnit.MILLISECONDS) throw new RuntimeException();
+            if (isDone()) return join();
 
             long elapsedTime = clock.millis() - startTime;
             long leftUntilResponse = responseTime - elapsedTime;
             if (leftUntilResponse > timeout) {
                 clock.advance(Duration.ofMillis(timeout));
-                return Optional.empty();
+                throw new TimeoutException();
             }
             else {
                 if (leftUntilResponse > 0) // otherwise we already spent more time than this sources timeout
                     clock.advance(Duration.ofMillis(leftUntilResponse));
-                return Optional.of(new Result(query));
+                complete(new Result(new Query()));
+                return join();
             }
         }
-        
-        @Override
-        public Query getQuery() {
-            return query;
-        }
 
     }
     
@@ -14,7 +14,11 @@ import com.yahoo.search.searchchain.FutureResult;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * Test for aynchrounous execution
@@ -121,6 +125,127 @@ public class AsyncExecutionTestCase extends junit.framework.TestCase {
         assertEquals("hello",result.hits().get(0).getField("test"));
     }
 
+    public void testSearchAsyncStartsAtNextSearcher() throws Exception {
+        Chain<Searcher> chain = new Chain<>(new WaitingSearcher("first", 0), new ResultProducingSearcher());
+        Execution execution = new Execution(chain, Execution.Context.createContextStub());
+        CompletableFuture<Result> future = execution.searchAsync(new Query("?query=test"));
+        Result result = future.get(10, TimeUnit.SECONDS);
+        assertEquals(1, result.hits().size());
+        assertEquals("hello", result.hits().get(0).getField("test"));
+    }
+
+    public void testAsyncSearchesCanBeComposed() throws Exception {
+        Execution execution = new Execution(new ResultProducingSearcher(), Execution.Context.createContextStub());
+        CompletableFuture<Integer> hitCount = execution.searchAsync(new Query("?query=test"))
+                .thenCombine(execution.searchAsync(new Query("?query=test")),
+                             (first, second) -> first.hits().size() + second.hits().size());
+        assertEquals(2, hitCount.get(10, TimeUnit.SECONDS).intValue());
+    }
+
+    public void testFillAsync() throws Exception {
+        Execution execution = new Execution(new FillingSearcher(), Execution.Context.createContextStub());
+        Result result = new Result(new Query("?query=test"));
+        Hit hit = new Hit("test");
+        hit.setFillable();
+        result.hits().add(hit);
+        Result filled = execution.fillAsync(result, "summary").get(10, TimeUnit.SECONDS);
+        assertSame(result, filled);
+        assertTrue(hit.isFilled("summary"));
+    }
+
+    public void testSignalledTimeoutCompletesExceptionally() throws Exception {
+        Searcher timingOutSearcher = new Searcher() {
+            @Override
+            public Result search(Query query, Execution execution) {
+                throw new com.yahoo.search.federation.TimeoutException("Always times out");
+            }
+        };
+        Execution execution = new Execution(timingOutSearcher, Execution.Context.createContextStub());
+        CompletableFuture<Result> future = execution.searchAsync(new Query());
+        try {
+            future.get(10, TimeUnit.SECONDS);
+            fail("Expected the search to time out");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof TimeoutException);
+        }
+    }
+
+    public void testFailureCompletesWithErrorResult() throws Exception {
+        Searcher failingSearcher = new Searcher() {
+            @Override
+            public Result search(Query query, Execution execution) {
+                throw new IllegalStateException("Always fails");
+            }
+        };
+        Execution execution = new Execution(failingSearcher, Execution.Context.createContextStub());
+        Result result = execution.searchAsync(new Query()).get(10, TimeUnit.SECONDS);
+        assertNotNull(result.hits().getError());
+        assertTrue(result.hits().getError().getDetailedMessage().contains("Always fails"));
+    }
+
+    public void testCancellingTheFutureInterruptsTheSearch() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        Searcher blockingSearcher = new Searcher() {
+            @Override
+            public Result search(Query query, Execution execution) {
+                started.countDown();
+                try {
+                    new CountDownLatch(1).await();
+                } catch (InterruptedException e) {
+                    interrupted.countDown();
+                }
+                return new Result(query);
+            }
+        };
+        Execution execution = new Execution(blockingSearcher, Execution.Context.createContextStub());
+        CompletableFuture<Result> future = execution.searchAsync(new Query());
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        assertTrue(future.cancel(true));
+        assertTrue(interrupted.await(10, TimeUnit.SECONDS));
+    }
+
+    public void testInFlightCount() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        Searcher blockingSearcher = new Searcher() {
+            @Override
+            public Result search(Query query, Execution execution) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+                return new Result(query);
+            }
+        };
+        int initialCount = AsyncExecution.inFlightCount();
+        Execution execution = new Execution(blockingSearcher, Execution.Context.createContextStub());
+        CompletableFuture<Result> future = execution.searchAsync(new Query());
+        assertEquals(initialCount + 1, AsyncExecution.inFlightCount());
+        release.countDown();
+        future.get(10, TimeUnit.SECONDS);
+        // The count is decremented by the completing thread, possibly after the result is returned here
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (AsyncExecution.inFlightCount() != initialCount && System.currentTimeMillis() < deadline)
+            Thread.sleep(1);
+        assertEquals(initialCount, AsyncExecution.inFlightCount());
+    }
+
+    private static class FillingSearcher extends Searcher {
+
+        @Override
+        public Result search(Query query, Execution execution) {
+            return new Result(query);
+        }
+
+        @Override
+        public void fill(Result result, String summaryClass, Execution execution) {
+            for (Hit hit : result.hits())
+                hit.setFilled(summaryClass);
+        }
+
+    }
+
     private static class ResultProducingSearcher extends Searcher {
 
         @Override
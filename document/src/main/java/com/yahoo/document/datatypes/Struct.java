@@ -5,6 +5,7 @@ import com.yahoo.collections.Hashlet;
 import com.yahoo.document.*;
 import com.yahoo.document.serialization.FieldReader;
 import com.yahoo.document.serialization.FieldWriter;
+import com.yahoo.document.serialization.SerializedFieldValue;
 import com.yahoo.document.serialization.XmlSerializationHelper;
 import com.yahoo.document.serialization.XmlStream;
 import com.yahoo.vespa.objects.Ids;
@@ -20,21 +21,46 @@ public class Struct extends StructuredFieldValue {
 
     public static final int classId = registerClass(Ids.document + 33, Struct.class);
     private Hashlet<Integer, FieldValue> values = new Hashlet<>();
+    /** The values of fields which are deserialized when first accessed, or null if none. Disjoint from values. */
+    private Map<Integer, LazyFieldValue> serialized = null;
     private int [] order = null;
 
     private int version;
 
     private int [] getInOrder() {
         if (order == null) {
-            order = new int[values.size()];
+            order = new int[getFieldCount()];
             for (int i = 0; i < values.size(); i++) {
                 order[i] = values.key(i);
             }
+            if (serialized != null) {
+                int i = values.size();
+                for (int id : serialized.keySet()) {
+                    order[i++] = id;
+                }
+            }
             Arrays.sort(order);
         }
         return order;
     }
 
+    private FieldValue getFieldValue(int id) {
+        FieldValue value = values.get(id);
+        if (value == null && serialized != null) {
+            LazyFieldValue lazyValue = serialized.get(id);
+            if (lazyValue != null) {
+                value = lazyValue.get(getDataType().getField(id));
+            }
+        }
+        return value;
+    }
+
+    private void removeSerializedFieldValue(int id) {
+        if (serialized != null && serialized.remove(id) != null) {
+            invalidateOrder();
+        }
+    }
+
     private void invalidateOrder() {
         order = null;
     }
@@ -86,12 +112,19 @@ public class Struct extends StructuredFieldValue {
         for (int i = 0; i < values.size(); i++) {
             struct.values.put(values.key(i), values.value(i).clone());
         }
+        if (serialized != null) {
+            struct.serialized = new HashMap<>();
+            for (Map.Entry<Integer, LazyFieldValue> entry : serialized.entrySet()) {
+                struct.serialized.put(entry.getKey(), entry.getValue().copy());
+            }
+        }
         return struct;
     }
 
     @Override
     public void clear() {
         values = new Hashlet<>();
+        serialized = null;
         invalidateOrder();
     }
 
@@ -119,7 +152,32 @@ public class Struct extends StructuredFieldValue {
 
     @Override
     public FieldValue getFieldValue(Field field) {
-        return values.get(field.getId());
+        return getFieldValue(field.getId());
+    }
+
+    /**
+     * Sets the value of a field to a serialized value which will be deserialized when the field is first accessed.
+     * This is used by deserializers which decode fields lazily.
+     */
+    public void setSerializedFieldValue(Field field, SerializedFieldValue value) {
+        if (values.get(field.getId()) != null) {
+            removeFieldValue(field);
+        }
+        if (serialized == null) {
+            serialized = new HashMap<>();
+        }
+        serialized.put(field.getId(), new LazyFieldValue(value));
+        invalidateOrder();
+    }
+
+    /**
+     * Returns the serialized value of the given field if it is set and has not been accessed since this
+     * was deserialized, and null otherwise.
+     */
+    public SerializedFieldValue getSerializedFieldValue(Field field) {
+        if (serialized == null) return null;
+        LazyFieldValue lazyValue = serialized.get(field.getId());
+        return lazyValue == null ? null : lazyValue.getSerialized();
     }
 
 
@@ -130,7 +188,7 @@ public class Struct extends StructuredFieldValue {
 
     @Override
     public int getFieldCount() {
-        return values.size();
+        return values.size() + (serialized == null ? 0 : serialized.size());
     }
 
     @Override
@@ -156,6 +214,7 @@ public class Struct extends StructuredFieldValue {
                     "Inconsistent field: " + field);
         }
 
+        removeSerializedFieldValue(field.getId());
         int index = values.getIndexOfKey(field.getId());
         if (index == -1) {
             values.put(field.getId(), value);
@@ -167,7 +226,7 @@ public class Struct extends StructuredFieldValue {
 
     @Override
     public FieldValue removeFieldValue(Field field) {
-        FieldValue found = values.get(field.getId());
+        FieldValue found = getFieldValue(field.getId());
         if (found != null) {
             Hashlet<Integer, FieldValue> copy = new Hashlet<>();
             copy.reserve(values.size() - 1);
@@ -177,6 +236,7 @@ public class Struct extends StructuredFieldValue {
                 }
             }
             values = copy;
+            removeSerializedFieldValue(field.getId());
             invalidateOrder();
         }
         return found;
@@ -215,13 +275,26 @@ public class Struct extends StructuredFieldValue {
         if (!super.equals(o)) return false;
 
         Struct struct = (Struct) o;
-        return values.equals(struct.values);
+        if (serialized == null && struct.serialized == null) {
+            return values.equals(struct.values);
+        }
+        if (getFieldCount() != struct.getFieldCount()) return false;
+        for (int id : getInOrder()) {
+            if ( ! Objects.equals(getFieldValue(id), struct.getFieldValue(id))) return false;
+        }
+        return true;
     }
 
     @Override
     public int hashCode() {
         int result = super.hashCode();
-        result = 31 * result + values.hashCode();
+        int valuesHash = values.hashCode();
+        if (serialized != null) { // the same as the hash of the values if they were all deserialized
+            for (Map.Entry<Integer, LazyFieldValue> entry : serialized.entrySet()) {
+                valuesHash += entry.getKey().hashCode() + entry.getValue().get(getDataType().getField(entry.getKey())).hashCode();
+            }
+        }
+        result = 31 * result + valuesHash;
         return result;
     }
 
@@ -232,7 +305,7 @@ public class Struct extends StructuredFieldValue {
         int [] increasing = getInOrder();
         for (int i = 0; i < increasing.length; i++) {
             int id = increasing[i];
-            retVal.append(getDataType().getField(id)).append("=").append(values.get(id)).append(", ");
+            retVal.append(getDataType().getField(id)).append("=").append(getFieldValue(id)).append(", ");
         }
         return retVal.toString();
     }
@@ -249,7 +322,7 @@ public class Struct extends StructuredFieldValue {
             return cmp;
         }
         Struct rhs = (Struct)obj;
-        cmp = values.size() - rhs.values.size();
+        cmp = getFieldCount() - rhs.getFieldCount();
         if (cmp != 0) {
             return cmp;
         }
@@ -290,7 +363,7 @@ public class Struct extends StructuredFieldValue {
         }
 
         public FieldValue getValue() {
-            return values.get(id);
+            return getFieldValue(id);
         }
 
         public FieldValue setValue(FieldValue value) {
@@ -298,9 +371,10 @@ public class Struct extends StructuredFieldValue {
                 throw new NullPointerException("Null values in Struct not supported, use removeFieldValue() to remove value instead.");
             }
 
+            FieldValue retVal = getFieldValue(id);
             int index = values.getIndexOfKey(id);
-            FieldValue retVal = null;
             if (index == -1) {
+                removeSerializedFieldValue(id);
                 values.put(id, value);
                 invalidateOrder();
             } else {
@@ -327,7 +401,7 @@ public class Struct extends StructuredFieldValue {
     private class FieldSet extends AbstractSet<Map.Entry<Field, FieldValue>> {
         @Override
         public int size() {
-            return values.size();
+            return getFieldCount();
         }
 
         @Override
@@ -388,4 +462,44 @@ public class Struct extends StructuredFieldValue {
         return fieldType.cast(fieldValue);
     }
 
+    /**
+     * A field value which is deserialized when it is first accessed. Deserializing is synchronized, so lazily
+     * decoded structs may be read by multiple threads at once just like other structs.
+     * The serialized form is released when it is deserialized.
+     */
+    private static final class LazyFieldValue {
+
+        private volatile SerializedFieldValue serialized;
+        private volatile FieldValue value;
+
+        LazyFieldValue(SerializedFieldValue serialized) {
+            this.serialized = serialized;
+        }
+
+        private LazyFieldValue(FieldValue value) {
+            this.value = value;
+        }
+
+        FieldValue get(Field field) {
+            FieldValue current = value;
+            if (current != null) return current;
+            synchronized (this) {
+                if (value == null) {
+                    value = serialized.deserialize(field);
+                    serialized = null;
+                }
+                return value;
+            }
+        }
+
+        /** Returns the serialized form of this if it is not deserialized yet, and null otherwise */
+        SerializedFieldValue getSerialized() { return serialized; }
+
+        /** Returns a copy of this which does not share any deserialized value with this */
+        synchronized LazyFieldValue copy() {
+            return value == null ? new LazyFieldValue(serialized) : new LazyFieldValue(value.clone());
+        }
+
+    }
+
 }
@@ -0,0 +1,50 @@
+// Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.document.serialization;
+
+import com.yahoo.document.DocumentTypeManager;
+import com.yahoo.document.Field;
+import com.yahoo.document.datatypes.FieldValue;
+import com.yahoo.io.GrowableByteBuffer;
+
+/**
+ * The serialized form of a struct field value, which is kept by structs read with lazy field decoding
+ * until the field is accessed, and written verbatim if the struct is serialized before that.
+ * Instances are immutable and may be shared between structs.
+ *
+ * @author agent
+ */
+public final class SerializedFieldValue {
+
+    private final DocumentTypeManager manager;
+    private final short version;
+    private final byte[] data;
+    private final int offset;
+    private final int length;
+
+    SerializedFieldValue(DocumentTypeManager manager, short version, byte[] data, int offset, int length) {
+        this.manager = manager;
+        this.version = version;
+        this.data = data;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    /** Returns a new value of the given field deserialized from this */
+    @SuppressWarnings("deprecation")
+    public FieldValue deserialize(Field field) {
+        FieldValue value = field.getDataType().createFieldValue();
+        VespaDocumentDeserializer42 reader =
+                new VespaDocumentDeserializer42(manager, GrowableByteBuffer.wrap(data, offset, length), null, version);
+        reader.setLazyFieldDecoding(true);
+        value.deserialize(field, reader);
+        return value;
+    }
+
+    /** Returns the length of this in bytes */
+    public int getLength() { return length; }
+
+    void writeTo(GrowableByteBuffer buffer) {
+        buffer.put(data, offset, length);
+    }
+
+}
@@ -90,6 +90,7 @@ public class VespaDocumentDeserializer42 extends VespaDocumentSerializer42 imple
     private List<SpanNode> spanNodes;
     private List<Annotation> annotations;
     private int[] stringPositions;
+    private boolean lazyFieldDecoding = false;
 
     VespaDocumentDeserializer42(DocumentTypeManager manager, GrowableByteBuffer header, GrowableByteBuffer body, short version) {
         super(header);
@@ -108,6 +109,17 @@ public class VespaDocumentDeserializer42 extends VespaDocumentSerializer42 imple
 
     final public DocumentTypeManager getDocumentTypeManager() { return manager; }
 
+    /**
+     * Sets whether struct fields should be kept serialized until they are accessed. This avoids the cost of
+     * deserializing, and serializing again, the fields of a document which are never looked at. In return,
+     * errors in the serialized field values are thrown when the field is accessed rather than when reading,
+     * and the buffer read from is referenced until every field has been accessed.
+     * This is only done for documents of the current serialization version.
+     */
+    public void setLazyFieldDecoding(boolean lazyFieldDecoding) {
+        this.lazyFieldDecoding = lazyFieldDecoding;
+    }
+
     public void read(Document document) {
          read(null, document);
     }
@@ -363,6 +375,11 @@ public class VespaDocumentDeserializer42 extends VespaDocumentSerializer42 imple
             if (structField == null) {
                 //ignoring unknown field:
                 position(position() + fieldIdsAndLengths.get(i).second.intValue());
+            } else if (lazyFieldDecoding && version == Document.SERIALIZED_VERSION) {
+                int length = fieldIdsAndLengths.get(i).second.intValue();
+                s.setSerializedFieldValue(structField,
+                                          new SerializedFieldValue(manager, version, destination, position(), length));
+                position(position() + length);
             } else {
                 int posBefore = position();
                 FieldValue value = structField.getDataType().createFieldValue();
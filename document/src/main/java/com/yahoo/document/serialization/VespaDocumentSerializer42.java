@@ -313,7 +313,12 @@ public class VespaDocumentSerializer42 extends BufferSerializer implements Docum
         for (Map.Entry<Field, FieldValue> value : s.getFields()) {
 
             int startPos = buffer.position();
-            value.getValue().serialize(value.getKey(), this);
+            SerializedFieldValue serialized = s.getSerializedFieldValue(value.getKey());
+            if (serialized != null) {
+                serialized.writeTo(buffer);
+            } else {
+                value.getValue().serialize(value.getKey(), this);
+            }
 
             fieldLengths.add(buffer.position() - startPos);
             fieldIds.add(value.getKey().getId(s.getVersion()));
@@ -0,0 +1,153 @@
+// Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.document.serialization;
+
+import com.yahoo.document.ArrayDataType;
+import com.yahoo.document.DataType;
+import com.yahoo.document.Document;
+import com.yahoo.document.DocumentType;
+import com.yahoo.document.DocumentTypeManager;
+import com.yahoo.document.Field;
+import com.yahoo.document.datatypes.Array;
+import com.yahoo.document.datatypes.FieldValue;
+import com.yahoo.document.datatypes.IntegerFieldValue;
+import com.yahoo.document.datatypes.StringFieldValue;
+import com.yahoo.io.GrowableByteBuffer;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * @author agent
+ */
+public class LazyFieldDecodingTestCase {
+
+    private final DocumentTypeManager manager = new DocumentTypeManager();
+    private final DocumentType type = new DocumentType("my_type");
+
+    public LazyFieldDecodingTestCase() {
+        type.addField("title", DataType.STRING);
+        type.addField("count", DataType.INT);
+        type.addField("tags", new ArrayDataType(DataType.STRING));
+        manager.registerDocumentType(type);
+    }
+
+    @Test
+    public void requireThatFieldsAreDecodedOnFirstAccess() {
+        Document document = lazy(serialize(createDocument()));
+        Field title = type.getField("title");
+        assertNotNull(document.getBody().getSerializedFieldValue(title));
+        assertEquals(3, document.getBody().getFieldCount());
+
+        assertEquals(new StringFieldValue("a title"), document.getFieldValue(title));
+        assertNull(document.getBody().getSerializedFieldValue(title));
+        assertNotNull(document.getBody().getSerializedFieldValue(type.getField("count")));
+        assertEquals(3, document.getBody().getFieldCount());
+    }
+
+    @Test
+    public void requireThatLazyDocumentsEqualEagerOnes() {
+        byte[] serialized = serialize(createDocument());
+        assertEquals(eager(serialized), lazy(serialized));
+        assertEquals(eager(serialized).hashCode(), lazy(serialized).hashCode());
+        assertEquals(createDocument(), lazy(serialized));
+    }
+
+    @Test
+    public void requireThatIteratingDecodesAllFields() {
+        Document document = lazy(serialize(createDocument()));
+        int count = 0;
+        for (Map.Entry<Field, FieldValue> entry : document.getBody().getFields()) {
+            assertEquals(createDocument().getFieldValue(entry.getKey()), entry.getValue());
+            count++;
+        }
+        assertEquals(3, count);
+    }
+
+    @Test
+    public void requireThatUntouchedFieldsAreWrittenVerbatim() {
+        byte[] serialized = serialize(createDocument());
+        Document document = lazy(serialized);
+        document.getFieldValue("title");
+        assertArrayEquals(serialized, serialize(document));
+    }
+
+    @Test
+    public void requireThatModifiedFieldsAreSerialized() {
+        Document document = lazy(serialize(createDocument()));
+        document.setFieldValue("count", new IntegerFieldValue(7));
+        document.removeFieldValue("title");
+
+        Document expected = createDocument();
+        expected.setFieldValue("count", new IntegerFieldValue(7));
+        expected.removeFieldValue("title");
+        assertEquals(expected, eager(serialize(document)));
+    }
+
+    @Test
+    public void requireThatClonesAreIndependent() {
+        Document document = lazy(serialize(createDocument()));
+        Document clone = document.clone();
+        clone.setFieldValue("count", new IntegerFieldValue(7));
+        assertEquals(new IntegerFieldValue(42), document.getFieldValue("count"));
+        assertEquals(new IntegerFieldValue(7), clone.getFieldValue("count"));
+    }
+
+    @Test
+    public void requireThatFieldsCanBeDecodedByMultipleThreads() throws Exception {
+        Document document = lazy(serialize(createDocument()));
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<FieldValue>> titles = new ArrayList<>();
+            for (int i = 0; i < 16; i++) {
+                titles.add(executor.submit(() -> document.getFieldValue("title")));
+            }
+            FieldValue title = titles.get(0).get();
+            assertEquals(new StringFieldValue("a title"), title);
+            for (Future<FieldValue> other : titles) {
+                assertSame(title, other.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private Document createDocument() {
+        Document document = new Document(type, "id:ns:my_type::1");
+        document.setFieldValue("title", new StringFieldValue("a title"));
+        document.setFieldValue("count", new IntegerFieldValue(42));
+        Array<StringFieldValue> tags = new Array<>(type.getField("tags").getDataType());
+        tags.addAll(Arrays.asList(new StringFieldValue("foo"), new StringFieldValue("bar")));
+        document.setFieldValue("tags", tags);
+        return document;
+    }
+
+    private static byte[] serialize(Document document) {
+        GrowableByteBuffer buffer = new GrowableByteBuffer();
+        DocumentSerializerFactory.createHead(buffer).write(document);
+        buffer.flip();
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    private Document lazy(byte[] serialized) {
+        return new Document(DocumentDeserializerFactory.createLazyHead(manager, GrowableByteBuffer.wrap(serialized)));
+    }
+
+    private Document eager(byte[] serialized) {
+        return new Document(DocumentDeserializerFactory.createHead(manager, GrowableByteBuffer.wrap(serialized)));
+    }
+
+}
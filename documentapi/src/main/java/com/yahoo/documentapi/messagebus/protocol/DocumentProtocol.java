@@ -567,6 +567,21 @@ public class DocumentProtocol implements Protocol {
         return routableRepository.encode(version, routable);
     }
 
+    /**
+     * Sets whether the fields of documents in decoded messages should be kept serialized until they are accessed,
+     * and written back verbatim if they never are. This saves deserializing and serializing fields which are
+     * passed through without being looked at. This is off by default, as an invalid field value then causes an
+     * exception when the field is accessed instead of a decode error reply, and the message payload is kept
+     * in memory until every field of its document has been accessed.
+     *
+     * @param lazyFieldDecoding Whether to decode document fields lazily.
+     * @return This, to allow chaining.
+     */
+    public DocumentProtocol setLazyFieldDecoding(boolean lazyFieldDecoding) {
+        routableRepository.setLazyFieldDecoding(lazyFieldDecoding);
+        return this;
+    }
+
     public Routable decode(Version version, byte[] data) {
         try {
             return routableRepository.decode(docMan, version, data);
@@ -2,6 +2,7 @@
 package com.yahoo.documentapi.messagebus.protocol;
 
 import com.yahoo.concurrent.CopyOnWriteHashMap;
+import com.yahoo.concurrent.ThreadFactoryFactory;
 import com.yahoo.config.subscription.ConfigSourceSet;
 import com.yahoo.document.BucketId;
 import com.yahoo.document.BucketIdFactory;
@@ -13,6 +14,7 @@ import com.yahoo.messagebus.Error;
 import com.yahoo.messagebus.metrics.MetricSet;
 import com.yahoo.messagebus.routing.*;
 import com.yahoo.vdslib.distribution.Distribution;
+import com.yahoo.vdslib.distribution.Group;
 import com.yahoo.vdslib.state.ClusterState;
 import com.yahoo.vdslib.state.Node;
 import com.yahoo.vdslib.state.NodeType;
@@ -23,6 +25,9 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Random;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.logging.Logger;
 
 /**
@@ -189,6 +194,9 @@ public class StoragePolicy extends ExternalSlobrokPolicy {
 
     /** Class parsing the semicolon separated parameter string and exposes the appropriate value to the policy. */
     public static class Parameters {
+        private static final Executor distributorTableExecutor =
+                Executors.newSingleThreadExecutor(ThreadFactoryFactory.getDaemonThreadFactory("storagepolicy-distributor-table"));
+
         protected String clusterName = null;
         protected String distributionConfigId = null;
         protected SlobrokHostPatternGenerator slobrokHostPatternGenerator = null;
@@ -235,6 +243,60 @@ public class StoragePolicy extends ExternalSlobrokPolicy {
          * (To avoid hitting trashing bad nodes still in slobrok)
          */
         public int getRequiredUpPercentageToSendToKnownGoodNodes() { return 60; }
+
+        /**
+         * The executor building distributor tables for new cluster states. Tables must be built in the order they are
+         * submitted, such that a table for an old state never replaces one for a newer state.
+         */
+        public Executor getDistributorTableExecutor() { return distributorTableExecutor; }
+    }
+
+    /**
+     * The ideal distributor of each superbucket in a cluster state. The ideal distributor of a bucket depends only
+     * on its superbucket, so looking it up here gives the same result as running the ideal state algorithm for it.
+     */
+    public static class IdealDistributorTable {
+        /** The largest number of distribution bits tables are built for */
+        public static final int maxDistributionBits = 16;
+        private static final int noDistributor = -1;
+
+        private final ClusterState state;
+        private final Group rootGroup;
+        private final int[] distributors;
+
+        public IdealDistributorTable(Distribution distribution, ClusterState state) {
+            if ( ! canBuildFor(state)) {
+                throw new IllegalArgumentException("Cluster state uses " + state.getDistributionBitCount() +
+                                                   " distribution bits, tables are only built for up to " + maxDistributionBits);
+            }
+            this.state = state;
+            this.rootGroup = distribution.getRootGroup();
+            this.distributors = new int[1 << state.getDistributionBitCount()];
+            for (int superBucket = 0; superBucket < distributors.length; superBucket++) {
+                try {
+                    distributors[superBucket] = distribution.getIdealDistributorNode(
+                            state, new BucketId(state.getDistributionBitCount(), superBucket), owningBucketStates);
+                } catch (Distribution.NoDistributorsAvailableException e) {
+                    distributors[superBucket] = noDistributor;
+                } catch (Distribution.TooFewBucketBitsInUseException e) {
+                    throw new IllegalStateException("Superbuckets use all distribution bits", e);
+                }
+            }
+        }
+
+        public static boolean canBuildFor(ClusterState state) {
+            return state.getDistributionBitCount() <= maxDistributionBits;
+        }
+
+        /**
+         * Returns the ideal distributor of the given bucket, or null if the bucket uses too few bits
+         * or has no available distributor, in which case the ideal state algorithm gives the reason.
+         */
+        public Integer getIdealDistributor(BucketId bucket) {
+            if (bucket.getUsedBits() < state.getDistributionBitCount()) return null;
+            int distributor = distributors[(int) bucket.getRawId() & (distributors.length - 1)];
+            return distributor == noDistributor ? null : distributor;
+        }
     }
 
     /** Helper class to get the bucket identifier of a message. */
@@ -309,7 +371,9 @@ public class StoragePolicy extends ExternalSlobrokPolicy {
         private final HostFetcher hostFetcher;
         private final Distribution distribution;
         private final InstabilityChecker persistentFailureChecker;
-        private ClusterState cachedClusterState = null;
+        private final Executor distributorTableExecutor;
+        private volatile ClusterState cachedClusterState = null;
+        private volatile IdealDistributorTable distributorTable = null;
         private int oldClusterVersionGottenCount = 0;
         private final int maxOldClusterVersionBeforeSendingRandom; // Reset cluster version protection
 
@@ -318,6 +382,7 @@ public class StoragePolicy extends ExternalSlobrokPolicy {
             this.hostFetcher.setRequiredUpPercentageToSendToKnownGoodNodes(params.getRequiredUpPercentageToSendToKnownGoodNodes());
             this.distribution = params.createDistribution(policy);
             persistentFailureChecker = new InstabilityChecker(params.getAttemptRandomOnFailuresLimit());
+            distributorTableExecutor = params.getDistributorTableExecutor();
             maxOldClusterVersionBeforeSendingRandom = params.maxOldClusterStatesSeenBeforeThrowingCachedState();
         }
 
@@ -332,7 +397,7 @@ public class StoragePolicy extends ExternalSlobrokPolicy {
             context.setContext(messageContext);
             if (cachedClusterState != null) { // If we have a cached cluster state (regular case), we use that to calculate correct node.
                 try{
-                    Integer target = distribution.getIdealDistributorNode(cachedClusterState, bucketId, owningBucketStates);
+                    Integer target = getIdealDistributor(cachedClusterState, bucketId);
                     // If we have had too many failures towards existing node, reset failure count and send to random
                     if (persistentFailureChecker.tooManyFailures(target)) {
                         sendRandomReason = "Too many failures detected versus distributor " + target + ". Sending to random instead of using cached state.";
@@ -374,6 +439,37 @@ public class StoragePolicy extends ExternalSlobrokPolicy {
             return hostFetcher.getRandomTargetSpec(context);
         }
 
+        /** Returns the ideal distributor of the given bucket, from the distributor table of the state if it is built */
+        private int getIdealDistributor(ClusterState state, BucketId bucketId)
+                throws Distribution.TooFewBucketBitsInUseException, Distribution.NoDistributorsAvailableException {
+            IdealDistributorTable table = distributorTable;
+            if (table != null && table.state == state) {
+                if (table.rootGroup == distribution.getRootGroup()) {
+                    Integer distributor = table.getIdealDistributor(bucketId);
+                    if (distributor != null) return distributor;
+                } else { // The distribution config has changed since the table was built
+                    distributorTable = null;
+                    buildDistributorTable(state);
+                }
+            }
+            return distribution.getIdealDistributorNode(state, bucketId, owningBucketStates);
+        }
+
+        /** Builds the distributor table of the given state in the background, unless the state is replaced first */
+        private void buildDistributorTable(ClusterState state) {
+            if ( ! IdealDistributorTable.canBuildFor(state)) return;
+            try {
+                distributorTableExecutor.execute(() -> {
+                    if (state != cachedClusterState) return;
+                    IdealDistributorTable table = new IdealDistributorTable(distribution, state);
+                    if (state == cachedClusterState)
+                        distributorTable = table;
+                });
+            } catch (RejectedExecutionException e) {
+                log.log(LogLevel.DEBUG, "Could not build distributor table, computing distributors per message");
+            }
+        }
+
         private static Optional<ClusterState> clusterStateFromReply(final WrongDistributionReply reply) {
             try {
                 return Optional.of(new ClusterState(reply.getSystemState()));
@@ -403,7 +499,11 @@ public class StoragePolicy extends ExternalSlobrokPolicy {
 
         private void updateCachedRoutingStateFromWrongDistribution(MessageContext context, ClusterState newState) {
             if (cachedClusterState == null || newState.getVersion() >= cachedClusterState.getVersion()) {
-                cachedClusterState = newState;
+                // Keep an equal state, as the distributor table is built for that instance
+                if ( ! newState.equals(cachedClusterState)) {
+                    cachedClusterState = newState;
+                    buildDistributorTable(newState);
+                }
                 if (newState.getClusterState().equals(State.UP)) {
                     hostFetcher.updateValidTargets(newState);
                 }
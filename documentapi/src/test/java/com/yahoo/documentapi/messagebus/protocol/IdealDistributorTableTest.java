@@ -0,0 +1,53 @@
+// Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.documentapi.messagebus.protocol;
+
+import com.yahoo.document.BucketId;
+import com.yahoo.vdslib.distribution.Distribution;
+import com.yahoo.vdslib.state.ClusterState;
+import org.junit.Test;
+
+import java.text.ParseException;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author agent
+ */
+public class IdealDistributorTableTest {
+
+    private final Distribution distribution = new Distribution(Distribution.getDefaultDistributionConfig(2, 10));
+
+    @Test
+    public void requireThatTableGivesTheIdealDistributorOfEachBucket() throws Exception {
+        ClusterState state = new ClusterState("version:3 bits:8 distributor:10 storage:10 .3.s:d .7.s:m");
+        StoragePolicy.IdealDistributorTable table = new StoragePolicy.IdealDistributorTable(distribution, state);
+        Random random = new Random(17);
+        for (int i = 0; i < 10000; i++) {
+            BucketId bucket = new BucketId(8 + random.nextInt(25), random.nextLong());
+            assertEquals(bucket.toString(),
+                         Integer.valueOf(distribution.getIdealDistributorNode(state, bucket, StoragePolicy.owningBucketStates)),
+                         table.getIdealDistributor(bucket));
+        }
+    }
+
+    @Test
+    public void requireThatBucketsWithoutIdealDistributorAreNotInTable() throws ParseException {
+        StoragePolicy.IdealDistributorTable table = new StoragePolicy.IdealDistributorTable(
+                distribution, new ClusterState("version:3 bits:8 distributor:2 .0.s:d .1.s:d"));
+        assertNull(table.getIdealDistributor(new BucketId(16, 1)));
+        assertNull("Buckets using too few bits are not in the table",
+                   new StoragePolicy.IdealDistributorTable(distribution, new ClusterState("version:3 bits:8 distributor:10"))
+                           .getIdealDistributor(new BucketId(4, 1)));
+    }
+
+    @Test
+    public void requireThatTablesAreOnlyBuiltForStatesWithFewDistributionBits() throws ParseException {
+        assertTrue(StoragePolicy.IdealDistributorTable.canBuildFor(new ClusterState("version:3 bits:16 distributor:10")));
+        assertFalse(StoragePolicy.IdealDistributorTable.canBuildFor(new ClusterState("version:3 bits:17 distributor:10")));
+    }
+
+}
@@ -19,6 +19,7 @@ import com.yahoo.vdslib.distribution.RandomGen;
 import junit.framework.TestCase;
 
 import java.util.*;
+import java.util.concurrent.Executor;
 
 public abstract class StoragePolicyTestEnvironment extends TestCase {
     protected StoragePolicyTestFactory policyFactory;
@@ -139,6 +140,9 @@ public abstract class StoragePolicyTestEnvironment extends TestCase {
 
         @Override
         public Distribution createDistribution(ExternalSlobrokPolicy policy) { return distribution; }
+
+        @Override
+        public Executor getDistributorTableExecutor() { return Runnable::run; }
     }
 
     public static class StoragePolicyTestFactory implements RoutingPolicyFactory {
@@ -0,0 +1,112 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespa.filedistribution;
+
+import com.yahoo.config.FileReference;
+import com.yahoo.jrt.DataValue;
+import com.yahoo.jrt.Int32Value;
+import com.yahoo.jrt.Int64Value;
+import com.yahoo.jrt.Request;
+import com.yahoo.jrt.StringValue;
+import com.yahoo.jrt.Target;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Sends file reference data to a target in parts of {@link FileReceiver#CHUNK_SIZE} bytes, using the methods
+ * registered by {@link FileReceiver}. Parts the target already has from an earlier, interrupted transfer
+ * are not sent again.
+ *
+ * @author agent
+ */
+public class ChunkedFileSender {
+
+    private static final double timeout = 600;
+
+    private final Target target;
+
+    public ChunkedFileSender(Target target) {
+        this.target = target;
+    }
+
+    /**
+     * Sends the given data to the target
+     *
+     * @throws IllegalArgumentException if the target fails to receive the data
+     */
+    public void send(FileReferenceData fileData, int errorCode, String errorDescription) {
+        Request meta = sendMeta(fileData);
+        int session = meta.returnValues().get(1).asInt32();
+        // Older receivers do not return an offset, and do not resume
+        long offset = meta.returnValues().size() > 2 ? meta.returnValues().get(2).asInt64() : 0;
+        if (offset % FileReceiver.CHUNK_SIZE != 0)
+            offset = 0;
+        sendParts(session, offset / FileReceiver.CHUNK_SIZE, fileData);
+        sendEof(session, fileData, errorCode, errorDescription);
+    }
+
+    /** Sends all parts from the given one, but reads them all, as the hash sent at the end is of the whole content */
+    private void sendParts(int session, long firstPartToSend, FileReferenceData fileData) {
+        ByteBuffer bb = ByteBuffer.allocate(FileReceiver.CHUNK_SIZE);
+        for (int partId = 0; readPart(bb, fileData); partId++) {
+            if (partId >= firstPartToSend)
+                sendPart(session, fileData.fileReference(), partId, bb.position() == bb.capacity()
+                                                                    ? bb.array()
+                                                                    : Arrays.copyOf(bb.array(), bb.position()));
+            bb.clear();
+        }
+    }
+
+    /** Fills the given buffer unless the end of the content is reached. Returns whether anything was read */
+    private static boolean readPart(ByteBuffer bb, FileReferenceData fileData) {
+        while (bb.hasRemaining()) {
+            if (fileData.nextContent(bb) < 0) break;
+        }
+        return bb.position() > 0;
+    }
+
+    private Request sendMeta(FileReferenceData fileData) {
+        Request request = new Request(FileReceiver.RECEIVE_META_METHOD);
+        request.parameters().add(new StringValue(fileData.fileReference().value()));
+        request.parameters().add(new StringValue(fileData.filename()));
+        request.parameters().add(new StringValue(fileData.type().name()));
+        request.parameters().add(new Int64Value(fileData.size()));
+        invoke(request, fileData.fileReference());
+        return request;
+    }
+
+    private void sendPart(int session, FileReference reference, int partId, byte [] buf) {
+        Request request = new Request(FileReceiver.RECEIVE_PART_METHOD);
+        request.parameters().add(new StringValue(reference.value()));
+        request.parameters().add(new Int32Value(session));
+        request.parameters().add(new Int32Value(partId));
+        request.parameters().add(new DataValue(buf));
+        invoke(request, reference);
+    }
+
+    private void sendEof(int session, FileReferenceData fileData, int errorCode, String errorDescription) {
+        Request request = new Request(FileReceiver.RECEIVE_EOF_METHOD);
+        request.parameters().add(new StringValue(fileData.fileReference().value()));
+        request.parameters().add(new Int32Value(session));
+        request.parameters().add(new Int64Value(fileData.xxhash()));
+        request.parameters().add(new Int32Value(errorCode));
+        request.parameters().add(new StringValue(errorDescription));
+        invoke(request, fileData.fileReference());
+    }
+
+    private void invoke(Request request, FileReference reference) {
+        target.invokeSync(request, timeout);
+        if (request.isError()) {
+            throw new IllegalArgumentException("Failed delivering reference '" + reference.value() + "' to " +
+                                               target.toString() + " with error: '" + request.errorMessage() + "'.");
+        } else if (request.returnValues().get(0).asInt32() != 0) {
+            throw new IllegalArgumentException("Unknown error from target '" + target.toString() + "' during rpc call " + request.methodName());
+        }
+    }
+
+    @Override
+    public String toString() {
+        return target.toString();
+    }
+
+}
@@ -6,14 +6,17 @@ import com.yahoo.log.LogLevel;
 import org.apache.commons.compress.archivers.ArchiveEntry;
 import org.apache.commons.compress.archivers.ArchiveInputStream;
 import org.apache.commons.compress.archivers.ArchiveOutputStream;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
 import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
 import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
 
+import java.io.BufferedOutputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -34,32 +37,43 @@ public class CompressedFileReference {
     private static final int recurseDepth = 100;
 
     public static File compress(File baseDir, List<File> inputFiles, File outputFile) throws IOException {
-        TarArchiveOutputStream archiveOutputStream = new TarArchiveOutputStream(new GZIPOutputStream(new FileOutputStream(outputFile)));
-        archiveOutputStream.setLongFileMode(TarArchiveOutputStream.LONGFILE_POSIX);
-        createArchiveFile(archiveOutputStream, baseDir, inputFiles);
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(outputFile))) {
+            compress(baseDir, inputFiles, out);
+        }
         return outputFile;
     }
 
     public static File compress(File directory, File outputFile) throws IOException {
-        return compress(directory, Files.find(Paths.get(directory.getAbsolutePath()),
-                recurseDepth,
-                (p, basicFileAttributes) -> basicFileAttributes.isRegularFile())
-                .map(Path::toFile).collect(Collectors.toList()), outputFile);
+        return compress(directory, filesIn(directory), outputFile);
     }
 
     public static byte[] compress(File directory) throws IOException {
-        return compress(directory, Files.find(Paths.get(directory.getAbsolutePath()),
-                                              recurseDepth,
-                                              (p, basicFileAttributes) -> basicFileAttributes.isRegularFile())
-                .map(Path::toFile).collect(Collectors.toList()));
+        return compress(directory, filesIn(directory));
     }
 
     public static byte[] compress(File baseDir, List<File> inputFiles) throws IOException {
         ByteArrayOutputStream out = new ByteArrayOutputStream();
+        compress(baseDir, inputFiles, out);
+        return out.toByteArray();
+    }
+
+    /**
+     * Writes a gzipped tar archive of the given files to the given stream, without buffering the archive.
+     * The files are archived in path order without their modification times, so that archives of the same
+     * files are byte identical on all hosts, which allows a partially downloaded archive to be resumed from
+     * any host having the file reference.
+     */
+    public static void compress(File baseDir, List<File> inputFiles, OutputStream out) throws IOException {
         TarArchiveOutputStream archiveOutputStream = new TarArchiveOutputStream(new GZIPOutputStream(out));
         archiveOutputStream.setLongFileMode(TarArchiveOutputStream.LONGFILE_POSIX);
-        createArchiveFile(archiveOutputStream, baseDir, inputFiles);
-        return out.toByteArray();
+        createArchiveFile(archiveOutputStream, baseDir, inputFiles.stream().sorted().collect(Collectors.toList()));
+    }
+
+    private static List<File> filesIn(File directory) throws IOException {
+        return Files.find(Paths.get(directory.getAbsolutePath()),
+                          recurseDepth,
+                          (p, basicFileAttributes) -> basicFileAttributes.isRegularFile())
+                .map(Path::toFile).collect(Collectors.toList());
     }
 
     static void decompress(File inputFile, File outputDir) throws IOException {
@@ -112,8 +126,12 @@ public class CompressedFileReference {
 
     private static void writeFileToTar(ArchiveOutputStream taos, File baseDir, File file) throws IOException {
         log.log(LogLevel.DEBUG, "Adding file to tar: " + baseDir.toPath().relativize(file.toPath()).toString());
-        taos.putArchiveEntry(taos.createArchiveEntry(file, baseDir.toPath().relativize(file.toPath()).toString()));
-        ByteStreams.copy(new FileInputStream(file), taos);
+        TarArchiveEntry entry = (TarArchiveEntry)taos.createArchiveEntry(file, baseDir.toPath().relativize(file.toPath()).toString());
+        entry.setModTime(0);
+        taos.putArchiveEntry(entry);
+        try (FileInputStream in = new FileInputStream(file)) {
+            ByteStreams.copy(in, taos);
+        }
         taos.closeArchiveEntry();
     }
 }
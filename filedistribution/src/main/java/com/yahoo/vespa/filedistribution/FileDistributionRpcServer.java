@@ -1,6 +1,7 @@
 // Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.vespa.filedistribution;
 
+import com.yahoo.concurrent.DaemonThreadFactory;
 import com.yahoo.config.FileReference;
 import com.yahoo.jrt.DoubleArray;
 import com.yahoo.jrt.Int32Value;
@@ -9,18 +10,24 @@ import com.yahoo.jrt.Request;
 import com.yahoo.jrt.StringArray;
 import com.yahoo.jrt.StringValue;
 import com.yahoo.jrt.Supervisor;
+import com.yahoo.jrt.Target;
 import com.yahoo.log.LogLevel;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 /**
  * An RPC server that handles file distribution requests.
+ * File references downloaded to this are served to peers on request, the same way as config servers serve them,
+ * so that a downloader may use other hosts having a file reference as well as config servers.
  *
  * @author hmusum
  */
@@ -30,6 +37,8 @@ public class FileDistributionRpcServer {
 
     private final Supervisor supervisor;
     private final FileDownloader downloader;
+    private final ExecutorService serveExecutor =
+            Executors.newFixedThreadPool(2, new DaemonThreadFactory("filereference server"));
 
     public FileDistributionRpcServer(Supervisor supervisor, FileDownloader downloader) {
         this.supervisor = supervisor;
@@ -59,6 +68,12 @@ public class FileDistributionRpcServer {
                                      .methodDesc("set which file references to download")
                                      .paramDesc(0, "file references", "file reference to download")
                                      .returnDesc(0, "ret", "0 if success, 1 otherwise"));
+        supervisor.addMethod(new Method("filedistribution.serveFile", "s", "is",
+                                        this, "serveFile")
+                                     .methodDesc("send a file reference downloaded to this host to the caller")
+                                     .paramDesc(0, "file reference", "file reference")
+                                     .returnDesc(0, "ret", "0 if the file reference will be sent, 1 if it is not available here")
+                                     .returnDesc(1, "description", "description of the return code"));
     }
 
 
@@ -123,4 +138,33 @@ public class FileDistributionRpcServer {
         req.returnValues().add(new Int32Value(0));
     }
 
+    @SuppressWarnings({"UnusedDeclaration"})
+    public final void serveFile(Request req) {
+        FileReference fileReference = new FileReference(req.parameters().get(0).asString());
+        // Only serve what has been downloaded already: A peer which does not have the file should not fetch it
+        Optional<File> file = downloader.getDownloadedFile(fileReference);
+        if (file.isPresent()) {
+            Target target = req.target();
+            serveExecutor.execute(() -> serveFile(fileReference, file.get(), target));
+            req.returnValues().add(new Int32Value(0)).add(new StringValue("OK"));
+        } else {
+            log.log(LogLevel.DEBUG, "Peer asked for file reference '" + fileReference.value() + "', which is not downloaded here");
+            req.returnValues().add(new Int32Value(1)).add(new StringValue("Filereference not found"));
+        }
+    }
+
+    private void serveFile(FileReference fileReference, File file, Target target) {
+        log.log(LogLevel.DEBUG, "Serving file reference '" + fileReference.value() + "' to " + target);
+        try {
+            FileReferenceData fileData = LazyFileReferenceData.fromFile(fileReference, file, downloader.tmpDirectory());
+            try {
+                new ChunkedFileSender(target).send(fileData, 0, "OK");
+            } finally {
+                fileData.close();
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            log.log(LogLevel.WARNING, "Failed serving file reference '" + fileReference.value() + "' to " + target + ": " + e.getMessage());
+        }
+    }
+
 }
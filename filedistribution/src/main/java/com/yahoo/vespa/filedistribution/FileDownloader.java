@@ -8,6 +8,7 @@ import com.yahoo.vespa.config.ConnectionPool;
 import com.yahoo.vespa.defaults.Defaults;
 
 import java.io.File;
+import java.io.IOException;
 import java.time.Duration;
 
 import java.util.List;
@@ -30,6 +31,7 @@ public class FileDownloader {
     private final static Logger log = Logger.getLogger(FileDownloader.class.getName());
 
     private final File downloadDirectory;
+    private final File tmpDirectory;
     private final Duration timeout;
     private final FileReferenceDownloader fileReferenceDownloader;
 
@@ -42,6 +44,7 @@ public class FileDownloader {
 
     FileDownloader(ConnectionPool connectionPool, File downloadDirectory, File tmpDirectory, Duration timeout) {
         this.downloadDirectory = downloadDirectory;
+        this.tmpDirectory = tmpDirectory;
         this.timeout = timeout;
         this.fileReferenceDownloader = new FileReferenceDownloader(downloadDirectory, tmpDirectory, connectionPool, timeout);
     }
@@ -98,6 +101,36 @@ public class FileDownloader {
         return downloadDirectory;
     }
 
+    File tmpDirectory() {
+        return tmpDirectory;
+    }
+
+    /**
+     * Returns the file of the given file reference if it is downloaded already, without starting a download.
+     * The reference is given by a peer, so it must name a directory directly below the download directory.
+     */
+    Optional<File> getDownloadedFile(FileReference fileReference) {
+        String name = fileReference.value();
+        if (name.isEmpty() || name.equals(".") || name.equals("..") || name.contains("/") || name.contains(File.separator))
+            return Optional.empty();
+
+        File directory = new File(downloadDirectory, name);
+        Optional<File> file = getFileFromFileSystem(fileReference, directory);
+        if (file.isPresent() && ! (isDirectlyBelow(directory, downloadDirectory) && isDirectlyBelow(file.get(), directory))) {
+            log.log(LogLevel.WARNING, "File reference '" + name + "' resolves to a file outside " + downloadDirectory + ", not serving it");
+            return Optional.empty();
+        }
+        return file;
+    }
+
+    private static boolean isDirectlyBelow(File file, File directory) {
+        try {
+            return directory.getCanonicalFile().equals(file.getCanonicalFile().getParentFile());
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
     private Optional<File> getFileFromFileSystem(FileReference fileReference, File directory) {
         File[] files = directory.listFiles();
         if (directory.exists() && directory.isDirectory() && files != null && files.length > 0) {
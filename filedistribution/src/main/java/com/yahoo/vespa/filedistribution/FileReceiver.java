@@ -4,6 +4,7 @@ package com.yahoo.vespa.filedistribution;
 
 import com.yahoo.config.FileReference;
 import com.yahoo.jrt.Int32Value;
+import com.yahoo.jrt.Int64Value;
 import com.yahoo.jrt.Method;
 import com.yahoo.jrt.Request;
 import com.yahoo.jrt.Supervisor;
@@ -13,6 +14,8 @@ import net.jpountz.xxhash.XXHashFactory;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
 import java.nio.file.StandardOpenOption;
@@ -27,6 +30,10 @@ import java.util.logging.Logger;
  * When asking for a file reference, this handles RPC callbacks from config server with file data and metadata.
  * Uses the same Supervisor as the original caller that requests files, so communication uses the same
  * connection in both directions.
+ * <p>
+ * Files sent in parts are written to an in-progress file named by the file reference, and a later transfer of
+ * the same file reference, from any host, resumes after the whole chunks of {@link #CHUNK_SIZE} bytes already
+ * received.
  *
  * @author baldersheim
  */
@@ -37,6 +44,8 @@ public class FileReceiver {
     public final static String RECEIVE_META_METHOD = "filedistribution.receiveFileMeta";
     public final static String RECEIVE_PART_METHOD = "filedistribution.receiveFilePart";
     public final static String RECEIVE_EOF_METHOD = "filedistribution.receiveFileEof";
+    /** The size of each part sent, except the last, by senders which support resuming */
+    public final static int CHUNK_SIZE = 0x100000;
 
     private final Supervisor supervisor;
     private final FileReferenceDownloader downloader;
@@ -56,13 +65,23 @@ public class FileReceiver {
         private final long fileSize;
         private long currentFileSize;
         private long currentPartId;
-        private long currentHash;
         private final File fileReferenceDir;
         private final File tmpDir;
         private final File inprogressFile;
 
         Session(File downloadDirectory, File tmpDirectory, int sessionId, FileReference reference,
                 FileReferenceData.Type fileType, String fileName, long fileSize)
+        {
+            this(downloadDirectory, tmpDirectory, sessionId, reference, fileType, fileName, fileSize,
+                 createTempFile(tmpDirectory, fileName));
+        }
+
+        /**
+         * Creates a session writing to the given in-progress file. If it already holds the start of the file,
+         * the whole chunks of it are kept and the session expects the part following them.
+         */
+        Session(File downloadDirectory, File tmpDirectory, int sessionId, FileReference reference,
+                FileReferenceData.Type fileType, String fileName, long fileSize, File inprogressFile)
         {
             this.hasher = XXHashFactory.fastestInstance().newStreamingHash64(0);
             this.sessionId = sessionId;
@@ -70,14 +89,17 @@ public class FileReceiver {
             this.fileType = fileType;
             this.fileName = fileName;
             this.fileSize = fileSize;
-            currentFileSize = 0;
-            currentPartId = 0;
-            currentHash = 0;
             fileReferenceDir = new File(downloadDirectory, reference.value());
             this.tmpDir = tmpDirectory;
+            this.inprogressFile = inprogressFile;
+
+            long receivedSize = inprogressFile.length();
+            resumeAt(receivedSize > fileSize ? 0 : receivedSize - receivedSize % CHUNK_SIZE);
+        }
 
+        private static File createTempFile(File tmpDirectory, String fileName) {
             try {
-                inprogressFile = Files.createTempFile(tmpDirectory.toPath(), fileName, ".inprogress").toFile();
+                return Files.createTempFile(tmpDirectory.toPath(), fileName, ".inprogress").toFile();
             } catch (IOException e) {
                 String msg = "Failed creating temp file for inprogress file for " + fileName + " in '" + tmpDirectory.toPath() + "': ";
                 log.log(LogLevel.ERROR, msg + e.getMessage(), e);
@@ -85,7 +107,38 @@ public class FileReceiver {
             }
         }
 
+        /** Truncates the in-progress file to the given size, which must be a whole number of chunks, and continues from there */
+        private void resumeAt(long size) {
+            hasher.reset();
+            try (FileChannel channel = FileChannel.open(inprogressFile.toPath(), StandardOpenOption.CREATE,
+                                                        StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                channel.truncate(size);
+                ByteBuffer buffer = ByteBuffer.allocate(0x10000);
+                while (channel.read(buffer) > 0) {
+                    hasher.update(buffer.array(), 0, buffer.position());
+                    buffer.clear();
+                }
+            } catch (IOException e) {
+                log.log(LogLevel.ERROR, "Failed reading file(" + inprogressFile.toPath() + "): " + e.getMessage(), e);
+                throw new RuntimeException("Failed reading file(" + inprogressFile.toPath() + "): ", e);
+            }
+            currentFileSize = size;
+            currentPartId = size / CHUNK_SIZE;
+            if (size > 0)
+                log.log(LogLevel.INFO, "Resuming download of '" + reference.value() + "' after " + size + " bytes");
+        }
+
+        /** Returns the number of bytes received so far, which the sender does not need to send again */
+        long receivedSize() {
+            return currentFileSize;
+        }
+
         void addPart(int partId, byte [] part) {
+            if (partId == 0 && currentPartId != 0) {
+                log.log(LogLevel.DEBUG, "Sender of '" + reference.value() + "' starts from the first part, discarding the " +
+                                        currentFileSize + " bytes received earlier");
+                resumeAt(0);
+            }
             if (partId != currentPartId) {
                 throw new IllegalStateException("Received partid " + partId + " while expecting " + currentPartId);
             }
@@ -107,7 +160,9 @@ public class FileReceiver {
 
         File close(long hash) {
             if (hasher.getValue() != hash) {
-                throw new RuntimeException("xxhash from content (" + currentHash + ") is not equal to xxhash in request (" + hash + ")");
+                // The content received so far is not the start of this file, so it cannot be resumed either
+                inprogressFile.delete();
+                throw new RuntimeException("xxhash from content (" + hasher.getValue() + ") is not equal to xxhash in request (" + hash + ")");
             }
             File file = new File(fileReferenceDir, fileName);
             try {
@@ -117,6 +172,7 @@ public class FileReceiver {
                     log.log(LogLevel.DEBUG, "Archived file, unpacking " + inprogressFile + " to " + decompressedDir);
                     CompressedFileReference.decompress(inprogressFile, decompressedDir);
                     moveFileToDestination(decompressedDir, fileReferenceDir);
+                    Files.delete(inprogressFile.toPath());
                 } else {
                     try {
                         Files.createDirectories(fileReferenceDir.toPath());
@@ -155,17 +211,19 @@ public class FileReceiver {
     // receiveFile after getting a serveFile method call). handler needs to implement receiveFile method
     private List<Method> receiveFileMethod(Object handler) {
         List<Method> methods = new ArrayList<>();
-        methods.add(new Method(RECEIVE_META_METHOD, "sssl", "ii", handler,"receiveFileMeta")
+        methods.add(new Method(RECEIVE_META_METHOD, "sssl", "iil", handler,"receiveFileMeta")
                 .paramDesc(0, "filereference", "file reference to download")
                 .paramDesc(1, "filename", "filename")
                 .paramDesc(2, "type", "'file' or 'compressed'")
                 .paramDesc(3, "filelength", "length in bytes of file")
                 .returnDesc(0, "ret", "0 if success, 1 otherwise")
-                .returnDesc(1, "session-id", "Session id to be used for this transfer"));
+                .returnDesc(1, "session-id", "Session id to be used for this transfer")
+                .returnDesc(2, "offset", "number of bytes already received, a multiple of the chunk size. " +
+                                         "A sender may skip these and start at part number offset / chunk size"));
         methods.add(new Method(RECEIVE_PART_METHOD, "siix", "i", handler,"receiveFilePart")
                 .paramDesc(0, "filereference", "file reference to download")
                 .paramDesc(1, "session-id", "Session id to be used for this transfer")
-                .paramDesc(2, "partid", "relative part number starting at zero")
+                .paramDesc(2, "partid", "relative part number starting at zero, or at the offset returned by meta when resuming")
                 .paramDesc(3, "data", "bytes in this part")
                 .returnDesc(0, "ret", "0 if success, 1 otherwise"));
         methods.add(new Method(RECEIVE_EOF_METHOD, "silis", "i", handler,"receiveFileEof")
@@ -268,15 +326,21 @@ public class FileReceiver {
         String type = req.parameters().get(2).asString();
         long fileSize = req.parameters().get(3).asInt64();
         int sessionId = nextSessionId.getAndIncrement();
+        File inprogressFile = new File(tmpDirectory, reference.value() + "-" + type + "-" + fileName + ".inprogress");
         int retval = 0;
+        long offset = 0;
         synchronized (sessions) {
             if (sessions.containsKey(sessionId)) {
                 retval = 1;
                 log.severe("Session id " + sessionId + " already exist, impossible. Request from(" + req.target() + ")");
             } else {
                 try {
-                    sessions.put(sessionId, new Session(downloadDirectory, tmpDirectory, sessionId, reference,
-                                                        FileReferenceData.Type.valueOf(type),fileName, fileSize));
+                    // A new transfer of a file means any earlier transfer of it was interrupted, so take it over
+                    sessions.values().removeIf(session -> session.inprogressFile.equals(inprogressFile));
+                    Session session = new Session(downloadDirectory, tmpDirectory, sessionId, reference,
+                                                  FileReferenceData.Type.valueOf(type), fileName, fileSize, inprogressFile);
+                    sessions.put(sessionId, session);
+                    offset = session.receivedSize();
                 } catch (Exception e) {
                     retval = 1;
                 }
@@ -284,6 +348,7 @@ public class FileReceiver {
         }
         req.returnValues().add(new Int32Value(retval));
         req.returnValues().add(new Int32Value(sessionId));
+        req.returnValues().add(new Int64Value(offset));
     }
 
     @SuppressWarnings({"UnusedDeclaration"})
@@ -296,15 +361,17 @@ public class FileReceiver {
         byte [] part = req.parameters().get(3).asData();
         Session session = getSession(sessionId);
         int retval = verifySession(session, sessionId, reference);
-        try {
-            session.addPart(partId, part);
-        } catch (Exception e) {
-            log.severe("Got exception " + e);
-            retval = 1;
+        if (retval == 0) {
+            try {
+                session.addPart(partId, part);
+            } catch (Exception e) {
+                log.severe("Got exception " + e);
+                retval = 1;
+            }
+            double completeness = session.percentageReceived();
+            log.log(LogLevel.DEBUG, String.format("%.1f percent of '%s' downloaded", completeness * 100, reference.value()));
+            downloader.setDownloadStatus(reference, completeness);
         }
-        double completeness = (double) session.currentFileSize / (double) session.fileSize;
-        log.log(LogLevel.DEBUG, String.format("%.1f percent of '%s' downloaded", completeness * 100, reference.value()));
-        downloader.setDownloadStatus(reference, completeness);
         req.returnValues().add(new Int32Value(retval));
     }
 
@@ -316,8 +383,10 @@ public class FileReceiver {
         long xxhash = req.parameters().get(2).asInt64();
         Session session = getSession(sessionId);
         int retval = verifySession(session, sessionId, reference);
-        File file = session.close(xxhash);
-        downloader.completedDownloading(reference, file);
+        if (retval == 0) {
+            File file = session.close(xxhash);
+            downloader.completedDownloading(reference, file);
+        }
         synchronized (sessions) {
             sessions.remove(sessionId);
         }
@@ -9,6 +9,7 @@ import java.nio.ByteBuffer;
 public class FileReferenceDataBlob extends FileReferenceData {
     private final byte[] content;
     private final long xxhash;
+    private int position = 0;
     private boolean contentRead = false;
 
     public FileReferenceDataBlob(FileReference fileReference, String filename, Type type, byte[] content) {
@@ -34,9 +35,11 @@ public class FileReferenceDataBlob extends FileReferenceData {
         if (contentRead) {
             return -1;
         } else {
-            contentRead = true;
-            bb.put(content);
-            return content.length;
+            int length = Math.min(bb.remaining(), content.length - position);
+            bb.put(content, position, length);
+            position += length;
+            contentRead = position == content.length;
+            return length;
         }
     }
 
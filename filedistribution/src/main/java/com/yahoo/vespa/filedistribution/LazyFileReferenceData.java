@@ -13,15 +13,39 @@ import java.nio.file.Files;
 
 public class LazyFileReferenceData extends FileReferenceData {
     private final File file;
+    private final boolean deleteOnClose;
     private final ReadableByteChannel channel;
     private final StreamingXXHash64 hasher;
     public LazyFileReferenceData(FileReference fileReference, String filename, Type type, File file) throws IOException {
+        this(fileReference, filename, type, file, false);
+    }
+
+    private LazyFileReferenceData(FileReference fileReference, String filename, Type type, File file, boolean deleteOnClose) throws IOException {
         super(fileReference, filename, type);
         this.file = file;
+        this.deleteOnClose = deleteOnClose;
         channel = Files.newByteChannel(file.toPath());
         this.hasher = XXHashFactory.fastestInstance().newStreamingHash64(0);
     }
 
+    /**
+     * Returns the data of the given file or directory of a file reference. A directory is streamed into
+     * a compressed archive in the given temporary directory, which is deleted when the returned data is closed.
+     */
+    public static LazyFileReferenceData fromFile(FileReference fileReference, File file, File tmpDirectory) throws IOException {
+        if ( ! file.isDirectory())
+            return new LazyFileReferenceData(fileReference, file.getName(), Type.file, file);
+
+        File archive = Files.createTempFile(tmpDirectory.toPath(), fileReference.value(), ".tar.gz").toFile();
+        try {
+            CompressedFileReference.compress(file.getParentFile(), archive);
+            return new LazyFileReferenceData(fileReference, file.getName(), Type.compressed, archive, true);
+        } catch (IOException e) {
+            archive.delete();
+            throw e;
+        }
+    }
+
     @Override
     public int nextContent(ByteBuffer bb) {
         int read = 0;
@@ -54,6 +78,8 @@ public class LazyFileReferenceData extends FileReferenceData {
     public void close() {
         try {
             channel.close();
+            if (deleteOnClose)
+                Files.deleteIfExists(file.toPath());
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
@@ -4,15 +4,19 @@ package com.yahoo.vespa.filedistribution;
 
 import com.yahoo.config.FileReference;
 import com.yahoo.io.IOUtils;
+import com.yahoo.jrt.Acceptor;
 import com.yahoo.jrt.Int32Value;
+import com.yahoo.jrt.ListenFailedException;
 import com.yahoo.jrt.Request;
 import com.yahoo.jrt.RequestWaiter;
+import com.yahoo.jrt.Spec;
 import com.yahoo.jrt.StringValue;
 import com.yahoo.jrt.Supervisor;
 import com.yahoo.jrt.Transport;
 import com.yahoo.text.Utf8;
 import com.yahoo.vespa.config.Connection;
 import com.yahoo.vespa.config.ConnectionPool;
+import com.yahoo.vespa.config.JRTConnectionPool;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -22,6 +26,7 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.Duration;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 
@@ -206,6 +211,56 @@ public class FileDownloaderTest {
         assertEquals("content", IOUtils.readFile(downloadedFile));
     }
 
+    @Test
+    public void getFileFromPeer() throws IOException, ListenFailedException {
+        File peerDownloadDir = Files.createTempDirectory("peer").toFile();
+        FileReference file = new FileReference("file");
+        writeFileReference(peerDownloadDir, file.value(), "foo.jar");
+        FileReference directory = new FileReference("directory");
+        writeFileReference(new File(peerDownloadDir, directory.value()), "subdir", "a");
+        writeFileReference(new File(peerDownloadDir, directory.value()), "subdir", "b");
+
+        Supervisor peerSupervisor = new Supervisor(new Transport());
+        new FileDistributionRpcServer(peerSupervisor,
+                                      new FileDownloader(new MockConnection(), peerDownloadDir, tempDir, Duration.ofMillis(2000)));
+        Acceptor acceptor = peerSupervisor.listen(new Spec(0));
+        try {
+            FileDownloader fromPeer = new FileDownloader(new JRTConnectionPool(Collections.singletonList("tcp/localhost:" + acceptor.port())),
+                                                         downloadDir, tempDir, Duration.ofSeconds(60));
+            Optional<File> downloadedFile = fromPeer.getFile(file);
+            assertTrue(downloadedFile.isPresent());
+            assertEquals("content", IOUtils.readFile(downloadedFile.get()));
+
+            Optional<File> downloadedDirectory = fromPeer.getFile(directory);
+            assertTrue(downloadedDirectory.isPresent());
+            assertEquals("content", IOUtils.readFile(new File(downloadedDirectory.get(), "a")));
+            assertEquals("content", IOUtils.readFile(new File(downloadedDirectory.get(), "b")));
+
+            FileDownloader fromPeerWithShortTimeout =
+                    new FileDownloader(new JRTConnectionPool(Collections.singletonList("tcp/localhost:" + acceptor.port())),
+                                       downloadDir, tempDir, Duration.ofMillis(500));
+            assertFalse("Not available at the peer", fromPeerWithShortTimeout.getFile(new FileReference("unknown")).isPresent());
+        } finally {
+            acceptor.shutdown().join();
+            peerSupervisor.transport().shutdown().join();
+        }
+    }
+
+    @Test
+    public void onlyFilesInTheDownloadDirectoryAreServed() throws IOException {
+        writeFileReference(downloadDir, "foo", "foo.jar");
+        assertTrue(fileDownloader.getDownloadedFile(new FileReference("foo")).isPresent());
+
+        File outside = Files.createTempDirectory("outside").toFile();
+        IOUtils.writeFile(new File(outside, "secret"), "content", false);
+        assertFalse(fileDownloader.getDownloadedFile(new FileReference("../" + outside.getName())).isPresent());
+        assertFalse(fileDownloader.getDownloadedFile(new FileReference(outside.getAbsolutePath())).isPresent());
+        assertFalse(fileDownloader.getDownloadedFile(new FileReference("..")).isPresent());
+
+        Files.createSymbolicLink(new File(downloadDir, "link").toPath(), outside.toPath());
+        assertFalse(fileDownloader.getDownloadedFile(new FileReference("link")).isPresent());
+    }
+
     private void writeFileReference(File dir, String fileReferenceString, String fileName) throws IOException {
         File file = new File(new File(dir, fileReferenceString), fileName);
         IOUtils.writeFile(file, "content", false);
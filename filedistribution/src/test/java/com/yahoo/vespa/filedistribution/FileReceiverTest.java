@@ -11,7 +11,10 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
 
 import java.io.File;
 import java.io.FileOutputStream;
@@ -22,6 +25,8 @@ import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Random;
 
 public class FileReceiverTest {
     private File root;
@@ -70,6 +75,72 @@ public class FileReceiverTest {
         assertEquals("2", IOUtils.readFile(new File(downloadDir, "b")));
     }
 
+    @Test
+    public void resumeInterruptedTransfer() throws IOException {
+        byte[] content = randomBytes(FileReceiver.CHUNK_SIZE * 2 + 100);
+        FileReference ref = new FileReference("ref-b");
+        File inprogressFile = new File(tempDir, "ref-b.inprogress");
+
+        FileReceiver.Session session = createSession(ref, content.length, inprogressFile);
+        assertEquals(0, session.receivedSize());
+        session.addPart(0, chunk(content, 0));
+        // Interrupted while receiving the second chunk
+        session.addPart(1, Arrays.copyOfRange(content, FileReceiver.CHUNK_SIZE, FileReceiver.CHUNK_SIZE + 10));
+
+        session = createSession(ref, content.length, inprogressFile);
+        assertEquals("Only whole chunks are kept", FileReceiver.CHUNK_SIZE, session.receivedSize());
+        session.addPart(1, chunk(content, 1));
+        session.addPart(2, chunk(content, 2));
+        File file = session.close(hasher.hash(ByteBuffer.wrap(content), 0));
+        assertArrayEquals(content, Files.readAllBytes(file.toPath()));
+    }
+
+    @Test
+    public void restartTransferWhenSenderDoesNotResume() throws IOException {
+        byte[] content = randomBytes(FileReceiver.CHUNK_SIZE + 100);
+        FileReference ref = new FileReference("ref-c");
+        File inprogressFile = new File(tempDir, "ref-c.inprogress");
+
+        FileReceiver.Session session = createSession(ref, content.length, inprogressFile);
+        session.addPart(0, chunk(content, 0));
+
+        session = createSession(ref, content.length, inprogressFile);
+        assertEquals(FileReceiver.CHUNK_SIZE, session.receivedSize());
+        session.addPart(0, content);
+        File file = session.close(hasher.hash(ByteBuffer.wrap(content), 0));
+        assertArrayEquals(content, Files.readAllBytes(file.toPath()));
+    }
+
+    @Test
+    public void partialContentIsDiscardedOnHashMismatch() throws IOException {
+        byte[] content = randomBytes(100);
+        File inprogressFile = new File(tempDir, "ref-d.inprogress");
+        FileReceiver.Session session = createSession(new FileReference("ref-d"), content.length, inprogressFile);
+        session.addPart(0, content);
+        try {
+            session.close(hasher.hash(ByteBuffer.wrap(content), 0) + 1);
+            fail("Expected exception");
+        } catch (RuntimeException e) {
+            assertFalse(inprogressFile.exists());
+        }
+    }
+
+    private FileReceiver.Session createSession(FileReference ref, long fileSize, File inprogressFile) {
+        return new FileReceiver.Session(root, tempDir, 1, ref, FileReferenceData.Type.file, "myfile", fileSize, inprogressFile);
+    }
+
+    private static byte[] chunk(byte[] content, int chunkId) {
+        return Arrays.copyOfRange(content,
+                                  chunkId * FileReceiver.CHUNK_SIZE,
+                                  Math.min(content.length, (chunkId + 1) * FileReceiver.CHUNK_SIZE));
+    }
+
+    private static byte[] randomBytes(int size) {
+        byte[] bytes = new byte[size];
+        new Random(size).nextBytes(bytes);
+        return bytes;
+    }
+
     private void transferPartsAndAssert(FileReference ref, String fileName, String all, int numParts) throws IOException {
         byte [] allContent = Utf8.toBytes(all);
 
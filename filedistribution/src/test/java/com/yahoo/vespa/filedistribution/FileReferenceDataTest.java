@@ -25,4 +25,18 @@ public class FileReferenceDataTest {
         assertEquals(-1, fileReferenceData.nextContent(byteBuffer));
     }
 
+    @Test
+    public void testDataBlobLargerThanBuffer() {
+        String content = "blob";
+        FileReferenceData fileReferenceData =
+                new FileReferenceDataBlob(new FileReference("ref"), "foo", FileReferenceData.Type.compressed, Utf8.toBytes(content));
+        ByteBuffer byteBuffer = ByteBuffer.allocate(3);
+        assertEquals(3, fileReferenceData.nextContent(byteBuffer));
+        assertEquals("blo", Utf8.toString(byteBuffer.array()));
+        byteBuffer.clear();
+        assertEquals(1, fileReferenceData.nextContent(byteBuffer));
+        assertEquals("b", Utf8.toString(Arrays.copyOfRange(byteBuffer.array(), 0, 1)));
+        assertEquals(-1, fileReferenceData.nextContent(byteBuffer));
+    }
+
 }
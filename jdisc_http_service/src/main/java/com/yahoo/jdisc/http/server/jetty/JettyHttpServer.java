@@ -106,6 +106,9 @@ public class JettyHttpServer extends AbstractServerProvider {
 
         String STARTED_MILLIS = "serverStartedMillis";
         @Deprecated String MANHATTAN_STARTED_MILLIS = "proc.uptime";
+
+        String ACCESS_LOG_QUEUED_ENTRIES = "serverAccessLogQueuedEntries";
+        String ACCESS_LOG_DROPPED_ENTRIES = "serverAccessLogDroppedEntries";
     }
 
     private final static Logger log = Logger.getLogger(JettyHttpServer.class.getName());
@@ -113,6 +116,7 @@ public class JettyHttpServer extends AbstractServerProvider {
     private final ExecutorService janitor;
     private final ScheduledExecutorService metricReporterExecutor;
     private final Metric metric;
+    private final AccessLog accessLog;
     private final Server server;
     private final List<Integer> listenedPorts = new ArrayList<>();
 
@@ -133,6 +137,7 @@ public class JettyHttpServer extends AbstractServerProvider {
         if (connectorFactories.allComponents().isEmpty())
             throw new IllegalArgumentException("No connectors configured.");
         this.metric = metric;
+        this.accessLog = accessLog;
 
         initializeJettyLogging();
 
@@ -319,8 +324,13 @@ public class JettyHttpServer extends AbstractServerProvider {
     }
 
     private class MetricTask implements Runnable {
+
+        private long lastDroppedAccessLogEntries = 0;
+
         @Override
         public void run() {
+            setAccessLogMetrics();
+
             StatisticsHandler statisticsHandler = ((AbstractHandlerContainer)server.getHandler())
                     .getChildHandlerByClass(StatisticsHandler.class);
             if (statisticsHandler == null)
@@ -333,6 +343,13 @@ public class JettyHttpServer extends AbstractServerProvider {
             }
         }
 
+        private void setAccessLogMetrics() {
+            metric.set(Metrics.ACCESS_LOG_QUEUED_ENTRIES, accessLog.queuedEntries(), null);
+            long droppedAccessLogEntries = accessLog.droppedEntries();
+            metric.add(Metrics.ACCESS_LOG_DROPPED_ENTRIES, droppedAccessLogEntries - lastDroppedAccessLogEntries, null);
+            lastDroppedAccessLogEntries = droppedAccessLogEntries;
+        }
+
     }
 
     @SuppressWarnings("deprecation")
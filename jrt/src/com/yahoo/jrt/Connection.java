@@ -38,7 +38,7 @@ class Connection extends Target {
     private Map<TargetWatcher, TargetWatcher> watchers = new IdentityHashMap<>();
     private int           activeReqs = 0;
     private int           writeWork  = 0;
-    private Transport     parent;
+    private TransportThread parent;
     private Supervisor    owner;
     private Spec          spec;
     private SocketChannel channel;
@@ -81,7 +81,7 @@ class Connection extends Target {
         }
     }
 
-    public Connection(Transport parent, Supervisor owner,
+    public Connection(TransportThread parent, Supervisor owner,
                       SocketChannel channel) {
 
         this.parent = parent;
@@ -91,7 +91,7 @@ class Connection extends Target {
         owner.sessionInit(this);
     }
 
-    public Connection(Transport parent, Supervisor owner, Spec spec, Object context) {
+    public Connection(TransportThread parent, Supervisor owner, Spec spec, Object context) {
         super(context);
         this.parent = parent;
         this.owner = owner;
@@ -109,6 +109,10 @@ class Connection extends Target {
     }
 
     public Transport transport() {
+        return parent.transport();
+    }
+
+    public TransportThread transportThread() {
         return parent;
     }
 
@@ -0,0 +1,112 @@
+// Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.jrt;
+
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+
+public class TransportThreadsTest extends junit.framework.TestCase {
+
+    private static final int THREADS = 4;
+    private static final int TARGETS = 8;
+
+    Supervisor   server;
+    Acceptor     acceptor;
+    Supervisor   client;
+    List<Target> targets = new ArrayList<>();
+
+    public TransportThreadsTest(String name) {
+        super(name);
+    }
+
+    public void setUp() throws ListenFailedException {
+        server   = new Supervisor(new Transport(THREADS));
+        client   = new Supervisor(new Transport(THREADS));
+        acceptor = server.listen(new Spec(Test.PORT));
+        server.addMethod(new Method("inc", "i", "i", this, "rpc_inc"));
+        for (int i = 0; i < TARGETS; i++) {
+            targets.add(client.connect(new Spec("localhost", Test.PORT)));
+        }
+    }
+
+    public void tearDown() {
+        for (Target target : targets) {
+            target.close();
+        }
+        acceptor.shutdown().join();
+        client.transport().shutdown().join();
+        server.transport().shutdown().join();
+    }
+
+    public void rpc_inc(Request req) {
+        req.returnValues().add(new Int32Value(req.parameters().get(0).asInt32() + 1));
+    }
+
+    public void testThreadCount() {
+        assertEquals(THREADS, server.transport().threadCount());
+        assertEquals(1, new Transport().shutdown().threadCount());
+        try {
+            new Transport(0);
+            fail("Expected exception");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    public void testConnectionsAreSpreadAcrossThreads() {
+        Map<TransportThread, Integer> connectionsPerThread = new IdentityHashMap<>();
+        for (Target target : targets) {
+            connectionsPerThread.merge(((Connection)target).transportThread(), 1, Integer::sum);
+        }
+        assertEquals(THREADS, connectionsPerThread.size());
+        for (int count : connectionsPerThread.values()) {
+            assertEquals(TARGETS / THREADS, count);
+        }
+    }
+
+    public void testConcurrentInvocation() throws InterruptedException {
+        int invocationsPerTarget = 100;
+        List<Thread> threads = new ArrayList<>();
+        int[] failures = new int[1];
+        for (Target target : targets) {
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < invocationsPerTarget; i++) {
+                    Request req = new Request("inc");
+                    req.parameters().add(new Int32Value(i));
+                    target.invokeSync(req, 5.0);
+                    if (req.isError() || req.returnValues().get(0).asInt32() != i + 1) {
+                        synchronized (failures) {
+                            failures[0]++;
+                        }
+                    }
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(0, failures[0]);
+    }
+
+    public void testMethodsAddedAfterConnectingAreVisibleToAllThreads() {
+        server.addMethod(new Method("dec", "i", "i", this, "rpc_dec"));
+        for (Target target : targets) {
+            Request req = new Request("dec");
+            req.parameters().add(new Int32Value(3));
+            target.invokeSync(req, 5.0);
+            assertFalse(req.isError());
+            assertEquals(2, req.returnValues().get(0).asInt32());
+        }
+    }
+
+    public void rpc_dec(Request req) {
+        req.returnValues().add(new Int32Value(req.parameters().get(0).asInt32() - 1));
+    }
+
+}
@@ -0,0 +1,101 @@
+// Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+import com.yahoo.jrt.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures requests/s over a number of connections for an increasing number
+ * of transport threads on both the client and server side.
+ */
+public class TransportBenchmark {
+
+    private static final int[] threadCounts = { 1, 2, 4, 8 };
+    private static final int connections = 16;
+    private static final int clientThreadsPerConnection = 4;
+    private static final int payloadSize = 1024;
+
+    private final double seconds;
+
+    public TransportBenchmark(double seconds) {
+        this.seconds = seconds;
+    }
+
+    public void rpc_echo(Request req) {
+        req.returnValues().add(req.parameters().get(0));
+    }
+
+    private double run(int threadCount) throws ListenFailedException, InterruptedException {
+        Supervisor server = new Supervisor(new Transport(threadCount));
+        Supervisor client = new Supervisor(new Transport(threadCount));
+        server.addMethod(new Method("echo", "x", "x", this, "rpc_echo"));
+        Acceptor acceptor = server.listen(new Spec(0));
+
+        List<Target> targets = new ArrayList<>();
+        for (int i = 0; i < connections; i++) {
+            targets.add(client.connectSync(new Spec("localhost", acceptor.port())));
+        }
+
+        AtomicLong completed = new AtomicLong(0);
+        AtomicLong failed = new AtomicLong(0);
+        long end = System.currentTimeMillis() + (long)(seconds * 1000);
+        byte[] payload = new byte[payloadSize];
+        List<Thread> threads = new ArrayList<>();
+        for (Target target : targets) {
+            for (int i = 0; i < clientThreadsPerConnection; i++) {
+                threads.add(new Thread(() -> {
+                    while (System.currentTimeMillis() < end) {
+                        Request req = new Request("echo");
+                        req.parameters().add(new DataValue(payload));
+                        target.invokeSync(req, 10.0);
+                        if (req.isError()) {
+                            failed.incrementAndGet();
+                        } else {
+                            completed.incrementAndGet();
+                        }
+                    }
+                }));
+            }
+        }
+
+        long start = System.nanoTime();
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+
+        for (Target target : targets) {
+            target.close();
+        }
+        acceptor.shutdown().join();
+        client.transport().shutdown().join();
+        server.transport().shutdown().join();
+        if (failed.get() > 0) {
+            System.err.println(failed.get() + " requests failed with " + threadCount + " transport threads");
+        }
+        return completed.get() / elapsedSeconds;
+    }
+
+    public void run() throws ListenFailedException, InterruptedException {
+        run(1); // warmup
+        double baseline = 0;
+        for (int threadCount : threadCounts) {
+            double requestsPerSecond = run(threadCount);
+            if (baseline == 0) {
+                baseline = requestsPerSecond;
+            }
+            System.out.println(String.format("%d transport threads: %,10.0f requests/s (%.2fx)",
+                                             threadCount, requestsPerSecond, requestsPerSecond / baseline));
+        }
+    }
+
+    public static void main(String[] args) throws ListenFailedException, InterruptedException {
+        double seconds = args.length > 0 ? Double.parseDouble(args[0]) : 10.0;
+        new TransportBenchmark(seconds).run();
+    }
+
+}
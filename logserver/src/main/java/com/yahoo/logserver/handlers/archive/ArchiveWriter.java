@@ -0,0 +1,20 @@
+// Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.logserver.handlers.archive;
+
+import com.yahoo.log.LogMessage;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+
+/**
+ * Writes the log messages of one time slot of the archive to file,
+ * rotating to a new file when the current one is full.
+ *
+ * @author agent
+ */
+public interface ArchiveWriter extends Closeable, Flushable {
+
+    void write(LogMessage message) throws IOException;
+
+}
@@ -94,6 +94,12 @@ public class ArchiverHandler extends AbstractLogHandler {
      */
     private LogFilter filter = null;
 
+    /**
+     * Whether to write compressed, indexed archive files
+     * rather than plain text files
+     */
+    private boolean compress = false;
+
     /**
      * Creates an ArchiverHandler which puts files under
      * the given root directory.
@@ -121,24 +127,37 @@ public class ArchiverHandler extends AbstractLogHandler {
      * the given root directory.
      */
     public ArchiverHandler(String rootDir, int maxFileSize) {
+        this(rootDir, maxFileSize, false);
+    }
+
+    /**
+     * Creates an ArchiverHandler which puts files under
+     * the given root directory.
+     *
+     * @param compress true to write the archive with {@link CompressedLogWriter},
+     *                 false to write plain text files with {@link LogWriter}
+     */
+    public ArchiverHandler(String rootDir, int maxFileSize, boolean compress) {
         this();
         setRootDir(rootDir);
         this.maxFileSize = maxFileSize;
+        this.compress = compress;
     }
 
 
     /**
      * Return the appropriate LogWriter given a log message.
      */
-    private synchronized LogWriter getLogWriter(LogMessage m) throws IOException {
+    private synchronized ArchiveWriter getLogWriter(LogMessage m) throws IOException {
         Integer slot = dateHash(m.getTime());
-        LogWriter logWriter = logWriterLRUCache.get(slot);
+        ArchiveWriter logWriter = logWriterLRUCache.get(slot);
         if (logWriter != null) {
             return logWriter;
         }
 
         // invariant: LogWriter we sought was not in the cache
-        logWriter = new LogWriter(getPrefix(m), maxFileSize);
+        logWriter = compress ? new CompressedLogWriter(getPrefix(m), maxFileSize)
+                             : new LogWriter(getPrefix(m), maxFileSize);
         logWriterLRUCache.put(slot, logWriter);
 
         return logWriter;
@@ -198,8 +217,8 @@ public class ArchiverHandler extends AbstractLogHandler {
 
     public boolean doHandle(LogMessage msg) {
         try {
-            LogWriter logWriter = getLogWriter(msg);
-            logWriter.write(msg.toString());
+            ArchiveWriter logWriter = getLogWriter(msg);
+            logWriter.write(msg);
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
@@ -207,7 +226,7 @@ public class ArchiverHandler extends AbstractLogHandler {
     }
 
     public synchronized void flush() {
-        for (LogWriter l : logWriterLRUCache.values()) {
+        for (ArchiveWriter l : logWriterLRUCache.values()) {
             try {
                 l.flush();
             } catch (IOException e) {
@@ -217,9 +236,9 @@ public class ArchiverHandler extends AbstractLogHandler {
     }
 
     public synchronized void close() {
-        Iterator<LogWriter> it = logWriterLRUCache.values().iterator();
+        Iterator<ArchiveWriter> it = logWriterLRUCache.values().iterator();
         while (it.hasNext()) {
-            LogWriter l = it.next();
+            ArchiveWriter l = it.next();
             try {
                 l.close();
             } catch (IOException e) {
@@ -39,6 +39,8 @@ public class ArchiverPlugin implements Plugin {
      * maxfilesize
      * dir            The root of the logarchive, make sure this does
      * <b>not</b> end with a '/' character.
+     * compress       "true" to write compressed archive files with a
+     * block index, see CompressedLogWriter.
      */
     public void initPlugin(Config config) {
 
@@ -52,9 +54,10 @@ public class ArchiverPlugin implements Plugin {
         String rootDir = config.get("dir", DEFAULT_DIR);
         int maxFileSize = config.getInt("maxfilesize", DEFAULT_MAXFILESIZE);
         String threadName = config.get("thread", getPluginName());
+        boolean compress = Boolean.parseBoolean(config.get("compress", "false"));
 
         // register log handler and flusher
-        archiver = new ArchiverHandler(rootDir, maxFileSize);
+        archiver = new ArchiverHandler(rootDir, maxFileSize, compress);
         server.registerLogHandler(archiver, threadName);
         server.registerFlusher(archiver);
     }
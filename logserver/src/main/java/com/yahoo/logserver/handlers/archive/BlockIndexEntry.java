@@ -0,0 +1,145 @@
+// Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.logserver.handlers.archive;
+
+import com.yahoo.log.LogLevel;
+import com.yahoo.log.LogMessage;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.logging.Level;
+
+/**
+ * The index entry of one compressed block of a log archive file: where the block is,
+ * and a summary of the messages it contains, such that blocks which can not contain messages
+ * matching a query need not be read.
+ *
+ * @author agent
+ */
+public class BlockIndexEntry {
+
+    /** The size of an entry in the index file */
+    static final int SIZE = 8 + 4 + 4 + 8 + 8 + 4 + 8;
+
+    /** The levels which are given a bit of their own in the level mask; all others share the last bit */
+    private static final int[] levelValues = {
+            LogLevel.IntValFATAL, LogLevel.IntValERROR, LogLevel.IntValWARNING, LogLevel.IntValCONFIG,
+            LogLevel.IntValINFO, LogLevel.IntValEVENT, LogLevel.IntValDEBUG, LogLevel.IntValSPAM };
+
+    private final long offset;
+    private final int length;
+    private final int messageCount;
+    private final long minTime;
+    private final long maxTime;
+    private final int levels;
+    private final long services;
+
+    BlockIndexEntry(long offset, int length, int messageCount, long minTime, long maxTime, int levels, long services) {
+        this.offset = offset;
+        this.length = length;
+        this.messageCount = messageCount;
+        this.minTime = minTime;
+        this.maxTime = maxTime;
+        this.levels = levels;
+        this.services = services;
+    }
+
+    /** Returns the position of this block in the archive file */
+    public long offset() { return offset; }
+
+    /** Returns the compressed size of this block */
+    public int length() { return length; }
+
+    public int messageCount() { return messageCount; }
+
+    /** Returns the time of the earliest message in this block, in milliseconds */
+    public long minTime() { return minTime; }
+
+    /** Returns the time of the latest message in this block, in milliseconds */
+    public long maxTime() { return maxTime; }
+
+    /**
+     * Returns whether this block may contain messages in the given time interval, with one of the given levels,
+     * from the given service
+     *
+     * @param fromTime the start of the time interval, inclusive, in milliseconds
+     * @param toTime the end of the time interval, inclusive, in milliseconds
+     * @param levels the levels to match, or null to match all levels
+     * @param service the service to match, or null to match all services
+     */
+    public boolean mayContain(long fromTime, long toTime, Collection<Level> levels, String service) {
+        if (maxTime < fromTime || minTime > toTime) return false;
+        if (levels != null && (this.levels & levelMask(levels)) == 0) return false;
+        if (service != null && (services & serviceBit(service)) == 0) return false;
+        return true;
+    }
+
+    void writeTo(DataOutput out) throws IOException {
+        out.writeLong(offset);
+        out.writeInt(length);
+        out.writeInt(messageCount);
+        out.writeLong(minTime);
+        out.writeLong(maxTime);
+        out.writeInt(levels);
+        out.writeLong(services);
+    }
+
+    static BlockIndexEntry readFrom(DataInput in) throws IOException {
+        return new BlockIndexEntry(in.readLong(), in.readInt(), in.readInt(),
+                                   in.readLong(), in.readLong(), in.readInt(), in.readLong());
+    }
+
+    static int levelBit(Level level) {
+        int value = level.intValue();
+        for (int i = 0; i < levelValues.length; i++)
+            if (levelValues[i] == value) return 1 << i;
+        return 1 << levelValues.length;
+    }
+
+    private static int levelMask(Collection<Level> levels) {
+        int mask = 0;
+        for (Level level : levels)
+            mask |= levelBit(level);
+        return mask;
+    }
+
+    /** Returns the bit set for the given service in the service mask, which is a single hash bloom filter */
+    static long serviceBit(String service) {
+        return 1L << (service.hashCode() & 63);
+    }
+
+    /** Accumulates the index entry of the block being written */
+    static class Builder {
+
+        private int messageCount = 0;
+        private long minTime = Long.MAX_VALUE;
+        private long maxTime = Long.MIN_VALUE;
+        private int levels = 0;
+        private long services = 0;
+
+        void add(LogMessage message) {
+            messageCount++;
+            minTime = Math.min(minTime, message.getTime());
+            maxTime = Math.max(maxTime, message.getTime());
+            levels |= levelBit(message.getLevel());
+            services |= serviceBit(message.getService());
+        }
+
+        boolean isEmpty() { return messageCount == 0; }
+
+        BlockIndexEntry build(long offset, int length) {
+            return new BlockIndexEntry(offset, length, messageCount, minTime, maxTime, levels, services);
+        }
+
+        void clear() {
+            messageCount = 0;
+            minTime = Long.MAX_VALUE;
+            maxTime = Long.MIN_VALUE;
+            levels = 0;
+            services = 0;
+        }
+
+    }
+
+}
@@ -0,0 +1,156 @@
+// Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.logserver.handlers.archive;
+
+import com.yahoo.log.InvalidLogFormatException;
+import com.yahoo.log.LogMessage;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Reads the messages matching a query from an archive file written by {@link CompressedLogWriter},
+ * decompressing only the blocks which the index says may contain matching messages.
+ *
+ * @author agent
+ */
+public class CompressedLogReader {
+
+    private static final Logger log = Logger.getLogger(CompressedLogReader.class.getName());
+
+    private static final int gzipHeaderSize = 10;
+    private static final int gzipTrailerSize = 8;
+
+    private final File archiveFile;
+    private final File indexFile;
+
+    /** Creates a reader of the given archive file, whose name ends by ".gz" */
+    public CompressedLogReader(File archiveFile) {
+        String name = archiveFile.getPath();
+        if ( ! name.endsWith(CompressedLogWriter.ARCHIVE_SUFFIX))
+            throw new IllegalArgumentException("Expected an archive file ending by " + CompressedLogWriter.ARCHIVE_SUFFIX +
+                                               ", got " + archiveFile);
+        this.archiveFile = archiveFile;
+        this.indexFile = new File(name.substring(0, name.length() - CompressedLogWriter.ARCHIVE_SUFFIX.length()) +
+                                  CompressedLogWriter.INDEX_SUFFIX);
+    }
+
+    /** Returns the index entries of the blocks of this archive file, in file order */
+    public List<BlockIndexEntry> index() throws IOException {
+        List<BlockIndexEntry> entries = new ArrayList<>();
+        int count = (int)(indexFile.length() / BlockIndexEntry.SIZE);
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)))) {
+            for (int i = 0; i < count; i++)
+                entries.add(BlockIndexEntry.readFrom(in));
+        }
+        return entries;
+    }
+
+    /**
+     * Passes the messages of this archive file which match the given query to the given consumer, in file order.
+     *
+     * @param fromTime the start of the time interval to return messages from, inclusive, in milliseconds
+     * @param toTime the end of the time interval to return messages from, inclusive, in milliseconds
+     * @param levels the levels of the messages to return, or null to return messages of all levels
+     * @param service the service of the messages to return, or null to return messages of all services
+     * @param consumer the receiver of the matching messages
+     * @return the number of blocks which were decompressed to answer the query
+     */
+    public int read(long fromTime, long toTime, Collection<Level> levels, String service,
+                    Consumer<LogMessage> consumer) throws IOException {
+        int blocksRead = 0;
+        Inflater inflater = new Inflater(true);
+        try (RandomAccessFile archive = new RandomAccessFile(archiveFile, "r")) {
+            byte[] compressed = new byte[0];
+            byte[] block = new byte[CompressedLogWriter.BLOCK_SIZE];
+            for (BlockIndexEntry entry : index()) {
+                if ( ! entry.mayContain(fromTime, toTime, levels, service)) continue;
+
+                if (compressed.length < entry.length())
+                    compressed = new byte[entry.length()];
+                archive.seek(entry.offset());
+                archive.readFully(compressed, 0, entry.length());
+                block = inflate(compressed, entry, inflater, block);
+                blocksRead++;
+
+                int blockLength = intLittleEndian(compressed, entry.length() - 4);
+                for (int start = 0, end; start < blockLength; start = end + 1) {
+                    end = start;
+                    while (end < blockLength && block[end] != '\n')
+                        end++;
+                    LogMessage message = parse(block, start, end - start);
+                    if (message != null && matches(message, fromTime, toTime, levels, service))
+                        consumer.accept(message);
+                }
+            }
+        }
+        finally {
+            inflater.end();
+        }
+        return blocksRead;
+    }
+
+    /** Inflates the given block into the given buffer, or a larger one if needed, which is returned */
+    private byte[] inflate(byte[] compressed, BlockIndexEntry entry, Inflater inflater, byte[] block) throws IOException {
+        if (entry.length() < gzipHeaderSize + gzipTrailerSize || compressed[0] != 0x1f || compressed[1] != (byte)0x8b)
+            throw new IOException("Block at " + entry.offset() + " in " + archiveFile + " is not a gzip member");
+        int blockLength = intLittleEndian(compressed, entry.length() - 4);
+        if (block.length < blockLength)
+            block = new byte[blockLength];
+
+        inflater.reset();
+        inflater.setInput(compressed, gzipHeaderSize, entry.length() - gzipHeaderSize - gzipTrailerSize);
+        try {
+            int inflated = 0;
+            while (inflated < blockLength && ! inflater.finished() && ! inflater.needsInput())
+                inflated += inflater.inflate(block, inflated, blockLength - inflated);
+            if (inflated != blockLength)
+                throw new IOException("Block at " + entry.offset() + " in " + archiveFile + " is truncated");
+        }
+        catch (DataFormatException e) {
+            throw new IOException("Block at " + entry.offset() + " in " + archiveFile + " is corrupt", e);
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(block, 0, blockLength);
+        if ((int)crc.getValue() != intLittleEndian(compressed, entry.length() - 8))
+            throw new IOException("Block at " + entry.offset() + " in " + archiveFile + " has wrong checksum");
+        return block;
+    }
+
+    private static int intLittleEndian(byte[] bytes, int offset) {
+        return (bytes[offset] & 0xff) | (bytes[offset + 1] & 0xff) << 8 |
+               (bytes[offset + 2] & 0xff) << 16 | (bytes[offset + 3] & 0xff) << 24;
+    }
+
+    private static LogMessage parse(byte[] buffer, int offset, int length) {
+        if (length == 0) return null;
+        try {
+            return LogMessage.parseNativeFormat(buffer, offset, length);
+        }
+        catch (InvalidLogFormatException e) {
+            log.fine("Skipping invalid archived log message: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static boolean matches(LogMessage message, long fromTime, long toTime, Collection<Level> levels, String service) {
+        if (message.getTime() < fromTime || message.getTime() > toTime) return false;
+        if (levels != null && ! levels.contains(message.getLevel())) return false;
+        if (service != null && ! service.equals(message.getService())) return false;
+        return true;
+    }
+
+}
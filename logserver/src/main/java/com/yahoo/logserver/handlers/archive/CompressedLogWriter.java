@@ -0,0 +1,221 @@
+// Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.logserver.handlers.archive;
+
+import com.yahoo.log.LogLevel;
+import com.yahoo.log.LogMessage;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Writes log messages to an archive file of independently compressed blocks, and an index
+ * of the blocks to a file next to it.
+ * <p>
+ * Each block is a complete gzip member, so the archive file as a whole is a valid gzip
+ * file which can be read with the usual tools, while {@link CompressedLogReader} uses the
+ * index to decompress only the blocks which may contain the messages asked for.
+ * Messages are stored in the native format, as ISO-8859-1, which gives back the bytes
+ * they were received as.
+ * <p>
+ * The files of this are named like those of {@link LogWriter}, with ".gz" and ".idx" appended.
+ * <p>
+ * This class is thread-safe.
+ *
+ * @author agent
+ */
+public class CompressedLogWriter implements ArchiveWriter {
+
+    private static final Logger log = Logger.getLogger(CompressedLogWriter.class.getName());
+
+    static final String ARCHIVE_SUFFIX = ".gz";
+    static final String INDEX_SUFFIX = ".idx";
+
+    /** The max uncompressed size of a block, unless a single message is larger */
+    static final int BLOCK_SIZE = 64 * 1024;
+
+    private static final byte[] gzipHeader = { 0x1f, (byte)0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte)0xff };
+    private static final int gzipTrailerSize = 8;
+
+    private final String prefix;
+    private final int maxSize;
+    private final int resumeLimitSize;
+    private int generation = 0;
+
+    private File currentFile;
+    private OutputStream archive;
+    private DataOutputStream index;
+    private long bytesWritten = 0;
+
+    private byte[] block = new byte[BLOCK_SIZE];
+    private int blockLength = 0;
+    private final BlockIndexEntry.Builder blockIndex = new BlockIndexEntry.Builder();
+
+    private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+    private final CRC32 crc = new CRC32();
+    private final byte[] deflateBuffer = new byte[BLOCK_SIZE];
+
+    public CompressedLogWriter(String prefix, int maxSize) {
+        this.prefix = prefix;
+        this.maxSize = maxSize;
+        this.resumeLimitSize = maxSize * 95 / 100;
+    }
+
+    @Override
+    public synchronized void write(LogMessage message) throws IOException {
+        String line = message.toString();
+        if (blockLength > 0 && blockLength + line.length() > BLOCK_SIZE)
+            writeBlock();
+        if (line.length() > block.length)
+            block = new byte[line.length()];
+        for (int i = 0; i < line.length(); i++)
+            block[blockLength++] = (byte)line.charAt(i);
+        blockIndex.add(message);
+    }
+
+    /** Compresses and writes the messages written since the last block was written, as a block */
+    private void writeBlock() throws IOException {
+        if (blockIndex.isEmpty()) return;
+        if (archive == null)
+            openNextFiles();
+
+        crc.reset();
+        crc.update(block, 0, blockLength);
+        deflater.reset();
+        deflater.setInput(block, 0, blockLength);
+        deflater.finish();
+
+        int length = gzipHeader.length;
+        archive.write(gzipHeader);
+        while ( ! deflater.finished()) {
+            int deflated = deflater.deflate(deflateBuffer);
+            archive.write(deflateBuffer, 0, deflated);
+            length += deflated;
+        }
+        writeIntLittleEndian((int)crc.getValue(), archive);
+        writeIntLittleEndian(blockLength, archive);
+        length += gzipTrailerSize;
+        archive.flush();
+
+        blockIndex.build(bytesWritten, length).writeTo(index);
+        index.flush();
+        bytesWritten += length;
+
+        blockLength = 0;
+        blockIndex.clear();
+
+        if (bytesWritten >= maxSize) {
+            log.fine("logfile '" + currentFile.getAbsolutePath() + "' full, rotating");
+            closeFiles();
+        }
+    }
+
+    private static void writeIntLittleEndian(int value, OutputStream out) throws IOException {
+        out.write(value);
+        out.write(value >>> 8);
+        out.write(value >>> 16);
+        out.write(value >>> 24);
+    }
+
+    /** Opens the next archive and index files, resuming the current ones when they are not too large */
+    private void openNextFiles() throws IOException {
+        int maxAttempts = 1000;
+        while (maxAttempts-- > 0) {
+            String name = prefix + "-" + generation++;
+            File archiveFile = new File(name + ARCHIVE_SUFFIX);
+            File indexFile = new File(name + INDEX_SUFFIX);
+
+            // make sure directory exists
+            File dir = archiveFile.getParentFile();
+            if (! dir.exists()) {
+                dir.mkdirs();
+            }
+
+            // don't mix with files written by LogWriter
+            if (new File(name).exists() || new File(name + ".bz2").exists()) {
+                continue;
+            }
+
+            if (! archiveFile.exists()) {
+                log.log(LogLevel.DEBUG, "openNextFiles, new file: " + archiveFile);
+                open(archiveFile, indexFile, 0);
+                return;
+            }
+
+            if (archiveFile.isFile() && archiveFile.length() < resumeLimitSize && isIndexed(archiveFile, indexFile)) {
+                log.fine("openNextFiles, resuming " + archiveFile + ", length was " + archiveFile.length());
+                open(archiveFile, indexFile, archiveFile.length());
+                return;
+            }
+            log.fine("openNextFiles, not resuming " + archiveFile);
+        }
+
+        throw new RuntimeException("Unable to create next log file");
+    }
+
+    private void open(File archiveFile, File indexFile, long length) throws IOException {
+        currentFile = archiveFile;
+        bytesWritten = length;
+        archive = new BufferedOutputStream(new FileOutputStream(archiveFile, true), BLOCK_SIZE);
+        index = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(indexFile, true)));
+    }
+
+    /** Returns whether the given index file ends exactly where the given archive file does */
+    private static boolean isIndexed(File archiveFile, File indexFile) {
+        if ( ! indexFile.isFile() || indexFile.length() % BlockIndexEntry.SIZE != 0) return false;
+        if (indexFile.length() == 0) return archiveFile.length() == 0;
+        try (InputStream in = new FileInputStream(indexFile)) {
+            DataInputStream data = new DataInputStream(in);
+            data.skipBytes((int)(indexFile.length() - BlockIndexEntry.SIZE));
+            BlockIndexEntry last = BlockIndexEntry.readFrom(data);
+            return last.offset() + last.length() == archiveFile.length();
+        }
+        catch (IOException e) {
+            return false;
+        }
+    }
+
+    private void closeFiles() throws IOException {
+        if (archive == null) return;
+        try {
+            archive.close();
+        }
+        finally {
+            index.close();
+            archive = null;
+            index = null;
+        }
+    }
+
+    /** Writes all messages written to this as a block, possibly smaller than the block size */
+    @Override
+    public synchronized void flush() throws IOException {
+        writeBlock();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            writeBlock();
+            closeFiles();
+        }
+        finally {
+            deflater.end();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return CompressedLogWriter.class.getSimpleName() + ": " + prefix;
+    }
+
+}
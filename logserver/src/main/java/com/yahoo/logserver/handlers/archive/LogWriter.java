@@ -8,13 +8,14 @@ import java.io.Writer;
 import java.util.logging.Logger;
 
 import com.yahoo.log.LogLevel;
+import com.yahoo.log.LogMessage;
 
 /**
  * This class is not thread-safe.
  *
  * @author Bjorn Borud
  */
-public class LogWriter extends Writer {
+public class LogWriter extends Writer implements ArchiveWriter {
     private static final Logger log = Logger.getLogger(LogWriter.class.getName());
 
     private long bytesWritten = 0;
@@ -125,6 +126,10 @@ public class LogWriter extends Writer {
         }
     }
 
+    @Override
+    public void write(LogMessage message) throws IOException {
+        write(message.toString());
+    }
 
     public void flush() throws IOException {
         if (writer != null) {
@@ -8,7 +8,6 @@ import com.yahoo.log.InvalidLogFormatException;
 
 import com.yahoo.io.Connection;
 import com.yahoo.io.Listener;
-import com.yahoo.io.ReadLine;
 
 import com.yahoo.logserver.net.control.Levels;
 
@@ -20,6 +19,7 @@ import java.util.Set;
 import java.util.HashSet;
 
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.nio.ByteBuffer;
 import java.nio.channels.SocketChannel;
 import java.nio.channels.SelectionKey;
@@ -48,7 +48,8 @@ public class LogConnection implements Connection {
     private final Listener listener;
     private final LogDispatcher dispatcher;
 
-    private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(READBUFFER_SIZE);
+    /** Holds the bytes read but not yet handled, from the start of the buffer to its position */
+    private final ByteBuffer readBuffer = ByteBuffer.allocate(READBUFFER_SIZE);
 
     private final LinkedList<ByteBuffer> writeBufferList = new LinkedList<>();
     private ByteBuffer writeBuffer;
@@ -197,27 +198,12 @@ public class LogConnection implements Connection {
 
     public void read() throws IOException {
         if (! readBuffer.hasRemaining()) {
-
-            try {
-                readBuffer.putChar(readBuffer.capacity() - 2, '\n');
-                readBuffer.flip();
-                String s = ReadLine.readLine(readBuffer);
-                if (s == null) {
-                    return;
-                }
-                log.log(LogLevel.DEBUG, "Log message too long. Message from "
-                        + socket.socket().getInetAddress() +  " exceeds "
-                        + readBuffer.capacity() + ". The message was: " + s);
-
-                LogMessage msg = LogMessage.parseNativeFormat(s);
-                dispatcher.handle(msg);
-            }
-            catch (InvalidLogFormatException e) {
-                log.log(LogLevel.DEBUG, "Invalid log message", e);
-            }
-            finally {
-                readBuffer.clear();
-            }
+            log.log(LogLevel.DEBUG, "Log message too long. Message from "
+                    + socket.socket().getInetAddress() +  " exceeds "
+                    + readBuffer.capacity() + ". The message was: "
+                    + new String(readBuffer.array(), 0, readBuffer.position(), StandardCharsets.ISO_8859_1));
+            handle(readBuffer.array(), 0, readBuffer.position());
+            readBuffer.clear();
             return;
         }
 
@@ -236,18 +222,40 @@ public class LogConnection implements Connection {
         // update global counter
         totalBytesRead += ret;
 
-        readBuffer.flip();
+        handleLines();
+    }
 
-        String s;
-        while ((s = ReadLine.readLine(readBuffer)) != null) {
-            try {
-                LogMessage msg = LogMessage.parseNativeFormat(s);
-                dispatcher.handle(msg);
-            }
-            catch (InvalidLogFormatException e) {
-                log.log(LogLevel.DEBUG, "Invalid log message", e);
+    /**
+     * Handles each complete line in the read buffer directly from its bytes,
+     * and moves any incomplete last line to the start of the buffer.
+     */
+    private void handleLines() {
+        byte[] buffer = readBuffer.array();
+        int end = readBuffer.position();
+        int start = 0;
+        for (int i = 0; i < end; i++) {
+            if (isEolChar(buffer[i])) {
+                if (i > start)
+                    handle(buffer, start, i - start);
+                start = i + 1;
             }
         }
+        System.arraycopy(buffer, start, buffer, 0, end - start);
+        readBuffer.position(end - start);
+    }
+
+    private void handle(byte[] buffer, int offset, int length) {
+        try {
+            LogMessage msg = LogMessage.parseNativeFormat(buffer, offset, length);
+            dispatcher.handle(msg);
+        }
+        catch (InvalidLogFormatException e) {
+            log.log(LogLevel.DEBUG, "Invalid log message", e);
+        }
+    }
+
+    private static boolean isEolChar(byte b) {
+        return b == '\n' || b == '\r';
     }
 
     public void close() throws IOException {
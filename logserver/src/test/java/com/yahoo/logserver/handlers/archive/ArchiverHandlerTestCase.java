@@ -167,6 +167,28 @@ public class ArchiverHandlerTestCase {
         }
     }
 
+    @Test
+    public void testCompressedLogging() throws IOException {
+        File tmpDir = temporaryFolder.newFolder();
+        ArchiverHandler a = new ArchiverHandler(tmpDir.getAbsolutePath(), 1024, true);
+        for (LogMessage m : msg) {
+            a.handle(m);
+        }
+        a.close();
+
+        Set<String> messages = new HashSet<>();
+        for (LogMessage m : msg) {
+            File f = new File(a.getPrefix(m) + "-0.gz");
+            assertTrue(f.exists());
+            assertFalse(new File(a.getPrefix(m) + "-0").exists());
+            new CompressedLogReader(f).read(m.getTime(), m.getTime(), null, null, read -> messages.add(read.toString()));
+        }
+        assertEquals(mStrings.length, messages.size());
+        for (String m : mStrings) {
+            assertTrue(messages.contains(m + "\n"));
+        }
+    }
+
     /**
      * Make sure that the file is rotated after N bytes
      */
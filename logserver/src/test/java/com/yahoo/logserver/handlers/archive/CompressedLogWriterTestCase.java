@@ -0,0 +1,124 @@
+// Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.logserver.handlers.archive;
+
+import com.yahoo.log.InvalidLogFormatException;
+import com.yahoo.log.LogLevel;
+import com.yahoo.log.LogMessage;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author agent
+ */
+public class CompressedLogWriterTestCase {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private static final long startTime = 1095159244000L;
+
+    @Test
+    public void requireThatArchiveIsAPlainGzipFileOfAllMessages() throws IOException, InvalidLogFormatException {
+        String prefix = temporaryFolder.getRoot().getAbsolutePath() + "/2004/09/14/10";
+        List<LogMessage> messages = writeMessages(prefix, 1000, 10);
+
+        List<String> lines = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(new FileInputStream(prefix + "-0.gz")), StandardCharsets.ISO_8859_1))) {
+            for (String line = reader.readLine(); line != null; line = reader.readLine())
+                lines.add(line + "\n");
+        }
+        assertEquals(messages.size(), lines.size());
+        for (int i = 0; i < messages.size(); i++)
+            assertEquals(messages.get(i).toString(), lines.get(i));
+    }
+
+    @Test
+    public void requireThatQueriesOnlyReadBlocksWhichMayMatch() throws IOException, InvalidLogFormatException {
+        String prefix = temporaryFolder.getRoot().getAbsolutePath() + "/2004/09/14/10";
+        List<LogMessage> messages = writeMessages(prefix, 1000, 10);
+        CompressedLogReader reader = new CompressedLogReader(new File(prefix + "-0.gz"));
+        assertEquals(100, reader.index().size());
+
+        List<LogMessage> all = new ArrayList<>();
+        assertEquals(100, reader.read(Long.MIN_VALUE, Long.MAX_VALUE, null, null, all::add));
+        assertEquals(messages.size(), all.size());
+
+        List<LogMessage> interval = new ArrayList<>();
+        int blocksRead = reader.read(startTime + 250_000, startTime + 259_000, null, null, interval::add);
+        assertEquals(1, blocksRead);
+        assertEquals(10, interval.size());
+        assertEquals(startTime + 250_000, interval.get(0).getTime());
+
+        List<LogMessage> errors = new ArrayList<>();
+        blocksRead = reader.read(Long.MIN_VALUE, Long.MAX_VALUE, Collections.singleton(LogLevel.ERROR), null, errors::add);
+        assertEquals(1, blocksRead);
+        assertEquals(1, errors.size());
+        assertEquals("an error", errors.get(0).getPayload());
+
+        List<LogMessage> fromService = new ArrayList<>();
+        reader.read(Long.MIN_VALUE, Long.MAX_VALUE, null, "service3", fromService::add);
+        assertEquals(100, fromService.size());
+        for (LogMessage message : fromService)
+            assertEquals("service3", message.getService());
+    }
+
+    @Test
+    public void requireThatWriterResumesIndexedArchiveAndRotatesWhenFull() throws IOException, InvalidLogFormatException {
+        String prefix = temporaryFolder.getRoot().getAbsolutePath() + "/2004/09/14/10";
+        writeMessages(prefix, 100, 10);
+        long length = new File(prefix + "-0.gz").length();
+        writeMessages(prefix, 100, 10);
+        assertTrue("Resumed the first file", new File(prefix + "-0.gz").length() > length);
+        assertFalse(new File(prefix + "-1.gz").exists());
+        assertEquals(20, new CompressedLogReader(new File(prefix + "-0.gz")).index().size());
+
+        CompressedLogWriter writer = new CompressedLogWriter(prefix, 1);
+        writer.write(message(0, "service0", LogLevel.INFO, "a"));
+        writer.flush();
+        writer.write(message(1, "service0", LogLevel.INFO, "b"));
+        writer.close();
+        assertTrue("Full file is not resumed", new File(prefix + "-1.gz").exists());
+        assertTrue("Rotated after the first block", new File(prefix + "-2.gz").exists());
+    }
+
+    /** Writes the given number of messages, one second apart, in blocks of the given number of messages */
+    private static List<LogMessage> writeMessages(String prefix, int count, int messagesPerBlock) throws IOException, InvalidLogFormatException {
+        List<LogMessage> messages = new ArrayList<>();
+        CompressedLogWriter writer = new CompressedLogWriter(prefix, 20 * 1024 * 1024);
+        for (int i = 0; i < count; i++) {
+            boolean error = i == count / 2;
+            LogMessage message = message(i, "service" + (i % 10), error ? LogLevel.ERROR : LogLevel.INFO,
+                                         error ? "an error" : "message " + i);
+            writer.write(message);
+            messages.add(message);
+            if ((i + 1) % messagesPerBlock == 0)
+                writer.flush();
+        }
+        writer.close();
+        return messages;
+    }
+
+    private static LogMessage message(int second, String service, Level level, String payload) throws InvalidLogFormatException {
+        return LogMessage.parseNativeFormat((startTime / 1000 + second) + ".000\thost\t1/2\t" + service + "\tcomponent\t" +
+                                            level.getName().toLowerCase() + "\t" + payload);
+    }
+
+}
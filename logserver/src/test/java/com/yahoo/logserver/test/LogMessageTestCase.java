@@ -5,6 +5,10 @@ import java.io.BufferedReader;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.regex.Pattern;
 import java.util.zip.GZIPInputStream;
 
 import com.yahoo.log.event.Event;
@@ -60,5 +64,59 @@ public class LogMessageTestCase {
             }
         }
     }
-}
 
+    /** The regular expression which defined the native format before parsing was done without it */
+    private static final Pattern nativeFormat = Pattern.compile("^(\\d[^\t]+)\t([^\t]+)\t([^\t]+)\t([^\t]+)\t([^\t]+)\t([^\t]+)\t(.+)$");
+
+    @Test
+    public void testParsingMatchesFormerRegularExpression() throws IOException {
+        String[] messages = {
+                "1096639280.524133\tmalfunction\t26851\t-\tlogtest\tinfo\tStarting up, called as ./log/logtest",
+                "1096639280.524133\thost\t1/2\tservice\tcomponent\twarning\tpayload\twith\ttabs",
+                "1096639280.524133\thost\t1/2\tservice\tcomponent\tnosuchlevel\tx",
+                "1\thost\t1/2\tservice\tcomponent\tinfo\tshort time",
+                "12\thost\t1/2\tservice\tcomponent\tinfo\t",
+                "12\thost\t\tservice\tcomponent\tinfo\tempty field",
+                "x2\thost\t1/2\tservice\tcomponent\tinfo\tbad time",
+                "12\thost\t1/2\tservice\tcomponent\tinfo",
+                "12\thost\t1/2\tservice\tcomponent\tinfo\tline\nbreak",
+                "12\thost\t1/2\tservice\tcomponent\tinfo\tnext line\u0085",
+                "12\thost\nname\t1/2\tservice\tcomponent\tinfo\tnewline in field",
+                "",
+        };
+        for (String message : messages)
+            assertParsedAsByRegularExpression(message);
+        for (String line : Files.readAllLines(Paths.get("src/test/files/logEntries.txt"), StandardCharsets.ISO_8859_1))
+            assertParsedAsByRegularExpression(line);
+    }
+
+    private static void assertParsedAsByRegularExpression(String message) {
+        boolean valid = nativeFormat.matcher(message).matches();
+        assertEquals(message, valid, parse(message) != null);
+        byte[] bytes = ("#" + message + "#").getBytes(StandardCharsets.ISO_8859_1);
+        LogMessage fromBytes = parse(bytes, 1, bytes.length - 2);
+        assertEquals(message, valid, fromBytes != null);
+        if (valid) {
+            assertEquals(parse(message).toString(), fromBytes.toString());
+            assertEquals(parse(message).getTime(), fromBytes.getTime());
+            assertEquals(parse(message).getLevel(), fromBytes.getLevel());
+        }
+    }
+
+    private static LogMessage parse(String message) {
+        try {
+            return LogMessage.parseNativeFormat(message);
+        } catch (InvalidLogFormatException e) {
+            return null;
+        }
+    }
+
+    private static LogMessage parse(byte[] buffer, int offset, int length) {
+        try {
+            return LogMessage.parseNativeFormat(buffer, offset, length);
+        } catch (InvalidLogFormatException e) {
+            return null;
+        }
+    }
+
+}
@@ -19,6 +19,7 @@ public class MessageBusParams {
     private RetryPolicy retryPolicy;
     private int maxPendingCount;
     private int maxPendingSize;
+    private int messengerThreads;
 
     /**
      * Constructs a new instance of this parameter object with default values for all members.
@@ -27,6 +28,7 @@ public class MessageBusParams {
         retryPolicy = new RetryTransientErrorsPolicy();
         maxPendingCount = 1024;
         maxPendingSize = 128 * 1024 * 1024;
+        messengerThreads = 1;
     }
 
     /**
@@ -39,6 +41,7 @@ public class MessageBusParams {
         retryPolicy = params.retryPolicy;
         maxPendingCount = params.maxPendingCount;
         maxPendingSize = params.maxPendingSize;
+        messengerThreads = params.messengerThreads;
     }
 
     /**
@@ -143,4 +146,26 @@ public class MessageBusParams {
         this.maxPendingSize = maxSize;
         return this;
     }
+
+    /**
+     * Returns the number of threads used to deliver messages and replies.
+     *
+     * @return The number of threads.
+     */
+    public int getMessengerThreads() {
+        return messengerThreads;
+    }
+
+    /**
+     * Sets the number of threads used to deliver messages and replies. Using more than one thread lets delivery
+     * scale with the number of senders, but requires all message and reply handlers to be thread-safe, and only
+     * preserves the delivery order of messages with the same sequence id.
+     *
+     * @param messengerThreads The number of threads to use.
+     * @return This, to allow chaining.
+     */
+    public MessageBusParams setMessengerThreads(int messengerThreads) {
+        this.messengerThreads = messengerThreads;
+        return this;
+    }
 }
@@ -3,31 +3,59 @@ package com.yahoo.messagebus;
 
 import com.yahoo.log.LogLevel;
 
-import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
 import java.util.logging.Logger;
 
 /**
- * <p>This class implements a single thread that is able to process arbitrary
- * tasks. Tasks are enqueued using the synchronized {@link #enqueue(Task)}
- * method, and are run in the order they were enqueued.</p>
+ * <p>This class implements one or more threads that are able to process
+ * arbitrary tasks. Tasks are enqueued using the thread-safe {@link
+ * #enqueue(Task)} method, and are run in the order they were enqueued.
+ * Each thread consumes its own lock-free queue, so that enqueuing threads
+ * never contend on a monitor, and a thread is only woken up when it has
+ * gone idle.</p>
+ *
+ * <p>When running more than one thread, messages and replies are spread
+ * across them; messages with a sequence id always go to the same thread.
+ * Tasks posted through {@link #enqueue(Task)} and the recurrent tasks all
+ * run on the first thread.</p>
  *
  * @author <a href="mailto:simon@yahoo-inc.com">Simon Thoresen</a>
  */
-public class Messenger implements Runnable {
+public class Messenger {
 
     private static final Logger log = Logger.getLogger(Messenger.class.getName());
+    private static final long idleNanos = TimeUnit.MILLISECONDS.toNanos(100);
     private final AtomicBoolean destroyed = new AtomicBoolean(false);
     private final List<Task> children = new ArrayList<>();
-    private final Queue<Task> queue = new ArrayDeque<>();
-    private final Thread thread = new Thread(this, "Messenger");
+    private final Lane[] lanes;
 
     public Messenger() {
-        thread.setDaemon(true);
+        this(1);
+    }
+
+    /**
+     * <p>Creates a messenger which runs the given number of threads. Using
+     * more than one thread requires all message and reply handlers to be
+     * thread-safe.</p>
+     *
+     * @param numThreads The number of threads to run tasks in.
+     */
+    public Messenger(int numThreads) {
+        if (numThreads < 1) {
+            throw new IllegalArgumentException("A messenger needs at least one thread, got " + numThreads + ".");
+        }
+        lanes = new Lane[numThreads];
+        for (int i = 0; i < numThreads; ++i) {
+            lanes[i] = new Lane(numThreads == 1 ? "Messenger" : "Messenger-" + i, i == 0);
+        }
     }
 
     /**
@@ -43,13 +71,15 @@ public class Messenger implements Runnable {
     }
 
     /**
-     * <p>Starts the internal thread. This must be done AFTER all recurrent
+     * <p>Starts the internal threads. This must be done AFTER all recurrent
      * tasks have been added.</p>
      *
      * @see #addRecurrentTask(Task)
      */
     public void start() {
-        thread.start();
+        for (Lane lane : lanes) {
+            lane.thread.start();
+        }
     }
 
     /**
@@ -61,7 +91,7 @@ public class Messenger implements Runnable {
      * @param handler The handler to send to.
      */
     public void deliverMessage(final Message msg, final MessageHandler handler) {
-        enqueue(new MessageTask(msg, handler));
+        enqueue(laneOf(msg), new MessageTask(msg, handler));
     }
 
     /**
@@ -73,7 +103,7 @@ public class Messenger implements Runnable {
      * @param handler The handler to return to.
      */
     public void deliverReply(final Reply reply, final ReplyHandler handler) {
-        enqueue(new ReplyTask(reply, handler));
+        enqueue(anyLane(), new ReplyTask(reply, handler));
     }
 
     /**
@@ -84,29 +114,49 @@ public class Messenger implements Runnable {
      * @param task The task to enqueue.
      */
     public void enqueue(final Task task) {
+        enqueue(lanes[0], task);
+    }
+
+    private void enqueue(Lane lane, Task task) {
         if (destroyed.get()) {
             task.destroy();
             return;
         }
-        synchronized (this) {
-            queue.offer(task);
-            if (queue.size() == 1) {
-                notify();
-            }
+        lane.offer(task);
+    }
+
+    private Lane laneOf(Message msg) {
+        if (lanes.length == 1) {
+            return lanes[0];
         }
+        if (msg.hasSequenceId()) {
+            return lanes[(int)Math.floorMod(msg.getSequenceId(), (long)lanes.length)];
+        }
+        return anyLane();
+    }
+
+    private Lane anyLane() {
+        return lanes.length == 1 ? lanes[0] : lanes[ThreadLocalRandom.current().nextInt(lanes.length)];
     }
 
     /**
-     * <p>Handshakes with the internal thread. If this method is called using
-     * the messenger thread, this will deadlock.</p>
+     * <p>Handshakes with the internal threads. If this method is called using
+     * a messenger thread, it returns immediately.</p>
      */
     public void sync() {
-        if (Thread.currentThread() == thread) {
-            return; // no need to wait for self
+        for (Lane lane : lanes) {
+            if (Thread.currentThread() == lane.thread) {
+                return; // no need to wait for self
+            }
+        }
+        final SyncTask[] tasks = new SyncTask[lanes.length];
+        for (int i = 0; i < lanes.length; ++i) {
+            tasks[i] = new SyncTask();
+            enqueue(lanes[i], tasks[i]);
+        }
+        for (SyncTask task : tasks) {
+            task.await();
         }
-        final SyncTask task = new SyncTask();
-        enqueue(task);
-        task.await();
     }
 
     /**
@@ -118,81 +168,118 @@ public class Messenger implements Runnable {
      * @return True if content existed and was destroyed.
      */
     public boolean destroy() {
-        boolean done = false;
-        enqueue(Terminate.INSTANCE);
-        if (!destroyed.getAndSet(true)) {
+        if (destroyed.getAndSet(true)) {
+            return false;
+        }
+        for (Lane lane : lanes) {
+            lane.offer(Terminate.INSTANCE);
+        }
+        for (Lane lane : lanes) {
             try {
-                synchronized (this) {
-                    while (!queue.isEmpty()) {
-                        wait();
-                    }
-                }
-                thread.join();
+                lane.thread.join();
             } catch (final InterruptedException e) {
                 // ignore
             }
-            done = true;
+            lane.destroyQueued(); // catches tasks that raced with termination
         }
-        return done;
+        return true;
     }
 
     @Override
-    public void run() {
-        while (true) {
-            Task task = null;
-            synchronized (this) {
-                if (queue.isEmpty()) {
-                    try {
-                        wait(100);
-                    } catch (final InterruptedException e) {
-                        continue;
-                    }
-                }
-                if (queue.size() > 0) {
-                    task = queue.poll();
-                }
+    protected void finalize() throws Throwable {
+        try {
+            if (destroy()) {
+                log.log(LogLevel.WARNING, "Messenger destroyed by finalizer, please review application shutdown logic.");
             }
-            if (task == Terminate.INSTANCE) {
-                break;
+        } finally {
+            super.finalize();
+        }
+    }
+
+    /**
+     * <p>A single thread consuming its own queue. The thread publishes that it
+     * is about to park before checking the queue a last time, so that an
+     * enqueuing thread only needs to unpark it when it is actually idle.</p>
+     */
+    private class Lane implements Runnable {
+
+        final Queue<Task> queue = new ConcurrentLinkedQueue<>();
+        final Thread thread;
+        final boolean runsChildren;
+        volatile boolean idle = false;
+
+        Lane(String name, boolean runsChildren) {
+            this.thread = new Thread(this, name);
+            this.thread.setDaemon(true);
+            this.runsChildren = runsChildren;
+        }
+
+        void offer(Task task) {
+            queue.offer(task);
+            if (idle) {
+                LockSupport.unpark(thread);
             }
+        }
+
+        Task take() {
+            Task task = queue.poll();
             if (task != null) {
-                try {
-                    task.run();
-                } catch (final Exception e) {
-                    log.log(LogLevel.ERROR, "An exception was thrown while running " + task.getClass().getName(), e);
+                return task;
+            }
+            idle = true;
+            task = queue.poll();
+            if (task == null) {
+                LockSupport.parkNanos(this, idleNanos);
+                task = queue.poll();
+            }
+            idle = false;
+            return task;
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                Task task = take();
+                if (task == Terminate.INSTANCE) {
+                    break;
+                }
+                if (task != null) {
+                    runAndDestroy(task);
                 }
-                try {
-                    task.destroy();
-                } catch (final Exception e) {
-                    log.warning("An exception was thrown while destroying " + task.getClass().getName() + ": " +
-                                e.toString());
-                    log.warning("Someone, somewhere might have to wait indefinetly for something.");
+                if (runsChildren) {
+                    for (final Task child : children) {
+                        child.run();
+                    }
                 }
             }
-            for (final Task child : children) {
-                child.run();
+            if (runsChildren) {
+                for (final Task child : children) {
+                    child.destroy();
+                }
             }
+            destroyQueued();
         }
-        for (final Task child : children) {
-            child.destroy();
-        }
-        synchronized (this) {
-            while (!queue.isEmpty()) {
-                final Task task = queue.poll();
+
+        void destroyQueued() {
+            for (Task task = queue.poll(); task != null; task = queue.poll()) {
                 task.destroy();
             }
-            notify();
         }
+
     }
 
-    @Override
-    protected void finalize() throws Throwable {
+    private static void runAndDestroy(Task task) {
         try {
-            if (destroy()) {
-                log.log(LogLevel.WARNING, "Messenger destroyed by finalizer, please review application shutdown logic.");
-            }
-        } finally {
-            super.finalize();
+            task.run();
+        } catch (final Exception e) {
+            log.log(LogLevel.ERROR, "An exception was thrown while running " + task.getClass().getName(), e);
+        }
+        try {
+            task.destroy();
+        } catch (final Exception e) {
+            log.warning("An exception was thrown while destroying " + task.getClass().getName() + ": " +
+                        e.toString());
+            log.warning("Someone, somewhere might have to wait indefinetly for something.");
         }
     }
 
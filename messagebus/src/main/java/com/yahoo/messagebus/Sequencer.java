@@ -1,10 +1,10 @@
 // Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.messagebus;
 
-import java.util.HashMap;
-import java.util.LinkedList;
-import java.util.Map;
+import java.util.ArrayDeque;
 import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
@@ -13,13 +13,19 @@ import java.util.concurrent.atomic.AtomicBoolean;
  * id, and messages are only sent when they are at the front of their list. When a reply arrives, the current front of
  * the list is removed and the next message, if any, is sent.
  *
+ * The lists are kept in a concurrent map and only ever changed atomically per sequence id, so sessions sending on
+ * many threads only contend when they use the same sequence id.
+ *
  * @author <a href="mailto:simon@yahoo-inc.com">Simon Thoresen</a>
  */
 public class Sequencer implements MessageHandler, ReplyHandler {
 
     private final AtomicBoolean destroyed = new AtomicBoolean(false);
     private final MessageHandler sender;
-    private final Map<Long, Queue<Message>> seqMap = new HashMap<Long, Queue<Message>>();
+    private final ConcurrentMap<Long, Queue<Message>> seqMap = new ConcurrentHashMap<>();
+
+    /** Marks a sequence id which has a message in flight and none queued. This is never modified. */
+    private static final Queue<Message> inFlight = new ArrayDeque<>(0);
 
     /**
      * Constructs a new sequencer on top of the given async sender.
@@ -38,15 +44,11 @@ public class Sequencer implements MessageHandler, ReplyHandler {
      */
     public boolean destroy() {
         if (!destroyed.getAndSet(true)) {
-            synchronized (this) {
-                for (Queue<Message> queue : seqMap.values()) {
-                    if (queue != null) {
-                        for (Message msg : queue) {
-                            msg.discard();
-                        }
-                    }
-                }
-                seqMap.clear();
+            for (Long seqId : seqMap.keySet()) {
+                seqMap.computeIfPresent(seqId, (id, queue) -> {
+                    queue.forEach(Message::discard);
+                    return null;
+                });
             }
             return true;
         }
@@ -65,23 +67,19 @@ public class Sequencer implements MessageHandler, ReplyHandler {
     private boolean filter(Message msg) {
         long seqId = msg.getSequenceId();
         msg.setContext(seqId);
-        synchronized (this) {
-            if (seqMap.containsKey(seqId)) {
-                Queue<Message> queue = seqMap.get(seqId);
-                if (queue == null) {
-                    queue = new LinkedList<Message>();
-                    seqMap.put(seqId, queue);
-                }
-                if (msg.getTrace().shouldTrace(TraceLevel.COMPONENT)) {
-                    msg.getTrace().trace(TraceLevel.COMPONENT,
-                                         "Sequencer queued message with sequence id '" + seqId + "'.");
-                }
-                queue.add(msg);
-                return false;
+        Queue<Message> queue = seqMap.compute(seqId, (id, current) -> {
+            if (current == null) {
+                return inFlight;
             }
-            seqMap.put(seqId, null);
-        }
-        return true;
+            if (msg.getTrace().shouldTrace(TraceLevel.COMPONENT)) {
+                msg.getTrace().trace(TraceLevel.COMPONENT,
+                                     "Sequencer queued message with sequence id '" + seqId + "'.");
+            }
+            Queue<Message> queued = (current == inFlight) ? new ArrayDeque<>() : current;
+            queued.add(msg);
+            return queued;
+        });
+        return queue == inFlight;
     }
 
     /**
@@ -137,15 +135,15 @@ public class Sequencer implements MessageHandler, ReplyHandler {
             reply.getTrace().trace(TraceLevel.COMPONENT,
                                    "Sequencer received reply with sequence id '" + seqId + "'.");
         }
-        Message msg = null;
-        synchronized (this) {
-            Queue<Message> queue = seqMap.get(seqId);
+        Message[] next = new Message[1];
+        seqMap.compute(seqId, (id, queue) -> {
             if (queue == null || queue.isEmpty()) {
-                seqMap.remove(seqId);
-            } else {
-                msg = queue.remove();
+                return null;
             }
-        }
+            next[0] = queue.remove();
+            return queue;
+        });
+        Message msg = next[0];
         if (msg != null) {
             sequencedSend(msg);
         }
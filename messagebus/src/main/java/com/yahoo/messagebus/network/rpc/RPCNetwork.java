@@ -63,6 +63,9 @@ public class RPCNetwork implements Network, MethodHandler {
     private final Mirror mirror;
     private final Register register;
     private final TreeMap<Version, RPCSendAdapter> sendAdapters = new TreeMap<>();
+    private final int maxBatchMessages;
+    private final int maxBatchBytes;
+    private final double batchWindowSecs;
     private NetworkOwner owner;
     private final SlobrokConfigSubscriber slobroksConfig;
     private final LinkedHashMap<String, Route> lruRouteMap = new LinkedHashMap<>(10000, 0.5f, true);
@@ -83,10 +86,13 @@ public class RPCNetwork implements Network, MethodHandler {
     public RPCNetwork(RPCNetworkParams params, SlobrokConfigSubscriber slobrokConfig) {
         this.slobroksConfig = slobrokConfig;
         identity = params.getIdentity();
-        orb = new Supervisor(new Transport());
+        orb = new Supervisor(new Transport(params.getNumNetworkThreads()));
         orb.setMaxInputBufferSize(params.getMaxInputBufferSize());
         orb.setMaxOutputBufferSize(params.getMaxOutputBufferSize());
         targetPool = new RPCTargetPool(params.getConnectionExpireSecs());
+        maxBatchMessages = params.getMaxBatchMessages();
+        maxBatchBytes = params.getMaxBatchBytes();
+        batchWindowSecs = params.getBatchWindowSecs();
         servicePool = new RPCServicePool(this, 4096);
 
         Method method = new Method("mbus.getVersion", "", "s", this);
@@ -400,6 +406,15 @@ public class RPCNetwork implements Network, MethodHandler {
         return executor;
     }
 
+    /** Returns the maximum number of messages to coalesce into one request, where 1 means no batching */
+    int getMaxBatchMessages() { return maxBatchMessages; }
+
+    /** Returns the number of payload bytes at which a batch is sent without waiting for more messages */
+    int getMaxBatchBytes() { return maxBatchBytes; }
+
+    /** Returns the number of seconds a batch waits for more messages before it is sent */
+    double getBatchWindowSecs() { return batchWindowSecs; }
+
     private class SendTask implements Runnable {
 
         final Protocol protocol;
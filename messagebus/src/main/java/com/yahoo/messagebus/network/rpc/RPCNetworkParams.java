@@ -19,6 +19,10 @@ public class RPCNetworkParams {
     private int maxInputBufferSize = 256 * 1024;
     private int maxOutputBufferSize = 256 * 1024;
     private double connectionExpireSecs = 30;
+    private int maxBatchMessages = 1;
+    private int maxBatchBytes = 64 * 1024;
+    private double batchWindowSecs = 0.001;
+    private int numNetworkThreads = 1;
 
     /**
      * Constructs a new instance of this class with reasonable default values.
@@ -40,6 +44,10 @@ public class RPCNetworkParams {
         connectionExpireSecs = params.connectionExpireSecs;
         maxInputBufferSize = params.maxInputBufferSize;
         maxOutputBufferSize = params.maxOutputBufferSize;
+        maxBatchMessages = params.maxBatchMessages;
+        maxBatchBytes = params.maxBatchBytes;
+        batchWindowSecs = params.batchWindowSecs;
+        numNetworkThreads = params.numNetworkThreads;
     }
 
     /**
@@ -185,4 +193,90 @@ public class RPCNetworkParams {
         this.maxOutputBufferSize = maxOutputBufferSize;
         return this;
     }
+
+    /**
+     * Returns the maximum number of messages to the same target which are coalesced into a single request.
+     *
+     * @return The maximum number of messages, where 1 means messages are not batched.
+     */
+    public int getMaxBatchMessages() {
+        return maxBatchMessages;
+    }
+
+    /**
+     * Sets the maximum number of messages to the same target which are coalesced into a single request. Batching
+     * saves the per request overhead when sending many small messages, but requires all recipients to support
+     * batched requests; recipients which do not are sent each message separately. The default value 1 turns
+     * batching off.
+     *
+     * @param maxBatchMessages The maximum number of messages in a batch.
+     * @return This, to allow chaining.
+     */
+    public RPCNetworkParams setMaxBatchMessages(int maxBatchMessages) {
+        if (maxBatchMessages < 1) throw new IllegalArgumentException("A batch must allow at least 1 message");
+        this.maxBatchMessages = maxBatchMessages;
+        return this;
+    }
+
+    /**
+     * Returns the number of payload bytes at which a batch of messages is sent without waiting for more messages.
+     *
+     * @return The number of bytes.
+     */
+    public int getMaxBatchBytes() {
+        return maxBatchBytes;
+    }
+
+    /**
+     * Sets the number of payload bytes at which a batch of messages is sent without waiting for more messages.
+     *
+     * @param maxBatchBytes The number of bytes.
+     * @return This, to allow chaining.
+     */
+    public RPCNetworkParams setMaxBatchBytes(int maxBatchBytes) {
+        this.maxBatchBytes = maxBatchBytes;
+        return this;
+    }
+
+    /**
+     * Returns the number of seconds a batch of messages waits for more messages before it is sent.
+     *
+     * @return The number of seconds.
+     */
+    public double getBatchWindowSecs() {
+        return batchWindowSecs;
+    }
+
+    /**
+     * Sets the number of seconds a batch of messages waits for more messages before it is sent. This is the
+     * maximum latency added to each message when batching is turned on.
+     *
+     * @param secs The number of seconds.
+     * @return This, to allow chaining.
+     */
+    public RPCNetworkParams setBatchWindowSecs(double secs) {
+        this.batchWindowSecs = secs;
+        return this;
+    }
+
+    /**
+     * Returns the number of threads doing network IO for the connections of the network.
+     *
+     * @return The number of threads.
+     */
+    public int getNumNetworkThreads() {
+        return numNetworkThreads;
+    }
+
+    /**
+     * Sets the number of threads doing network IO for the connections of the network. Each connection is handled
+     * by one of these threads.
+     *
+     * @param numNetworkThreads The number of threads, at least 1.
+     * @return This, to allow chaining.
+     */
+    public RPCNetworkParams setNumNetworkThreads(int numNetworkThreads) {
+        this.numNetworkThreads = numNetworkThreads;
+        return this;
+    }
 }
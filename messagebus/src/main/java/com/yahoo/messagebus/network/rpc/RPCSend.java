@@ -23,6 +23,9 @@ import com.yahoo.messagebus.routing.Route;
 import com.yahoo.messagebus.routing.RoutingNode;
 import com.yahoo.text.Utf8Array;
 
+import java.util.Collections;
+import java.util.List;
+
 /**
  * Implements the request adapter for method "mbus.send1/mbus.slime".
  *
@@ -41,6 +44,22 @@ public abstract class RPCSend implements MethodHandler, ReplyHandler, RequestWai
     protected abstract Reply createReply(Values ret, String serviceName, Trace trace);
     protected abstract Params toParams(Values req);
     protected abstract void createResponse(Values ret, Reply reply, Version version, byte [] payload);
+
+    /** Returns the additional methods handled by this, if any */
+    protected List<Method> buildAdditionalMethods() { return Collections.emptyList(); }
+
+    /**
+     * Hands the given message over to be sent to its recipient in a batch with other messages, if this supports
+     * batching and it is enabled for the target of the recipient. The reply to a batched message must be delivered
+     * through {@link #deliverReply}.
+     *
+     * @return Whether the message was handed over, or must be sent by itself.
+     */
+    protected boolean sendBatched(SendContext ctx, Version version, Route route, RPCServiceAddress address,
+                                  Message msg, byte[] payload) {
+        return false;
+    }
+
     @Override
     public final void attach(RPCNetwork net) {
         this.net = net;
@@ -50,8 +69,13 @@ public abstract class RPCSend implements MethodHandler, ReplyHandler, RequestWai
             serverIdent = clientIdent;
         }
         net.getSupervisor().addMethod(buildMethod());
+        for (Method method : buildAdditionalMethods()) {
+            net.getSupervisor().addMethod(method);
+        }
     }
 
+    final RPCNetwork getNetwork() { return net; }
+
     @Override
     public final void send(RoutingNode recipient, Version version, byte[] payload, long timeRemaining) {
         SendContext ctx = new SendContext(recipient, timeRemaining);
@@ -60,6 +84,10 @@ public abstract class RPCSend implements MethodHandler, ReplyHandler, RequestWai
         Route route = new Route(recipient.getRoute());
         Hop hop = route.removeHop(0);
 
+        if ( ! hop.getIgnoreResult() && sendBatched(ctx, version, route, address, msg, payload)) {
+            return;
+        }
+
         Request req = encodeRequest(version, route, address,msg, timeRemaining, payload, ctx.trace.getLevel());
 
         if (ctx.trace.shouldTrace(TraceLevel.SEND_RECEIVE)) {
@@ -84,6 +112,16 @@ public abstract class RPCSend implements MethodHandler, ReplyHandler, RequestWai
         req.discardParameters(); // allow garbage collection of request parameters
     }
 
+    /** Sends a message which was handed over to be batched by itself after all, using the given encoded request */
+    protected final void sendUnbatched(SendContext ctx, Request req) {
+        if (ctx.trace.shouldTrace(TraceLevel.SEND_RECEIVE)) {
+            ctx.trace.trace(TraceLevel.SEND_RECEIVE, "Sending message to '" + ctx.getServiceName() + "' without batching.");
+        }
+        req.setContext(ctx);
+        ((RPCServiceAddress)ctx.recipient.getServiceAddress()).getTarget().getJRTTarget().invokeAsync(req, ctx.timeout, this);
+        req.discardParameters();
+    }
+
     protected final Object decode(Utf8Array protocolName, Version version, byte [] payload) {
         Protocol protocol = net.getOwner().getProtocol(protocolName);
         if (protocol != null) {
@@ -112,29 +150,32 @@ public abstract class RPCSend implements MethodHandler, ReplyHandler, RequestWai
 
     private void doRequestDone(Request req) {
         SendContext ctx = (SendContext)req.getContext();
-        String serviceName = ((RPCServiceAddress)ctx.recipient.getServiceAddress()).getServiceName();
-        Reply reply = null;
-        Error error = null;
         if (!req.checkReturnTypes(getReturnSpec())) {
-            // Map all known JRT errors to the appropriate message bus error.
-            reply = new EmptyReply();
-            switch (req.errorCode()) {
-                case com.yahoo.jrt.ErrorCode.TIMEOUT:
-                    error = new Error(ErrorCode.TIMEOUT,
-                            "A timeout occured while waiting for '" + serviceName + "' (" +
-                                    ctx.timeout + " seconds expired); " + req.errorMessage());
-                    break;
-                case com.yahoo.jrt.ErrorCode.CONNECTION:
-                    error = new Error(ErrorCode.CONNECTION_ERROR,
-                            "A connection error occured for '" + serviceName + "'; " + req.errorMessage());
-                    break;
-                default:
-                    error = new Error(ErrorCode.NETWORK_ERROR,
-                            "A network error occured for '" + serviceName + "'; " + req.errorMessage());
-            }
+            deliverReply(ctx, new EmptyReply(), toError(req, ctx));
         } else {
-            reply = createReply(req.returnValues(), serviceName, ctx.trace);
+            deliverReply(ctx, createReply(req.returnValues(), ctx.getServiceName(), ctx.trace), null);
+        }
+    }
+
+    /** Maps all known JRT errors of the given failed request to the appropriate message bus error. */
+    protected final Error toError(Request req, SendContext ctx) {
+        String serviceName = ctx.getServiceName();
+        switch (req.errorCode()) {
+            case com.yahoo.jrt.ErrorCode.TIMEOUT:
+                return new Error(ErrorCode.TIMEOUT,
+                        "A timeout occured while waiting for '" + serviceName + "' (" +
+                                ctx.timeout + " seconds expired); " + req.errorMessage());
+            case com.yahoo.jrt.ErrorCode.CONNECTION:
+                return new Error(ErrorCode.CONNECTION_ERROR,
+                        "A connection error occured for '" + serviceName + "'; " + req.errorMessage());
+            default:
+                return new Error(ErrorCode.NETWORK_ERROR,
+                        "A network error occured for '" + serviceName + "'; " + req.errorMessage());
         }
+    }
+
+    /** Delivers the reply received for the message of the given context, with the given error if not null */
+    protected final void deliverReply(SendContext ctx, Reply reply, Error error) {
         if (ctx.trace.shouldTrace(TraceLevel.SEND_RECEIVE)) {
             ctx.trace.trace(TraceLevel.SEND_RECEIVE,
                     "Reply (type " + reply.getType() + ") received at " + clientIdent + ".");
@@ -169,23 +210,28 @@ public abstract class RPCSend implements MethodHandler, ReplyHandler, RequestWai
 
         request.discardParameters(); // allow garbage collection of request parameters
 
+        deliverMessage(p, new ReplyContext(request, p.version));
+    }
+
+    /** Decodes and delivers the message of the given parameters, which is replied to through the given context */
+    protected final void deliverMessage(Params p, ReplyContext replyContext) {
         // Make sure that the owner understands the protocol.
         Protocol protocol = net.getOwner().getProtocol(p.protocolName);
         if (protocol == null) {
-            replyError(request, p.version, p.traceLevel,
+            replyError(replyContext, p.traceLevel,
                     new Error(ErrorCode.UNKNOWN_PROTOCOL,
                             "Protocol '" + p.protocolName + "' is not known by " + serverIdent + "."));
             return;
         }
         Routable routable = protocol.decode(p.version, p.payload);
         if (routable == null) {
-            replyError(request, p.version, p.traceLevel,
+            replyError(replyContext, p.traceLevel,
                     new Error(ErrorCode.DECODE_ERROR,
                             "Protocol '" + protocol.getName() + "' failed to decode routable."));
             return;
         }
         if (routable instanceof Reply) {
-            replyError(request, p.version, p.traceLevel,
+            replyError(replyContext, p.traceLevel,
                     new Error(ErrorCode.DECODE_ERROR,
                             "Payload decoded to a reply when expecting a message."));
             return;
@@ -194,7 +240,7 @@ public abstract class RPCSend implements MethodHandler, ReplyHandler, RequestWai
         if (p.route != null && p.route.length() > 0) {
             msg.setRoute(net.getRoute(p.route));
         }
-        msg.setContext(new ReplyContext(request, p.version));
+        msg.setContext(replyContext);
         msg.pushHandler(this);
         msg.setRetryEnabled(p.retryEnabled);
         msg.setRetry(p.retry);
@@ -231,6 +277,17 @@ public abstract class RPCSend implements MethodHandler, ReplyHandler, RequestWai
                         "An error occured while encoding the reply."));
             }
         }
+        returnReply(ctx, reply, payload);
+    }
+
+    /**
+     * Returns an encoded reply to the sender of the message it replies to.
+     *
+     * @param ctx     The context of the message replied to.
+     * @param reply   The reply to return.
+     * @param payload The encoded reply.
+     */
+    protected void returnReply(ReplyContext ctx, Reply reply, byte[] payload) {
         createResponse(ctx.request.returnValues(), reply, ctx.version, payload);
         ctx.request.returnRequest();
     }
@@ -238,20 +295,19 @@ public abstract class RPCSend implements MethodHandler, ReplyHandler, RequestWai
     /**
      * Send an error reply for a given request.
      *
-     * @param request    The JRT request to reply to.
-     * @param version    The version to serialize for.
-     * @param traceLevel The trace level to set in the reply.
-     * @param err        The error to reply with.
+     * @param replyContext The context of the message to reply to.
+     * @param traceLevel   The trace level to set in the reply.
+     * @param err          The error to reply with.
      */
-    private void replyError(Request request, Version version, int traceLevel, Error err) {
+    private void replyError(ReplyContext replyContext, int traceLevel, Error err) {
         Reply reply = new EmptyReply();
-        reply.setContext(new ReplyContext(request, version));
+        reply.setContext(replyContext);
         reply.getTrace().setLevel(traceLevel);
         reply.addError(err);
         handleReply(reply);
     }
 
-    private static class SendContext {
+    static class SendContext {
 
         final RoutingNode recipient;
         final Trace trace;
@@ -262,9 +318,13 @@ public abstract class RPCSend implements MethodHandler, ReplyHandler, RequestWai
             trace = new Trace(recipient.getTrace().getLevel());
             timeout = timeRemaining * 0.001;
         }
+
+        String getServiceName() {
+            return ((RPCServiceAddress)recipient.getServiceAddress()).getServiceName();
+        }
     }
 
-    private static class ReplyContext {
+    static class ReplyContext {
 
         final Request request;
         final Version version;
@@ -6,26 +6,42 @@ import com.yahoo.compress.CompressionType;
 import com.yahoo.compress.Compressor;
 import com.yahoo.jrt.DataValue;
 import com.yahoo.jrt.Int32Value;
+import com.yahoo.jrt.Int64Value;
 import com.yahoo.jrt.Int8Value;
 import com.yahoo.jrt.Method;
 import com.yahoo.jrt.Request;
+import com.yahoo.jrt.Target;
+import com.yahoo.jrt.Task;
 import com.yahoo.jrt.Values;
 import com.yahoo.messagebus.EmptyReply;
 import com.yahoo.messagebus.Error;
+import com.yahoo.messagebus.ErrorCode;
 import com.yahoo.messagebus.Message;
 import com.yahoo.messagebus.Reply;
 import com.yahoo.messagebus.Trace;
+import com.yahoo.messagebus.TraceLevel;
 import com.yahoo.messagebus.TraceNode;
 import com.yahoo.messagebus.routing.Route;
 import com.yahoo.slime.BinaryFormat;
+import com.yahoo.slime.BinaryView;
 import com.yahoo.slime.Cursor;
 import com.yahoo.slime.Inspector;
 import com.yahoo.slime.Slime;
 import com.yahoo.text.Utf8;
 import com.yahoo.text.Utf8Array;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
 /**
- * Implements the request adapter for method "mbus.slime".
+ * Implements the request adapter for method "mbus.slime", and for method "mbus.slime.batch" which carries
+ * several messages to the same target in one request when batching is enabled in {@link RPCNetworkParams}.
+ * The reply to each message of a batch is returned by itself as soon as it is ready, through method
+ * "mbus.slime.batch.reply" invoked back over the same connection, and each message times out by itself.
  *
  * @author baldersheim
  */
@@ -34,8 +50,17 @@ public class RPCSendV2 extends RPCSend {
     private final static String METHOD_NAME = "mbus.slime";
     private final static String METHOD_PARAMS = "bixbix";
     private final static String METHOD_RETURN = "bixbix";
+    private final static String BATCH_METHOD_NAME = "mbus.slime.batch";
+    private final static String BATCH_METHOD_PARAMS = "bix";
+    private final static String BATCH_METHOD_RETURN = "";
+    private final static String BATCH_REPLY_METHOD_NAME = "mbus.slime.batch.reply";
+    private final static String BATCH_REPLY_METHOD_PARAMS = "lbix";
     private final Compressor compressor = new Compressor(CompressionType.LZ4, 3, 0.90, 1024);
 
+    /** Batched messages sent and not yet replied to or timed out, by their batch id */
+    private final Map<Long, BatchedMessage> batchedInFlight = new ConcurrentHashMap<>();
+    private final AtomicLong nextBatchId = new AtomicLong();
+
     @Override
     protected String getReturnSpec() { return METHOD_RETURN; }
     @Override
@@ -57,6 +82,24 @@ public class RPCSendV2 extends RPCSend {
                 .returnDesc(5, "body_payload", "Slime encoded body payload.");
         return method;
     }
+
+    @Override
+    protected List<Method> buildAdditionalMethods() {
+        Method batchMethod = new Method(BATCH_METHOD_NAME, BATCH_METHOD_PARAMS, BATCH_METHOD_RETURN, this::invokeBatch);
+        batchMethod.methodDesc("Send a batch of message bus requests. The reply to each is returned through " +
+                               BATCH_REPLY_METHOD_NAME + " when it is ready, and this returns when all are returned.");
+        batchMethod.paramDesc(0, "encoding", "Encoding type of messages.")
+                .paramDesc(1, "decoded_size", "Number of bytes after messages decoding.")
+                .paramDesc(2, "payload", "Slime encoded messages payload.");
+
+        Method replyMethod = new Method(BATCH_REPLY_METHOD_NAME, BATCH_REPLY_METHOD_PARAMS, "", this::invokeBatchReply);
+        replyMethod.methodDesc("Return the reply to a message bus request sent in a batch.");
+        replyMethod.paramDesc(0, "id", "The batch id of the message replied to.")
+                .paramDesc(1, "encoding", "Encoding type of reply.")
+                .paramDesc(2, "decoded_size", "Number of bytes after reply decoding.")
+                .paramDesc(3, "payload", "Slime encoded reply payload.");
+        return Arrays.asList(batchMethod, replyMethod);
+    }
     private static final String VERSION_F = new String("version");
     private static final String ROUTE_F = new String("route");
     private static final String SESSION_F = new String("session");
@@ -72,6 +115,8 @@ public class RPCSendV2 extends RPCSend {
     private static final String CODE_F = new String("code");
     private static final String BLOB_F = new String("msg");
     private static final String MSG_F = new String("msg");
+    private static final String MESSAGES_F = new String("messages");
+    private static final String ID_F = new String("id");
 
     @Override
     protected Request encodeRequest(Version version, Route route, RPCServiceAddress address, Message msg,
@@ -86,8 +131,13 @@ public class RPCSendV2 extends RPCSend {
         v.add(new DataValue(new byte[0]));
 
         Slime slime = new Slime();
-        Cursor root = slime.setObject();
+        encodeMessage(slime.setObject(), version, route, address, msg, payload, traceLevel);
+        addCompressed(v, slime);
+        return req;
+    }
 
+    private static void encodeMessage(Cursor root, Version version, Route route, RPCServiceAddress address,
+                                      Message msg, byte[] payload, int traceLevel) {
         root.setString(VERSION_F, version.toString());
         root.setString(ROUTE_F, route.toString());
         root.setString(SESSION_F, address.getSessionName());
@@ -97,24 +147,29 @@ public class RPCSendV2 extends RPCSend {
         root.setLong(TIMEREMAINING_F, msg.getTimeRemaining());
         root.setLong(TRACELEVEL_F, traceLevel);
         root.setData(BLOB_F, payload);
+    }
 
+    private void addCompressed(Values v, Slime slime) {
         byte[] serializedSlime = BinaryFormat.encode(slime);
         Compressor.Compression compressionResult = compressor.compress(serializedSlime);
 
         v.add(new Int8Value(compressionResult.type().getCode()));
         v.add(new Int32Value(compressionResult.uncompressedSize()));
         v.add(new DataValue(compressionResult.data()));
+    }
 
-        return req;
+    private Inspector decompress(Values v, int offset) {
+        CompressionType compression = CompressionType.valueOf(v.get(offset).asInt8());
+        byte[] slimeBytes = compressor.decompress(v.get(offset + 2).asData(), compression, v.get(offset + 1).asInt32());
+        return BinaryView.inspect(slimeBytes);
     }
 
     @Override
     protected Reply createReply(Values ret, String serviceName, Trace trace) {
-        CompressionType compression = CompressionType.valueOf(ret.get(3).asInt8());
-        byte[] slimeBytes = compressor.decompress(ret.get(5).asData(), compression, ret.get(4).asInt32());
-        Slime slime = BinaryFormat.decode(slimeBytes);
-        Inspector root = slime.get();
+        return decodeReply(decompress(ret, 3), serviceName, trace);
+    }
 
+    private Reply decodeReply(Inspector root, String serviceName, Trace trace) {
         Version version = new Version(root.field(VERSION_F).asString());
         byte[] payload = root.field(BLOB_F).asData();
 
@@ -151,10 +206,10 @@ public class RPCSendV2 extends RPCSend {
     }
 
     protected Params toParams(Values args) {
-        CompressionType compression = CompressionType.valueOf(args.get(3).asInt8());
-        byte[] slimeBytes = compressor.decompress(args.get(5).asData(), compression, args.get(4).asInt32());
-        Slime slime = BinaryFormat.decode(slimeBytes);
-        Inspector root = slime.get();
+        return toParams(decompress(args, 3));
+    }
+
+    private Params toParams(Inspector root) {
         Params p = new Params();
         p.version = new Version(root.field(VERSION_F).asString());
         p.route = root.field(ROUTE_F).asString();
@@ -175,8 +230,11 @@ public class RPCSendV2 extends RPCSend {
         ret.add(new DataValue(new byte[0]));
 
         Slime slime = new Slime();
-        Cursor root = slime.setObject();
+        encodeReply(slime.setObject(), reply, version, payload);
+        addCompressed(ret, slime);
+    }
 
+    private static void encodeReply(Cursor root, Reply reply, Version version, byte [] payload) {
         root.setString(VERSION_F, version.toString());
         root.setDouble(RETRYDELAY_F, reply.getRetryDelay());
         root.setString(PROTOCOL_F, reply.getProtocol().toString());
@@ -197,13 +255,221 @@ public class RPCSendV2 extends RPCSend {
                 }
             }
         }
+    }
 
-        byte[] serializedSlime = BinaryFormat.encode(slime);
-        Compressor.Compression compressionResult = compressor.compress(serializedSlime);
+    @Override
+    protected boolean sendBatched(SendContext ctx, Version version, Route route, RPCServiceAddress address,
+                                  Message msg, byte[] payload) {
+        if (getNetwork().getMaxBatchMessages() <= 1) return false;
 
-        ret.add(new Int8Value(compressionResult.type().getCode()));
-        ret.add(new Int32Value(compressionResult.uncompressedSize()));
-        ret.add(new DataValue(compressionResult.data()));
+        RPCTargetBatcher batcher = address.getTarget().getBatcher(target -> new RPCTargetBatcher(target, this));
+        return batcher.add(new BatchedMessage(ctx, version, route, address, msg, payload));
+    }
+
+    /**
+     * Sends the given messages to the given target in a single request. Each message is timed out by itself
+     * when its own timeout expires, and the request is given the longest timeout of the messages.
+     */
+    void sendBatch(RPCTarget target, List<BatchedMessage> messages) {
+        Slime slime = new Slime();
+        Cursor array = slime.setObject().setArray(MESSAGES_F);
+        double timeout = 0;
+        for (BatchedMessage message : messages) {
+            message.id = nextBatchId.incrementAndGet();
+            Cursor entry = array.addObject();
+            entry.setLong(ID_F, message.id);
+            encodeMessage(entry, message.version, message.route, message.address, message.msg,
+                          message.payload, message.ctx.trace.getLevel());
+            timeout = Math.max(timeout, message.ctx.timeout);
+            if (message.ctx.trace.shouldTrace(TraceLevel.SEND_RECEIVE)) {
+                message.ctx.trace.trace(TraceLevel.SEND_RECEIVE,
+                        "Sending message (version " + message.version + ") to '" + message.address.getServiceName() +
+                        "' in a batch of " + messages.size() + " messages with " + message.ctx.timeout + " seconds timeout.");
+            }
+        }
+        for (BatchedMessage message : messages) {
+            batchedInFlight.put(message.id, message);
+            message.timeoutTask = getNetwork().getSupervisor().transport().createTask(() -> handleBatchedTimeout(message));
+            message.timeoutTask.schedule(message.ctx.timeout);
+        }
+        Request req = new Request(BATCH_METHOD_NAME);
+        addCompressed(req.parameters(), slime);
+        req.setContext(new Batch(target, messages));
+        target.getJRTTarget().invokeAsync(req, timeout, this::handleBatchDone);
+        req.discardParameters(); // allow garbage collection of request parameters
+    }
+
+    /** Removes the given message from the messages in flight, and returns whether it was still in flight */
+    private boolean complete(BatchedMessage message) {
+        if (batchedInFlight.remove(message.id) == null) return false;
+        message.timeoutTask.kill();
+        return true;
+    }
+
+    private void handleBatchedTimeout(BatchedMessage message) {
+        if ( ! complete(message)) return;
+        getNetwork().getExecutor().execute(() -> deliverReply(message.ctx, new EmptyReply(),
+                new Error(ErrorCode.TIMEOUT, "A timeout occured while waiting for '" + message.ctx.getServiceName() +
+                                             "' (" + message.ctx.timeout + " seconds expired) for a message in a batch.")));
+    }
+
+    /** Receives the reply to a batched message. Called in the transport thread of the connection the batch was sent on. */
+    private void invokeBatchReply(Request request) {
+        BatchedMessage message = batchedInFlight.get(request.parameters().get(0).asInt64());
+        if (message == null || ! complete(message)) return; // timed out
+        getNetwork().getExecutor().execute(() -> deliverReply(message.ctx,
+                                                              decodeReply(decompress(request.parameters(), 1),
+                                                                          message.ctx.getServiceName(),
+                                                                          message.ctx.trace),
+                                                              null));
+    }
+
+    /**
+     * Completes the messages of a batch which are not replied to or timed out when the batch request returns.
+     * Since the replies are received before the batch request returns on the same connection, and both are handled
+     * in its transport thread, these have either failed or will never be replied to.
+     */
+    private void handleBatchDone(Request req) {
+        Batch batch = (Batch)req.getContext();
+        List<BatchedMessage> unreplied = new ArrayList<>();
+        for (BatchedMessage message : batch.messages) {
+            if (complete(message)) {
+                unreplied.add(message);
+            }
+        }
+        if ( ! unreplied.isEmpty()) {
+            getNetwork().getExecutor().execute(() -> doBatchDone(req, batch, unreplied));
+        }
+    }
+
+    private void doBatchDone(Request req, Batch batch, List<BatchedMessage> unreplied) {
+        if (req.errorCode() == com.yahoo.jrt.ErrorCode.NO_SUCH_METHOD) {
+            // The target does not support batches: Send these, and all later messages to it, by themselves
+            unreplied.addAll(batch.target.getBatcher(target -> new RPCTargetBatcher(target, this)).disable());
+            for (BatchedMessage message : unreplied) {
+                sendUnbatched(message.ctx, encodeRequest(message.version, message.route, message.address, message.msg,
+                                                         message.msg.getTimeRemainingNow(), message.payload,
+                                                         message.ctx.trace.getLevel()));
+            }
+            return;
+        }
+        for (BatchedMessage message : unreplied) {
+            if ( ! req.checkReturnTypes(BATCH_METHOD_RETURN)) {
+                deliverReply(message.ctx, new EmptyReply(), toError(req, message.ctx));
+            } else {
+                deliverReply(message.ctx, new EmptyReply(),
+                             new Error(ErrorCode.NETWORK_ERROR, "No reply to message in a batch of " + batch.messages.size() +
+                                                                " from '" + message.ctx.getServiceName() + "'."));
+            }
+        }
+    }
+
+    private void invokeBatch(Request request) {
+        request.detach();
+        Target replyTarget = request.target();
+        getNetwork().getExecutor().execute(() -> doInvokeBatch(request, replyTarget));
+    }
+
+    private void doInvokeBatch(Request request, Target replyTarget) {
+        Inspector messages = decompress(request.parameters(), 0).field(MESSAGES_F);
+        request.discardParameters(); // allow garbage collection of request parameters
+
+        BatchReplies replies = new BatchReplies(request, replyTarget, messages.entries());
+        for (int i = 0; i < messages.entries(); i++) {
+            Params p = toParams(messages.entry(i));
+            deliverMessage(p, new BatchReplyContext(request, p.version, replies, messages.entry(i).field(ID_F).asLong()));
+        }
+    }
+
+    @Override
+    protected void returnReply(ReplyContext ctx, Reply reply, byte[] payload) {
+        if (ctx instanceof BatchReplyContext) {
+            BatchReplyContext batchContext = (BatchReplyContext)ctx;
+            batchContext.replies.returnReply(batchContext.id, reply, ctx.version, payload);
+        } else {
+            super.returnReply(ctx, reply, payload);
+        }
+    }
+
+    /** A message waiting to be sent in a batch */
+    static final class BatchedMessage {
+
+        final SendContext ctx;
+        final Version version;
+        final Route route;
+        final RPCServiceAddress address;
+        final Message msg;
+        final byte[] payload;
+        /** The id of this in the batch it is sent in, which is unique among the batched messages sent by this */
+        long id;
+        Task timeoutTask;
+
+        BatchedMessage(SendContext ctx, Version version, Route route, RPCServiceAddress address, Message msg,
+                       byte[] payload) {
+            this.ctx = ctx;
+            this.version = version;
+            this.route = route;
+            this.address = address;
+            this.msg = msg;
+            this.payload = payload;
+        }
+    }
+
+    /** The context of a batch request */
+    private static final class Batch {
+
+        final RPCTarget target;
+        final List<BatchedMessage> messages;
+
+        Batch(RPCTarget target, List<BatchedMessage> messages) {
+            this.target = target;
+            this.messages = messages;
+        }
+    }
+
+    /**
+     * Returns the reply to each message of a received batch as soon as it is ready, and returns the batch request
+     * once all are returned.
+     */
+    private final class BatchReplies {
+
+        private final Request request;
+        private final Target replyTarget;
+        private int pending;
+
+        BatchReplies(Request request, Target replyTarget, int size) {
+            this.request = request;
+            this.replyTarget = replyTarget;
+            pending = size;
+            if (size == 0) {
+                request.returnRequest();
+            }
+        }
+
+        void returnReply(long id, Reply reply, Version version, byte[] payload) {
+            Request replyRequest = new Request(BATCH_REPLY_METHOD_NAME);
+            replyRequest.parameters().add(new Int64Value(id));
+            Slime slime = new Slime();
+            encodeReply(slime.setObject(), reply, version, payload);
+            addCompressed(replyRequest.parameters(), slime);
+            replyTarget.invokeVoid(replyRequest);
+            synchronized (this) {
+                if (--pending > 0) return;
+            }
+            request.returnRequest();
+        }
+    }
+
+    private static final class BatchReplyContext extends ReplyContext {
+
+        final BatchReplies replies;
+        final long id;
+
+        BatchReplyContext(Request request, Version version, BatchReplies replies, long id) {
+            super(request, version);
+            this.replies = replies;
+            this.id = id;
+        }
     }
 
 }
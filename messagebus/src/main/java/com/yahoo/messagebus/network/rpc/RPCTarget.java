@@ -8,6 +8,7 @@ import com.yahoo.log.LogLevel;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 import java.util.logging.Logger;
 
 /**
@@ -26,6 +27,7 @@ public class RPCTarget implements RequestWaiter {
     private boolean targetInvoked = false;
     private Version version = null;
     private List<VersionHandler> versionHandlers = new LinkedList<>();
+    private RPCTargetBatcher batcher = null;
 
     /**
      * <p>Constructs a new instance of this class.</p>
@@ -47,6 +49,20 @@ public class RPCTarget implements RequestWaiter {
         return target;
     }
 
+    /**
+     * <p>Returns the batcher which coalesces the messages sent to this target,
+     * creating it using the given factory on first use.</p>
+     *
+     * @param factory Creates the batcher of this target.
+     * @return The batcher of this target.
+     */
+    synchronized RPCTargetBatcher getBatcher(Function<RPCTarget, RPCTargetBatcher> factory) {
+        if (batcher == null) {
+            batcher = factory.apply(this);
+        }
+        return batcher;
+    }
+
     /**
      * <p>This method is used for explicit reference counting targets to allow
      * reusing open connections. An instance of this class is constructed with a
@@ -67,6 +83,11 @@ public class RPCTarget implements RequestWaiter {
      */
     public void subRef() {
         if (ref.decrementAndGet() == 0) {
+            synchronized (this) {
+                if (batcher != null) {
+                    batcher.close();
+                }
+            }
             target.close();
         }
     }
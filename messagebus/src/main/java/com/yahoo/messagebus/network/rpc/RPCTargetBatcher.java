@@ -0,0 +1,107 @@
+// Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.messagebus.network.rpc;
+
+import com.yahoo.jrt.Task;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Coalesces the messages sent to a single {@link RPCTarget} into batches. A batch is sent when it holds the
+ * maximum number of messages or payload bytes given by {@link RPCNetworkParams}, or when the batch window has
+ * passed since its first message was added, whichever comes first.
+ *
+ * @author agent
+ */
+class RPCTargetBatcher implements Runnable {
+
+    private final RPCTarget target;
+    private final RPCSendV2 sender;
+    private final int maxMessages;
+    private final int maxBytes;
+    private final double windowSecs;
+    private final Task flushTask;
+
+    private List<RPCSendV2.BatchedMessage> pending = new ArrayList<>();
+    private int pendingBytes = 0;
+    private boolean enabled = true;
+
+    RPCTargetBatcher(RPCTarget target, RPCSendV2 sender) {
+        RPCNetwork net = sender.getNetwork();
+        this.target = target;
+        this.sender = sender;
+        this.maxMessages = net.getMaxBatchMessages();
+        this.maxBytes = net.getMaxBatchBytes();
+        this.windowSecs = net.getBatchWindowSecs();
+        this.flushTask = net.getSupervisor().transport().createTask(this);
+    }
+
+    /**
+     * Adds a message to the current batch, and sends the batch if it is full.
+     *
+     * @return Whether the message was added, which is false if the target does not support batches.
+     */
+    boolean add(RPCSendV2.BatchedMessage message) {
+        List<RPCSendV2.BatchedMessage> full = null;
+        synchronized (this) {
+            if ( ! enabled) return false;
+            pending.add(message);
+            pendingBytes += message.payload.length;
+            if (pending.size() >= maxMessages || pendingBytes >= maxBytes) {
+                full = takePending();
+            } else if (pending.size() == 1) {
+                flushTask.schedule(windowSecs);
+            }
+        }
+        if (full != null) {
+            sender.sendBatch(target, full);
+        }
+        return true;
+    }
+
+    /**
+     * Stops batching messages to this target, which is used when it does not support batches.
+     *
+     * @return The messages added but not yet sent, which must be sent by themselves by the caller.
+     */
+    synchronized List<RPCSendV2.BatchedMessage> disable() {
+        enabled = false;
+        return takePending();
+    }
+
+    /** Sends any pending messages and stops the flush task. Called when the target is closed. */
+    void close() {
+        flushTask.kill();
+        List<RPCSendV2.BatchedMessage> remaining;
+        synchronized (this) {
+            remaining = takePending();
+        }
+        send(remaining);
+    }
+
+    /** Sends the messages added since the batch window was started. Called by the transport thread. */
+    @Override
+    public void run() {
+        List<RPCSendV2.BatchedMessage> batch;
+        synchronized (this) {
+            batch = takePending();
+        }
+        if ( ! batch.isEmpty()) {
+            sender.getNetwork().getExecutor().execute(() -> send(batch));
+        }
+    }
+
+    private void send(List<RPCSendV2.BatchedMessage> batch) {
+        if ( ! batch.isEmpty()) {
+            sender.sendBatch(target, batch);
+        }
+    }
+
+    private List<RPCSendV2.BatchedMessage> takePending() {
+        List<RPCSendV2.BatchedMessage> taken = pending;
+        pending = new ArrayList<>();
+        pendingBytes = 0;
+        return taken;
+    }
+
+}
@@ -3,9 +3,15 @@ package com.yahoo.messagebus;
 
 import org.junit.Test;
 
+import com.yahoo.messagebus.test.SimpleMessage;
+
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -95,6 +101,47 @@ public class MessengerTestCase {
         assertTrue(tryMessenger(msn));
     }
 
+    @Test
+    public void requireThatMessagesWithSameSequenceIdAreDeliveredInOrderByAllThreads() throws InterruptedException {
+        Messenger msn = new Messenger(4);
+        msn.start();
+        List<String> delivered = new ArrayList<>();
+        MessageHandler handler = msg -> delivered.add(((SimpleMessage)msg).getValue());
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 1000; ++i) {
+            SimpleMessage msg = new SequencedMessage(String.valueOf(i), 17);
+            msn.deliverMessage(msg, handler);
+            expected.add(msg.getValue());
+        }
+        msn.sync();
+        assertEquals(expected, delivered);
+        assertTrue(msn.destroy());
+    }
+
+    @Test
+    public void requireThatSyncWaitsForAllThreads() throws InterruptedException {
+        Messenger msn = new Messenger(4);
+        msn.start();
+        AtomicInteger replies = new AtomicInteger();
+        for (int i = 0; i < 1000; ++i) {
+            msn.deliverReply(new EmptyReply(), reply -> replies.incrementAndGet());
+        }
+        msn.sync();
+        assertEquals(1000, replies.get());
+        assertTrue(msn.destroy());
+    }
+
+    @Test
+    public void requireThatTasksEnqueuedAfterDestroyAreDestroyed() throws InterruptedException {
+        Messenger msn = new Messenger(2);
+        msn.start();
+        assertTrue(msn.destroy());
+        MyTask task = new MyTask();
+        msn.enqueue(task);
+        assertEquals(1, task.runLatch.getCount());
+        assertEquals(0, task.destroyLatch.getCount());
+    }
+
     private static boolean tryMessenger(Messenger msn) {
         MyTask task = new MyTask();
         msn.enqueue(task);
@@ -121,4 +168,24 @@ public class MessengerTestCase {
             destroyLatch.countDown();
         }
     }
+
+    private static class SequencedMessage extends SimpleMessage {
+
+        final long seqId;
+
+        SequencedMessage(String value, long seqId) {
+            super(value);
+            this.seqId = seqId;
+        }
+
+        @Override
+        public boolean hasSequenceId() {
+            return true;
+        }
+
+        @Override
+        public long getSequenceId() {
+            return seqId;
+        }
+    }
 }
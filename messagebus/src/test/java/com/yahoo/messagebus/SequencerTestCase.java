@@ -5,6 +5,11 @@ import com.yahoo.messagebus.test.SimpleMessage;
 
 import java.util.LinkedList;
 import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * @author <a href="mailto:simon@yahoo-inc.com">Simon Thoresen</a>
@@ -97,6 +102,49 @@ public class SequencerTestCase extends junit.framework.TestCase {
         assertEquals(0, dst.size());
     }
 
+    public void testConcurrentSenders() throws InterruptedException {
+        int numThreads = 8, numMessages = 1000;
+        Set<Long> inFlight = ConcurrentHashMap.newKeySet();
+        AtomicBoolean overlapped = new AtomicBoolean(false);
+        Queue<Message> sent = new ConcurrentLinkedQueue<>();
+        AtomicInteger replied = new AtomicInteger();
+        Sequencer seq = new Sequencer(msg -> {
+            if ( ! inFlight.add(msg.getSequenceId())) {
+                overlapped.set(true);
+            }
+            sent.add(msg);
+        });
+        ReplyHandler counter = reply -> replied.incrementAndGet();
+
+        Thread[] senders = new Thread[numThreads];
+        for (int i = 0; i < numThreads; ++i) {
+            senders[i] = new Thread(() -> {
+                for (int j = 0; j < numMessages; ++j) {
+                    Message msg = new MyMessage(true, j % 7);
+                    msg.pushHandler(counter);
+                    seq.handleMessage(msg);
+                }
+            });
+            senders[i].start();
+        }
+        while (replied.get() < numThreads * numMessages) {
+            Message msg = sent.poll();
+            if (msg == null) {
+                Thread.yield();
+                continue;
+            }
+            inFlight.remove(msg.getSequenceId());
+            Reply reply = new EmptyReply();
+            reply.swapState(msg);
+            reply.popHandler().handleReply(reply);
+        }
+        for (Thread sender : senders) {
+            sender.join();
+        }
+        assertFalse(overlapped.get());
+        assertTrue(sent.isEmpty());
+    }
+
     @SuppressWarnings("serial")
     private static class TestQueue extends LinkedList<Routable> implements ReplyHandler {
 
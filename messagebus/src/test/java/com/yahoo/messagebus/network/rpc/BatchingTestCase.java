@@ -0,0 +1,167 @@
+// Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.messagebus.network.rpc;
+
+import com.yahoo.component.Version;
+import com.yahoo.jrt.ListenFailedException;
+import com.yahoo.jrt.slobrok.server.Slobrok;
+import com.yahoo.messagebus.DestinationSession;
+import com.yahoo.messagebus.DestinationSessionParams;
+import com.yahoo.messagebus.ErrorCode;
+import com.yahoo.messagebus.Message;
+import com.yahoo.messagebus.MessageBusParams;
+import com.yahoo.messagebus.Reply;
+import com.yahoo.messagebus.SourceSession;
+import com.yahoo.messagebus.SourceSessionParams;
+import com.yahoo.messagebus.network.Identity;
+import com.yahoo.messagebus.network.rpc.test.TestServer;
+import com.yahoo.messagebus.routing.Route;
+import com.yahoo.messagebus.test.Receptor;
+import com.yahoo.messagebus.test.SimpleMessage;
+import com.yahoo.messagebus.test.SimpleProtocol;
+import com.yahoo.messagebus.test.SimpleReply;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author agent
+ */
+public class BatchingTestCase {
+
+    private Slobrok slobrok;
+    private TestServer srcServer, dstServer;
+    private SourceSession srcSession;
+    private DestinationSession dstSession;
+
+    @Before
+    public void setUp() throws ListenFailedException, UnknownHostException {
+        slobrok = new Slobrok();
+        dstServer = new TestServer(new MessageBusParams().addProtocol(new SimpleProtocol()),
+                                   new RPCNetworkParams().setIdentity(new Identity("dst"))
+                                                         .setSlobrokConfigId(TestServer.getSlobrokConfig(slobrok)));
+        dstSession = dstServer.mb.createDestinationSession(
+                new DestinationSessionParams().setName("session").setMessageHandler(new Receptor()));
+        srcServer = new TestServer(new MessageBusParams().addProtocol(new SimpleProtocol()),
+                                   new RPCNetworkParams().setSlobrokConfigId(TestServer.getSlobrokConfig(slobrok))
+                                                         .setMaxBatchMessages(4)
+                                                         .setBatchWindowSecs(0.1));
+        srcSession = srcServer.mb.createSourceSession(
+                new SourceSessionParams().setTimeout(600.0).setReplyHandler(new Receptor()));
+        assertTrue(srcServer.waitSlobrok("dst/session", 1));
+        srcServer.net.setVersion(new Version(6, 149));
+        dstServer.net.setVersion(new Version(6, 149));
+    }
+
+    @After
+    public void tearDown() {
+        srcSession.destroy();
+        srcServer.destroy();
+        dstSession.destroy();
+        dstServer.destroy();
+        slobrok.stop();
+    }
+
+    @Test
+    public void requireThatBatchedMessagesAreRepliedToIndividually() {
+        List<Reply> replies = assertRoundTrips(10);
+        assertTrue(replies.stream().anyMatch(reply -> reply.getTrace().toString().contains("in a batch of 4 messages")));
+        Reply reply = assertRoundTrips(1).get(0);
+        assertTrue(reply.getTrace().toString(), reply.getTrace().toString().contains("in a batch of 1 messages"));
+    }
+
+    @Test
+    public void requireThatMessagesAreSentByThemselvesToTargetsWhichDoNotSupportBatches() {
+        ((RPCNetwork)dstServer.net).getSupervisor().removeMethod("mbus.slime.batch");
+        assertRoundTrips(10);
+        Reply reply = assertRoundTrips(1).get(0);
+        assertFalse(reply.getTrace().toString(), reply.getTrace().toString().contains("in a batch of"));
+    }
+
+    @Test
+    public void requireThatEachReplyIsReturnedWhenItIsReady() {
+        for (int i = 0; i < 4; i++)
+            assertTrue(srcSession.send(new SimpleMessage("message " + i), Route.parse("dst/session")).isAccepted());
+        List<Message> received = new ArrayList<>();
+        for (int i = 0; i < 4; i++)
+            received.add(((Receptor)dstSession.getMessageHandler()).getMessage(60));
+
+        replyTo(received.get(0));
+        Reply first = ((Receptor)srcSession.getReplyHandler()).getReply(60);
+        assertNotNull("The first reply is returned while the other messages of the batch are pending", first);
+        assertEquals("reply to " + ((SimpleMessage)received.get(0)).getValue(), ((SimpleReply)first).getValue());
+
+        for (Message msg : received.subList(1, 4))
+            replyTo(msg);
+        for (int i = 1; i < 4; i++)
+            assertFalse(((Receptor)srcSession.getReplyHandler()).getReply(60).hasErrors());
+    }
+
+    @Test
+    public void requireThatEachBatchedMessageTimesOutByItself() {
+        for (int i = 0; i < 4; i++) {
+            Message msg = new SimpleMessage("message " + i);
+            if (i == 0)
+                msg.setTimeRemaining(500);
+            assertTrue(srcSession.send(msg, Route.parse("dst/session")).isAccepted());
+        }
+        Reply timedOut = ((Receptor)srcSession.getReplyHandler()).getReply(60);
+        assertNotNull(timedOut);
+        assertEquals(ErrorCode.TIMEOUT, timedOut.getError(0).getCode());
+        assertEquals("message 0", ((SimpleMessage)timedOut.getMessage()).getValue());
+
+        for (int i = 0; i < 4; i++) {
+            Message msg = ((Receptor)dstSession.getMessageHandler()).getMessage(60);
+            if ( ! ((SimpleMessage)msg).getValue().equals("message 0"))
+                replyTo(msg);
+        }
+        for (int i = 1; i < 4; i++) {
+            Reply reply = ((Receptor)srcSession.getReplyHandler()).getReply(60);
+            assertNotNull(reply);
+            assertFalse(reply.getTrace().toString(), reply.hasErrors());
+        }
+    }
+
+    private void replyTo(Message msg) {
+        Reply reply = new SimpleReply("reply to " + ((SimpleMessage)msg).getValue());
+        reply.swapState(msg);
+        dstSession.reply(reply);
+    }
+
+    private List<Reply> assertRoundTrips(int count) {
+        Set<String> sent = new HashSet<>();
+        for (int i = 0; i < count; i++) {
+            Message msg = new SimpleMessage("message " + i);
+            msg.getTrace().setLevel(9);
+            assertTrue(srcSession.send(msg, Route.parse("dst/session")).isAccepted());
+            sent.add("message " + i);
+        }
+        for (int i = 0; i < count; i++) {
+            Message msg = ((Receptor)dstSession.getMessageHandler()).getMessage(60);
+            assertNotNull(msg);
+            replyTo(msg);
+        }
+        Set<String> replied = new HashSet<>();
+        List<Reply> replies = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Reply reply = ((Receptor)srcSession.getReplyHandler()).getReply(60);
+            assertNotNull(reply);
+            assertFalse(reply.getTrace().toString(), reply.hasErrors());
+            replied.add(((SimpleReply)reply).getValue().substring("reply to ".length()));
+            replies.add(reply);
+        }
+        assertEquals(sent, replied);
+        return replies;
+    }
+
+}
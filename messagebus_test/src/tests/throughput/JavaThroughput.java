@@ -0,0 +1,91 @@
+// Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+import com.yahoo.messagebus.*;
+import com.yahoo.messagebus.network.local.LocalNetwork;
+import com.yahoo.messagebus.network.local.LocalWire;
+import com.yahoo.messagebus.routing.Route;
+import com.yahoo.messagebus.test.SimpleMessage;
+import com.yahoo.messagebus.test.SimpleProtocol;
+import com.yahoo.messagebus.test.SimpleReply;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sends messages from a number of threads, each with its own source session, to a destination session in the same
+ * process which replies immediately, and prints the number of replies received per second.
+ */
+public class JavaThroughput {
+
+    private static final int[] senderCounts = { 1, 2, 4, 8 };
+    private static final long warmupMillis = 2000;
+    private static final long runMillis = 5000;
+
+    public static void main(String[] args) throws InterruptedException {
+        for (int senders : senderCounts) {
+            run(senders, 1);
+            if (senders > 1)
+                run(senders, senders);
+        }
+        System.exit(0); // the local network leaves its executor running
+    }
+
+    private static void run(int senders, int messengerThreads) throws InterruptedException {
+        LocalWire wire = new LocalWire();
+        MessageBus server = newMessageBus(wire, messengerThreads);
+        MessageBus client = newMessageBus(wire, messengerThreads);
+        DestinationSession[] destination = new DestinationSession[1];
+        destination[0] = server.createDestinationSession(new DestinationSessionParams().setMessageHandler(msg -> {
+            Reply reply = new SimpleReply("OK");
+            msg.swapState(reply);
+            destination[0].reply(reply);
+        }));
+        Route route = Route.parse(destination[0].getConnectionSpec());
+
+        AtomicLong replies = new AtomicLong();
+        AtomicBoolean stop = new AtomicBoolean(false);
+        Thread[] threads = new Thread[senders];
+        SourceSession[] sessions = new SourceSession[senders];
+        for (int i = 0; i < senders; ++i) {
+            SourceSession session = client.createSourceSession(
+                    new SourceSessionParams().setTimeout(30)
+                                             .setThrottlePolicy(new StaticThrottlePolicy().setMaxPendingCount(256))
+                                             .setReplyHandler(reply -> replies.incrementAndGet()));
+            sessions[i] = session;
+            threads[i] = new Thread(() -> {
+                try {
+                    while ( ! stop.get())
+                        session.sendBlocking(new SimpleMessage("message").setRoute(route));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            threads[i].start();
+        }
+
+        Thread.sleep(warmupMillis);
+        long before = replies.get();
+        long start = System.nanoTime();
+        Thread.sleep(runMillis);
+        long count = replies.get() - before;
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        stop.set(true);
+        for (Thread thread : threads)
+            thread.join();
+        for (SourceSession session : sessions)
+            session.destroy();
+        destination[0].destroy();
+        client.destroy();
+        server.destroy();
+        System.out.format("senders: %d, messenger threads: %d, replies per second: %.0f%n",
+                          senders, messengerThreads, count / seconds);
+    }
+
+    private static MessageBus newMessageBus(LocalWire wire, int messengerThreads) {
+        return new MessageBus(new LocalNetwork(wire),
+                              new MessageBusParams().addProtocol(new SimpleProtocol())
+                                                    .setRetryPolicy(null)
+                                                    .setMessengerThreads(messengerThreads));
+    }
+
+}
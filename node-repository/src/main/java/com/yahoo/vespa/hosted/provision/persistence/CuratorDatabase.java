@@ -73,13 +73,28 @@ public class CuratorDatabase {
      * Important: It is the nested transaction which must be committed - never the curator transaction directly.
      */
     public CuratorTransaction newCuratorTransactionIn(NestedTransaction transaction) {
+        return newCuratorTransactionIn(transaction, newCountingTransaction());
+    }
+
+    /**
+     * Creates a new curator transaction against this database and adds it to the given nested transaction,
+     * preceded by the given counting transaction, which must be created by this.
+     * Important: It is the nested transaction which must be committed - never the curator transaction directly.
+     */
+    CuratorTransaction newCuratorTransactionIn(NestedTransaction transaction,
+                                               EagerCountingCuratorTransaction countingTransaction) {
         // Add a counting transaction first, to make sure we always invalidate the current state on any transaction commit
-        transaction.add(new EagerCountingCuratorTransaction(changeGenerationCounter), CuratorTransaction.class);
+        transaction.add(countingTransaction, CuratorTransaction.class);
         CuratorTransaction curatorTransaction = new CuratorTransaction(curator);
         transaction.add(curatorTransaction);
         return curatorTransaction;
     }
 
+    /** Returns a new transaction incrementing the change generation of this database */
+    EagerCountingCuratorTransaction newCountingTransaction() {
+        return new EagerCountingCuratorTransaction(changeGenerationCounter);
+    }
+
     /** Creates a path in curator and all its parents as necessary. If the path already exists this does nothing. */
     // As this operation does not depend on the prior state we do not need to increment the write counter
     public void create(Path path) {
@@ -89,6 +104,12 @@ public class CuratorDatabase {
     // --------- Read operations -------------------------------------------------------------------------------
     // These can read from the memory file system, which accurately mirrors the ZooKeeper content IF
 
+    /** Returns whether reads are served from an in-memory cache which is valid for a change generation */
+    public boolean isCaching() { return useCache; }
+
+    /** Returns the current change generation of this database, which is increased by every transaction */
+    public long generation() { return changeGenerationCounter.get(); }
+
     /** Returns the immediate, local names of the children under this node in any order */
     public List<String> getChildren(Path path) { return getCache().getChildren(path); }
 
@@ -29,6 +29,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
@@ -55,6 +57,20 @@ public class CuratorDatabaseClient {
 
     private final CuratorDatabase curatorDatabase;
 
+    /**
+     * The deserialized nodes at some change generation, which is used when the curator database is caching.
+     * Our own writes are applied to this per changed node when they commit, while changes by others are detected
+     * by the change generation and cause the nodes to be read again, reusing each node whose data is unchanged.
+     */
+    private final AtomicReference<NodeSnapshot> nodeSnapshot = new AtomicReference<>(NodeSnapshot.empty());
+
+    /**
+     * The node changes of each nested transaction this has written to which is not yet committed.
+     * These are kept here rather than looked up in the nested transaction, as listing its transactions combines them.
+     * Transactions which are never committed are removed when they are garbage collected.
+     */
+    private final Map<NestedTransaction, NodeChanges> nodeChanges = Collections.synchronizedMap(new WeakHashMap<>());
+
     private final Clock clock;
     
     private final Zone zone;
@@ -80,13 +96,16 @@ public class CuratorDatabaseClient {
      */
     public List<Node> addNodesInState(List<Node> nodes, Node.State expectedState) {
         NestedTransaction transaction = new NestedTransaction();
-        CuratorTransaction curatorTransaction = curatorDatabase.newCuratorTransactionIn(transaction);
+        CuratorTransaction curatorTransaction = newCuratorTransactionIn(transaction);
+        NodeChanges nodeChanges = nodeChangesIn(transaction);
         for (Node node : nodes) {
             if (node.state() != expectedState)
                 throw new IllegalArgumentException(node + " is not in the " + node.state() + " state");
 
             node = node.with(node.history().recordStateTransition(null, expectedState, Agent.system, clock.instant()));
-            curatorTransaction.add(CuratorOperations.create(toPath(node).getAbsolute(), nodeSerializer.toJson(node)));
+            byte[] data = nodeSerializer.toJson(node);
+            curatorTransaction.add(CuratorOperations.create(toPath(node).getAbsolute(), data));
+            nodeChanges.put(node.state(), node.hostname(), data);
         }
         transaction.commit();
 
@@ -112,11 +131,12 @@ public class CuratorDatabaseClient {
      */
     public void removeNodes(List<Node> nodes) {
         NestedTransaction transaction = new NestedTransaction();
-
+        NodeChanges nodeChanges = nodeChangesIn(transaction);
         for (Node node : nodes) {
             Path path = toPath(node.state(), node.hostname());
-            CuratorTransaction curatorTransaction = curatorDatabase.newCuratorTransactionIn(transaction);
+            CuratorTransaction curatorTransaction = newCuratorTransactionIn(transaction);
             curatorTransaction.add(CuratorOperations.delete(path.getAbsolute()));
+            nodeChanges.remove(node.state(), node.hostname());
         }
 
         transaction.commit();
@@ -185,7 +205,8 @@ public class CuratorDatabaseClient {
 
         List<Node> writtenNodes = new ArrayList<>(nodes.size());
 
-        CuratorTransaction curatorTransaction = curatorDatabase.newCuratorTransactionIn(transaction);
+        CuratorTransaction curatorTransaction = newCuratorTransactionIn(transaction);
+        NodeChanges nodeChanges = nodeChangesIn(transaction);
         for (Node node : nodes) {
             Node newNode = new Node(node.openStackId(), node.ipAddresses(), node.additionalIpAddresses(), node.hostname(),
                                     node.parentHostname(), node.flavor(),
@@ -194,8 +215,10 @@ public class CuratorDatabaseClient {
                                     toState.isAllocated() ? node.allocation() : Optional.empty(),
                                     node.history().recordStateTransition(node.state(), toState, agent, clock.instant()),
                                     node.type());
+            byte[] data = nodeSerializer.toJson(newNode);
             curatorTransaction.add(CuratorOperations.delete(toPath(node).getAbsolute()))
-                              .add(CuratorOperations.create(toPath(toState, newNode.hostname()).getAbsolute(), nodeSerializer.toJson(newNode)));
+                              .add(CuratorOperations.create(toPath(toState, newNode.hostname()).getAbsolute(), data));
+            nodeChanges.remove(node.state(), node.hostname()).put(toState, newNode.hostname(), data);
             writtenNodes.add(newNode);
         }
 
@@ -229,9 +252,12 @@ public class CuratorDatabaseClient {
      * If no states are given this returns all nodes.
      */
     public List<Node> getNodes(Node.State ... states) {
-        List<Node> nodes = new ArrayList<>();
         if (states.length == 0)
             states = Node.State.values();
+        Optional<NodeSnapshot> snapshot = nodeSnapshot();
+        if (snapshot.isPresent()) return snapshot.get().get(states);
+
+        List<Node> nodes = new ArrayList<>();
         for (Node.State state : states) {
             for (String hostname : curatorDatabase.getChildren(toPath(state))) {
                 Optional<Node> node = getNode(hostname, state);
@@ -246,11 +272,37 @@ public class CuratorDatabaseClient {
      * If no states are given this returns all nodes.
      */
     public List<Node> getNodes(ApplicationId applicationId, Node.State ... states) {
+        Optional<NodeSnapshot> snapshot = nodeSnapshot();
+        if (snapshot.isPresent()) return snapshot.get().get(applicationId, states);
+
         List<Node> nodes = getNodes(states);
         nodes.removeIf(node -> ! node.allocation().isPresent() || ! node.allocation().get().owner().equals(applicationId));
         return nodes;
     }
 
+    /** Returns all nodes which have the given parent host, in any state */
+    public List<Node> getChildNodes(String parentHostname) {
+        Optional<NodeSnapshot> snapshot = nodeSnapshot();
+        if (snapshot.isPresent()) return snapshot.get().getChildren(parentHostname);
+
+        List<Node> nodes = getNodes();
+        nodes.removeIf(node -> ! node.parentHostname().isPresent() || ! node.parentHostname().get().equals(parentHostname));
+        return nodes;
+    }
+
+    /**
+     * Returns all nodes of the flavor with the given name which are in one of the given states.
+     * If no states are given this returns all nodes of the flavor.
+     */
+    public List<Node> getNodesWithFlavor(String flavorName, Node.State ... states) {
+        Optional<NodeSnapshot> snapshot = nodeSnapshot();
+        if (snapshot.isPresent()) return snapshot.get().getWithFlavor(flavorName, states);
+
+        List<Node> nodes = getNodes(states);
+        nodes.removeIf(node -> ! node.flavor().name().equals(flavorName));
+        return nodes;
+    }
+
     /** 
      * Returns a particular node, or empty if this noe is not in any of the given states.
      * If no states are given this returns the node if it is present in any state.
@@ -258,7 +310,13 @@ public class CuratorDatabaseClient {
     public Optional<Node> getNode(String hostname, Node.State ... states) {
         if (states.length == 0)
             states = Node.State.values();
+        Optional<NodeSnapshot> snapshot = nodeSnapshot();
         for (Node.State state : states) {
+            if (snapshot.isPresent()) {
+                Optional<Node> node = snapshot.get().get(hostname, state);
+                if (node.isPresent()) return node;
+                continue;
+            }
             Optional<byte[]> nodeData = curatorDatabase.getData(toPath(state, hostname));
             if (nodeData.isPresent())
                 return nodeData.map((data) -> nodeSerializer.fromJson(state, data));
@@ -266,6 +324,94 @@ public class CuratorDatabaseClient {
         return Optional.empty();
     }
 
+    /**
+     * Returns the snapshot of all nodes at the current change generation, reading it if necessary,
+     * or empty if the curator database is not caching
+     */
+    private Optional<NodeSnapshot> nodeSnapshot() {
+        if ( ! curatorDatabase.isCaching()) return Optional.empty();
+
+        long generation = curatorDatabase.generation();
+        NodeSnapshot snapshot = nodeSnapshot.get();
+        if (snapshot.generation() == generation) return Optional.of(snapshot);
+
+        synchronized (nodeSnapshot) { // avoid reading all nodes in many threads at once
+            snapshot = nodeSnapshot.get();
+            if (snapshot.generation() >= generation) return Optional.of(snapshot);
+
+            NodeSnapshot.Builder builder = new NodeSnapshot.Builder(NodeSnapshot.empty());
+            for (Node.State state : Node.State.values()) {
+                for (String hostname : curatorDatabase.getChildren(toPath(state))) {
+                    Optional<byte[]> data = curatorDatabase.getData(toPath(state, hostname));
+                    if ( ! data.isPresent()) continue; // node might disappear between getChildren and getData
+
+                    Node node = snapshot.getIfUnchanged(state, hostname, data.get());
+                    if (node == null)
+                        node = nodeSerializer.fromJson(state, data.get());
+                    builder.put(new NodeSnapshot.StoredNode(node, data.get()));
+                }
+            }
+            NodeSnapshot read = builder.build(generation);
+            while ( ! nodeSnapshot.compareAndSet(snapshot, read)) { // don't replace changes applied while reading
+                snapshot = nodeSnapshot.get();
+                if (snapshot.generation() >= generation) return Optional.of(snapshot);
+            }
+            return Optional.of(read);
+        }
+    }
+
+    /** Creates a curator transaction in the given transaction, whose changes to nodes are recorded by this */
+    private CuratorTransaction newCuratorTransactionIn(NestedTransaction transaction) {
+        EagerCountingCuratorTransaction countingTransaction = curatorDatabase.newCountingTransaction();
+        nodeChangesIn(transaction).countingTransactions.add(countingTransaction);
+        return curatorDatabase.newCuratorTransactionIn(transaction, countingTransaction);
+    }
+
+    /** Returns the node changes of the given transaction, which are applied to the node snapshot when it commits */
+    private NodeChanges nodeChangesIn(NestedTransaction transaction) {
+        NodeChanges changes = nodeChanges.get(transaction);
+        if (changes != null) return changes;
+
+        NodeChanges newChanges = new NodeChanges();
+        nodeChanges.put(transaction, newChanges);
+        transaction.onCommitted(() -> applyCommitted(transaction));
+        return newChanges;
+    }
+
+    /**
+     * Applies the node changes of a committed transaction to the node snapshot, if the snapshot was valid
+     * right before the transaction and no one else has changed the curator database since.
+     * Otherwise the snapshot is left as is, to be read again on the next access.
+     */
+    private void applyCommitted(NestedTransaction transaction) {
+        NodeChanges changes = nodeChanges.remove(transaction);
+        if (changes == null || ! curatorDatabase.isCaching()) return;
+
+        List<Long> generations = changes.countingTransactions.stream()
+                                                             .map(EagerCountingCuratorTransaction::generation)
+                                                             .sorted()
+                                                             .collect(Collectors.toList());
+        if (generations.isEmpty()) return;
+        long first = generations.get(0);
+        long last = generations.get(generations.size() - 1);
+        if (first < 0 || last - first != generations.size() - 1) return; // others wrote in between our increments
+
+        while (true) {
+            NodeSnapshot snapshot = nodeSnapshot.get();
+            if (snapshot.generation() < first - 1 || snapshot.generation() > last) return;
+
+            NodeSnapshot.Builder builder = new NodeSnapshot.Builder(snapshot);
+            for (NodeChange change : changes.changes) {
+                builder.remove(change.state, change.hostname);
+                if (change.data.isPresent()) {
+                    Node node = nodeSerializer.fromJson(change.state, change.data.get());
+                    builder.put(new NodeSnapshot.StoredNode(node, change.data.get()));
+                }
+            }
+            if (nodeSnapshot.compareAndSet(snapshot, builder.build(last))) return;
+        }
+    }
+
     private Path toPath(Node.State nodeState) { return root.append(toDir(nodeState)); }
 
     private Path toPath(Node node) {
@@ -353,7 +499,7 @@ public class CuratorDatabaseClient {
 
     public void writeInactiveJobs(Set<String> inactiveJobs) {
         NestedTransaction transaction = new NestedTransaction();
-        CuratorTransaction curatorTransaction = curatorDatabase.newCuratorTransactionIn(transaction);
+        CuratorTransaction curatorTransaction = newCuratorTransactionIn(transaction);
         curatorTransaction.add(CuratorOperations.setData(inactiveJobsPath().getAbsolute(),
                                                          stringSetSerializer.toJson(inactiveJobs)));
         transaction.commit();
@@ -366,5 +512,47 @@ public class CuratorDatabaseClient {
     private Path inactiveJobsPath() {
         return root.append("inactiveJobs");
     }
+
+    /**
+     * The changes to nodes made in a nested transaction, in the order they are made, together with the
+     * counting transactions added to it, whose generations tell whether others wrote in between when it commits.
+     * These are only recorded to be applied to the node snapshot afterwards.
+     */
+    private static class NodeChanges {
+
+        private final List<NodeChange> changes = new ArrayList<>();
+        private final List<EagerCountingCuratorTransaction> countingTransactions = new ArrayList<>();
+
+        NodeChanges put(Node.State state, String hostname, byte[] data) {
+            changes.add(new NodeChange(state, hostname, Optional.of(data)));
+            return this;
+        }
+
+        NodeChanges remove(Node.State state, String hostname) {
+            changes.add(new NodeChange(state, hostname, Optional.empty()));
+            return this;
+        }
+
+    }
+
+    /** Setting the data of the node at a state and hostname, or removing it if the data is empty */
+    private static class NodeChange {
+
+        private final Node.State state;
+        private final String hostname;
+        private final Optional<byte[]> data;
+
+        NodeChange(Node.State state, String hostname, Optional<byte[]> data) {
+            this.state = state;
+            this.hostname = hostname;
+            this.data = data;
+        }
+
+        @Override
+        public String toString() {
+            return (data.isPresent() ? "PUT " : "REMOVE ") + state + " " + hostname;
+        }
+
+    }
     
 }
@@ -11,11 +11,23 @@ import com.yahoo.vespa.curator.recipes.CuratorCounter;
  */
 class EagerCountingCuratorTransaction extends AbstractTransaction {
 
+    /** The increment operation of this, which is kept also when it is combined into another transaction */
+    private final CountingCuratorOperation operation;
+
     /** Creates a counting curator transaction containing a single increment operation */
     public EagerCountingCuratorTransaction(CuratorCounter counter) {
-        add(new CountingCuratorOperation(counter));
+        operation = new CountingCuratorOperation(counter);
+        add(operation);
     }
     
+    /**
+     * Returns the counter value resulting from the increment done by this, or -1 if it is not prepared.
+     * This is also set when this was prepared as part of another transaction it was combined into.
+     */
+    public long generation() {
+        return operation.generation();
+    }
+
     @Override
     public void prepare() {
         for (Operation operation : operations())
@@ -31,14 +43,17 @@ class EagerCountingCuratorTransaction extends AbstractTransaction {
     static class CountingCuratorOperation implements Transaction.Operation {
         
         private final CuratorCounter counter;
+        private volatile long generation = -1;
         
         public CountingCuratorOperation(CuratorCounter counter) {
             this.counter = counter;
         }
         
         public void next() {
-            counter.next();
+            generation = counter.next();
         }
+
+        public long generation() { return generation; }
         
     }
 
@@ -0,0 +1,230 @@
+// Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespa.hosted.provision.persistence;
+
+import com.yahoo.config.provision.ApplicationId;
+import com.yahoo.vespa.hosted.provision.Node;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * An immutable snapshot of all the deserialized nodes of the curator database at a given change generation,
+ * indexed by state, application, parent host and flavor.
+ *
+ * New snapshots are made from a previous one by a {@link Builder}, which copies only the parts of the
+ * previous snapshot touched by the changed nodes.
+ *
+ * @author agent
+ */
+class NodeSnapshot {
+
+    private static final NodeSnapshot empty = new NodeSnapshot(-1, new EnumMap<>(Node.State.class),
+                                                               Collections.emptyMap(), Collections.emptyMap(),
+                                                               Collections.emptyMap());
+
+    private final long generation;
+
+    /** The stored nodes by hostname, in each state */
+    private final Map<Node.State, Map<String, StoredNode>> nodes;
+
+    private final Map<ApplicationId, List<Node>> byApplication;
+    private final Map<String, List<Node>> byParentHostname;
+    private final Map<String, List<Node>> byFlavor;
+
+    private NodeSnapshot(long generation, Map<Node.State, Map<String, StoredNode>> nodes,
+                         Map<ApplicationId, List<Node>> byApplication, Map<String, List<Node>> byParentHostname,
+                         Map<String, List<Node>> byFlavor) {
+        this.generation = generation;
+        this.nodes = nodes;
+        this.byApplication = byApplication;
+        this.byParentHostname = byParentHostname;
+        this.byFlavor = byFlavor;
+    }
+
+    /** Returns an empty snapshot which is not valid for any generation */
+    static NodeSnapshot empty() { return empty; }
+
+    /** Returns the change generation of the curator database this is a snapshot of */
+    long generation() { return generation; }
+
+    /** Returns the node with the given hostname in the given state, if any */
+    Optional<Node> get(String hostname, Node.State state) {
+        StoredNode node = nodesIn(state).get(hostname);
+        return node == null ? Optional.empty() : Optional.of(node.node());
+    }
+
+    /** Returns all nodes in the given states */
+    List<Node> get(Node.State ... states) {
+        List<Node> result = new ArrayList<>();
+        for (Node.State state : states)
+            for (StoredNode node : nodesIn(state).values())
+                result.add(node.node());
+        return result;
+    }
+
+    /** Returns the nodes allocated to the given application in any of the given states */
+    List<Node> get(ApplicationId application, Node.State ... states) {
+        return inStates(byApplication.get(application), states);
+    }
+
+    /** Returns the nodes having the given parent host in any of the given states */
+    List<Node> getChildren(String parentHostname, Node.State ... states) {
+        return inStates(byParentHostname.get(parentHostname), states);
+    }
+
+    /** Returns the nodes of the flavor with the given name in any of the given states */
+    List<Node> getWithFlavor(String flavorName, Node.State ... states) {
+        return inStates(byFlavor.get(flavorName), states);
+    }
+
+    /**
+     * Returns the node in this with the given data at the given state and hostname,
+     * or null if this does not contain a node with this data there
+     */
+    Node getIfUnchanged(Node.State state, String hostname, byte[] data) {
+        StoredNode node = nodesIn(state).get(hostname);
+        if (node == null || ! Arrays.equals(node.data(), data)) return null;
+        return node.node();
+    }
+
+    private Map<String, StoredNode> nodesIn(Node.State state) {
+        return nodes.getOrDefault(state, Collections.emptyMap());
+    }
+
+    private static List<Node> inStates(List<Node> nodes, Node.State ... states) {
+        if (nodes == null) return new ArrayList<>();
+        List<Node> result = new ArrayList<>(nodes.size());
+        for (Node node : nodes)
+            if (states.length == 0 || Arrays.asList(states).contains(node.state()))
+                result.add(node);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "node snapshot at generation " + generation;
+    }
+
+    /** A node and the data it was deserialized from */
+    static class StoredNode {
+
+        private final Node node;
+        private final byte[] data;
+
+        StoredNode(Node node, byte[] data) {
+            this.node = node;
+            this.data = data;
+        }
+
+        Node node() { return node; }
+
+        byte[] data() { return data; }
+
+    }
+
+    /**
+     * Builds a snapshot from a previous one by adding and removing nodes. This copies the parts of the previous
+     * snapshot which are changed on first change, so building a snapshot with a few changed nodes is cheap.
+     * Builders are not thread safe.
+     */
+    static class Builder {
+
+        private final Map<Node.State, Map<String, StoredNode>> nodes;
+        private final Set<Node.State> copiedStates = new HashSet<>();
+        private final Index<ApplicationId> byApplication;
+        private final Index<String> byParentHostname;
+        private final Index<String> byFlavor;
+
+        /** Creates a builder of a snapshot containing the nodes of the given snapshot */
+        Builder(NodeSnapshot previous) {
+            nodes = new EnumMap<>(previous.nodes);
+            byApplication = new Index<>(previous.byApplication);
+            byParentHostname = new Index<>(previous.byParentHostname);
+            byFlavor = new Index<>(previous.byFlavor);
+        }
+
+        /** Sets the node at its state and hostname, replacing any node already there */
+        Builder put(StoredNode node) {
+            remove(node.node().state(), node.node().hostname());
+            nodesToChangeIn(node.node().state()).put(node.node().hostname(), node);
+            addToIndexes(node.node());
+            return this;
+        }
+
+        /** Removes the node at the given state and hostname, if any */
+        Builder remove(Node.State state, String hostname) {
+            if ( ! nodes.containsKey(state) || ! nodes.get(state).containsKey(hostname)) return this;
+            removeFromIndexes(nodesToChangeIn(state).remove(hostname).node());
+            return this;
+        }
+
+        NodeSnapshot build(long generation) {
+            return new NodeSnapshot(generation, nodes, byApplication.build(), byParentHostname.build(), byFlavor.build());
+        }
+
+        private Map<String, StoredNode> nodesToChangeIn(Node.State state) {
+            if (copiedStates.add(state))
+                nodes.put(state, new HashMap<>(nodes.getOrDefault(state, Collections.emptyMap())));
+            return nodes.get(state);
+        }
+
+        private void addToIndexes(Node node) {
+            node.allocation().ifPresent(allocation -> byApplication.add(allocation.owner(), node));
+            node.parentHostname().ifPresent(parentHostname -> byParentHostname.add(parentHostname, node));
+            byFlavor.add(node.flavor().name(), node);
+        }
+
+        private void removeFromIndexes(Node node) {
+            node.allocation().ifPresent(allocation -> byApplication.remove(allocation.owner(), node));
+            node.parentHostname().ifPresent(parentHostname -> byParentHostname.remove(parentHostname, node));
+            byFlavor.remove(node.flavor().name(), node);
+        }
+
+    }
+
+    /** A copy on write index of nodes by some key */
+    private static class Index<KEY> {
+
+        private final Map<KEY, List<Node>> nodes;
+        private final Set<KEY> copiedKeys = new HashSet<>();
+
+        Index(Map<KEY, List<Node>> nodes) {
+            this.nodes = new HashMap<>(nodes);
+        }
+
+        void add(KEY key, Node node) {
+            nodesToChange(key).add(node);
+        }
+
+        void remove(KEY key, Node node) {
+            List<Node> keyNodes = nodesToChange(key);
+            keyNodes.removeIf(n -> n == node);
+            if (keyNodes.isEmpty()) {
+                nodes.remove(key);
+                copiedKeys.remove(key);
+            }
+        }
+
+        private List<Node> nodesToChange(KEY key) {
+            if (copiedKeys.add(key))
+                nodes.put(key, new ArrayList<>(nodes.getOrDefault(key, Collections.emptyList())));
+            return nodes.get(key);
+        }
+
+        Map<KEY, List<Node>> build() {
+            for (KEY key : copiedKeys)
+                nodes.put(key, Collections.unmodifiableList(nodes.get(key)));
+            return Collections.unmodifiableMap(nodes);
+        }
+
+    }
+
+}
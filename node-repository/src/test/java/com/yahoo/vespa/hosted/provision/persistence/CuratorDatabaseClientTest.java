@@ -2,22 +2,36 @@
 package com.yahoo.vespa.hosted.provision.persistence;
 
 import com.yahoo.config.provision.ApplicationId;
+import com.yahoo.component.Version;
 import com.yahoo.config.provision.ApplicationName;
+import com.yahoo.config.provision.ClusterMembership;
+import com.yahoo.config.provision.Environment;
 import com.yahoo.config.provision.InstanceName;
+import com.yahoo.config.provision.NodeFlavors;
 import com.yahoo.config.provision.NodeType;
+import com.yahoo.config.provision.RegionName;
+import com.yahoo.config.provision.SystemName;
 import com.yahoo.config.provision.TenantName;
 import com.yahoo.config.provision.Zone;
+import com.yahoo.transaction.NestedTransaction;
 import com.yahoo.vespa.curator.Curator;
 import com.yahoo.vespa.curator.Lock;
 import com.yahoo.vespa.curator.mock.MockCurator;
 import com.yahoo.vespa.hosted.provision.Node;
+import com.yahoo.vespa.hosted.provision.node.Agent;
 import com.yahoo.vespa.hosted.provision.provisioning.FlavorConfigBuilder;
 import org.junit.Test;
 
 import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 /**
  * @author mpolden
@@ -60,4 +74,69 @@ public class CuratorDatabaseClientTest {
 
     }
 
- }
+    @Test
+    public void cached_nodes_are_kept_in_sync_with_changes_from_all_clients() {
+        NodeFlavors flavors = FlavorConfigBuilder.createDummies("default", "docker");
+        Zone zone = new Zone(SystemName.cd, Environment.prod, RegionName.from("us-east"));
+        CuratorDatabaseClient client1 = new CuratorDatabaseClient(flavors, curator, Clock.systemUTC(), zone);
+        CuratorDatabaseClient client2 = new CuratorDatabaseClient(flavors, curator, Clock.systemUTC(), zone);
+        ApplicationId app = ApplicationId.from(TenantName.from("tenant"), ApplicationName.from("app"), InstanceName.from("default"));
+
+        Node host = Node.create("host1", Collections.singleton("127.0.0.1"), Collections.emptySet(), "host1",
+                                Optional.empty(), flavors.getFlavorOrThrow("default"), NodeType.host);
+        Node child = Node.createDockerNode("child1", Collections.singleton("127.0.0.2"), Collections.emptySet(), "child1",
+                                           Optional.of("host1"), flavors.getFlavorOrThrow("docker"), NodeType.tenant);
+        client1.addNodes(Collections.singletonList(host));
+        client1.addNodesInState(Collections.singletonList(child), Node.State.reserved);
+        assertEquals(2, client1.getNodes().size());
+        assertEquals(1, client2.getChildNodes("host1").size());
+        assertSame("Unchanged nodes are not read again", client1.getNodes(Node.State.provisioned).get(0),
+                   client1.getNodes(Node.State.provisioned).get(0));
+
+        child = client2.getNode("child1").get().allocate(app, ClusterMembership.from("container/test/0/0", Version.fromString("6.1")),
+                                                         Clock.systemUTC().instant());
+        client2.writeTo(Node.State.active, child, Agent.system, Optional.empty());
+        assertEquals(1, client2.getNodes(app, Node.State.active).size());
+        assertEquals(1, client1.getNodes(app).size());
+        assertTrue(client1.getNodes(app, Node.State.reserved).isEmpty());
+        assertEquals(Node.State.active, client1.getChildNodes("host1").get(0).state());
+        assertEquals(1, client1.getNodesWithFlavor("docker", Node.State.active).size());
+        assertTrue(client1.getNodesWithFlavor("docker", Node.State.reserved).isEmpty());
+
+        client1.removeNodes(client1.getNodes(app));
+        assertTrue(client1.getChildNodes("host1").isEmpty());
+        assertTrue(client2.getNodes(app).isEmpty());
+        assertFalse(client2.getNode("child1").isPresent());
+        assertEquals(1, client2.getNodes().size());
+    }
+
+    @Test
+    public void many_nodes_can_be_written_and_removed_in_one_transaction() {
+        NodeFlavors flavors = FlavorConfigBuilder.createDummies("default");
+        Zone zone = new Zone(SystemName.cd, Environment.prod, RegionName.from("us-east"));
+        CuratorDatabaseClient client = new CuratorDatabaseClient(flavors, curator, Clock.systemUTC(), zone);
+
+        List<Node> nodes = new ArrayList<>();
+        for (int i = 0; i < 4; i++)
+            nodes.add(Node.create("host" + i, Collections.singleton("127.0.0." + i), Collections.emptySet(), "host" + i,
+                                  Optional.empty(), flavors.getFlavorOrThrow("default"), NodeType.host));
+        client.addNodes(nodes);
+        assertEquals(4, client.getNodes(Node.State.provisioned).size());
+
+        try (NestedTransaction transaction = new NestedTransaction()) {
+            client.writeTo(Node.State.ready, nodes.subList(0, 1), Agent.system, Optional.empty(), transaction);
+            client.writeTo(Node.State.ready, nodes.subList(1, 2), Agent.system, Optional.empty(), transaction);
+            client.writeTo(Node.State.parked, nodes.subList(2, 4), Agent.system, Optional.empty(), transaction);
+            transaction.commit();
+        }
+        assertEquals(2, client.getNodes(Node.State.ready).size());
+        assertEquals(2, client.getNodes(Node.State.parked).size());
+        assertTrue(client.getNodes(Node.State.provisioned).isEmpty());
+        assertEquals(2, zkClient.getNodes(Node.State.ready).size());
+
+        client.removeNodes(client.getNodes());
+        assertTrue(client.getNodes().isEmpty());
+        assertTrue(zkClient.getNodes().isEmpty());
+    }
+
+}
@@ -2,18 +2,25 @@
 package com.yahoo.search.predicate;
 
 import com.google.common.annotations.Beta;
+import com.gs.collections.api.set.primitive.IntSet;
 import com.yahoo.document.predicate.Predicate;
 import com.yahoo.search.predicate.index.*;
 import com.yahoo.search.predicate.index.conjunction.ConjunctionHit;
 import com.yahoo.search.predicate.index.conjunction.ConjunctionIndex;
+import com.yahoo.search.predicate.serialization.MappedFileReader;
+import com.yahoo.search.predicate.serialization.MappedFileWriter;
 import com.yahoo.search.predicate.serialization.SerializationHelper;
 
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntUnaryOperator;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 /**
@@ -38,6 +45,8 @@ import java.util.stream.Stream;
 @Beta
 public class PredicateIndex {
     private static final int SERIALIZATION_FORMAT_VERSION = 3;
+    private static final int MAPPED_FORMAT_MAGIC = 0x50524d49; // "PRMI"
+    private static final int MAPPED_FORMAT_VERSION = 1;
 
     private final PredicateRangeTermExpander expander;
     private final int[] internalToExternalIdMapping;
@@ -92,7 +101,104 @@ public class PredicateIndex {
      * Create a new searcher.
      */
     public Searcher searcher() {
-        return new Searcher();
+        return new Searcher(false);
+    }
+
+    /**
+     * Create a new searcher.
+     *
+     * @param useBlockEvaluation whether the searcher should evaluate blocks of documents at a time
+     *                           (see {@link BlockPredicateSearch}) instead of advancing each posting list
+     *                           one document at a time. Both give the same hits.
+     */
+    public Searcher searcher(boolean useBlockEvaluation) {
+        return new Searcher(useBlockEvaluation);
+    }
+
+    Config config() {
+        return config;
+    }
+
+    /** Returns the number of documents in this index */
+    public int size() {
+        return internalToExternalIdMapping.length;
+    }
+
+    /**
+     * Returns a new index containing the documents of this, except those with external ids in removedIds,
+     * followed by all documents of the given delta index. The documents of the delta must not be in this index,
+     * unless they are removed.
+     */
+    PredicateIndex merge(PredicateIndex delta, IntSet removedIds) {
+        if (config.arity != delta.config.arity || config.lowerBound != delta.config.lowerBound ||
+                config.upperBound != delta.config.upperBound) {
+            throw new IllegalArgumentException("Cannot merge predicate indexes with different configs");
+        }
+        int size = 0;
+        int[] docIdMapping = new int[internalToExternalIdMapping.length];
+        for (int i = 0; i < docIdMapping.length; i++) {
+            docIdMapping[i] = removedIds.contains(internalToExternalIdMapping[i]) ? -1 : size++;
+        }
+        int deltaOffset = size;
+        size += delta.internalToExternalIdMapping.length;
+
+        int[] mergedIdMapping = new int[size];
+        byte[] mergedMinFeatureIndex = new byte[size];
+        short[] mergedIntervalEnds = new short[size];
+        for (int i = 0; i < docIdMapping.length; i++) {
+            int docId = docIdMapping[i];
+            if (docId != -1) {
+                mergedIdMapping[docId] = internalToExternalIdMapping[i];
+                mergedMinFeatureIndex[docId] = minFeatureIndex[i];
+                mergedIntervalEnds[docId] = intervalEnds[i];
+            }
+        }
+        System.arraycopy(delta.internalToExternalIdMapping, 0, mergedIdMapping, deltaOffset, delta.size());
+        System.arraycopy(delta.minFeatureIndex, 0, mergedMinFeatureIndex, deltaOffset, delta.size());
+        System.arraycopy(delta.intervalEnds, 0, mergedIntervalEnds, deltaOffset, delta.size());
+        int[] mergedZeroConstraintDocuments = IntStream.concat(
+                Arrays.stream(zeroConstraintDocuments).map(docId -> docIdMapping[docId]).filter(docId -> docId != -1),
+                Arrays.stream(delta.zeroConstraintDocuments).map(docId -> docId + deltaOffset))
+                .toArray();
+
+        PredicateIntervalStore.Builder intervalStoreBuilder = new PredicateIntervalStore.Builder();
+        IntUnaryOperator dataRefMapping = intervalRefMapping(intervalStore, intervalStoreBuilder);
+        IntUnaryOperator deltaDocIdMapping = docId -> docId + deltaOffset;
+        IntUnaryOperator deltaDataRefMapping = intervalRefMapping(delta.intervalStore, intervalStoreBuilder);
+        SimpleIndex mergedIntervalIndex = intervalIndex.merge(
+                docId -> docIdMapping[docId], dataRefMapping,
+                delta.intervalIndex, deltaDocIdMapping, deltaDataRefMapping);
+        SimpleIndex mergedBoundsIndex = boundsIndex.merge(
+                docId -> docIdMapping[docId], dataRefMapping,
+                delta.boundsIndex, deltaDocIdMapping, deltaDataRefMapping);
+        SimpleIndex mergedConjunctionIntervalIndex = conjunctionIntervalIndex.merge(
+                docId -> docIdMapping[docId], dataRefMapping,
+                delta.conjunctionIntervalIndex, deltaDocIdMapping, deltaDataRefMapping);
+        return new PredicateIndex(
+                config,
+                mergedIdMapping,
+                mergedMinFeatureIndex,
+                mergedIntervalEnds,
+                Math.max(highestIntervalEnd, delta.highestIntervalEnd),
+                mergedIntervalIndex,
+                mergedBoundsIndex,
+                mergedConjunctionIntervalIndex,
+                intervalStoreBuilder.build(),
+                conjunctionIndex.merge(delta.conjunctionIndex),
+                mergedZeroConstraintDocuments
+        );
+    }
+
+    /** Returns a mapping from references in the given store to references in the builder, inserting on first use */
+    private static IntUnaryOperator intervalRefMapping(PredicateIntervalStore store, PredicateIntervalStore.Builder builder) {
+        int[] mapping = new int[store.size()];
+        Arrays.fill(mapping, -1);
+        return ref -> {
+            if (mapping[ref] == -1) {
+                mapping[ref] = builder.insert(store.get(ref));
+            }
+            return mapping[ref];
+        };
     }
 
     public void writeToOutputStream(DataOutputStream out) throws IOException {
@@ -142,12 +248,80 @@ public class PredicateIndex {
         );
     }
 
+    /**
+     * Writes this index to a file which can be loaded using {@link #fromMappedFile(Path)}.
+     */
+    public void writeToMappedFile(Path file) throws IOException {
+        try (MappedFileWriter writer = new MappedFileWriter(file)) {
+            DataOutputStream out = writer.stream();
+            out.writeInt(MAPPED_FORMAT_MAGIC);
+            out.writeInt(MAPPED_FORMAT_VERSION);
+            config.writeToOutputStream(out);
+            out.writeInt(highestIntervalEnd);
+            writer.writeIntSection(internalToExternalIdMapping);
+            writer.writeByteSection(minFeatureIndex);
+            writer.writeShortSection(intervalEnds);
+            writer.writeIntSection(zeroConstraintDocuments);
+            intervalIndex.writeToMappedFile(writer);
+            boundsIndex.writeToMappedFile(writer);
+            conjunctionIntervalIndex.writeToMappedFile(writer);
+            intervalStore.writeToMappedFile(writer);
+            conjunctionIndex.writeToOutputStream(writer.stream());
+        }
+    }
+
+    /**
+     * Loads an index written by {@link #writeToMappedFile(Path)}. The posting lists and intervals are memory mapped,
+     * while the per document data and the conjunction index are read into the heap.
+     * The file must not be modified while the index is in use.
+     */
+    public static PredicateIndex fromMappedFile(Path file) throws IOException {
+        try (MappedFileReader reader = new MappedFileReader(file)) {
+            Config config = reader.stream(in -> {
+                if (in.readInt() != MAPPED_FORMAT_MAGIC) {
+                    throw new IllegalArgumentException("Not a mapped predicate index file: " + file);
+                }
+                int version = in.readInt();
+                if (version != MAPPED_FORMAT_VERSION) {
+                    throw new IllegalArgumentException(String.format(
+                            "Invalid mapped index format. Expected version %d, was %d.", MAPPED_FORMAT_VERSION, version));
+                }
+                return Config.fromInputStream(in);
+            });
+            int highestIntervalEnd = reader.stream(DataInputStream::readInt);
+            int[] internalToExternalIdMapping = reader.readIntSection();
+            byte[] minFeatureIndex = reader.readByteSection();
+            short[] intervalEnds = reader.readShortSection();
+            int[] zeroConstraintDocuments = reader.readIntSection();
+            SimpleIndex intervalIndex = SimpleIndex.fromMappedFile(reader);
+            SimpleIndex boundsIndex = SimpleIndex.fromMappedFile(reader);
+            SimpleIndex conjunctionIntervalIndex = SimpleIndex.fromMappedFile(reader);
+            PredicateIntervalStore intervalStore = PredicateIntervalStore.fromMappedFile(reader);
+            ConjunctionIndex conjunctionIndex = reader.stream(ConjunctionIndex::fromInputStream);
+            return new PredicateIndex(
+                    config,
+                    internalToExternalIdMapping,
+                    minFeatureIndex,
+                    intervalEnds,
+                    highestIntervalEnd,
+                    intervalIndex,
+                    boundsIndex,
+                    conjunctionIntervalIndex,
+                    intervalStore,
+                    conjunctionIndex,
+                    zeroConstraintDocuments
+            );
+        }
+    }
+
     @Beta
     public class Searcher {
         private final byte[] nPostingListsForDocument;
         private final ConjunctionIndex.Searcher conjunctionIndexSearcher;
+        private final boolean useBlockEvaluation;
 
-        private Searcher() {
+        private Searcher(boolean useBlockEvaluation) {
+            this.useBlockEvaluation = useBlockEvaluation;
             this.nPostingListsForDocument = new byte[internalToExternalIdMapping.length];
             this.conjunctionIndexSearcher = conjunctionIndex.searcher();
         }
@@ -177,8 +351,12 @@ public class PredicateIndex {
             CachedPostingListCounter counter = postingListCounter.get();
             counter.registerUsage(postingLists);
             counter.countPostingListsPerDocument(postingLists, nPostingListsForDocument);
-            return new PredicateSearch(
-                    postingLists, nPostingListsForDocument, minFeatureIndex, intervalEnds, highestIntervalEnd).stream()
+            Stream<Hit> hits = useBlockEvaluation
+                    ? new BlockPredicateSearch(
+                            postingLists, nPostingListsForDocument, minFeatureIndex, intervalEnds, highestIntervalEnd).stream()
+                    : new PredicateSearch(
+                            postingLists, nPostingListsForDocument, minFeatureIndex, intervalEnds, highestIntervalEnd).stream();
+            return hits
                     // Map to external id. Note that internal id for first document is 1.
                     .map(hit -> new Hit(internalToExternalIdMapping[hit.getDocId()], hit.getSubquery()));
         }
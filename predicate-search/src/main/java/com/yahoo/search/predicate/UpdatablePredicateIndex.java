@@ -0,0 +1,320 @@
+// Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.predicate;
+
+import com.google.common.annotations.Beta;
+import com.gs.collections.api.set.primitive.IntSet;
+import com.gs.collections.impl.set.mutable.primitive.IntHashSet;
+import com.yahoo.document.predicate.Predicate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * A {@link PredicateIndex} which can be updated after it is built.
+ * <p>
+ * Added and removed documents are kept in a small delta segment, which is searched together with the base index.
+ * When the delta segment grows beyond its max size, it is merged into a new base index in the background.
+ * If a mapped index file is given, each merged base index is written to it and memory mapped
+ * (see {@link PredicateIndex#fromMappedFile(Path)}), such that its posting lists are kept off the heap.
+ * </p><p>
+ * Updates and searches may run concurrently, but as for {@link PredicateIndex},
+ * each thread <strong>must</strong> use its own {@link Searcher}.
+ * </p>
+ *
+ * @author agent
+ */
+@Beta
+public class UpdatablePredicateIndex {
+
+    private static final Logger log = Logger.getLogger(UpdatablePredicateIndex.class.getName());
+
+    private final Config config;
+    private final int maxDeltaSize;
+    private final Executor mergeExecutor;
+    private final Optional<Path> mappedIndexFile;
+
+    // All below are guarded by this
+    private PredicateIndex base;
+    // The segment being merged into the base, and the base documents it removes. Searched until the merge completes.
+    private PredicateIndex mergingDelta = null;
+    private IntSet mergingRemovedIds = new IntHashSet();
+    // Documents changed since the last merge started. The removed ids hide documents in the base and the merging delta.
+    private Map<Integer, Predicate> delta = new LinkedHashMap<>();
+    private IntHashSet removedIds = new IntHashSet();
+    private CompletableFuture<Void> runningMerge = null;
+    // The snapshot of the current updates, built by the first searcher needing it. Null when updated since.
+    private CompletableFuture<Snapshot> snapshot = null;
+
+    /**
+     * @param base the index to update
+     * @param maxDeltaSize the number of updated documents in the delta segment which triggers a merge
+     * @param mergeExecutor the executor running background merges
+     * @param mappedIndexFile the file to write and map merged indexes to, or empty to keep merged indexes on the heap
+     */
+    public UpdatablePredicateIndex(PredicateIndex base, int maxDeltaSize, Executor mergeExecutor,
+                                   Optional<Path> mappedIndexFile) {
+        if (maxDeltaSize < 1) {
+            throw new IllegalArgumentException("Max delta size must be positive, was " + maxDeltaSize);
+        }
+        this.config = base.config();
+        this.base = base;
+        this.maxDeltaSize = maxDeltaSize;
+        this.mergeExecutor = mergeExecutor;
+        this.mappedIndexFile = mappedIndexFile;
+    }
+
+    /**
+     * Indexes a predicate with the given id, replacing any predicate already indexed for it.
+     */
+    public synchronized void indexDocument(int docId, Predicate predicate) {
+        removedIds.add(docId);
+        delta.put(docId, predicate);
+        snapshot = null;
+        mergeIfDeltaIsFull();
+    }
+
+    /**
+     * Removes the predicate with the given id, if any.
+     */
+    public synchronized void removeDocument(int docId) {
+        removedIds.add(docId);
+        delta.remove(docId);
+        snapshot = null;
+        mergeIfDeltaIsFull();
+    }
+
+    /**
+     * Merges all pending updates into the base index, and waits for the merge to complete.
+     */
+    public void merge() {
+        CompletableFuture<Void> running;
+        synchronized (this) {
+            running = runningMerge;
+        }
+        if (running != null) {
+            running.join();
+        }
+        CompletableFuture<Void> merge;
+        synchronized (this) {
+            if (runningMerge == null && ( ! delta.isEmpty() || ! removedIds.isEmpty())) {
+                startMerge();
+            }
+            merge = runningMerge;
+        }
+        if (merge != null) {
+            merge.join();
+        }
+    }
+
+    /** Returns the current base index, which does not include pending updates */
+    public synchronized PredicateIndex getBaseIndex() {
+        return base;
+    }
+
+    public void rebuildPostingListCache() {
+        getBaseIndex().rebuildPostingListCache();
+    }
+
+    /**
+     * Create a new searcher.
+     */
+    public Searcher searcher() {
+        return new Searcher();
+    }
+
+    private void mergeIfDeltaIsFull() {
+        // Every indexed or removed document id is in removedIds
+        if (runningMerge == null && removedIds.size() >= maxDeltaSize) {
+            startMerge();
+        }
+    }
+
+    private void startMerge() {
+        PredicateIndex mergeBase = base;
+        PredicateIndex mergeDelta = buildIndex(delta);
+        IntSet mergeRemovedIds = removedIds;
+        Map<Integer, Predicate> mergeDeltaDocuments = delta;
+        mergingDelta = mergeDelta;
+        mergingRemovedIds = mergeRemovedIds;
+        delta = new LinkedHashMap<>();
+        removedIds = new IntHashSet();
+        snapshot = null;
+        CompletableFuture<Void> merge = new CompletableFuture<>();
+        runningMerge = merge;
+        Runnable task = () -> {
+            try {
+                completeMerge(mergeIndexes(mergeBase, mergeDelta, mergeRemovedIds), null, mergeDeltaDocuments, mergeRemovedIds);
+            } catch (RuntimeException e) {
+                completeMerge(null, e, mergeDeltaDocuments, mergeRemovedIds);
+            } finally {
+                merge.complete(null);
+            }
+        };
+        try {
+            mergeExecutor.execute(task);
+        } catch (RejectedExecutionException e) {
+            completeMerge(null, e, mergeDeltaDocuments, mergeRemovedIds);
+            merge.complete(null);
+        }
+    }
+
+    private PredicateIndex mergeIndexes(PredicateIndex mergeBase, PredicateIndex mergeDelta, IntSet mergeRemovedIds) {
+        PredicateIndex merged = mergeBase.merge(mergeDelta, mergeRemovedIds);
+        if ( ! mappedIndexFile.isPresent()) return merged;
+        try {
+            Path file = mappedIndexFile.get();
+            Path tempFile = Files.createTempFile(file.toAbsolutePath().getParent(), file.getFileName().toString(), ".tmp");
+            try {
+                merged.writeToMappedFile(tempFile);
+                // Existing mappings of the replaced file stay valid
+                Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(tempFile);
+            }
+            return PredicateIndex.fromMappedFile(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private synchronized void completeMerge(PredicateIndex merged, Throwable failure,
+                                            Map<Integer, Predicate> mergeDeltaDocuments, IntSet mergeRemovedIds) {
+        if (failure == null) {
+            base = merged;
+        } else {
+            log.log(Level.WARNING, "Failed merging predicate index delta, keeping it for the next merge", failure);
+            // Updates done after the merge started take precedence
+            Map<Integer, Predicate> restored = new LinkedHashMap<>(mergeDeltaDocuments);
+            removedIds.forEach(restored::remove);
+            restored.putAll(delta);
+            delta = restored;
+            removedIds.addAll(mergeRemovedIds);
+        }
+        mergingDelta = null;
+        mergingRemovedIds = new IntHashSet();
+        runningMerge = null;
+        snapshot = null;
+    }
+
+    private PredicateIndex buildIndex(Map<Integer, Predicate> documents) {
+        PredicateIndexBuilder builder = new PredicateIndexBuilder(config);
+        documents.forEach(builder::indexDocument);
+        return builder.build();
+    }
+
+    /**
+     * Returns the snapshot of the current updates. The delta index of a snapshot is built once per batch of
+     * updates, outside the lock, such that updates and other searches are not blocked while it is built.
+     */
+    private Snapshot snapshot() {
+        CompletableFuture<Snapshot> current;
+        Runnable build = null;
+        synchronized (this) {
+            if (snapshot == null) {
+                CompletableFuture<Snapshot> future = new CompletableFuture<>();
+                PredicateIndex snapshotBase = base;
+                PredicateIndex snapshotMergingDelta = mergingDelta;
+                IntSet snapshotMergingRemovedIds = mergingRemovedIds.toImmutable();
+                Map<Integer, Predicate> snapshotDelta = new LinkedHashMap<>(delta);
+                IntSet snapshotRemovedIds = removedIds.toImmutable();
+                build = () -> {
+                    try {
+                        future.complete(new Snapshot(snapshotBase, snapshotMergingDelta, snapshotMergingRemovedIds,
+                                                     buildIndex(snapshotDelta), snapshotRemovedIds));
+                    } catch (RuntimeException e) {
+                        discardSnapshot(future);
+                        future.completeExceptionally(e);
+                    }
+                };
+                snapshot = future;
+            }
+            current = snapshot;
+        }
+        if (build != null) {
+            build.run();
+        }
+        return current.join();
+    }
+
+    /** Makes the next search build a new snapshot, if the given one is still current */
+    private synchronized void discardSnapshot(CompletableFuture<Snapshot> failed) {
+        if (snapshot == failed) {
+            snapshot = null;
+        }
+    }
+
+    /** The indexes to search at some point in time */
+    private static class Snapshot {
+        final PredicateIndex base;
+        final PredicateIndex mergingDelta; // may be null
+        final IntSet mergingRemovedIds;
+        final PredicateIndex delta;
+        final IntSet removedIds;
+
+        Snapshot(PredicateIndex base, PredicateIndex mergingDelta, IntSet mergingRemovedIds,
+                 PredicateIndex delta, IntSet removedIds) {
+            this.base = base;
+            this.mergingDelta = mergingDelta;
+            this.mergingRemovedIds = mergingRemovedIds;
+            this.delta = delta;
+            this.removedIds = removedIds;
+        }
+    }
+
+    @Beta
+    public class Searcher {
+        private Snapshot snapshot;
+        private PredicateIndex.Searcher baseSearcher;
+        private PredicateIndex.Searcher mergingDeltaSearcher;
+        private PredicateIndex.Searcher deltaSearcher;
+
+        private Searcher() {}
+
+        /**
+         * Retrieves a stream of hits for the given query, including the updates done before this is called.
+         *
+         * @param query Specifies the boolean variables that are true.
+         * @return A stream of hits.
+         */
+        public Stream<Hit> search(PredicateQuery query) {
+            updateSnapshot();
+            Snapshot s = snapshot;
+            Stream<Hit> hits = baseSearcher.search(query)
+                    .filter(hit -> ! s.mergingRemovedIds.contains(hit.getDocId()) && ! s.removedIds.contains(hit.getDocId()));
+            if (mergingDeltaSearcher != null) {
+                hits = Stream.concat(hits, mergingDeltaSearcher.search(query)
+                        .filter(hit -> ! s.removedIds.contains(hit.getDocId())));
+            }
+            return Stream.concat(hits, deltaSearcher.search(query));
+        }
+
+        private void updateSnapshot() {
+            Snapshot current = snapshot();
+            if (current == snapshot) return;
+            // Searchers allocate per document state, so only replace those of changed indexes
+            if (snapshot == null || current.base != snapshot.base) {
+                baseSearcher = current.base.searcher();
+            }
+            if (current.mergingDelta == null) {
+                mergingDeltaSearcher = null;
+            } else if (snapshot == null || current.mergingDelta != snapshot.mergingDelta) {
+                mergingDeltaSearcher = current.mergingDelta.searcher();
+            }
+            deltaSearcher = current.delta.searcher();
+            snapshot = current;
+        }
+    }
+
+}
@@ -59,7 +59,7 @@ public class HitsVerificationBenchmark {
         PredicateIndex index = getIndex(args, config, output);
 
         Stream<PredicateQuery> queries = parseQueries(args.format, args.queryFile);
-        int totalHits = runQueries(index, queries, args.outputFile);
+        int totalHits = runQueries(index, args.blockEvaluation, queries, args.outputFile);
         output.put("Total hits", totalHits);
         writeOutputToStandardOut(output);
     }
@@ -83,10 +83,11 @@ public class HitsVerificationBenchmark {
     }
 
     private static int runQueries(
-            PredicateIndex index, Stream<PredicateQuery> queries, String outputFile) throws IOException {
+            PredicateIndex index, boolean blockEvaluation, Stream<PredicateQuery> queries, String outputFile)
+            throws IOException {
         try (BufferedWriter writer = new BufferedWriter(new FileWriter(outputFile, false))) {
             AtomicInteger i = new AtomicInteger();
-            PredicateIndex.Searcher searcher = index.searcher();
+            PredicateIndex.Searcher searcher = index.searcher(blockEvaluation);
             return queries.map(searcher::search)
                     .peek(hits -> {if (i.get() % 500 == 0) {index.rebuildPostingListCache();}})
                     .mapToInt(hits -> writeHits(i.getAndIncrement(), hits, writer))
@@ -137,6 +138,7 @@ public class HitsVerificationBenchmark {
     private static void addArgsToOutput(Map<String, Object> output, BenchmarkArguments args) {
         output.put("Arity", args.arity);
         output.put("Algorithm", args.algorithm);
+        output.put("Block evaluation", args.blockEvaluation);
         output.put("Query format", args.format);
         output.put("Feed file", args.feedFile);
         output.put("Query file", args.queryFile);
@@ -167,6 +169,9 @@ public class HitsVerificationBenchmark {
         @Option(name = {"-al", "--algorithm"}, description = "Algorithm (CONJUNCTION or INTERVALONLY)")
         public Algorithm algorithm = Algorithm.INTERVALONLY;
 
+        @Option(name = {"-be", "--block-evaluation"}, description = "Evaluate documents in blocks of document ids")
+        public boolean blockEvaluation = false;
+
         @Option(name = {"-qf", "--query-format"}, description =
                 "Query format. Valid formats are either 'vespa' (obsolete query property format) or 'json'.")
         public Format format = Format.VESPA;
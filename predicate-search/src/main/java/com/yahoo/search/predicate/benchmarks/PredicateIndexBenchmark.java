@@ -24,6 +24,8 @@ import java.io.DataOutputStream;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
@@ -67,9 +69,13 @@ public class PredicateIndexBenchmark {
                 .setUseConjunctionAlgorithm(args.algorithm == Algorithm.CONJUNCTION)
                 .build();
         PredicateIndex index = getIndex(args, config);
+        putMemoryUsageToOutput();
         if (args.indexOutputFile != null) {
             writeIndexToFile(index, args.indexOutputFile);
         }
+        if (args.mappedIndexOutputFile != null) {
+            writeMappedIndexToFile(index, args.mappedIndexOutputFile);
+        }
         if (args.queryFile != null) {
             runQueries(args, index);
         }
@@ -83,8 +89,8 @@ public class PredicateIndexBenchmark {
         if (args.helpOption.showHelpIfRequested()) {
             return Optional.empty();
         }
-        if (args.feedFile == null && args.indexFile == null) {
-            System.err.println("Provide either a feed file or index file.");
+        if (args.feedFile == null && args.indexFile == null && args.mappedIndexFile == null) {
+            System.err.println("Provide either a feed file, index file or mapped index file.");
             return Optional.empty();
         }
         return Optional.of(args);
@@ -105,6 +111,11 @@ public class PredicateIndexBenchmark {
             PredicateIndex index = builder.build();
             output.put("Time prepare index", System.currentTimeMillis() - start);
             return index;
+        } else if (args.mappedIndexFile != null) {
+            long start = System.currentTimeMillis();
+            PredicateIndex index = PredicateIndex.fromMappedFile(Paths.get(args.mappedIndexFile));
+            output.put("Time map index", System.currentTimeMillis() - start);
+            return index;
         } else {
             try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(args.indexFile)))) {
                 long start = System.currentTimeMillis();
@@ -123,6 +134,31 @@ public class PredicateIndexBenchmark {
         }
     }
 
+    private static void writeMappedIndexToFile(PredicateIndex index, String mappedIndexOutputFile) throws IOException {
+        long start = System.currentTimeMillis();
+        index.writeToMappedFile(Paths.get(mappedIndexOutputFile));
+        output.put("Time write mapped index", System.currentTimeMillis() - start);
+    }
+
+    private static void putMemoryUsageToOutput() {
+        System.gc();
+        Runtime runtime = Runtime.getRuntime();
+        output.put("Heap used after load (MB)", (runtime.totalMemory() - runtime.freeMemory()) / (1024 * 1024));
+        readResidentSetSize().ifPresent(rss -> output.put("RSS after load (MB)", rss / 1024));
+    }
+
+    /** Returns the resident set size of this process in kB, if available (Linux only) */
+    private static Optional<Long> readResidentSetSize() {
+        try {
+            return Files.readAllLines(Paths.get("/proc/self/status")).stream()
+                    .filter(line -> line.startsWith("VmRSS:"))
+                    .map(line -> Long.parseLong(line.replaceAll("[^0-9]", "")))
+                    .findFirst();
+        } catch (IOException e) {
+            return Optional.empty();
+        }
+    }
+
     private static void putBenchmarkArgumentsToOutput(BenchmarkArguments args) {
         output.put("Arity", args.arity);
         output.put("Max documents", args.maxDocuments);
@@ -130,22 +166,25 @@ public class PredicateIndexBenchmark {
         output.put("Threads", args.nThreads);
         output.put("Runtime", args.runtime);
         output.put("Algorithm", args.algorithm);
+        output.put("Block evaluation", args.blockEvaluation);
         output.put("Serialized index output file", args.indexOutputFile);
         output.put("Feed file", args.feedFile);
         output.put("Query file", args.queryFile);
         output.put("Index file", args.indexFile);
+        output.put("Mapped index file", args.mappedIndexFile);
+        output.put("Mapped index output file", args.mappedIndexOutputFile);
         output.put("Query format", args.format);
         output.put("Warmup", args.warmup);
     }
 
     private static void runQueries(BenchmarkArguments args, PredicateIndex index) throws IOException {
         List<PredicateQuery> queries = parseQueries(args.queryFile, args.maxQueries, args.format);
-        long warmup1 = warmup(queries, index, args.nThreads, args.warmup / 2);
+        long warmup1 = warmup(queries, index, args.blockEvaluation, args.nThreads, args.warmup / 2);
         output.put("Time warmup before building posting cache", warmup1);
         rebuildPostingListCache(index);
-        long warmup2 = warmup(queries, index, args.nThreads, args.warmup / 2);
+        long warmup2 = warmup(queries, index, args.blockEvaluation, args.nThreads, args.warmup / 2);
         output.put("Time warmup after building posting cache", warmup2);
-        searchIndex(queries, index, args.nThreads, args.runtime);
+        searchIndex(queries, index, args.blockEvaluation, args.nThreads, args.runtime);
     }
 
     private static void rebuildPostingListCache(PredicateIndex index) {
@@ -164,27 +203,29 @@ public class PredicateIndexBenchmark {
         return queries;
     }
 
-    private static long warmup(List<PredicateQuery> queries, PredicateIndex index, int nThreads, int warmup) {
+    private static long warmup(List<PredicateQuery> queries, PredicateIndex index, boolean blockEvaluation,
+                               int nThreads, int warmup) {
         ExecutorService executor = Executors.newFixedThreadPool(nThreads);
         Random random = new Random(42);
         for (int i = 0; i < nThreads; i++) {
             List<PredicateQuery> shuffledQueries = new ArrayList<>(queries);
             Collections.shuffle(shuffledQueries, random);
-            executor.submit(new QueryRunner(shuffledQueries, index.searcher()));
+            executor.submit(new QueryRunner(shuffledQueries, index.searcher(blockEvaluation)));
         }
         long start = System.currentTimeMillis();
         waitAndShutdown(warmup, executor);
         return System.currentTimeMillis() - start;
     }
 
-    private static void searchIndex(List<PredicateQuery> queries, PredicateIndex index, int nThreads, int runtime) {
+    private static void searchIndex(List<PredicateQuery> queries, PredicateIndex index, boolean blockEvaluation,
+                                    int nThreads, int runtime) {
         ExecutorService executor = Executors.newFixedThreadPool(nThreads);
         Random random = new Random(42);
         List<QueryRunner> runners = new ArrayList<>();
         for (int i = 0; i < nThreads; i++) {
             List<PredicateQuery> shuffledQueries = new ArrayList<>(queries);
             Collections.shuffle(shuffledQueries, random);
-            runners.add(new QueryRunner(shuffledQueries, index.searcher()));
+            runners.add(new QueryRunner(shuffledQueries, index.searcher(blockEvaluation)));
         }
         long start = System.currentTimeMillis();
         List<Future<ResultMetrics>> futureResults = runners.stream().map(executor::submit).collect(toList());
@@ -272,6 +313,9 @@ public class PredicateIndexBenchmark {
         @Option(name = {"-al", "--algorithm"}, description = "Algorithm (CONJUNCTION or INTERVALONLY)")
         public Algorithm algorithm = Algorithm.INTERVALONLY;
 
+        @Option(name = {"-be", "--block-evaluation"}, description = "Evaluate documents in blocks of document ids")
+        public boolean blockEvaluation = false;
+
         @Option(name = {"-w", "--warmup"}, description = "Warmup in seconds.")
         public int warmup = 30;
 
@@ -288,6 +332,13 @@ public class PredicateIndexBenchmark {
         @Option(name = {"-wi", "--write-index"}, description = "Serialize index to the given file")
         public String indexOutputFile;
 
+        @Option(name = {"-mif", "--mapped-index-file"},
+                description = "File path to mapped index file (written using --write-mapped-index)")
+        public String mappedIndexFile;
+
+        @Option(name = {"-wmi", "--write-mapped-index"}, description = "Write index to the given file in the mapped format")
+        public String mappedIndexOutputFile;
+
         @Option(name = {"-quf", "--query-file"}, description = "File path to a query file")
         public String queryFile;
 
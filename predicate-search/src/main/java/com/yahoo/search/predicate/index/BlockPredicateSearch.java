@@ -0,0 +1,326 @@
+// Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.predicate.index;
+
+import com.yahoo.search.predicate.Hit;
+import com.yahoo.search.predicate.SubqueryBitmap;
+import com.yahoo.search.predicate.utils.PostingListSearch;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Implementation of the "Interval" predicate search algorithm which evaluates fixed size blocks of document ids,
+ * giving the same hits as {@link PredicateSearch}.
+ * <p>
+ * For each block, the candidate documents are found by a single pass over the posting list counts,
+ * the doc id arrays of the posting lists are scanned for candidates, and the intervals of each candidate
+ * are collected into an {@link IntervalBlock}. This avoids advancing the posting list iterators one document at a time.
+ * </p>
+ *
+ * @author agent
+ */
+public class BlockPredicateSearch {
+
+    static final int BLOCK_SIZE = 1024;
+
+    private final PostingList[] postingLists;
+    private final byte[] nPostingListsForDocument;
+    private final byte[] minFeatureIndex;
+    private final short[] intervalEnds;
+    private final int nDocuments;
+    private final int[] cursors;
+    private final long[] subqueryMarkers;
+    private final boolean[] visited;
+
+    // Per block state
+    private final int[] candidates = new int[BLOCK_SIZE];
+    private final int[] candidateSlots = new int[BLOCK_SIZE];
+    private final int[] candidateEntryOffsets = new int[BLOCK_SIZE + 1];
+    private int[] entrySlots = new int[BLOCK_SIZE];
+    private int[] entryPostingLists = new int[BLOCK_SIZE];
+    private int[] entryPositions = new int[BLOCK_SIZE];
+    private int[] sortedEntries = new int[BLOCK_SIZE];
+    private final int[] hitDocIds = new int[BLOCK_SIZE];
+    private final long[] hitSubqueries = new long[BLOCK_SIZE];
+
+    // Per document state, one interval run per posting list
+    private final IntervalBlock intervalBlock = new IntervalBlock();
+    private final int[] runPositions;
+    private final int[] runEnds;
+    private final long[] runSubqueries;
+    private final int[] sortedRuns;
+
+    /**
+     * Creates a search for a set of posting lists.
+     *
+     * @param postingLists Posting lists for the boolean variables that evaluate to true
+     * @param nPostingListsForDocument The number of posting list for each docId
+     * @param minFeatureIndex Index from docId to min-feature value.
+     * @param intervalEnds The interval end for each document.
+     * @param highestIntervalEnd The highest end value.
+     */
+    public BlockPredicateSearch(
+            List<PostingList> postingLists, byte[] nPostingListsForDocument,
+            byte[] minFeatureIndex, short[] intervalEnds, int highestIntervalEnd) {
+        int size = postingLists.size();
+        this.postingLists = postingLists.toArray(new PostingList[size]);
+        this.nPostingListsForDocument = nPostingListsForDocument;
+        this.minFeatureIndex = minFeatureIndex;
+        this.intervalEnds = intervalEnds;
+        this.nDocuments = nPostingListsForDocument.length;
+        this.cursors = new int[size];
+        this.subqueryMarkers = new long[highestIntervalEnd + 1];
+        this.visited = new boolean[highestIntervalEnd + 1];
+        this.runPositions = new int[size];
+        this.runEnds = new int[size];
+        this.runSubqueries = new long[size];
+        this.sortedRuns = new int[size];
+        Arrays.fill(candidateSlots, -1);
+    }
+
+    /**
+     * @return A stream of Hit-objects from a lazy evaluation of the boolean search algorithm.
+     */
+    public Stream<Hit> stream() {
+        if (postingLists.length == 0) {
+            return Stream.empty();
+        }
+        return StreamSupport.stream(new BlockSpliterator(), false);
+    }
+
+    private class BlockSpliterator implements Spliterator<Hit> {
+        private int nextBlockStart = 0;
+        private int nHits = 0;
+        private int hitIndex = 0;
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Hit> action) {
+            while (hitIndex == nHits) {
+                if (nextBlockStart >= nDocuments) return false;
+                nHits = evaluateBlock(nextBlockStart, Math.min(nextBlockStart + BLOCK_SIZE, nDocuments));
+                hitIndex = 0;
+                nextBlockStart += BLOCK_SIZE;
+            }
+            action.accept(new Hit(hitDocIds[hitIndex], hitSubqueries[hitIndex]));
+            ++hitIndex;
+            return true;
+        }
+
+        @Override
+        public Spliterator<Hit> trySplit() {
+            return null;
+        }
+
+        @Override
+        public long estimateSize() {
+            return Long.MAX_VALUE;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | DISTINCT | SORTED | NONNULL;
+        }
+
+        @Override
+        public Comparator<Hit> getComparator() {
+            return null;
+        }
+    }
+
+    /** Evaluates the documents from blockStart (inclusive) to blockEnd (exclusive), and returns the number of hits */
+    private int evaluateBlock(int blockStart, int blockEnd) {
+        int nCandidates = findCandidates(blockStart, blockEnd);
+        if (nCandidates == 0) return 0;
+        for (int i = 0; i < nCandidates; i++) {
+            candidateSlots[candidates[i] - blockStart] = i;
+        }
+        int nEntries = collectEntries(blockStart, nCandidates);
+        groupEntriesByCandidate(nCandidates, nEntries);
+        for (int i = 0; i < nCandidates; i++) {
+            candidateSlots[candidates[i] - blockStart] = -1;
+        }
+
+        int nHits = 0;
+        for (int slot = 0; slot < nCandidates; slot++) {
+            int docId = candidates[slot];
+            int intervalEnd = Short.toUnsignedInt(intervalEnds[docId]);
+            if (evaluateCandidate(candidateEntryOffsets[slot], candidateEntryOffsets[slot + 1], intervalEnd)) {
+                hitDocIds[nHits] = docId;
+                hitSubqueries[nHits] = subqueryMarkers[intervalEnd];
+                ++nHits;
+            }
+        }
+        return nHits;
+    }
+
+    /**
+     * Finds the documents which are in at least as many posting lists as their min-feature (and at least one).
+     * Written without branches in the loop body, such that the JIT can compile it to conditional moves.
+     */
+    private int findCandidates(int blockStart, int blockEnd) {
+        int nCandidates = 0;
+        for (int docId = blockStart; docId < blockEnd; docId++) {
+            int minFeature = Math.max(minFeatureIndex[docId], 1);
+            candidates[nCandidates] = docId;
+            nCandidates += nPostingListsForDocument[docId] >= minFeature ? 1 : 0;
+        }
+        return nCandidates;
+    }
+
+    /** Scans the posting lists for the candidates of the current block, and returns the number of entries found */
+    private int collectEntries(int blockStart, int nCandidates) {
+        int firstCandidate = candidates[0];
+        int lastCandidate = candidates[nCandidates - 1];
+        int nEntries = 0;
+        for (int list = 0; list < postingLists.length; list++) {
+            int[] docIds = postingLists[list].getDocIds();
+            int cursor = cursors[list];
+            int length = docIds.length;
+            if (cursor < length && docIds[cursor] < firstCandidate) {
+                cursor = PostingListSearch.interpolationSearch(docIds, cursor, length, firstCandidate - 1);
+            }
+            for (; cursor < length; cursor++) {
+                int docId = docIds[cursor];
+                if (docId > lastCandidate) break;
+                int slot = candidateSlots[docId - blockStart];
+                if (slot >= 0) {
+                    if (nEntries == entrySlots.length) {
+                        growEntries();
+                    }
+                    entrySlots[nEntries] = slot;
+                    entryPostingLists[nEntries] = list;
+                    entryPositions[nEntries] = cursor;
+                    ++nEntries;
+                }
+            }
+            cursors[list] = cursor;
+        }
+        return nEntries;
+    }
+
+    /** Counting sort of the entries on candidate slot, keeping the posting list order within each slot */
+    private void groupEntriesByCandidate(int nCandidates, int nEntries) {
+        Arrays.fill(candidateEntryOffsets, 0, nCandidates + 1, 0);
+        for (int i = 0; i < nEntries; i++) {
+            ++candidateEntryOffsets[entrySlots[i] + 1];
+        }
+        for (int slot = 0; slot < nCandidates; slot++) {
+            candidateEntryOffsets[slot + 1] += candidateEntryOffsets[slot];
+        }
+        if (sortedEntries.length < nEntries) {
+            sortedEntries = new int[entrySlots.length];
+        }
+        for (int i = 0; i < nEntries; i++) {
+            sortedEntries[candidateEntryOffsets[entrySlots[i]]++] = i;
+        }
+        // The offsets now point to the end of each slot; shift them back to the start
+        System.arraycopy(candidateEntryOffsets, 0, candidateEntryOffsets, 1, nCandidates);
+        candidateEntryOffsets[0] = 0;
+    }
+
+    private void growEntries() {
+        int newLength = entrySlots.length * 2;
+        entrySlots = Arrays.copyOf(entrySlots, newLength);
+        entryPostingLists = Arrays.copyOf(entryPostingLists, newLength);
+        entryPositions = Arrays.copyOf(entryPositions, newLength);
+    }
+
+    /**
+     * Evaluates the intervals of the posting list entries from entryStart to entryEnd (in sortedEntries),
+     * which all are for the same document. Identical to PredicateSearch.evaluateHit.
+     */
+    private boolean evaluateCandidate(int entryStart, int entryEnd, int intervalEnd) {
+        intervalBlock.clear();
+        int nRuns = 0;
+        for (int i = entryStart; i < entryEnd; i++) {
+            int entry = sortedEntries[i];
+            PostingList postingList = postingLists[entryPostingLists[entry]];
+            int runStart = intervalBlock.size();
+            postingList.addIntervals(entryPositions[entry], intervalBlock);
+            if (intervalBlock.size() > runStart) {
+                runPositions[nRuns] = runStart;
+                runEnds[nRuns] = intervalBlock.size();
+                runSubqueries[nRuns] = postingList.getSubquery();
+                sortedRuns[nRuns] = nRuns;
+                ++nRuns;
+            }
+        }
+        sortRuns(nRuns);
+
+        Arrays.fill(subqueryMarkers, 0, intervalEnd + 1, 0);
+        subqueryMarkers[0] = SubqueryBitmap.ALL_SUBQUERIES;
+        Arrays.fill(visited, 0, intervalEnd + 1, false);
+        visited[0] = true;
+        int highestEndSeen = 1;
+        for (int i = 0; i < nRuns; ) {
+            int run = sortedRuns[i];
+            int lastEnd = addInterval(intervalBlock.get(runPositions[run]), runSubqueries[run], highestEndSeen);
+            if (lastEnd == -1) {
+                return false;
+            }
+            highestEndSeen = Math.max(lastEnd, highestEndSeen);
+            if (++runPositions[run] < runEnds[run]) {
+                restoreSortedOrder(i, nRuns);
+            } else {
+                ++i;
+            }
+        }
+        return subqueryMarkers[intervalEnd] != 0;
+    }
+
+    // Insertion sort on the first interval of each run, as there are few runs per document
+    private void sortRuns(int nRuns) {
+        for (int i = 1; i < nRuns; i++) {
+            int run = sortedRuns[i];
+            int interval = intervalBlock.get(runPositions[run]);
+            int j = i;
+            while (j > 0 && Integer.compareUnsigned(intervalBlock.get(runPositions[sortedRuns[j - 1]]), interval) > 0) {
+                sortedRuns[j] = sortedRuns[j - 1];
+                --j;
+            }
+            sortedRuns[j] = run;
+        }
+    }
+
+    private void restoreSortedOrder(int first, int last) {
+        int runToMove = sortedRuns[first];
+        long intervalToMove = Integer.toUnsignedLong(intervalBlock.get(runPositions[runToMove]));
+        while (++first < last && intervalToMove > Integer.toUnsignedLong(intervalBlock.get(runPositions[sortedRuns[first]]))) {
+            sortedRuns[first - 1] = sortedRuns[first];
+        }
+        sortedRuns[first - 1] = runToMove;
+    }
+
+    /**
+     * Returns the end value of the interval,
+     * or -1 if the highest end value seen is less than the interval begin.
+     */
+    private int addInterval(int interval, long subqueryBitMap, int highestEndSeen) {
+        if (Interval.isZStar1Interval(interval)) {
+            int begin = Interval.getZStar1Begin(interval);
+            int end = Interval.getZStar1End(interval);
+            if (highestEndSeen < begin) return -1;
+            markSubquery(begin, end, ~subqueryMarkers[begin]);
+            return end;
+        } else {
+            int begin = Interval.getBegin(interval);
+            int end = Interval.getEnd(interval);
+            if (highestEndSeen < begin - 1) return -1;
+            markSubquery(begin - 1, end, subqueryMarkers[begin - 1] & subqueryBitMap);
+            return end;
+        }
+    }
+
+    private void markSubquery(int begin, int end, long subqueryBitmap) {
+        if (visited[begin]) {
+            visited[end] = true;
+            subqueryMarkers[end] |= subqueryBitmap;
+        }
+    }
+
+}
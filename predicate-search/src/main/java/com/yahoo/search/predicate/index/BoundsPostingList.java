@@ -10,8 +10,9 @@ package com.yahoo.search.predicate.index;
  */
 public class BoundsPostingList extends MultiIntervalPostingList {
     private final int valueDiff;
-    private final IntervalWithBounds intervalWithBounds = new IntervalWithBounds();
     private final PredicateIntervalStore store;
+    private int currentIntervalIndex;
+    private int currentIntervalEnd;
     private int currentInterval;
 
     /**
@@ -25,19 +26,32 @@ public class BoundsPostingList extends MultiIntervalPostingList {
 
     @Override
     protected boolean prepareIntervals(int dataRef) {
-        intervalWithBounds.setIntervalArray(store.get(dataRef), 0);
+        currentIntervalIndex = store.getStart(dataRef);
+        currentIntervalEnd = store.getEnd(dataRef);
         return nextInterval();
     }
 
+    @Override
+    protected void addIntervalsForDataRef(int dataRef, IntervalBlock block) {
+        int end = store.getEnd(dataRef);
+        for (int i = store.getStart(dataRef); i < end - 1; i += 2) {
+            if (IntervalWithBounds.contains(store.getInterval(i + 1), valueDiff)) {
+                block.add(store.getInterval(i));
+            }
+        }
+    }
+
     @Override
     public boolean nextInterval() {
-        while (intervalWithBounds.hasValue()) {
-            if (intervalWithBounds.contains(valueDiff)) {
-                this.currentInterval = intervalWithBounds.getInterval();
-                intervalWithBounds.nextValue();
+        // The interval list consists of (interval, bounds) pairs, see IntervalWithBounds
+        while (currentIntervalIndex < currentIntervalEnd - 1) {
+            int interval = store.getInterval(currentIntervalIndex);
+            int bounds = store.getInterval(currentIntervalIndex + 1);
+            currentIntervalIndex += 2;
+            if (IntervalWithBounds.contains(bounds, valueDiff)) {
+                this.currentInterval = interval;
                 return true;
             }
-            intervalWithBounds.nextValue();
         }
         return false;
     }
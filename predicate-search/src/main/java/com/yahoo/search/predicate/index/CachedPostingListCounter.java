@@ -6,7 +6,6 @@ import com.gs.collections.api.tuple.primitive.ObjectLongPair;
 import com.gs.collections.impl.map.mutable.primitive.ObjectIntHashMap;
 import com.gs.collections.impl.map.mutable.primitive.ObjectLongHashMap;
 
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
@@ -45,31 +44,33 @@ public class CachedPostingListCounter {
 
     public void countPostingListsPerDocument(List<PostingList> postingLists, byte[] nPostingListsForDocument) {
         Arrays.fill(nPostingListsForDocument, (byte) 0);
-        List<int[]> nonCachedPostingLists = new ArrayList<>(postingLists.size());
-        List<int[]> cachedPostingLists = new ArrayList<>(postingLists.size());
+        int size = postingLists.size();
+        int[][] nonCachedPostingLists = new int[size][];
+        int[][] cachedPostingLists = new int[size][];
+        int nNonCached = 0;
+        int nCached = 0;
         long nDocumentsCachedPostingLists = 0;
         int postingListBitmap = 0;
-        for (PostingList postingList : postingLists) {
-            int[] docIds = postingList.getDocIds();
+        for (int i = 0; i < size; i++) {
+            int[] docIds = postingLists.get(i).getDocIds();
             int index = postingListMapping.getIfAbsent(docIds, -1);
             if (index >= 0) {
-                cachedPostingLists.add(docIds);
+                cachedPostingLists[nCached++] = docIds;
                 postingListBitmap |= (1 << index);
                 nDocumentsCachedPostingLists += docIds.length;
             } else {
-                nonCachedPostingLists.add(docIds);
+                nonCachedPostingLists[nNonCached++] = docIds;
             }
         }
         if (postingListBitmap != 0) {
             if (nDocumentsCachedPostingLists > nDocuments * THRESHOLD_USE_BIT_VECTOR) {
                 countUsingBitVector(nPostingListsForDocument, postingListBitmap);
             } else {
-                nonCachedPostingLists.addAll(cachedPostingLists);
+                System.arraycopy(cachedPostingLists, 0, nonCachedPostingLists, nNonCached, nCached);
+                nNonCached += nCached;
             }
         }
-        if (!nonCachedPostingLists.isEmpty()) {
-            countUsingDocIdIteration(nPostingListsForDocument, nonCachedPostingLists);
-        }
+        countUsingDocIdIteration(nPostingListsForDocument, nonCachedPostingLists, nNonCached);
     }
 
     private void countUsingBitVector(byte[] nPostingListsForDocument, int postingListBitmap) {
@@ -78,9 +79,9 @@ public class CachedPostingListCounter {
         }
     }
 
-    private static void countUsingDocIdIteration(byte[] nPostingListsForDocument, List<int[]> nonCachedPostingLists) {
-        for (int[] docIds : nonCachedPostingLists) {
-            for (int docId : docIds) {
+    private static void countUsingDocIdIteration(byte[] nPostingListsForDocument, int[][] postingLists, int nPostingLists) {
+        for (int i = 0; i < nPostingLists; i++) {
+            for (int docId : postingLists[i]) {
                 ++nPostingListsForDocument[docId];
             }
         }
@@ -0,0 +1,36 @@
+// Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.predicate.index;
+
+import java.util.Arrays;
+
+/**
+ * A reusable block of intervals, which posting lists write the intervals of a document to during block evaluation
+ * (see {@link BlockPredicateSearch}). The intervals of each posting list occupy a contiguous range of the block.
+ *
+ * @author agent
+ */
+public class IntervalBlock {
+
+    private int[] intervals = new int[256];
+    private int size = 0;
+
+    public void add(int interval) {
+        if (size == intervals.length) {
+            intervals = Arrays.copyOf(intervals, size * 2);
+        }
+        intervals[size++] = interval;
+    }
+
+    public int get(int index) {
+        return intervals[index];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+}
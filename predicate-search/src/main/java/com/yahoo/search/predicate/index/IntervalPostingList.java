@@ -9,8 +9,8 @@ package com.yahoo.search.predicate.index;
  */
 public class IntervalPostingList extends MultiIntervalPostingList {
     private final PredicateIntervalStore store;
-    private int[] currentIntervals;
     private int currentIntervalIndex;
+    private int currentIntervalEnd;
     private int currentInterval;
 
     public IntervalPostingList(PredicateIntervalStore store, int[] docIds, int[] dataRefs, long subquery) {
@@ -20,16 +20,25 @@ public class IntervalPostingList extends MultiIntervalPostingList {
 
     @Override
     protected boolean prepareIntervals(int dataRef) {
-        currentIntervals = store.get(dataRef);
-        currentIntervalIndex = 1;
-        currentInterval = currentIntervals[0];
+        int start = store.getStart(dataRef);
+        currentIntervalIndex = start + 1;
+        currentIntervalEnd = store.getEnd(dataRef);
+        currentInterval = store.getInterval(start);
         return true;
     }
 
+    @Override
+    protected void addIntervalsForDataRef(int dataRef, IntervalBlock block) {
+        int end = store.getEnd(dataRef);
+        for (int i = store.getStart(dataRef); i < end; i++) {
+            block.add(store.getInterval(i));
+        }
+    }
+
     @Override
     public boolean nextInterval() {
-        if (currentIntervalIndex < currentIntervals.length) {
-            this.currentInterval = currentIntervals[currentIntervalIndex++];
+        if (currentIntervalIndex < currentIntervalEnd) {
+            this.currentInterval = store.getInterval(currentIntervalIndex++);
             return true;
         }
         return false;
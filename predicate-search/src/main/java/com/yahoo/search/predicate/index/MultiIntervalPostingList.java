@@ -45,6 +45,13 @@ public abstract class MultiIntervalPostingList implements PostingList {
 
     protected abstract boolean prepareIntervals(int dataRef);
 
+    @Override
+    public final void addIntervals(int position, IntervalBlock block) {
+        addIntervalsForDataRef(dataRefs[position], block);
+    }
+
+    protected abstract void addIntervalsForDataRef(int dataRef, IntervalBlock block);
+
     @Override
     public final int size() {
         return length;
@@ -50,4 +50,10 @@ public interface PostingList {
      * @return The document ids
      */
     int[] getDocIds();
+
+    /**
+     * Adds the intervals of the document at the given position in {@link #getDocIds()} to the given block,
+     * independently of the iterator state.
+     */
+    void addIntervals(int position, IntervalBlock block);
 }
@@ -2,83 +2,160 @@
 package com.yahoo.search.predicate.index;
 
 import com.google.common.primitives.Ints;
+import com.yahoo.search.predicate.serialization.MappedFileReader;
+import com.yahoo.search.predicate.serialization.MappedFileWriter;
 import com.yahoo.search.predicate.serialization.SerializationHelper;
 
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
-import java.util.ArrayList;
+import java.nio.IntBuffer;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 /**
+ * Stores the interval lists of all postings in a single flat array, which is either on the heap or memory mapped.
+ * An interval list is referenced by its index, and occupies the positions from {@link #getStart(int)}
+ * (inclusive) to {@link #getEnd(int)} (exclusive).
+ *
  * @author bjorncs
  */
 public class PredicateIntervalStore {
 
-    private final int[][] intervalsList;
+    private final IntBuffer intervals;
+    // Interval list i occupies the positions from offsets[i] to offsets[i + 1]
+    private final IntBuffer offsets;
 
     public PredicateIntervalStore(int[][] intervalsList) {
-        this.intervalsList = intervalsList;
+        this(new Builder().insertAll(intervalsList));
     }
 
+    private PredicateIntervalStore(Builder builder) {
+        this(IntBuffer.wrap(Arrays.copyOf(builder.intervals, builder.intervalsSize)),
+             IntBuffer.wrap(Arrays.copyOf(builder.offsets, builder.offsetsSize)));
+    }
+
+    private PredicateIntervalStore(IntBuffer intervals, IntBuffer offsets) {
+        this.intervals = intervals;
+        this.offsets = offsets;
+    }
+
+    /** Returns a copy of the interval list with the given reference */
     public int[] get(int intervalRef) {
-        assert intervalRef < intervalsList.length;
-        return intervalsList[intervalRef];
+        int start = getStart(intervalRef);
+        int[] result = new int[getEnd(intervalRef) - start];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = intervals.get(start + i);
+        }
+        return result;
+    }
+
+    /** Returns the position of the first interval in the list with the given reference */
+    public int getStart(int intervalRef) {
+        assert intervalRef < size();
+        return offsets.get(intervalRef);
+    }
+
+    /** Returns the position after the last interval in the list with the given reference */
+    public int getEnd(int intervalRef) {
+        return offsets.get(intervalRef + 1);
+    }
+
+    public int getInterval(int position) {
+        return intervals.get(position);
+    }
+
+    /** Returns the number of interval lists in this */
+    public int size() {
+        return offsets.limit() - 1;
     }
 
     public void writeToOutputStream(DataOutputStream out) throws IOException {
-        out.writeInt(intervalsList.length);
-        for (int[] intervals : intervalsList) {
-            SerializationHelper.writeIntArray(intervals, out);
+        int size = size();
+        out.writeInt(size);
+        for (int ref = 0; ref < size; ref++) {
+            SerializationHelper.writeIntArray(get(ref), out);
         }
     }
 
     public static PredicateIntervalStore fromInputStream(DataInputStream in) throws IOException {
         int length = in.readInt();
-        int[][] intervalsList = new int[length][];
+        Builder builder = new Builder();
         for (int i = 0; i < length; i++) {
-            intervalsList[i] = SerializationHelper.readIntArray(in);
+            builder.append(SerializationHelper.readIntArray(in));
         }
-        return new PredicateIntervalStore(intervalsList);
+        return new PredicateIntervalStore(builder);
+    }
+
+    public void writeToMappedFile(MappedFileWriter writer) throws IOException {
+        writer.writeIntSection(offsets);
+        writer.writeIntSection(intervals);
+    }
+
+    /** Returns a store backed by the mapped file, without reading the intervals into the heap */
+    public static PredicateIntervalStore fromMappedFile(MappedFileReader reader) throws IOException {
+        IntBuffer offsets = reader.mapIntSection();
+        IntBuffer intervals = reader.mapIntSection();
+        return new PredicateIntervalStore(intervals, offsets);
     }
 
     public static class Builder {
-        private final List<int[]> intervalsListBuilder = new ArrayList<>();
         private final Map<Entry, Integer> intervalsListIndexes = new HashMap<>();
         private final Map<Integer, Integer> entriesForSize = new HashMap<>();
+        private int[] intervals = new int[1024];
+        private int intervalsSize = 0;
+        private int[] offsets = new int[256];
+        private int offsetsSize = 1;
         private int cacheHits = 0;
         private int totalInserts = 0;
 
         public int insert(List<Integer> intervals) {
-            int size = intervals.size();
+            return insert(Ints.toArray(intervals));
+        }
+
+        /** Inserts the given interval list, returning the reference of an equal list if one is already inserted */
+        public int insert(int[] intervals) {
+            int size = intervals.length;
             if (size == 0) {
                 throw new IllegalArgumentException("Cannot insert interval list of size 0");
             }
-            int[] array = Ints.toArray(intervals);
-            Entry entry = new Entry(array);
+            Entry entry = new Entry(intervals);
             ++totalInserts;
-            if (intervalsListIndexes.containsKey(entry)) {
+            Integer existing = intervalsListIndexes.get(entry);
+            if (existing != null) {
                 ++cacheHits;
-                return intervalsListIndexes.get(entry);
-            } else {
-                int index = intervalsListBuilder.size();
-                intervalsListBuilder.add(array);
-                intervalsListIndexes.put(entry, index);
-                entriesForSize.merge(size, 1, Integer::sum);
-                return index;
+                return existing;
             }
+            int index = append(intervals);
+            intervalsListIndexes.put(entry, index);
+            entriesForSize.merge(size, 1, Integer::sum);
+            return index;
         }
 
-        public PredicateIntervalStore build() {
-            int nIntervals = intervalsListBuilder.size();
-            int[][] intervalsList = new int[nIntervals][];
-            for (int i = 0; i < nIntervals; i++) {
-                intervalsList[i] = intervalsListBuilder.get(i);
+        private Builder insertAll(int[][] intervalsList) {
+            for (int[] intervals : intervalsList) {
+                append(intervals);
             }
-            return new PredicateIntervalStore(intervalsList);
+            return this;
+        }
+
+        private int append(int[] intervalList) {
+            if (intervalsSize + intervalList.length > intervals.length) {
+                intervals = Arrays.copyOf(intervals, Math.max(intervals.length * 2, intervalsSize + intervalList.length));
+            }
+            System.arraycopy(intervalList, 0, intervals, intervalsSize, intervalList.length);
+            intervalsSize += intervalList.length;
+            if (offsetsSize == offsets.length) {
+                offsets = Arrays.copyOf(offsets, offsets.length * 2);
+            }
+            offsets[offsetsSize++] = intervalsSize;
+            return offsetsSize - 2;
+        }
+
+        public PredicateIntervalStore build() {
+            return new PredicateIntervalStore(this);
         }
 
         public int getCacheHits() {
@@ -94,7 +171,7 @@ public class PredicateIntervalStore {
         }
 
         public int getNumberOfIntervals() {
-            return intervalsListBuilder.size();
+            return offsetsSize - 1;
         }
 
         private static class Entry {
@@ -1,31 +1,52 @@
 // Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.search.predicate.index;
 
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
 import com.gs.collections.api.map.primitive.LongObjectMap;
 import com.gs.collections.api.tuple.primitive.LongObjectPair;
 import com.gs.collections.impl.map.mutable.primitive.LongObjectHashMap;
+import com.yahoo.search.predicate.serialization.MappedFileReader;
+import com.yahoo.search.predicate.serialization.MappedFileWriter;
 import com.yahoo.search.predicate.serialization.SerializationHelper;
 
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.IntUnaryOperator;
+import java.util.function.ObjLongConsumer;
 
 /**
  * An index mapping keys of type Long to lists of postings of generic data.
+ * The posting lists are either on the heap, or memory mapped from a file written by {@link #writeToMappedFile}.
  * @author <a href="mailto:magnarn@yahoo-inc.com">Magnar Nedland</a>
  * @author bjorncs
  */
 public class SimpleIndex {
 
+    /** The default max number of postings of a mapped index which are copied to the heap at any time */
+    public static final long DEFAULT_MAX_CACHED_POSTINGS = 1 << 20;
+
     private final LongObjectMap<Entry> dictionary;
+    private final MappedPostingLists mappedPostingLists;
 
     public SimpleIndex(LongObjectMap<Entry> dictionary) {
         this.dictionary = dictionary;
+        this.mappedPostingLists = null;
+    }
+
+    private SimpleIndex(MappedPostingLists mappedPostingLists) {
+        this.dictionary = null;
+        this.mappedPostingLists = mappedPostingLists;
     }
 
     /**
@@ -34,19 +55,77 @@ public class SimpleIndex {
      * @return List of postings
      */
     public Entry getPostingList(long key) {
-        return dictionary.get(key);
+        return mappedPostingLists != null ? mappedPostingLists.get(key) : dictionary.get(key);
+    }
+
+    /** Returns the number of keys in this index */
+    public int size() {
+        return mappedPostingLists != null ? mappedPostingLists.size() : dictionary.size();
+    }
+
+    /**
+     * Calls the consumer for each posting list in ascending key order.
+     * Mapped posting lists are read without being cached on the heap.
+     */
+    public void forEach(ObjLongConsumer<Entry> consumer) {
+        if (mappedPostingLists != null) {
+            for (int i = 0; i < mappedPostingLists.size(); i++) {
+                consumer.accept(mappedPostingLists.read(i), mappedPostingLists.keys.get(i));
+            }
+        } else {
+            long[] keys = dictionary.keysView().toSortedArray();
+            for (long key : keys) {
+                consumer.accept(dictionary.get(key), key);
+            }
+        }
+    }
+
+    /**
+     * Returns a new heap index containing the postings of this followed by the postings of the given index.
+     * The document ids and data references of each index are mapped using the given operators,
+     * and postings with document ids mapped to -1 are dropped.
+     * The document id mappings must preserve order, and map the ids of the other index to ids
+     * larger than those of this.
+     */
+    public SimpleIndex merge(IntUnaryOperator docIdMapping, IntUnaryOperator dataRefMapping,
+                             SimpleIndex other, IntUnaryOperator otherDocIdMapping, IntUnaryOperator otherDataRefMapping) {
+        LongObjectHashMap<Entry> merged = new LongObjectHashMap<>(size());
+        forEach((entry, key) -> {
+            Entry mapped = entry.map(docIdMapping, dataRefMapping);
+            if (mapped.docIds.length > 0) {
+                merged.put(key, mapped);
+            }
+        });
+        other.forEach((entry, key) -> {
+            Entry mapped = entry.map(otherDocIdMapping, otherDataRefMapping);
+            if (mapped.docIds.length > 0) {
+                Entry existing = merged.get(key);
+                merged.put(key, existing == null ? mapped : existing.append(mapped));
+            }
+        });
+        merged.compact();
+        return new SimpleIndex(merged);
     }
 
     public void writeToOutputStream(DataOutputStream out) throws IOException {
-        out.writeInt(dictionary.size());
-        for (LongObjectPair<Entry> pair : dictionary.keyValuesView()) {
-            out.writeLong(pair.getOne());
-            Entry entry = pair.getTwo();
-            SerializationHelper.writeIntArray(entry.docIds, out);
-            SerializationHelper.writeIntArray(entry.dataRefs, out);
+        out.writeInt(size());
+        if (mappedPostingLists != null) {
+            for (int i = 0; i < mappedPostingLists.size(); i++) {
+                writeEntry(mappedPostingLists.keys.get(i), mappedPostingLists.read(i), out);
+            }
+        } else {
+            for (LongObjectPair<Entry> pair : dictionary.keyValuesView()) {
+                writeEntry(pair.getOne(), pair.getTwo(), out);
+            }
         }
     }
 
+    private static void writeEntry(long key, Entry entry, DataOutputStream out) throws IOException {
+        out.writeLong(key);
+        SerializationHelper.writeIntArray(entry.docIds, out);
+        SerializationHelper.writeIntArray(entry.dataRefs, out);
+    }
+
     public static SimpleIndex fromInputStream(DataInputStream in) throws IOException {
         int nEntries = in.readInt();
         LongObjectHashMap<Entry> dictionary = new LongObjectHashMap<>(nEntries);
@@ -60,13 +139,151 @@ public class SimpleIndex {
         return new SimpleIndex(dictionary);
     }
 
+    /** Writes the posting lists as sections sorted on key, such that they can be looked up without deserializing */
+    public void writeToMappedFile(MappedFileWriter writer) throws IOException {
+        if (mappedPostingLists != null) {
+            mappedPostingLists.writeTo(writer);
+            return;
+        }
+        int size = size();
+        long[] keys = new long[size];
+        int[] offsets = new int[size + 1];
+        List<Entry> entries = new ArrayList<>(size);
+        forEach((entry, key) -> {
+            int i = entries.size();
+            keys[i] = key;
+            offsets[i + 1] = Math.addExact(offsets[i], entry.docIds.length);
+            entries.add(entry);
+        });
+        writer.writeLongSection(keys);
+        writer.writeIntSection(offsets);
+        int[] docIds = new int[offsets[size]];
+        int[] dataRefs = new int[offsets[size]];
+        for (int i = 0; i < size; i++) {
+            Entry entry = entries.get(i);
+            System.arraycopy(entry.docIds, 0, docIds, offsets[i], entry.docIds.length);
+            System.arraycopy(entry.dataRefs, 0, dataRefs, offsets[i], entry.dataRefs.length);
+        }
+        writer.writeIntSection(docIds);
+        writer.writeIntSection(dataRefs);
+    }
+
+    /** Returns an index backed by the mapped file, caching at most {@link #DEFAULT_MAX_CACHED_POSTINGS} on the heap */
+    public static SimpleIndex fromMappedFile(MappedFileReader reader) throws IOException {
+        return fromMappedFile(reader, DEFAULT_MAX_CACHED_POSTINGS);
+    }
+
+    /**
+     * Returns an index backed by the mapped file. A posting list is copied to the heap when it is looked up,
+     * and the least recently used copies are dropped when they hold more than the given number of postings.
+     * A dropped posting list is read again as a new instance, which the posting list counter of
+     * {@link com.yahoo.search.predicate.PredicateIndex} does not recognize until its cache is rebuilt.
+     */
+    public static SimpleIndex fromMappedFile(MappedFileReader reader, long maxCachedPostings) throws IOException {
+        LongBuffer keys = reader.mapLongSection();
+        IntBuffer offsets = reader.mapIntSection();
+        IntBuffer docIds = reader.mapIntSection();
+        IntBuffer dataRefs = reader.mapIntSection();
+        return new SimpleIndex(new MappedPostingLists(keys, offsets, docIds, dataRefs, maxCachedPostings));
+    }
+
     public static class Entry {
         public final int[] docIds;
         public final int[] dataRefs;
 
-        private Entry(int[] docIds, int[] dataRefs) {
+        Entry(int[] docIds, int[] dataRefs) {
+            this.docIds = docIds;
+            this.dataRefs = dataRefs;
+        }
+
+        private Entry map(IntUnaryOperator docIdMapping, IntUnaryOperator dataRefMapping) {
+            int[] mappedDocIds = new int[docIds.length];
+            int[] mappedDataRefs = new int[docIds.length];
+            int size = 0;
+            for (int i = 0; i < docIds.length; i++) {
+                int docId = docIdMapping.applyAsInt(docIds[i]);
+                if (docId != -1) {
+                    mappedDocIds[size] = docId;
+                    mappedDataRefs[size] = dataRefMapping.applyAsInt(dataRefs[i]);
+                    ++size;
+                }
+            }
+            return new Entry(Arrays.copyOf(mappedDocIds, size), Arrays.copyOf(mappedDataRefs, size));
+        }
+
+        private Entry append(Entry other) {
+            int[] mergedDocIds = Arrays.copyOf(docIds, docIds.length + other.docIds.length);
+            int[] mergedDataRefs = Arrays.copyOf(dataRefs, dataRefs.length + other.dataRefs.length);
+            System.arraycopy(other.docIds, 0, mergedDocIds, docIds.length, other.docIds.length);
+            System.arraycopy(other.dataRefs, 0, mergedDataRefs, dataRefs.length, other.dataRefs.length);
+            return new Entry(mergedDocIds, mergedDataRefs);
+        }
+    }
+
+    /** Posting lists sorted on key, where posting list i occupies the positions from offsets[i] to offsets[i + 1] */
+    private static class MappedPostingLists {
+        private final LongBuffer keys;
+        private final IntBuffer offsets;
+        private final IntBuffer docIds;
+        private final IntBuffer dataRefs;
+        private final LoadingCache<Integer, Entry> entries;
+
+        MappedPostingLists(LongBuffer keys, IntBuffer offsets, IntBuffer docIds, IntBuffer dataRefs,
+                           long maxCachedPostings) {
+            this.keys = keys;
+            this.offsets = offsets;
             this.docIds = docIds;
             this.dataRefs = dataRefs;
+            this.entries = CacheBuilder.newBuilder()
+                    .maximumWeight(maxCachedPostings)
+                    .weigher((Integer index, Entry entry) -> entry.docIds.length)
+                    .build(CacheLoader.from(this::read));
+        }
+
+        int size() {
+            return keys.limit();
+        }
+
+        void writeTo(MappedFileWriter writer) throws IOException {
+            writer.writeLongSection(keys);
+            writer.writeIntSection(offsets);
+            writer.writeIntSection(docIds);
+            writer.writeIntSection(dataRefs);
+        }
+
+        Entry get(long key) {
+            int index = indexOf(key);
+            if (index < 0) return null;
+            return entries.getUnchecked(index);
+        }
+
+        Entry read(int index) {
+            int start = offsets.get(index);
+            int length = offsets.get(index + 1) - start;
+            int[] entryDocIds = new int[length];
+            int[] entryDataRefs = new int[length];
+            for (int i = 0; i < length; i++) {
+                entryDocIds[i] = docIds.get(start + i);
+                entryDataRefs[i] = dataRefs.get(start + i);
+            }
+            return new Entry(entryDocIds, entryDataRefs);
+        }
+
+        private int indexOf(long key) {
+            int low = 0;
+            int high = keys.limit() - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                long midKey = keys.get(mid);
+                if (midKey < key) {
+                    low = mid + 1;
+                } else if (midKey > key) {
+                    high = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -1;
         }
     }
 
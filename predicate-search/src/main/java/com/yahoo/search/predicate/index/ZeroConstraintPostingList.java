@@ -55,6 +55,11 @@ public class ZeroConstraintPostingList implements PostingList {
         return Interval.fromBoundaries(1, Interval.ZERO_CONSTRAINT_RANGE);
     }
 
+    @Override
+    public void addIntervals(int position, IntervalBlock block) {
+        block.add(getInterval());
+    }
+
     @Override
     public int getDocId() {
         return currentDocId;
@@ -13,8 +13,8 @@ import com.yahoo.search.predicate.SubqueryBitmap;
  */
 public class ZstarCompressedPostingList extends MultiIntervalPostingList {
     private final PredicateIntervalStore store;
-    private int[] currentIntervals;
     private int currentIntervalIndex;
+    private int currentIntervalEnd;
     private int prevInterval;
     private int currentInterval;
 
@@ -29,16 +29,37 @@ public class ZstarCompressedPostingList extends MultiIntervalPostingList {
 
     @Override
     protected boolean prepareIntervals(int dataRef) {
-        currentIntervals = store.get(dataRef);
-        currentIntervalIndex = 0;
+        currentIntervalIndex = store.getStart(dataRef);
+        currentIntervalEnd = store.getEnd(dataRef);
+        // The previous document may have been rejected before all its intervals were read
+        prevInterval = 0;
         return nextInterval();
     }
 
+    @Override
+    protected void addIntervalsForDataRef(int dataRef, IntervalBlock block) {
+        int end = store.getEnd(dataRef);
+        int i = store.getStart(dataRef);
+        while (i < end) {
+            int interval = store.getInterval(i++);
+            block.add(interval);
+            // Each stored interval is followed by an implied interval, which is extended by a following ZStar2 interval
+            int next = i < end ? store.getInterval(i) : -1;
+            if (Interval.isZStar2Interval(next)) {
+                block.add(Interval.combineZStarIntervals(interval, next));
+                ++i;
+            } else {
+                int intervalEnd = Interval.getZStar1End(interval);
+                block.add(Interval.fromZStar1Boundaries(intervalEnd, intervalEnd + 1));
+            }
+        }
+    }
+
     @Override
     public boolean nextInterval() {
         int nextInterval = -1;
-        if (currentIntervalIndex < currentIntervals.length) {
-            nextInterval = currentIntervals[currentIntervalIndex];
+        if (currentIntervalIndex < currentIntervalEnd) {
+            nextInterval = store.getInterval(currentIntervalIndex);
         }
         if (prevInterval != 0) {
             if (Interval.isZStar2Interval(nextInterval)) {
@@ -6,6 +6,7 @@ import com.gs.collections.api.map.primitive.LongObjectMap;
 import com.gs.collections.api.tuple.primitive.IntObjectPair;
 import com.gs.collections.api.tuple.primitive.LongObjectPair;
 import com.gs.collections.impl.map.mutable.primitive.IntObjectHashMap;
+import com.gs.collections.impl.map.mutable.primitive.LongIntHashMap;
 import com.gs.collections.impl.map.mutable.primitive.LongObjectHashMap;
 import com.yahoo.document.predicate.FeatureConjunction;
 import com.yahoo.search.predicate.PredicateQuery;
@@ -20,6 +21,8 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.IntUnaryOperator;
+import java.util.stream.IntStream;
 
 /**
  * A searchable index of conjunctions (see {@link FeatureConjunction} / {@link IndexableFeatureConjunction}).
@@ -44,6 +47,52 @@ public class ConjunctionIndex {
         return new Searcher();
     }
 
+    /**
+     * Returns a new index containing the conjunctions of this and the given index.
+     * Conjunctions are identified by their external id, such that conjunctions found in both are only included once.
+     * The conjunctions of this keep their internal ids.
+     */
+    public ConjunctionIndex merge(ConjunctionIndex other) {
+        LongIntHashMap internalIndexes = new LongIntHashMap(idMapping.length + other.idMapping.length);
+        for (int i = 0; i < idMapping.length; i++) {
+            internalIndexes.put(idMapping[i], i);
+        }
+        long[] mergedIdMapping = Arrays.copyOf(idMapping, idMapping.length + other.idMapping.length);
+        int size = idMapping.length;
+        int[] otherIndexMapping = new int[other.idMapping.length];
+        for (int i = 0; i < other.idMapping.length; i++) {
+            long externalId = other.idMapping[i];
+            int index = internalIndexes.getIfAbsent(externalId, -1);
+            if (index == -1) {
+                index = size++;
+                mergedIdMapping[index] = externalId;
+                internalIndexes.put(externalId, index);
+            }
+            otherIndexMapping[i] = index;
+        }
+        IntUnaryOperator otherIdMapping = id -> (otherIndexMapping[id >>> 1] << 1) | (id & 1);
+
+        IntObjectHashMap<FeatureIndex> mergedKIndex = new IntObjectHashMap<>(kIndex.size());
+        for (IntObjectPair<FeatureIndex> p : kIndex.keyValuesView()) {
+            mergedKIndex.put(p.getOne(), p.getTwo());
+        }
+        for (IntObjectPair<FeatureIndex> p : other.kIndex.keyValuesView()) {
+            FeatureIndex existing = mergedKIndex.get(p.getOne());
+            mergedKIndex.put(p.getOne(), p.getTwo().merge(existing, otherIdMapping));
+        }
+        mergedKIndex.compact();
+        int[] mergedZList = mergeConjunctionIds(zList, other.zList, otherIdMapping);
+        return new ConjunctionIndex(mergedKIndex, mergedZList, Arrays.copyOf(mergedIdMapping, size));
+    }
+
+    /** Returns the sorted and distinct union of the given conjunction ids, after mapping the second */
+    private static int[] mergeConjunctionIds(int[] ids, int[] otherIds, IntUnaryOperator otherIdMapping) {
+        return IntStream.concat(Arrays.stream(ids), Arrays.stream(otherIds).map(otherIdMapping))
+                .sorted()
+                .distinct()
+                .toArray();
+    }
+
     public void writeToOutputStream(DataOutputStream out) throws IOException {
         SerializationHelper.writeIntArray(zList, out);
         SerializationHelper.writeLongArray(idMapping, out);
@@ -79,6 +128,20 @@ public class ConjunctionIndex {
             return Optional.ofNullable(map.get(featureId));
         }
 
+        /** Returns the union of the given index (which may be null) and this, with the ids of this mapped */
+        private FeatureIndex merge(FeatureIndex first, IntUnaryOperator idMapping) {
+            LongObjectHashMap<int[]> merged = new LongObjectHashMap<>();
+            if (first != null) {
+                merged.putAll(first.map);
+            }
+            for (LongObjectPair<int[]> p : map.keyValuesView()) {
+                int[] existing = merged.get(p.getOne());
+                merged.put(p.getOne(), mergeConjunctionIds(existing != null ? existing : new int[0], p.getTwo(), idMapping));
+            }
+            merged.compact();
+            return new FeatureIndex(merged);
+        }
+
         public void writeToOutputStream(DataOutputStream out) throws IOException {
             out.writeInt(map.size());
             for (LongObjectPair<int[]> p : map.keyValuesView()) {
@@ -0,0 +1,119 @@
+// Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.predicate.serialization;
+
+import com.google.common.io.CountingInputStream;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads a file written by {@link MappedFileWriter}, where array sections are either memory mapped,
+ * or read into the heap. Mapped sections stay valid after this is closed.
+ * Each section is limited to 2Gb.
+ *
+ * @author agent
+ */
+public class MappedFileReader implements Closeable {
+
+    private final FileChannel channel;
+    private final ByteBuffer header = ByteBuffer.allocate(Integer.BYTES);
+    private long position = 0;
+
+    public MappedFileReader(Path file) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+    }
+
+    /**
+     * Reads data written to {@link MappedFileWriter#stream} using the given deserializer
+     */
+    public <T> T stream(Deserializer<T> deserializer) throws IOException {
+        channel.position(position);
+        CountingInputStream counter = new CountingInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+        T result = deserializer.deserialize(new DataInputStream(counter));
+        position += counter.getCount();
+        return result;
+    }
+
+    /** Maps the next section, without reading it into the heap */
+    public IntBuffer mapIntSection() throws IOException {
+        int length = readSectionHeader();
+        return map((long) length * Integer.BYTES).asIntBuffer();
+    }
+
+    /** Maps the next section, without reading it into the heap */
+    public LongBuffer mapLongSection() throws IOException {
+        int length = readSectionHeader();
+        return map((long) length * Long.BYTES).asLongBuffer();
+    }
+
+    public int[] readIntSection() throws IOException {
+        IntBuffer section = mapIntSection();
+        int[] array = new int[section.remaining()];
+        section.get(array);
+        return array;
+    }
+
+    public short[] readShortSection() throws IOException {
+        int length = readSectionHeader();
+        short[] array = new short[length];
+        map((long) length * Short.BYTES).asShortBuffer().get(array);
+        return array;
+    }
+
+    public byte[] readByteSection() throws IOException {
+        int length = readSectionHeader();
+        byte[] array = new byte[length];
+        map(length).get(array);
+        return array;
+    }
+
+    private int readSectionHeader() throws IOException {
+        header.clear();
+        while (header.hasRemaining()) {
+            if (channel.read(header, position + header.position()) < 0) {
+                throw new EOFException("Unexpected end of file at position " + position);
+            }
+        }
+        position += Integer.BYTES;
+        position += (MappedFileWriter.SECTION_ALIGNMENT - position % MappedFileWriter.SECTION_ALIGNMENT) % MappedFileWriter.SECTION_ALIGNMENT;
+        int length = header.getInt(0);
+        if (length < 0) {
+            throw new IOException("Invalid section length " + length + " at position " + position);
+        }
+        return length;
+    }
+
+    private ByteBuffer map(long size) throws IOException {
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Section of " + size + " bytes at position " + position + " is too large to map");
+        }
+        if (position + size > channel.size()) {
+            throw new EOFException("Section of " + size + " bytes at position " + position + " exceeds the file size");
+        }
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+        position += size;
+        return buffer;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    @FunctionalInterface
+    public interface Deserializer<T> {
+        T deserialize(DataInputStream in) throws IOException;
+    }
+
+}
@@ -0,0 +1,112 @@
+// Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.predicate.serialization;
+
+import com.google.common.io.CountingOutputStream;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.ShortBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Writes a file which can be read by {@link MappedFileReader}.
+ * Array sections are aligned such that they can be memory mapped and accessed in place.
+ *
+ * @author agent
+ */
+public class MappedFileWriter implements Closeable {
+
+    static final int SECTION_ALIGNMENT = 8;
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    private final CountingOutputStream counter;
+    private final DataOutputStream out;
+    private final ByteBuffer chunk = ByteBuffer.allocate(CHUNK_SIZE);
+
+    public MappedFileWriter(Path file) throws IOException {
+        this(Files.newOutputStream(file));
+    }
+
+    public MappedFileWriter(OutputStream out) {
+        this.counter = new CountingOutputStream(new BufferedOutputStream(out, CHUNK_SIZE));
+        this.out = new DataOutputStream(counter);
+    }
+
+    /** Returns a stream for writing data which is not mapped. It must be read back using {@link MappedFileReader#stream} */
+    public DataOutputStream stream() {
+        return out;
+    }
+
+    public void writeIntSection(int[] array) throws IOException {
+        writeIntSection(IntBuffer.wrap(array));
+    }
+
+    /** Writes the remaining ints of the given buffer as a section */
+    public void writeIntSection(IntBuffer buffer) throws IOException {
+        writeSectionHeader(buffer.remaining());
+        IntBuffer source = buffer.duplicate();
+        while (source.hasRemaining()) {
+            chunk.clear();
+            int length = Math.min(source.remaining(), CHUNK_SIZE / Integer.BYTES);
+            IntBuffer slice = source.slice();
+            slice.limit(length);
+            chunk.asIntBuffer().put(slice);
+            source.position(source.position() + length);
+            out.write(chunk.array(), 0, length * Integer.BYTES);
+        }
+    }
+
+    public void writeLongSection(long[] array) throws IOException {
+        writeLongSection(LongBuffer.wrap(array));
+    }
+
+    /** Writes the remaining longs of the given buffer as a section */
+    public void writeLongSection(LongBuffer buffer) throws IOException {
+        writeSectionHeader(buffer.remaining());
+        LongBuffer source = buffer.duplicate();
+        while (source.hasRemaining()) {
+            chunk.clear();
+            int length = Math.min(source.remaining(), CHUNK_SIZE / Long.BYTES);
+            LongBuffer slice = source.slice();
+            slice.limit(length);
+            chunk.asLongBuffer().put(slice);
+            source.position(source.position() + length);
+            out.write(chunk.array(), 0, length * Long.BYTES);
+        }
+    }
+
+    public void writeShortSection(short[] array) throws IOException {
+        writeSectionHeader(array.length);
+        for (int offset = 0; offset < array.length; offset += CHUNK_SIZE / Short.BYTES) {
+            int length = Math.min(array.length - offset, CHUNK_SIZE / Short.BYTES);
+            chunk.clear();
+            chunk.asShortBuffer().put(ShortBuffer.wrap(array, offset, length));
+            out.write(chunk.array(), 0, length * Short.BYTES);
+        }
+    }
+
+    public void writeByteSection(byte[] array) throws IOException {
+        writeSectionHeader(array.length);
+        out.write(array);
+    }
+
+    private void writeSectionHeader(int length) throws IOException {
+        out.writeInt(length);
+        while (counter.getCount() % SECTION_ALIGNMENT != 0) {
+            out.writeByte(0);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+}
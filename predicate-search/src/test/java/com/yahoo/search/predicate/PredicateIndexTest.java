@@ -1,13 +1,24 @@
 // Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.search.predicate;
 
+import com.gs.collections.impl.set.mutable.primitive.IntHashSet;
 import com.yahoo.document.predicate.Predicate;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
 
 import static com.yahoo.search.predicate.serialization.SerializationTestHelper.assertSerializationDeserializationMatches;
 import static java.util.stream.Collectors.toList;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 
 /**
@@ -18,6 +29,9 @@ public class PredicateIndexTest {
 
     private static final int DOC_ID = 42;
 
+    @Rule
+    public final TemporaryFolder tempFolder = new TemporaryFolder();
+
     @Test
     public void requireThatPredicateIndexCanSearch() {
         PredicateIndexBuilder builder = new PredicateIndexBuilder(10);
@@ -138,4 +152,117 @@ public class PredicateIndexTest {
         assertSerializationDeserializationMatches(
                 index, PredicateIndex::writeToOutputStream, PredicateIndex::fromInputStream);
     }
+
+    @Test
+    public void require_that_serialization_format_version_is_unchanged() throws IOException {
+        // Search time options must not be added to the serialized index, as that would break loading existing indexes
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        new PredicateIndexBuilder(10).build().writeToOutputStream(new DataOutputStream(bytes));
+        assertEquals(3, new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())).readInt());
+    }
+
+    @Test
+    public void require_that_mapped_index_retains_data_and_can_search() throws IOException {
+        PredicateIndexBuilder builder = new PredicateIndexBuilder(10);
+        builder.indexDocument(1, Predicate.fromString("country in ['no', 'se'] and gender in ['male']"));
+        builder.indexDocument(2, Predicate.fromString("gender in ['female'] and age in [20..40]"));
+        builder.indexDocument(3, Predicate.fromString("country not in ['no']"));
+        builder.indexDocument(4, Predicate.fromString("true"));
+        Path file = tempFolder.newFile().toPath();
+        builder.build().writeToMappedFile(file);
+
+        PredicateIndex index = PredicateIndex.fromMappedFile(file);
+        PredicateIndex.Searcher searcher = index.searcher();
+        PredicateQuery query = new PredicateQuery();
+        query.addFeature("country", "no");
+        query.addFeature("gender", "male");
+        assertEquals("[1, 4]", searcher.search(query).collect(toList()).toString());
+        query = new PredicateQuery();
+        query.addFeature("gender", "female");
+        query.addRangeFeature("age", 36);
+        assertEquals("[2, 3, 4]", searcher.search(query).collect(toList()).toString());
+
+        Path copy = tempFolder.newFile().toPath();
+        index.writeToMappedFile(copy);
+        assertArrayEquals(Files.readAllBytes(file), Files.readAllBytes(copy));
+    }
+
+    @Test
+    public void require_that_merged_index_contains_remaining_and_added_documents() {
+        PredicateIndexBuilder builder = new PredicateIndexBuilder(10);
+        builder.indexDocument(1, Predicate.fromString("country in ['no'] and gender in ['male']"));
+        builder.indexDocument(2, Predicate.fromString("country in ['no']"));
+        builder.indexDocument(3, Predicate.fromString("true"));
+        PredicateIndex base = builder.build();
+        builder = new PredicateIndexBuilder(10);
+        builder.indexDocument(2, Predicate.fromString("country in ['se']"));
+        builder.indexDocument(5, Predicate.fromString("country in ['no'] and age in [20..40]"));
+        PredicateIndex delta = builder.build();
+
+        PredicateIndex merged = base.merge(delta, IntHashSet.newSetWith(2, 3));
+        assertEquals(3, merged.size());
+        PredicateIndex.Searcher searcher = merged.searcher();
+        PredicateQuery query = new PredicateQuery();
+        query.addFeature("country", "no");
+        query.addFeature("gender", "male");
+        query.addRangeFeature("age", 36);
+        assertEquals("[1, 5]", searcher.search(query).collect(toList()).toString());
+        query = new PredicateQuery();
+        query.addFeature("country", "se");
+        assertEquals("[2]", searcher.search(query).collect(toList()).toString());
+    }
+
+    @Test
+    public void require_that_block_evaluation_gives_same_hits_as_document_at_a_time_evaluation() {
+        Random random = new Random(42);
+        PredicateIndexBuilder builder = new PredicateIndexBuilder(8);
+        // Spans several blocks of documents
+        for (int docId = 1; docId <= 3000; docId++) {
+            builder.indexDocument(docId, Predicate.fromString(randomPredicate(random)));
+        }
+        PredicateIndex index = builder.build();
+        PredicateIndex.Searcher searcher = index.searcher();
+        PredicateIndex.Searcher blockSearcher = index.searcher(true);
+        for (int i = 0; i < 100; i++) {
+            PredicateQuery query = new PredicateQuery();
+            for (char key = 'a'; key <= 'e'; key++) {
+                if (random.nextBoolean()) {
+                    query.addFeature(String.valueOf(key), String.valueOf(random.nextInt(4)), random.nextInt(4) + 1);
+                }
+            }
+            query.addRangeFeature("age", random.nextInt(100));
+            assertEquals(searcher.search(query).collect(toList()).toString(),
+                         blockSearcher.search(query).collect(toList()).toString());
+        }
+    }
+
+    private static String randomPredicate(Random random) {
+        StringBuilder predicate = new StringBuilder();
+        int conjunctions = random.nextInt(3) + 1;
+        for (int i = 0; i < conjunctions; i++) {
+            if (i > 0) predicate.append(" or ");
+            predicate.append('(');
+            int terms = random.nextInt(3) + 1;
+            for (int j = 0; j < terms; j++) {
+                if (j > 0) predicate.append(" and ");
+                if (random.nextInt(5) == 0) {
+                    int from = random.nextInt(100);
+                    predicate.append("age in [").append(from).append("..").append(from + random.nextInt(50)).append(']');
+                } else {
+                    predicate.append((char) ('a' + random.nextInt(5)))
+                            .append(random.nextInt(4) == 0 ? " not in ['" : " in ['")
+                            .append(random.nextInt(4)).append("']");
+                }
+            }
+            predicate.append(')');
+        }
+        return predicate.toString();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void require_that_indexes_with_different_config_cannot_be_merged() {
+        PredicateIndex base = new PredicateIndexBuilder(10).build();
+        PredicateIndex delta = new PredicateIndexBuilder(8).build();
+        base.merge(delta, new IntHashSet());
+    }
 }
@@ -0,0 +1,130 @@
+// Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.predicate;
+
+import com.yahoo.document.predicate.Predicate;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import static java.util.stream.Collectors.toList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+/**
+ * @author agent
+ */
+public class UpdatablePredicateIndexTest {
+
+    @Rule
+    public final TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private final List<Runnable> pendingMerges = new ArrayList<>();
+    private final Executor manualExecutor = pendingMerges::add;
+
+    @Test
+    public void requireThatAddedAndRemovedDocumentsAreVisibleBeforeMerge() {
+        UpdatablePredicateIndex index = new UpdatablePredicateIndex(createBase(), 100, manualExecutor, Optional.empty());
+        UpdatablePredicateIndex.Searcher searcher = index.searcher();
+        assertEquals("[1, 2]", search(searcher, "no"));
+
+        index.indexDocument(3, Predicate.fromString("country in ['no']"));
+        index.removeDocument(1);
+        assertEquals("[2, 3]", search(searcher, "no"));
+
+        index.indexDocument(2, Predicate.fromString("country in ['se']"));
+        assertEquals("[3]", search(searcher, "no"));
+        assertEquals("[2]", search(searcher, "se"));
+
+        index.removeDocument(3);
+        index.indexDocument(1, Predicate.fromString("country in ['se']"));
+        assertEquals("[]", search(searcher, "no"));
+        assertEquals("[2, 1]", search(searcher, "se"));
+    }
+
+    @Test
+    public void requireThatFullDeltaIsMergedInBackground() {
+        PredicateIndex base = createBase();
+        UpdatablePredicateIndex index = new UpdatablePredicateIndex(base, 2, manualExecutor, Optional.empty());
+        UpdatablePredicateIndex.Searcher searcher = index.searcher();
+        index.indexDocument(3, Predicate.fromString("country in ['no']"));
+        assertEquals(0, pendingMerges.size());
+        index.removeDocument(1);
+        assertEquals(1, pendingMerges.size());
+
+        // Updates while merging are applied on top of the merging delta
+        index.removeDocument(3);
+        index.indexDocument(4, Predicate.fromString("country in ['no']"));
+        assertSame(base, index.getBaseIndex());
+        assertEquals("[2, 4]", search(searcher, "no"));
+
+        pendingMerges.remove(0).run();
+        assertNotSame(base, index.getBaseIndex());
+        assertEquals(2, index.getBaseIndex().size());
+        assertEquals("[2, 4]", search(searcher, "no"));
+    }
+
+    @Test
+    public void requireThatMergeAppliesAllUpdates() {
+        UpdatablePredicateIndex index = new UpdatablePredicateIndex(createBase(), 100, Runnable::run, Optional.empty());
+        index.indexDocument(3, Predicate.fromString("country in ['no']"));
+        index.removeDocument(2);
+        index.merge();
+        assertEquals(2, index.getBaseIndex().size());
+        assertEquals("[1, 3]", search(index.searcher(), "no"));
+        assertEquals("[1, 3]", search(index.getBaseIndex().searcher(), "no"));
+    }
+
+    @Test
+    public void requireThatMergedIndexIsMappedWhenFileIsGiven() throws IOException {
+        Path file = tempFolder.getRoot().toPath().resolve("predicates.index");
+        UpdatablePredicateIndex index = new UpdatablePredicateIndex(createBase(), 1, Runnable::run, Optional.of(file));
+        index.indexDocument(3, Predicate.fromString("country in ['no']"));
+        assertEquals("[1, 2, 3]", search(index.searcher(), "no"));
+        assertEquals("[1, 2, 3]", search(PredicateIndex.fromMappedFile(file).searcher(), "no"));
+
+        index.removeDocument(1);
+        assertEquals("[2, 3]", search(index.searcher(), "no"));
+        assertEquals("[2, 3]", search(PredicateIndex.fromMappedFile(file).searcher(), "no"));
+    }
+
+    @Test
+    public void requireThatFailedMergeKeepsUpdates() {
+        Executor failingExecutor = task -> { throw new RejectedExecutionException("Rejected"); };
+        UpdatablePredicateIndex index = new UpdatablePredicateIndex(createBase(), 1, failingExecutor, Optional.empty());
+        index.indexDocument(3, Predicate.fromString("country in ['no']"));
+        index.removeDocument(1);
+        assertEquals("[2, 3]", search(index.searcher(), "no"));
+    }
+
+    private static PredicateIndex createBase() {
+        PredicateIndexBuilder builder = new PredicateIndexBuilder(10);
+        builder.indexDocument(1, Predicate.fromString("country in ['no'] and gender in ['male']"));
+        builder.indexDocument(2, Predicate.fromString("country in ['no']"));
+        return builder.build();
+    }
+
+    private static String search(UpdatablePredicateIndex.Searcher searcher, String country) {
+        return searcher.search(query(country)).map(Hit::getDocId).collect(toList()).toString();
+    }
+
+    private static String search(PredicateIndex.Searcher searcher, String country) {
+        return searcher.search(query(country)).map(Hit::getDocId).collect(toList()).toString();
+    }
+
+    private static PredicateQuery query(String country) {
+        PredicateQuery query = new PredicateQuery();
+        query.addFeature("country", country);
+        query.addFeature("gender", "male");
+        return query;
+    }
+
+}
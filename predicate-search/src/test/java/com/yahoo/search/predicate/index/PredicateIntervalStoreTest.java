@@ -2,8 +2,13 @@
 package com.yahoo.search.predicate.index;
 
 import com.google.common.primitives.Ints;
+import com.yahoo.search.predicate.serialization.MappedFileReader;
+import com.yahoo.search.predicate.serialization.MappedFileWriter;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -12,13 +17,15 @@ import java.util.List;
 import static com.yahoo.search.predicate.serialization.SerializationTestHelper.assertSerializationDeserializationMatches;
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
-import static org.junit.Assert.assertTrue;
 
 /**
  * @author bjorncs
  */
 public class PredicateIntervalStoreTest {
 
+    @Rule
+    public final TemporaryFolder tempFolder = new TemporaryFolder();
+
     @Test(expected = IllegalArgumentException.class)
     public void requireThatEmptyIntervalListThrows() {
         PredicateIntervalStore.Builder builder = new PredicateIntervalStore.Builder();
@@ -64,10 +71,27 @@ public class PredicateIntervalStoreTest {
         List<Integer> intervals2 = Arrays.asList(0x00010001, 0x00020002);
         int ref1 = builder.insert(intervals1);
         int ref2 = builder.insert(intervals2);
-        PredicateIntervalStore store = builder.build();
-        int[] a1 = store.get(ref1);
-        int[] a2 = store.get(ref2);
-        assertTrue(a1 == a2);
+        assertEquals(ref1, ref2);
+        assertEquals(1, builder.getNumberOfIntervals());
+    }
+
+    @Test
+    public void requireThatMappedStoreRetainsIntervals() throws IOException {
+        PredicateIntervalStore.Builder builder = new PredicateIntervalStore.Builder();
+        int ref1 = builder.insert(Arrays.asList(0x00010001, 0x00020002));
+        int ref2 = builder.insert(Arrays.asList(0x0fffffff, 0x00020002, 0x00030003));
+        File file = tempFolder.newFile();
+        try (MappedFileWriter writer = new MappedFileWriter(file.toPath())) {
+            builder.build().writeToMappedFile(writer);
+        }
+        try (MappedFileReader reader = new MappedFileReader(file.toPath())) {
+            PredicateIntervalStore store = PredicateIntervalStore.fromMappedFile(reader);
+            assertEquals(2, store.size());
+            assertArrayEquals(new int[]{0x00010001, 0x00020002}, store.get(ref1));
+            assertArrayEquals(new int[]{0x0fffffff, 0x00020002, 0x00030003}, store.get(ref2));
+            assertEquals(0x0fffffff, store.getInterval(store.getStart(ref2)));
+            assertEquals(5, store.getEnd(ref2));
+        }
     }
 
     private static void testInsertAndRetrieve(int... intervals) {
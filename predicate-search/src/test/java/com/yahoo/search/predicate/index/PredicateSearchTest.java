@@ -4,10 +4,14 @@ package com.yahoo.search.predicate.index;
 import com.yahoo.search.predicate.Hit;
 import com.yahoo.search.predicate.SubqueryBitmap;
 import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 import static java.util.stream.Collectors.toList;
 import static org.junit.Assert.assertEquals;
@@ -16,17 +20,28 @@ import static org.junit.Assert.assertEquals;
  * @author <a href="mailto:magnarn@yahoo-inc.com">Magnar Nedland</a>
  * @author bjorncs
  */
+@RunWith(Parameterized.class)
 public class PredicateSearchTest {
 
+    @Parameterized.Parameters(name = "blockEvaluation={0}")
+    public static Collection<Object[]> parameters() {
+        return Arrays.asList(new Object[][] {{false}, {true}});
+    }
+
+    @Parameterized.Parameter
+    public boolean blockEvaluation;
+
     @Test
     public void requireThatNoStreamsReturnNoResults() {
-        PredicateSearch search = new PredicateSearch(new ArrayList<>(), new byte[0], new byte[0], new short[0], 1);
+        Search search = blockEvaluation
+                ? new BlockPredicateSearch(new ArrayList<>(), new byte[0], new byte[0], new short[0], 1)::stream
+                : new PredicateSearch(new ArrayList<>(), new byte[0], new byte[0], new short[0], 1)::stream;
         assertEquals(0, search.stream().count());
     }
 
     @Test
     public void requireThatSingleStreamFiltersOnConstructedCompleteIntervals() {
-        PredicateSearch search = createPredicateSearch(
+        Search search = createPredicateSearch(
                 new byte[]{1, 1, 1},
                 postingList(
                         SubqueryBitmap.ALL_SUBQUERIES,
@@ -38,7 +53,7 @@ public class PredicateSearchTest {
 
     @Test
     public void requireThatMinFeatureIsUsedToPruneResults() {
-        PredicateSearch search = createPredicateSearch(
+        Search search = createPredicateSearch(
                 new byte[]{3, 1},
                 postingList(
                         SubqueryBitmap.ALL_SUBQUERIES,
@@ -49,7 +64,7 @@ public class PredicateSearchTest {
 
     @Test
     public void requireThatAHighKCanYieldResults() {
-        PredicateSearch search = createPredicateSearch(
+        Search search = createPredicateSearch(
                 new byte[]{2},
                 postingList(SubqueryBitmap.ALL_SUBQUERIES,
                         entry(0, 0x00010001)),
@@ -60,7 +75,7 @@ public class PredicateSearchTest {
 
     @Test
     public void requireThatPostingListsAreSortedAfterAdvancing() {
-        PredicateSearch search = createPredicateSearch(
+        Search search = createPredicateSearch(
                 new byte[] {2, 1, 1, 1},
                 postingList(SubqueryBitmap.ALL_SUBQUERIES,
                         entry(0, 0x000100ff),
@@ -73,7 +88,7 @@ public class PredicateSearchTest {
 
     @Test
     public void requireThatEmptyPostingListsWork() {
-        PredicateSearch search = createPredicateSearch(
+        Search search = createPredicateSearch(
                 new byte[0],
                 postingList(SubqueryBitmap.ALL_SUBQUERIES));
         assertEquals(Arrays.asList().toString(), search.stream().collect(toList()).toString());
@@ -81,7 +96,7 @@ public class PredicateSearchTest {
 
     @Test
     public void requireThatShorterPostingListEndingIsOk() {
-        PredicateSearch search = createPredicateSearch(
+        Search search = createPredicateSearch(
                 new byte[]{1, 1, 1},
                 postingList(SubqueryBitmap.ALL_SUBQUERIES,
                         entry(0, 0x000100ff),
@@ -93,7 +108,7 @@ public class PredicateSearchTest {
 
     @Test
     public void requireThatSortingWorksForManyPostingLists() {
-        PredicateSearch search = createPredicateSearch(
+        Search search = createPredicateSearch(
                 new byte[]{1, 5, 2, 2},
                 postingList(SubqueryBitmap.ALL_SUBQUERIES,
                         entry(0, 0x000100ff),
@@ -117,7 +132,7 @@ public class PredicateSearchTest {
 
     @Test
     public void requireThatInsufficientIntervalCoveragePreventsMatch() {
-        PredicateSearch search = createPredicateSearch(
+        Search search = createPredicateSearch(
                 new byte[]{1, 1},
                 postingList(SubqueryBitmap.ALL_SUBQUERIES,
                         entry(0, 0x00010001),
@@ -127,7 +142,7 @@ public class PredicateSearchTest {
 
     @Test
     public void requireThatIntervalsAreSorted() {
-        PredicateSearch search = createPredicateSearch(
+        Search search = createPredicateSearch(
                 new byte[]{1},
                 postingList(SubqueryBitmap.ALL_SUBQUERIES,
                         entry(0, 0x00010001)),
@@ -140,7 +155,7 @@ public class PredicateSearchTest {
 
     @Test
     public void requireThatThereCanBeManyIntervals() {
-        PredicateSearch search = createPredicateSearch(
+        Search search = createPredicateSearch(
                 new byte[]{1},
                 postingList(SubqueryBitmap.ALL_SUBQUERIES,
                         entry(0, 0x00010001, 0x00020002, 0x00030003, 0x000100ff, 0x00040004, 0x00050005, 0x00060006)));
@@ -149,7 +164,7 @@ public class PredicateSearchTest {
 
     @Test
     public void requireThatNotIsSupported_NoMatch() {
-        PredicateSearch search = createPredicateSearch(
+        Search search = createPredicateSearch(
                 new byte[]{1},
                 postingList(SubqueryBitmap.ALL_SUBQUERIES,
                         entry(0, 0x00010001)),
@@ -160,7 +175,7 @@ public class PredicateSearchTest {
 
     @Test
     public void requireThatNotIsSupported_Match() {
-        PredicateSearch search = createPredicateSearch(
+        Search search = createPredicateSearch(
                 new byte[]{1},
                 postingList(SubqueryBitmap.ALL_SUBQUERIES,
                         entry(0, 0x00010000, 0x00ff0001)));
@@ -169,7 +184,7 @@ public class PredicateSearchTest {
 
     @Test
     public void requireThatNotIsSupported_NoMatchBecauseOfPreviousTerm() {
-        PredicateSearch search = createPredicateSearch(
+        Search search = createPredicateSearch(
                 new byte[]{1},
                 postingList(SubqueryBitmap.ALL_SUBQUERIES,
                         entry(0, 0x00020001, 0x00ff0001)));
@@ -178,7 +193,7 @@ public class PredicateSearchTest {
 
     @Test
     public void requireThatIntervalSortingWorksAsUnsigned() {
-        PredicateSearch search = createPredicateSearch(
+        Search search = createPredicateSearch(
                 new byte[]{1},
                 postingList(SubqueryBitmap.ALL_SUBQUERIES,
                         entry(0, 0x00010001)),
@@ -189,7 +204,7 @@ public class PredicateSearchTest {
 
     @Test
     public void requireThatMatchCanRequireMultiplePostingLists() {
-        PredicateSearch search = createPredicateSearch(
+        Search search = createPredicateSearch(
                 new byte[]{6},
                 postingList(SubqueryBitmap.ALL_SUBQUERIES,
                         entry(0, 0x00010001)),
@@ -206,7 +221,7 @@ public class PredicateSearchTest {
         assertEquals(Arrays.asList(new Hit(0)).toString(), search.stream().collect(toList()).toString());
     }
 
-    private static PredicateSearch createPredicateSearch(byte[] minFeatures, PostingList... postingLists) {
+    private Search createPredicateSearch(byte[] minFeatures, PostingList... postingLists) {
         byte[] nPostingListsForDocument = new byte[minFeatures.length];
         short[] intervalEnds = new short[minFeatures.length];
         Arrays.fill(intervalEnds, (short) 0xFF);
@@ -216,7 +231,14 @@ public class PredicateSearchTest {
                 nPostingListsForDocument[id]++;
             }
         }
-        return new PredicateSearch(list, nPostingListsForDocument, minFeatures, intervalEnds, 0xFF);
+        if (blockEvaluation) {
+            return new BlockPredicateSearch(list, nPostingListsForDocument, minFeatures, intervalEnds, 0xFF)::stream;
+        }
+        return new PredicateSearch(list, nPostingListsForDocument, minFeatures, intervalEnds, 0xFF)::stream;
+    }
+
+    private interface Search {
+        Stream<Hit> stream();
     }
 
     private static class SimplePostingList implements PostingList {
@@ -284,6 +306,13 @@ public class PredicateSearchTest {
             return Arrays.stream(entries).mapToInt(e -> e.docId).toArray();
         }
 
+        @Override
+        public void addIntervals(int position, IntervalBlock block) {
+            for (int interval : entries[position].intervals) {
+                block.add(interval);
+            }
+        }
+
         public static class Entry {
             public final int docId;
             public final int[] intervals;
@@ -1,13 +1,22 @@
 // Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.search.predicate.index;
 
+import com.yahoo.search.predicate.serialization.MappedFileReader;
+import com.yahoo.search.predicate.serialization.MappedFileWriter;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
+import java.io.File;
 import java.io.IOException;
 
 import static com.yahoo.search.predicate.serialization.SerializationTestHelper.assertSerializationDeserializationMatches;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 
 /**
  * @author <a href="mailto:magnarn@yahoo-inc.com">Magnar Nedland</a>
@@ -18,6 +27,9 @@ public class SimpleIndexTest {
     private static final long KEY = 0x12345L;
     private static final int DOC_ID = 42;
 
+    @Rule
+    public final TemporaryFolder tempFolder = new TemporaryFolder();
+
     @Test
     public void requireThatValuesCanBeInserted() {
         SimpleIndex.Builder builder = new SimpleIndex.Builder();
@@ -62,4 +74,48 @@ public class SimpleIndexTest {
         SimpleIndex index = builder.build();
         assertSerializationDeserializationMatches(index, SimpleIndex::writeToOutputStream, SimpleIndex::fromInputStream);
     }
+
+    @Test
+    public void requireThatMappedIndexRetainsDictionary() throws IOException {
+        SimpleIndex.Builder builder = new SimpleIndex.Builder();
+        builder.insert(KEY, new Posting(DOC_ID, 10));
+        builder.insert(KEY, new Posting(DOC_ID + 1, 20));
+        builder.insert(KEY + 0xFFFFFF, new Posting(DOC_ID, 100));
+        File file = tempFolder.newFile();
+        try (MappedFileWriter writer = new MappedFileWriter(file.toPath())) {
+            builder.build().writeToMappedFile(writer);
+        }
+        try (MappedFileReader reader = new MappedFileReader(file.toPath())) {
+            SimpleIndex index = SimpleIndex.fromMappedFile(reader);
+            assertEquals(2, index.size());
+            assertNull(index.getPostingList(KEY + 1));
+            SimpleIndex.Entry entry = index.getPostingList(KEY);
+            assertArrayEquals(new int[]{DOC_ID, DOC_ID + 1}, entry.docIds);
+            assertArrayEquals(new int[]{10, 20}, entry.dataRefs);
+            assertSame(entry, index.getPostingList(KEY));
+            assertArrayEquals(new int[]{100}, index.getPostingList(KEY + 0xFFFFFF).dataRefs);
+        }
+    }
+
+    @Test
+    public void requireThatMappedIndexCachesABoundedNumberOfPostings() throws IOException {
+        SimpleIndex.Builder builder = new SimpleIndex.Builder();
+        builder.insert(KEY, new Posting(DOC_ID, 10));
+        builder.insert(KEY, new Posting(DOC_ID + 1, 20));
+        builder.insert(KEY + 0xFFFFFF, new Posting(DOC_ID, 100));
+        File file = tempFolder.newFile();
+        try (MappedFileWriter writer = new MappedFileWriter(file.toPath())) {
+            builder.build().writeToMappedFile(writer);
+        }
+        try (MappedFileReader reader = new MappedFileReader(file.toPath())) {
+            SimpleIndex index = SimpleIndex.fromMappedFile(reader, 2);
+            SimpleIndex.Entry entry = index.getPostingList(KEY);
+            assertSame(entry, index.getPostingList(KEY));
+            index.getPostingList(KEY + 0xFFFFFF); // Exceeds the max postings, evicting the least recently used
+            SimpleIndex.Entry reread = index.getPostingList(KEY);
+            assertNotSame(entry, reread);
+            assertArrayEquals(entry.docIds, reread.docIds);
+            assertArrayEquals(entry.dataRefs, reread.dataRefs);
+        }
+    }
 }
@@ -59,4 +59,38 @@ public class ZstarCompressedPostingListTest {
 
         assertFalse(postingList.nextDocument(6));
     }
+
+    @Test
+    public void requireThatIntervalsOfPartiallyReadDocumentAreNotCarriedOver() {
+        PredicateIntervalStore.Builder builder = new PredicateIntervalStore.Builder();
+        int ref1 = builder.insert(Arrays.asList(0x10000));
+        int ref2 = builder.insert(Arrays.asList(0x20001));
+        ZstarCompressedPostingList postingList = new ZstarCompressedPostingList(
+                builder.build(), new int[]{2, 4}, new int[]{ref1, ref2});
+        assertTrue(postingList.nextDocument(0));
+        assertTrue(postingList.prepareIntervals());
+        assertEquals(0x10000, postingList.getInterval());
+
+        assertTrue(postingList.nextDocument(2));
+        assertTrue(postingList.prepareIntervals());
+        assertEquals(0x20001, postingList.getInterval());
+        assertTrue(postingList.nextInterval());
+        assertEquals(0x30002, postingList.getInterval());
+        assertFalse(postingList.nextInterval());
+    }
+
+    @Test
+    public void requireThatAddedIntervalsIncludeImpliedIntervals() {
+        PredicateIntervalStore.Builder builder = new PredicateIntervalStore.Builder();
+        int ref = builder.insert(Arrays.asList(0x10000, 0x00003, 0x40003, 0x60005));
+        ZstarCompressedPostingList postingList = new ZstarCompressedPostingList(
+                builder.build(), new int[]{6}, new int[]{ref});
+        IntervalBlock block = new IntervalBlock();
+        postingList.addIntervals(0, block);
+        assertEquals(6, block.size());
+        int[] expected = {0x10000, 0x30001, 0x40003, 0x50004, 0x60005, 0x70006};
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], block.get(i));
+        }
+    }
 }
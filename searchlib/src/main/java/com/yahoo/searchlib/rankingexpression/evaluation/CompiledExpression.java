@@ -0,0 +1,116 @@
+// Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.searchlib.rankingexpression.evaluation;
+
+import com.yahoo.searchlib.rankingexpression.rule.ExpressionNode;
+import com.yahoo.tensor.TensorType;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A ranking expression compiled by an {@link ExpressionCompiler}.
+ * This is the superclass of the classes generated by the compiler, and is not meant to be subclassed otherwise.
+ * This is immutable and may be evaluated by any number of threads at the same time.
+ *
+ * @author agent
+ */
+public abstract class CompiledExpression {
+
+    private final String name;
+    private final Map<String, Integer> nameToIndex;
+    private final ExpressionNode[] interpreted;
+
+    /** The constants used by the generated code which did not fit in the constant pool of the generated class */
+    protected final double[][] constants;
+
+    protected CompiledExpression(String name, Map<String, Integer> nameToIndex,
+                                 ExpressionNode[] interpreted, double[][] constants) {
+        this.name = name;
+        this.nameToIndex = nameToIndex;
+        this.interpreted = interpreted;
+        this.constants = constants;
+    }
+
+    /**
+     * Evaluates this over the given feature values
+     *
+     * @param features the feature values, at the index given by the context this was compiled with.
+     *                 The array must have (at least) the size of that context.
+     * @return the value of this expression
+     */
+    public final double evaluate(double[] features) {
+        return evaluate(features, null);
+    }
+
+    /**
+     * Evaluates this over the values set in the given context, which must be the one this was compiled with
+     * or a clone of it. Use this rather than evaluate(double[]) if any subexpressions which are interpreted
+     * refer to tensors set in the context.
+     */
+    public final double evaluate(AbstractArrayContext context) {
+        return evaluate(context.doubleValues(), context);
+    }
+
+    /**
+     * Evaluates this. This is implemented by the generated code.
+     *
+     * @param features the feature values to evaluate over
+     * @param context the context holding the given features, or null if the evaluation is not done over a context
+     */
+    protected abstract double evaluate(double[] features, Context context);
+
+    /** Evaluates a subexpression which could not be compiled. This is called by the generated code. */
+    protected final double interpret(int subexpression, double[] features, Context context) {
+        if (context == null)
+            context = new FeatureArrayContext(features, nameToIndex);
+        return interpreted[subexpression].evaluate(context).asDouble();
+    }
+
+    /** Returns the number of feature values this evaluates over */
+    public final int size() { return nameToIndex.size(); }
+
+    /** Returns the index of the given feature in the arrays this evaluates over, or null if it is not used by this */
+    public final Integer indexOf(String featureName) { return nameToIndex.get(featureName); }
+
+    /** Returns the number of subexpressions of this which could not be compiled and are evaluated by interpretation */
+    public final int interpretedSubexpressions() { return interpreted.length; }
+
+    @Override
+    public String toString() {
+        return "compiled ranking expression '" + name + "' [" + nameToIndex.size() + " variables, " +
+               interpreted.length + " interpreted subexpressions]";
+    }
+
+    /** A context exposing an array of feature values to the interpreter */
+    private static final class FeatureArrayContext extends Context {
+
+        private final double[] features;
+        private final Map<String, Integer> nameToIndex;
+
+        FeatureArrayContext(double[] features, Map<String, Integer> nameToIndex) {
+            this.features = features;
+            this.nameToIndex = nameToIndex;
+        }
+
+        @Override
+        public Value get(String name) {
+            Integer index = nameToIndex.get(name);
+            if (index == null) return DoubleValue.zero;
+            return new DoubleValue(features[index]);
+        }
+
+        @Override
+        public Value get(int index) { return new DoubleValue(features[index]); }
+
+        @Override
+        public double getDouble(int index) { return features[index]; }
+
+        @Override
+        public TensorType getType(String name) { return TensorType.empty; }
+
+        @Override
+        public Set<String> names() { return nameToIndex.keySet(); }
+
+    }
+
+}
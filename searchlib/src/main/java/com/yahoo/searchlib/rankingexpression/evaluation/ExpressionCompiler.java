@@ -0,0 +1,1013 @@
+// Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.searchlib.rankingexpression.evaluation;
+
+import com.yahoo.searchlib.rankingexpression.RankingExpression;
+import com.yahoo.searchlib.rankingexpression.rule.ArithmeticNode;
+import com.yahoo.searchlib.rankingexpression.rule.ArithmeticOperator;
+import com.yahoo.searchlib.rankingexpression.rule.ComparisonNode;
+import com.yahoo.searchlib.rankingexpression.rule.ConstantNode;
+import com.yahoo.searchlib.rankingexpression.rule.EmbracedNode;
+import com.yahoo.searchlib.rankingexpression.rule.ExpressionNode;
+import com.yahoo.searchlib.rankingexpression.rule.Function;
+import com.yahoo.searchlib.rankingexpression.rule.FunctionNode;
+import com.yahoo.searchlib.rankingexpression.rule.IfNode;
+import com.yahoo.searchlib.rankingexpression.rule.NegativeNode;
+import com.yahoo.searchlib.rankingexpression.rule.NotNode;
+import com.yahoo.searchlib.rankingexpression.rule.ReferenceNode;
+import com.yahoo.searchlib.rankingexpression.rule.SetMembershipNode;
+import com.yahoo.searchlib.rankingexpression.rule.TruthOperator;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Type;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+
+import static org.objectweb.asm.Opcodes.*;
+
+/**
+ * <p>Compiles ranking expressions to JVM bytecode which evaluates the expression directly over an array
+ * of feature values, without creating {@link Value} instances or looking up features by name.
+ * Clients using compiled expressions will do</p>
+ *
+ * <code>
+ * // Set up once
+ * RankingExpression expression = new RankingExpression(myExpressionString);
+ * DoubleOnlyArrayContext context = new DoubleOnlyArrayContext(expression);
+ * CompiledExpression compiled = new ExpressionCompiler().compile(expression, context);
+ *
+ * // Execute repeatedly, in any number of threads
+ * double[] features = new double[context.size()];
+ * features[context.getIndex("featureName1")] = value1;
+ * ...
+ * compiled.evaluate(features);
+ * </code>
+ *
+ * <p>Each compiled expression is a new subclass of {@link CompiledExpression}, loaded by its own class loader
+ * such that it is unloaded when no longer referenced. Constant subexpressions are evaluated at compile time,
+ * and decision tree conditions become a single compare and branch. Values are represented as doubles
+ * the same way as in expressions optimized by {@link ExpressionOptimizer}: Booleans are 1 or 0 and strings
+ * are represented by their hash. Subexpressions which cannot be compiled, such as tensor functions,
+ * are evaluated by the regular expression interpreter.</p>
+ *
+ * <p>Large expressions, such as GBDT forests, are split over many methods, as the JVM will not JIT compile
+ * methods larger than 8000 bytes. Expressions of the order of a million nodes compile to more code than fits
+ * in the processor caches, and are evaluated faster by expressions optimized by {@link ExpressionOptimizer}.</p>
+ *
+ * <p>This class is multithread safe.</p>
+ *
+ * @author agent
+ */
+public class ExpressionCompiler {
+
+    /**
+     * The max size of a subtree to generate inline in its parent. Nodes are at most about 10 bytes of code
+     * and have at most three children, so this keeps methods below 8000 bytes.
+     */
+    private static final int maxMethodNodes = 250;
+
+    /**
+     * The max number of distinct constants to put in the constant pool. The pool can hold 65535 entries,
+     * where each constant takes two, and the methods we generate need the rest.
+     */
+    private static final int maxPooledConstants = 8 * 1024;
+
+    /** The number of constants in each array of constants outside the pool, such that indexes fit in a short */
+    private static final int constantChunkSize = 1 << 15;
+
+    private static final String superName = Type.getInternalName(CompiledExpression.class);
+    private static final String constructorDescriptor =
+            Type.getMethodDescriptor(Type.VOID_TYPE, Type.getType(String.class), Type.getType(Map.class),
+                                     Type.getType(ExpressionNode[].class), Type.getType(double[][].class));
+    private static final String evaluateDescriptor =
+            Type.getMethodDescriptor(Type.DOUBLE_TYPE, Type.getType(double[].class), Type.getType(Context.class));
+    private static final String accumulatingDescriptor =
+            Type.getMethodDescriptor(Type.DOUBLE_TYPE, Type.getType(double[].class), Type.getType(Context.class),
+                                     Type.DOUBLE_TYPE);
+    private static final String interpretDescriptor =
+            Type.getMethodDescriptor(Type.DOUBLE_TYPE, Type.INT_TYPE, Type.getType(double[].class),
+                                     Type.getType(Context.class));
+
+    private static final AtomicLong generatedClasses = new AtomicLong();
+
+    /**
+     * Compiles an expression.
+     *
+     * @param expression the expression to compile. This is not modified.
+     * @param context a context created from the given expression, which defines the index of each feature
+     *                in the feature arrays the compiled expression is evaluated over
+     * @return the compiled expression
+     * @throws IllegalArgumentException if the expression is too large to be compiled to a single class
+     */
+    public CompiledExpression compile(RankingExpression expression, AbstractArrayContext context) {
+        Compilation compilation = new Compilation(context.nameToIndex());
+        Node root = compilation.compile(expression.getRoot());
+
+        String className = superName + "$Generated" + generatedClasses.incrementAndGet();
+        ClassGenerator generator = new ClassGenerator(className);
+        byte[] classBytes;
+        try {
+            classBytes = generator.generate(root);
+        }
+        catch (RuntimeException e) { // thrown by ASM when class file limits are exceeded
+            throw new IllegalArgumentException("Ranking expression '" + expression.getName() + "' of " + root.size() +
+                                               " nodes is too large to be compiled", e);
+        }
+        try {
+            Class<?> compiledClass = new GeneratedClassLoader().define(className.replace('/', '.'), classBytes);
+            return (CompiledExpression)compiledClass.getConstructor(String.class, Map.class,
+                                                                    ExpressionNode[].class, double[][].class)
+                                                    .newInstance(expression.getName(),
+                                                                 context.nameToIndex(),
+                                                                 compilation.interpreted.toArray(new ExpressionNode[0]),
+                                                                 generator.constants());
+        }
+        catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Could not load the compiled " + expression, e);
+        }
+    }
+
+    /** The state of a single compilation to a tree of nodes which generate code */
+    private static class Compilation {
+
+        private final Map<String, Integer> nameToIndex;
+
+        private final List<ExpressionNode> interpreted = new ArrayList<>();
+
+        Compilation(Map<String, Integer> nameToIndex) {
+            this.nameToIndex = nameToIndex;
+        }
+
+        Node compile(ExpressionNode node) {
+            if (node instanceof ConstantNode)
+                return compileConstant((ConstantNode)node);
+            if (node instanceof ReferenceNode)
+                return compileReference((ReferenceNode)node);
+            if (node instanceof EmbracedNode)
+                return compile(((EmbracedNode)node).getValue());
+            if (node instanceof ArithmeticNode)
+                return compileArithmetic((ArithmeticNode)node);
+            if (node instanceof IfNode)
+                return compileIf((IfNode)node);
+            if (node instanceof ComparisonNode)
+                return compileComparison((ComparisonNode)node);
+            if (node instanceof SetMembershipNode)
+                return compileSetMembership((SetMembershipNode)node);
+            if (node instanceof NegativeNode)
+                return compileNegate((NegativeNode)node);
+            if (node instanceof NotNode)
+                return compileNot((NotNode)node);
+            if (node instanceof FunctionNode)
+                return compileFunction((FunctionNode)node);
+            return interpreted(node);
+        }
+
+        private Node compileNegate(NegativeNode node) {
+            Node argument = compile(node.getValue());
+            return fold(new Negate(argument), argument);
+        }
+
+        private Node compileNot(NotNode node) {
+            Node argument = compile(node.getValue());
+            return fold(new Not(argument), argument);
+        }
+
+        private Node compileConstant(ConstantNode node) {
+            Value value = node.getValue();
+            if (value instanceof DoubleCompatibleValue || value instanceof StringValue)
+                return new Constant(value.asDouble());
+            return interpreted(node); // tensor
+        }
+
+        private Node compileReference(ReferenceNode node) {
+            if ( ! node.getArguments().expressions().isEmpty()) return interpreted(node);
+            Integer index = nameToIndex.get(node.toString());
+            if (index == null) return interpreted(node);
+            return new Feature(index);
+        }
+
+        /** Compiles arithmetic by applying operators in precedence order, the same way as ArithmeticNode.evaluate */
+        private Node compileArithmetic(ArithmeticNode node) {
+            if (node.operators().stream().allMatch(operator -> operator == ArithmeticOperator.PLUS))
+                return compileSum(node.children());
+
+            Iterator<ExpressionNode> child = node.children().iterator();
+            Deque<Operand> stack = new ArrayDeque<>();
+            stack.push(new Operand(ArithmeticOperator.OR, compile(child.next())));
+            for (Iterator<ArithmeticOperator> it = node.operators().iterator(); it.hasNext() && child.hasNext();) {
+                ArithmeticOperator operator = it.next();
+                while (stack.peek().operator.hasPrecedenceOver(operator))
+                    reduceStack(stack);
+                stack.push(new Operand(operator, compile(child.next())));
+            }
+            while (stack.size() > 1)
+                reduceStack(stack);
+            return stack.getFirst().node;
+        }
+
+        private void reduceStack(Deque<Operand> stack) {
+            Operand right = stack.pop();
+            Operand left = stack.peek();
+            left.node = fold(binary(right.operator, left.node, right.node), left.node, right.node);
+        }
+
+        private Node binary(ArithmeticOperator operator, Node left, Node right) {
+            switch (operator) {
+                case OR: return new Or(left, right);
+                case AND: return new And(left, right);
+                case PLUS: return new Arithmetic(DADD, left, right);
+                case MINUS: return new Arithmetic(DSUB, left, right);
+                case MULTIPLY: return new Arithmetic(DMUL, left, right);
+                case DIVIDE: return new Arithmetic(DDIV, left, right);
+                case MODULO: return new Arithmetic(DREM, left, right);
+                case POWER: return new FunctionCall(Function.pow, left, right);
+                default: throw new IllegalArgumentException("Unknown operator " + operator);
+            }
+        }
+
+        /** Sums are common (e.g in GBDT forests) and flattened to avoid deep recursion */
+        private Node compileSum(List<ExpressionNode> children) {
+            Node[] terms = new Node[children.size()];
+            for (int i = 0; i < terms.length; i++)
+                terms[i] = compile(children.get(i));
+            return fold(new Sum(terms), terms);
+        }
+
+        private Node compileIf(IfNode node) {
+            Node condition = compile(node.getCondition());
+            Node trueNode = compile(node.getTrueExpression());
+            Node falseNode = compile(node.getFalseExpression());
+            if (condition instanceof Constant)
+                return ((Constant)condition).value != 0 ? trueNode : falseNode;
+            return new If(condition, trueNode, falseNode);
+        }
+
+        private Node compileComparison(ComparisonNode node) {
+            Node left = compile(node.getLeftCondition());
+            Node right = compile(node.getRightCondition());
+            return fold(new Comparison(node.getOperator(), left, right), left, right);
+        }
+
+        private Node compileSetMembership(SetMembershipNode node) {
+            double[] set = new double[node.getSetValues().size()];
+            for (int i = 0; i < set.length; i++) {
+                Node setValue = compile(node.getSetValues().get(i));
+                if ( ! (setValue instanceof Constant)) return interpreted(node);
+                set[i] = ((Constant)setValue).value;
+            }
+            Node testValue = compile(node.getTestValue());
+            return fold(new SetMembership(testValue, set), testValue);
+        }
+
+        private Node compileFunction(FunctionNode node) {
+            List<ExpressionNode> arguments = node.children();
+            Node x = arguments.size() > 0 ? compile(arguments.get(0)) : new Constant(0);
+            Node y = arguments.size() > 1 ? compile(arguments.get(1)) : new Constant(0);
+            return fold(new FunctionCall(node.getFunction(), x, y), x, y);
+        }
+
+        private Node interpreted(ExpressionNode node) {
+            interpreted.add(node);
+            return new Interpreted(interpreted.size() - 1);
+        }
+
+        /** Returns the given node evaluated to a constant if all its arguments are constant, or the node otherwise */
+        private Node fold(Node node, Node ... arguments) {
+            for (Node argument : arguments)
+                if ( ! (argument instanceof Constant)) return node;
+            return new Constant(node.constantValue());
+        }
+
+    }
+
+    private static class Operand {
+
+        final ArithmeticOperator operator;
+        Node node;
+
+        Operand(ArithmeticOperator operator, Node node) {
+            this.operator = operator;
+            this.node = node;
+        }
+
+    }
+
+    /** Generates the class of a compiled expression */
+    private static final class ClassGenerator {
+
+        private final String className;
+        private final ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_FRAMES);
+
+        /** Methods to generate after the one currently generated */
+        private final Deque<PendingMethod> pendingMethods = new ArrayDeque<>();
+
+        private final Set<Double> pooledConstants = new HashSet<>();
+        private final Map<Double, Integer> arrayConstants = new HashMap<>();
+
+        private int methodCount = 0;
+
+        ClassGenerator(String className) {
+            this.className = className;
+        }
+
+        byte[] generate(Node root) {
+            writer.visit(V1_8, ACC_PUBLIC | ACC_FINAL | ACC_SUPER, className, null, superName, null);
+            generateConstructor();
+            generateMethod(ACC_PUBLIC, "evaluate", false, (method, accumulator) -> root.generate(method));
+            while ( ! pendingMethods.isEmpty()) {
+                PendingMethod pending = pendingMethods.poll();
+                generateMethod(ACC_PRIVATE, pending.name, pending.accumulating, pending.body);
+            }
+            writer.visitEnd();
+            return writer.toByteArray();
+        }
+
+        private void generateConstructor() {
+            MethodVisitor constructor = writer.visitMethod(ACC_PUBLIC, "<init>", constructorDescriptor, null, null);
+            constructor.visitCode();
+            for (int i = 0; i <= 4; i++)
+                constructor.visitVarInsn(ALOAD, i);
+            constructor.visitMethodInsn(INVOKESPECIAL, superName, "<init>", constructorDescriptor, false);
+            constructor.visitInsn(RETURN);
+            constructor.visitMaxs(0, 0);
+            constructor.visitEnd();
+        }
+
+        private void generateMethod(int access, String name, boolean accumulating,
+                                    BiConsumer<MethodGenerator, Integer> body) {
+            MethodVisitor visitor = writer.visitMethod(access, name,
+                                                       accumulating ? accumulatingDescriptor : evaluateDescriptor,
+                                                       null, null);
+            visitor.visitCode();
+            MethodGenerator method = new MethodGenerator(this, visitor, accumulating ? 5 : 3);
+            body.accept(method, accumulating ? 3 : -1);
+            visitor.visitInsn(DRETURN);
+            visitor.visitMaxs(0, 0);
+            visitor.visitEnd();
+        }
+
+        /** Adds a method to generate later, and returns its name */
+        String addMethod(boolean accumulating, BiConsumer<MethodGenerator, Integer> body) {
+            String name = "evaluate" + (++methodCount);
+            pendingMethods.add(new PendingMethod(name, accumulating, body));
+            return name;
+        }
+
+        /** Returns the index of the given constant outside the constant pool, or -1 if it should be in the constant pool */
+        int constantIndex(double value) {
+            if (pooledConstants.contains(value)) return -1;
+            if (pooledConstants.size() < maxPooledConstants) {
+                pooledConstants.add(value);
+                return -1;
+            }
+            return arrayConstants.computeIfAbsent(value, v -> arrayConstants.size());
+        }
+
+        /** Returns the constants which are not in the constant pool, in chunks, at the indexes returned by constantIndex */
+        double[][] constants() {
+            int size = arrayConstants.size();
+            double[][] constants = new double[(size + constantChunkSize - 1) / constantChunkSize][];
+            for (int i = 0; i < constants.length; i++)
+                constants[i] = new double[Math.min(constantChunkSize, size - i * constantChunkSize)];
+            for (Map.Entry<Double, Integer> constant : arrayConstants.entrySet())
+                constants[constant.getValue() / constantChunkSize][constant.getValue() % constantChunkSize] = constant.getKey();
+            return constants;
+        }
+
+    }
+
+    private static final class PendingMethod {
+
+        final String name;
+        final boolean accumulating;
+        final BiConsumer<MethodGenerator, Integer> body;
+
+        PendingMethod(String name, boolean accumulating, BiConsumer<MethodGenerator, Integer> body) {
+            this.name = name;
+            this.accumulating = accumulating;
+            this.body = body;
+        }
+
+    }
+
+    /**
+     * Generates the code of one method with the signature of {@link CompiledExpression#evaluate(double[], Context)},
+     * optionally with a double value to accumulate a sum into as an additional argument
+     */
+    private static final class MethodGenerator {
+
+        private static final int features = 1, context = 2;
+
+        private final ClassGenerator owner;
+        private final MethodVisitor code;
+        private int nextLocal;
+
+        MethodGenerator(ClassGenerator owner, MethodVisitor code, int firstLocal) {
+            this.owner = owner;
+            this.code = code;
+            this.nextLocal = firstLocal;
+        }
+
+        MethodVisitor code() { return code; }
+
+        /** Generates code leaving the value of the given child node on the stack */
+        void generateChild(Node node) {
+            if (node.size() > maxMethodNodes)
+                generateCall(false, (method, accumulator) -> node.generate(method));
+            else
+                node.generate(this);
+        }
+
+        /** Generates code which jumps to the given label if the given child node is false (zero) */
+        void generateChildBranchIfFalse(Node node, Label ifFalse) {
+            if (node.size() > maxMethodNodes) {
+                generateChild(node);
+                generateJumpIfZero(ifFalse);
+            }
+            else {
+                node.generateBranchIfFalse(this, ifFalse);
+            }
+        }
+
+        /** Generates code which pops the double on top of the stack and jumps to the given label if it is zero */
+        void generateJumpIfZero(Label label) {
+            code.visitInsn(DCONST_0);
+            code.visitInsn(DCMPL);
+            code.visitJumpInsn(IFEQ, label);
+        }
+
+        /**
+         * Generates a call to a new method with the given body, leaving its value on the stack.
+         * If accumulating, the value on top of the stack is passed to the method as the value to accumulate into.
+         */
+        void generateCall(boolean accumulating, BiConsumer<MethodGenerator, Integer> body) {
+            String name = owner.addMethod(accumulating, body);
+            int accumulator = -1;
+            if (accumulating) {
+                accumulator = newDoubleLocal();
+                code.visitVarInsn(DSTORE, accumulator);
+            }
+            code.visitVarInsn(ALOAD, 0);
+            code.visitVarInsn(ALOAD, features);
+            code.visitVarInsn(ALOAD, context);
+            if (accumulating)
+                code.visitVarInsn(DLOAD, accumulator);
+            code.visitMethodInsn(INVOKESPECIAL, owner.className, name,
+                                 accumulating ? accumulatingDescriptor : evaluateDescriptor, false);
+        }
+
+        /**
+         * Generates code leaving the sum of the given terms, and the local variable accumulator if it is not -1,
+         * on the stack. Terms are added from the last one, which is the order a chain of + is evaluated in
+         * by the interpreter.
+         */
+        void generateSum(List<Node> terms, int accumulator) {
+            if (terms.size() == 1) {
+                terms.get(0).generate(this);
+                generateAdd(accumulator);
+            }
+            else if (sizeOf(terms) <= maxMethodNodes) {
+                for (int i = terms.size() - 1; i >= 0; i--) {
+                    generateChild(terms.get(i));
+                    if (i == terms.size() - 1)
+                        generateAdd(accumulator);
+                    else
+                        code.visitInsn(DADD);
+                }
+            }
+            else {
+                generateSumOfParts(partition(terms), accumulator);
+            }
+        }
+
+        /** Generates a sum of the sums of the given parts, each in a separate method */
+        private void generateSumOfParts(List<List<Node>> parts, int accumulator) {
+            List<BiConsumer<MethodGenerator, Integer>> partSums = new ArrayList<>();
+            if (parts.size() <= maxMethodNodes) {
+                for (List<Node> part : parts)
+                    partSums.add((method, partAccumulator) -> method.generateSum(part, partAccumulator));
+            }
+            else { // sum groups of parts in separate methods
+                int groupSize = (parts.size() + maxMethodNodes - 1) / maxMethodNodes;
+                for (int i = 0; i < parts.size(); i += groupSize) {
+                    List<List<Node>> group = parts.subList(i, Math.min(i + groupSize, parts.size()));
+                    partSums.add((method, groupAccumulator) -> method.generateSumOfParts(group, groupAccumulator));
+                }
+            }
+
+            for (int i = partSums.size() - 1; i >= 0; i--) {
+                boolean last = i == partSums.size() - 1;
+                if (last && accumulator >= 0)
+                    code.visitVarInsn(DLOAD, accumulator);
+                generateCall( ! last || accumulator >= 0, partSums.get(i));
+            }
+        }
+
+        private void generateAdd(int accumulator) {
+            if (accumulator < 0) return;
+            code.visitVarInsn(DLOAD, accumulator);
+            code.visitInsn(DADD);
+        }
+
+        void generateFeature(int index) {
+            code.visitVarInsn(ALOAD, features);
+            generateInt(index);
+            code.visitInsn(DALOAD);
+        }
+
+        void generateConstant(double value) {
+            if (Double.doubleToRawLongBits(value) == Double.doubleToRawLongBits(0.0)) {
+                code.visitInsn(DCONST_0);
+            }
+            else if (value == 1.0) {
+                code.visitInsn(DCONST_1);
+            }
+            else {
+                int index = owner.constantIndex(value);
+                if (index < 0) {
+                    code.visitLdcInsn(value);
+                }
+                else {
+                    code.visitVarInsn(ALOAD, 0);
+                    code.visitFieldInsn(GETFIELD, superName, "constants", "[[D");
+                    generateInt(index / constantChunkSize);
+                    code.visitInsn(AALOAD);
+                    generateInt(index % constantChunkSize);
+                    code.visitInsn(DALOAD);
+                }
+            }
+        }
+
+        void generateInterpreted(int subexpression) {
+            code.visitVarInsn(ALOAD, 0);
+            generateInt(subexpression);
+            code.visitVarInsn(ALOAD, features);
+            code.visitVarInsn(ALOAD, context);
+            code.visitMethodInsn(INVOKEVIRTUAL, superName, "interpret", interpretDescriptor, false);
+        }
+
+        void generateInt(int value) {
+            if (value >= -1 && value <= 5)
+                code.visitInsn(ICONST_0 + value);
+            else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE)
+                code.visitIntInsn(BIPUSH, value);
+            else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE)
+                code.visitIntInsn(SIPUSH, value);
+            else
+                code.visitLdcInsn(value);
+        }
+
+        int newDoubleLocal() {
+            int local = nextLocal;
+            nextLocal += 2;
+            return local;
+        }
+
+        private static int sizeOf(List<Node> nodes) {
+            int size = 0;
+            for (Node node : nodes)
+                size += node.size();
+            return size;
+        }
+
+        /** Partitions the given nodes into consecutive parts which fit in a method, or consist of a single node */
+        private static List<List<Node>> partition(List<Node> nodes) {
+            List<List<Node>> parts = new ArrayList<>();
+            int start = 0;
+            int size = 0;
+            for (int i = 0; i < nodes.size(); i++) {
+                if (i > start && size + nodes.get(i).size() > maxMethodNodes) {
+                    parts.add(nodes.subList(start, i));
+                    start = i;
+                    size = 0;
+                }
+                size += nodes.get(i).size();
+            }
+            parts.add(nodes.subList(start, nodes.size()));
+            return parts;
+        }
+
+    }
+
+    /** A compiled expression node */
+    private static abstract class Node {
+
+        private final int size;
+
+        Node(Node ... children) {
+            this(1, children);
+        }
+
+        /** Creates a node which counts as the given number of nodes in addition to its children */
+        Node(int ownSize, Node ... children) {
+            int size = ownSize;
+            for (Node child : children)
+                size += child.size();
+            this.size = size;
+        }
+
+        /** Returns the number of nodes in this subtree, which is used to split the generated code over methods */
+        final int size() { return size; }
+
+        /** Generates code leaving the value of this on the stack */
+        abstract void generate(MethodGenerator method);
+
+        /**
+         * Generates code which jumps to the given label if this is false (zero), and continues otherwise.
+         * This does not change the stack.
+         */
+        void generateBranchIfFalse(MethodGenerator method, Label ifFalse) {
+            generate(method);
+            method.generateJumpIfZero(ifFalse);
+        }
+
+        /** Returns the value of this at compile time. This is only called if all arguments of this are constant. */
+        abstract double constantValue();
+
+    }
+
+    /** A node with a boolean value, which is represented as 1 or 0 */
+    private static abstract class Condition extends Node {
+
+        Condition(Node ... children) { super(children); }
+
+        Condition(int ownSize, Node ... children) { super(ownSize, children); }
+
+        @Override
+        final void generate(MethodGenerator method) {
+            Label ifFalse = new Label();
+            Label end = new Label();
+            generateBranchIfFalse(method, ifFalse);
+            method.code().visitInsn(DCONST_1);
+            method.code().visitJumpInsn(GOTO, end);
+            method.code().visitLabel(ifFalse);
+            method.code().visitInsn(DCONST_0);
+            method.code().visitLabel(end);
+        }
+
+        @Override
+        abstract void generateBranchIfFalse(MethodGenerator method, Label ifFalse);
+
+        @Override
+        final double constantValue() { return isTrue() ? 1 : 0; }
+
+        abstract boolean isTrue();
+
+    }
+
+    private static final class Constant extends Node {
+
+        final double value;
+
+        Constant(double value) { this.value = value; }
+
+        @Override
+        void generate(MethodGenerator method) { method.generateConstant(value); }
+
+        @Override
+        double constantValue() { return value; }
+
+    }
+
+    private static final class Feature extends Node {
+
+        final int index;
+
+        Feature(int index) { this.index = index; }
+
+        @Override
+        void generate(MethodGenerator method) { method.generateFeature(index); }
+
+        @Override
+        double constantValue() { throw new IllegalStateException("A feature is not constant"); }
+
+    }
+
+    private static final class Negate extends Node {
+
+        private final Node argument;
+
+        Negate(Node argument) {
+            super(argument);
+            this.argument = argument;
+        }
+
+        @Override
+        void generate(MethodGenerator method) {
+            method.generateChild(argument);
+            method.code().visitInsn(DNEG);
+        }
+
+        @Override
+        double constantValue() { return - argument.constantValue(); }
+
+    }
+
+    private static final class Not extends Condition {
+
+        private final Node argument;
+
+        Not(Node argument) {
+            super(argument);
+            this.argument = argument;
+        }
+
+        @Override
+        void generateBranchIfFalse(MethodGenerator method, Label ifFalse) {
+            Label ifTrue = new Label();
+            method.generateChildBranchIfFalse(argument, ifTrue);
+            method.code().visitJumpInsn(GOTO, ifFalse);
+            method.code().visitLabel(ifTrue);
+        }
+
+        @Override
+        boolean isTrue() { return argument.constantValue() == 0; }
+
+    }
+
+    private static final class Or extends Condition {
+
+        private final Node left, right;
+
+        Or(Node left, Node right) {
+            super(left, right);
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        void generateBranchIfFalse(MethodGenerator method, Label ifFalse) {
+            Label ifLeftFalse = new Label();
+            Label ifTrue = new Label();
+            method.generateChildBranchIfFalse(left, ifLeftFalse);
+            method.code().visitJumpInsn(GOTO, ifTrue);
+            method.code().visitLabel(ifLeftFalse);
+            method.generateChildBranchIfFalse(right, ifFalse);
+            method.code().visitLabel(ifTrue);
+        }
+
+        @Override
+        boolean isTrue() { return left.constantValue() != 0 || right.constantValue() != 0; }
+
+    }
+
+    private static final class And extends Condition {
+
+        private final Node left, right;
+
+        And(Node left, Node right) {
+            super(left, right);
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        void generateBranchIfFalse(MethodGenerator method, Label ifFalse) {
+            method.generateChildBranchIfFalse(left, ifFalse);
+            method.generateChildBranchIfFalse(right, ifFalse);
+        }
+
+        @Override
+        boolean isTrue() { return left.constantValue() != 0 && right.constantValue() != 0; }
+
+    }
+
+    /** An arithmetic operation which is a single bytecode instruction */
+    private static final class Arithmetic extends Node {
+
+        private final int opcode;
+        private final Node left, right;
+
+        Arithmetic(int opcode, Node left, Node right) {
+            super(left, right);
+            this.opcode = opcode;
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        void generate(MethodGenerator method) {
+            method.generateChild(left);
+            method.generateChild(right);
+            method.code().visitInsn(opcode);
+        }
+
+        @Override
+        double constantValue() {
+            double x = left.constantValue();
+            double y = right.constantValue();
+            switch (opcode) {
+                case DADD: return x + y;
+                case DSUB: return x - y;
+                case DMUL: return x * y;
+                case DDIV: return x / y;
+                case DREM: return x % y;
+                default: throw new IllegalStateException("Unknown opcode " + opcode);
+            }
+        }
+
+    }
+
+    private static final class Comparison extends Condition {
+
+        private final TruthOperator operator;
+        private final Node left, right;
+
+        Comparison(TruthOperator operator, Node left, Node right) {
+            super(left, right);
+            this.operator = operator;
+            this.left = left;
+            this.right = right;
+        }
+
+        /** Generates a single compare and branch, the same way javac does, except for approximate equality */
+        @Override
+        void generateBranchIfFalse(MethodGenerator method, Label ifFalse) {
+            MethodVisitor code = method.code();
+            if (operator == TruthOperator.APPROX_EQUAL) {
+                code.visitFieldInsn(GETSTATIC, Type.getInternalName(TruthOperator.class), operator.name(),
+                                    Type.getDescriptor(TruthOperator.class));
+                method.generateChild(left);
+                method.generateChild(right);
+                code.visitMethodInsn(INVOKEVIRTUAL, Type.getInternalName(TruthOperator.class), "evaluate", "(DD)Z", false);
+                code.visitJumpInsn(IFEQ, ifFalse);
+                return;
+            }
+
+            method.generateChild(left);
+            method.generateChild(right);
+            switch (operator) { // a comparison with NaN is false, except for inequality
+                case SMALLER: code.visitInsn(DCMPG); code.visitJumpInsn(IFGE, ifFalse); break;
+                case SMALLEREQUAL: code.visitInsn(DCMPG); code.visitJumpInsn(IFGT, ifFalse); break;
+                case LARGER: code.visitInsn(DCMPL); code.visitJumpInsn(IFLE, ifFalse); break;
+                case LARGEREQUAL: code.visitInsn(DCMPL); code.visitJumpInsn(IFLT, ifFalse); break;
+                case EQUAL: code.visitInsn(DCMPL); code.visitJumpInsn(IFNE, ifFalse); break;
+                case NOTEQUAL: code.visitInsn(DCMPL); code.visitJumpInsn(IFEQ, ifFalse); break;
+                default: throw new IllegalArgumentException("Unknown operator " + operator);
+            }
+        }
+
+        @Override
+        boolean isTrue() { return operator.evaluate(left.constantValue(), right.constantValue()); }
+
+    }
+
+    private static final class SetMembership extends Condition {
+
+        private final Node testValue;
+        private final double[] set;
+
+        SetMembership(Node testValue, double[] set) {
+            super(1 + set.length, testValue);
+            this.testValue = testValue;
+            this.set = set;
+        }
+
+        @Override
+        void generateBranchIfFalse(MethodGenerator method, Label ifFalse) {
+            MethodVisitor code = method.code();
+            Label ifTrue = new Label();
+            int value = method.newDoubleLocal();
+            method.generateChild(testValue);
+            code.visitVarInsn(DSTORE, value);
+            for (double setValue : set) {
+                code.visitVarInsn(DLOAD, value);
+                method.generateConstant(setValue);
+                code.visitInsn(DCMPL);
+                code.visitJumpInsn(IFEQ, ifTrue);
+            }
+            code.visitJumpInsn(GOTO, ifFalse);
+            code.visitLabel(ifTrue);
+        }
+
+        @Override
+        boolean isTrue() {
+            double value = testValue.constantValue();
+            for (double setValue : set)
+                if (value == setValue) return true;
+            return false;
+        }
+
+    }
+
+    /** A call to a function, which is inlined by the JIT compiler as the function is a static constant */
+    private static final class FunctionCall extends Node {
+
+        private final Function function;
+        private final Node x, y;
+
+        FunctionCall(Function function, Node x, Node y) {
+            super(x, y);
+            this.function = function;
+            this.x = x;
+            this.y = y;
+        }
+
+        @Override
+        void generate(MethodGenerator method) {
+            String functionClass = Type.getInternalName(Function.class);
+            method.code().visitFieldInsn(GETSTATIC, functionClass, function.name(), Type.getDescriptor(Function.class));
+            method.generateChild(x);
+            method.generateChild(y);
+            method.code().visitMethodInsn(INVOKEVIRTUAL, functionClass, "evaluate", "(DD)D", false);
+        }
+
+        @Override
+        double constantValue() { return function.evaluate(x.constantValue(), y.constantValue()); }
+
+    }
+
+    /** A sum of any number of terms, added in the same order as a chain of + operators is by the interpreter */
+    private static final class Sum extends Node {
+
+        private final List<Node> terms;
+
+        Sum(Node[] terms) {
+            super(terms);
+            this.terms = Arrays.asList(terms);
+        }
+
+        @Override
+        void generate(MethodGenerator method) { method.generateSum(terms, -1); }
+
+        @Override
+        double constantValue() {
+            double sum = terms.get(terms.size() - 1).constantValue();
+            for (int i = terms.size() - 2; i >= 0; i--)
+                sum = terms.get(i).constantValue() + sum;
+            return sum;
+        }
+
+    }
+
+    /** A conditional. Decision tree nodes become a single compare and branch. */
+    private static final class If extends Node {
+
+        private final Node condition, trueNode, falseNode;
+
+        If(Node condition, Node trueNode, Node falseNode) {
+            super(condition, trueNode, falseNode);
+            this.condition = condition;
+            this.trueNode = trueNode;
+            this.falseNode = falseNode;
+        }
+
+        @Override
+        void generate(MethodGenerator method) {
+            Label ifFalse = new Label();
+            Label end = new Label();
+            method.generateChildBranchIfFalse(condition, ifFalse);
+            method.generateChild(trueNode);
+            method.code().visitJumpInsn(GOTO, end);
+            method.code().visitLabel(ifFalse);
+            method.generateChild(falseNode);
+            method.code().visitLabel(end);
+        }
+
+        @Override
+        double constantValue() {
+            return condition.constantValue() != 0 ? trueNode.constantValue() : falseNode.constantValue();
+        }
+
+    }
+
+    /** A subexpression which is evaluated by the interpreter */
+    private static final class Interpreted extends Node {
+
+        private final int subexpression;
+
+        Interpreted(int subexpression) { this.subexpression = subexpression; }
+
+        @Override
+        void generate(MethodGenerator method) { method.generateInterpreted(subexpression); }
+
+        @Override
+        double constantValue() { throw new IllegalStateException("An interpreted subexpression is not constant"); }
+
+    }
+
+    /** Loads a single generated class, such that it can be unloaded when it is no longer used */
+    private static final class GeneratedClassLoader extends ClassLoader {
+
+        GeneratedClassLoader() {
+            super(CompiledExpression.class.getClassLoader());
+        }
+
+        Class<?> define(String name, byte[] bytes) {
+            return defineClass(name, bytes, 0, bytes.length);
+        }
+
+    }
+
+}
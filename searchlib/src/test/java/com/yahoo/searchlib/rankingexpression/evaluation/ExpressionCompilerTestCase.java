@@ -0,0 +1,110 @@
+// Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.searchlib.rankingexpression.evaluation;
+
+import com.yahoo.io.IOUtils;
+import com.yahoo.searchlib.rankingexpression.RankingExpression;
+import com.yahoo.searchlib.rankingexpression.parser.ParseException;
+import com.yahoo.tensor.Tensor;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author agent
+ */
+public class ExpressionCompilerTestCase {
+
+    @Test
+    public void testCompiledEvaluatesAsInterpreted() throws ParseException {
+        assertCompiledEvaluatesAsInterpreted("x + y * z");
+        assertCompiledEvaluatesAsInterpreted("x - y - z + 2 * x / y ^ 2");
+        assertCompiledEvaluatesAsInterpreted("x % 0.3 + -y + -(z * 3)");
+        assertCompiledEvaluatesAsInterpreted("if (x < 0.5, y, z) + if (y >= 0.5, 1, 2)");
+        assertCompiledEvaluatesAsInterpreted("if (x < 0.25, if (y < 0.5, 1.5, 2.5), if (z < 0.75, 3.5, -4.5)) + " +
+                                             "if (y < 0.3, 0.1, if (z < 0.8, 0.2, 0.3))");
+        assertCompiledEvaluatesAsInterpreted("if (x in [0, 1, 2], y, z)");
+        assertCompiledEvaluatesAsInterpreted("if (x == y || y != z && !(z ~= 1), 1, 0)");
+        assertCompiledEvaluatesAsInterpreted("max(x, y) + min(y, z) + sqrt(z) + log(x + 1) + sigmoid(y) + pow(x, 2)");
+        assertCompiledEvaluatesAsInterpreted("if (2 > 1, x, y) + 3 * 4 + exp(0)");
+    }
+
+    @Test
+    public void testConstantsAreFolded() throws ParseException {
+        RankingExpression expression = new RankingExpression("if (1 < 2, 3 * 4 + sqrt(16), 0) - 2");
+        CompiledExpression compiled = new ExpressionCompiler().compile(expression, new ArrayContext(expression));
+        assertEquals(14.0, compiled.evaluate(new double[0]), 0.0);
+        assertEquals(0, compiled.interpretedSubexpressions());
+    }
+
+    @Test
+    public void testGBDT() throws ParseException, IOException {
+        RankingExpression expression = new RankingExpression(IOUtils.readFile(new File("src/test/files/s-expression.vre")));
+        ArrayContext context = new ArrayContext(expression, true);
+        CompiledExpression compiled = new ExpressionCompiler().compile(expression, context);
+        assertEquals(0, compiled.interpretedSubexpressions());
+        context.put("LENGTH", 6.0);
+        context.put("ORDER_IN_CLUSTER", 2.0);
+        context.put("GOOD_SYNTAX", 1.0);
+        context.put("TERM_CASE_4", 1.0);
+        assertEquals(expression.evaluate(context).asDouble(), compiled.evaluate(context), 0.0);
+    }
+
+    @Test
+    public void testTensorSubexpressionsAreInterpreted() throws ParseException {
+        RankingExpression expression = new RankingExpression("reduce(tensor0 * tensor1, sum) + x");
+        ArrayContext context = new ArrayContext(expression);
+        CompiledExpression compiled = new ExpressionCompiler().compile(expression, context);
+        assertEquals(1, compiled.interpretedSubexpressions());
+
+        context.put("tensor0", new TensorValue(Tensor.from("{ {x:0}:1.0, {x:1}:2.0 }")));
+        context.put("tensor1", new TensorValue(Tensor.from("{ {x:0}:3.0, {x:1}:4.0 }")));
+        context.put("x", 0.5);
+        assertEquals(11.5, compiled.evaluate(context), 0.0);
+    }
+
+    @Test
+    public void testLargeExpressionsAreCompiled() throws ParseException {
+        // Enough nodes to be split over many methods, and enough distinct constants to not fit in the constant pool
+        Random random = new Random(1);
+        StringBuilder expressionString = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            if (i > 0)
+                expressionString.append(" + ");
+            expressionString.append("if (x").append(i % 10).append(" < ").append(random.nextDouble()).append(", ")
+                            .append(random.nextDouble()).append(", ").append(random.nextDouble()).append(")");
+        }
+        RankingExpression expression = new RankingExpression(expressionString.toString());
+        ArrayContext context = new ArrayContext(expression);
+        CompiledExpression compiled = new ExpressionCompiler().compile(expression, context);
+        for (int i = 0; i < 10; i++) {
+            for (String name : context.names())
+                context.put(name, random.nextDouble());
+            assertEquals(expression.evaluate(context).asDouble(), compiled.evaluate(context), 0.0);
+        }
+    }
+
+    private void assertCompiledEvaluatesAsInterpreted(String expressionString) throws ParseException {
+        RankingExpression expression = new RankingExpression(expressionString);
+        ArrayContext context = new ArrayContext(expression);
+        CompiledExpression compiled = new ExpressionCompiler().compile(expression, context);
+        assertEquals("All of " + expressionString + " is compiled", 0, compiled.interpretedSubexpressions());
+
+        Random random = new Random(1);
+        double[] features = new double[compiled.size()];
+        for (int i = 0; i < 1000; i++) {
+            for (String name : context.names()) {
+                double value = random.nextInt(4) == 0 ? random.nextInt(3) : random.nextDouble();
+                context.put(name, value);
+                features[compiled.indexOf(name)] = value;
+            }
+            double expected = expression.evaluate(context).asDouble();
+            assertEquals(expressionString, expected, compiled.evaluate(features), 0.0);
+            assertEquals(expressionString, expected, compiled.evaluate(context), 0.0);
+        }
+    }
+
+}
@@ -0,0 +1,57 @@
+// Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.metrics.simple;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import com.google.common.annotations.Beta;
+
+/**
+ * A counter bound to a single point in the metric space. Create it with
+ * {@link Counter#bind()} or {@link Counter#bind(Point)} once, and keep it
+ * around: increasing a bound counter only touches a striped accumulator, and
+ * does not create any objects.
+ *
+ * @author agent
+ */
+@Beta
+public class BoundCounter implements BoundMetric {
+
+    private final Identifier identifier;
+    private final LongAdder total = new LongAdder();
+    /** The part of total already moved to a bucket, only accessed by the draining thread */
+    private long drained = 0L;
+
+    BoundCounter(Identifier identifier) {
+        this.identifier = identifier;
+    }
+
+    /**
+     * Increase this counter by 1.
+     */
+    public void add() {
+        total.increment();
+    }
+
+    /**
+     * Add to this counter.
+     *
+     * @param n the amount by which to increase this counter
+     */
+    public void add(long n) {
+        total.add(n);
+    }
+
+    @Override
+    public void drainTo(Bucket bucket) {
+        // sum() is not an atomic snapshot, but whatever it misses will be seen next time
+        long sum = total.sum();
+        long delta = sum - drained;
+        if (delta == 0L) return;
+
+        drained = sum;
+        UntypedMetric value = new UntypedMetric(null);
+        value.add(delta);
+        bucket.merge(identifier, value);
+    }
+
+}
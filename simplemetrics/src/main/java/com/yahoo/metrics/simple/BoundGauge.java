@@ -0,0 +1,84 @@
+// Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.metrics.simple;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import com.google.common.annotations.Beta;
+
+/**
+ * A gauge bound to a single point in the metric space. Create it with
+ * {@link Gauge#bind()} or {@link Gauge#bind(Point)} once, and keep it around:
+ * sampling a bound gauge records the value directly in a slot owned by the
+ * calling thread, and does not create any objects.
+ *
+ * @author agent
+ */
+@Beta
+public class BoundGauge implements BoundMetric {
+
+    private final Identifier identifier;
+    private final MetricSettings metricSettings;
+    private final List<Slot> slots = new CopyOnWriteArrayList<>();
+    private final ThreadLocal<Slot> slot = new ThreadLocal<Slot>() {
+        @Override
+        protected Slot initialValue() {
+            Slot s = new Slot(Thread.currentThread(), metricSettings);
+            slots.add(s);
+            return s;
+        }
+    };
+
+    BoundGauge(Identifier identifier, MetricSettings metricSettings) {
+        this.identifier = identifier;
+        this.metricSettings = metricSettings;
+    }
+
+    /**
+     * Record a sample.
+     *
+     * @param x
+     *            sample value
+     */
+    public void sample(double x) {
+        Slot s = slot.get();
+        synchronized (s) {
+            s.value.put(x);
+        }
+    }
+
+    @Override
+    public void drainTo(Bucket bucket) {
+        for (Slot s : slots) {
+            boolean ownerAlive = s.owner.isAlive();
+            UntypedMetric value;
+            synchronized (s) {
+                value = s.value;
+                if (value.getCount() > 0) {
+                    s.value = new UntypedMetric(metricSettings);
+                }
+            }
+            if (value.getCount() > 0) {
+                bucket.merge(identifier, value);
+            }
+            if ( ! ownerAlive) {
+                // the owner could not have written anything after we checked, so this slot is done
+                slots.remove(s);
+            }
+        }
+    }
+
+    /** The values recorded by a single thread, guarded by the monitor of the slot */
+    private static final class Slot {
+
+        private final Thread owner;
+        private UntypedMetric value;
+
+        Slot(Thread owner, MetricSettings metricSettings) {
+            this.owner = owner;
+            this.value = new UntypedMetric(metricSettings);
+        }
+
+    }
+
+}
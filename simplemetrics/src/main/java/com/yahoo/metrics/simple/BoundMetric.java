@@ -0,0 +1,18 @@
+// Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.metrics.simple;
+
+/**
+ * A metric bound to a single point, which accumulates its values outside the
+ * per thread buckets and moves them into a bucket when asked to.
+ *
+ * @author agent
+ */
+interface BoundMetric {
+
+    /**
+     * Move everything accumulated since the last invocation into the given
+     * bucket. This is only invoked from a single thread at a time.
+     */
+    void drainTo(Bucket bucket);
+
+}
@@ -60,6 +60,28 @@ public class Counter {
         metricReceiver.update(new Sample(new Measurement(Long.valueOf(n)), new Identifier(name, p), AssumedType.COUNTER));
     }
 
+    /**
+     * Bind this counter to the default position. The returned counter should
+     * be kept and reused, as it is cheaper to increase than this.
+     *
+     * @return a thread-safe counter bound to the default position
+     */
+    public BoundCounter bind() {
+        return bind(defaultPosition);
+    }
+
+    /**
+     * Bind this counter to the given point. The returned counter should be kept
+     * and reused, as it is cheaper to increase than this.
+     *
+     * @param p
+     *            the point in the metric space the returned counter increases
+     * @return a thread-safe counter bound to the given point
+     */
+    public BoundCounter bind(Point p) {
+        return metricReceiver.bindCounter(new Identifier(name, p));
+    }
+
     /**
      * Create a PointBuilder with default dimension values as given when this
      * counter was declared.
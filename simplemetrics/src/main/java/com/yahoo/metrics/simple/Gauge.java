@@ -48,6 +48,28 @@ public class Gauge {
         receiver.update(new Sample(new Measurement(Double.valueOf(x)), new Identifier(name, p), AssumedType.GAUGE));
     }
 
+    /**
+     * Bind this gauge to the default position. The returned gauge should be
+     * kept and reused, as it is cheaper to sample than this.
+     *
+     * @return a thread-safe gauge bound to the default position
+     */
+    public BoundGauge bind() {
+        return bind(defaultPosition);
+    }
+
+    /**
+     * Bind this gauge to the given position. The returned gauge should be kept
+     * and reused, as it is cheaper to sample than this.
+     *
+     * @param p
+     *            position/dimension values for all samples of the returned gauge
+     * @return a thread-safe gauge bound to the given position
+     */
+    public BoundGauge bind(Point p) {
+        return receiver.bindGauge(new Identifier(name, p));
+    }
+
     /**
      * Create a PointBuilder with the default dimension values reflecting those
      * given when this gauge was declared.
@@ -4,6 +4,7 @@ package com.yahoo.metrics.simple;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicReference;
 
 import com.google.common.annotations.Beta;
@@ -28,6 +29,41 @@ public class MetricReceiver {
     private final Object histogramDefinitionsLock = new Object();
     private volatile Map<String, MetricSettings> metricSettings;
 
+    private final Map<Identifier, BoundCounter> boundCounters = new ConcurrentHashMap<>();
+    private final Map<Identifier, BoundGauge> boundGauges = new ConcurrentHashMap<>();
+
+    private static final class NullBoundCounter extends BoundCounter {
+        NullBoundCounter() {
+            super(null);
+        }
+
+        @Override
+        public void add() {
+        }
+
+        @Override
+        public void add(long n) {
+        }
+
+        @Override
+        public void drainTo(Bucket bucket) {
+        }
+    }
+
+    private static final class NullBoundGauge extends BoundGauge {
+        NullBoundGauge() {
+            super(null, null);
+        }
+
+        @Override
+        public void sample(double x) {
+        }
+
+        @Override
+        public void drainTo(Bucket bucket) {
+        }
+    }
+
     private static final class NullCounter extends Counter {
         NullCounter() {
             super(null, null, null);
@@ -49,6 +85,11 @@ public class MetricReceiver {
         public void add(long n, Point p) {
         }
 
+        @Override
+        public BoundCounter bind(Point p) {
+            return new NullBoundCounter();
+        }
+
         @Override
         public PointBuilder builder() {
             return super.builder();
@@ -68,6 +109,11 @@ public class MetricReceiver {
         public void sample(double x, Point p) {
         }
 
+        @Override
+        public BoundGauge bind(Point p) {
+            return new NullBoundGauge();
+        }
+
         @Override
         public PointBuilder builder() {
             return super.builder();
@@ -89,6 +135,7 @@ public class MetricReceiver {
             for (Bucket b : collection.fetch()) {
                 merged.merge(b, true);
             }
+            drainBoundMetrics(merged);
             return merged;
         }
         /** utility method for testing */
@@ -141,6 +188,20 @@ public class MetricReceiver {
             return null;
         }
 
+        @Override
+        BoundCounter bindCounter(Identifier identifier) {
+            return new NullBoundCounter();
+        }
+
+        @Override
+        BoundGauge bindGauge(Identifier identifier) {
+            return new NullBoundGauge();
+        }
+
+        @Override
+        void drainBoundMetrics(Bucket bucket) {
+        }
+
         @Override
         void addMetricDefinition(String metricName, MetricSettings definition) {
         }
@@ -258,6 +319,49 @@ public class MetricReceiver {
         return new Gauge(name, defaultDimensions, this);
     }
 
+    /**
+     * Get the counter bound to the given identifier, creating it if necessary.
+     *
+     * @param identifier
+     *            metric name and position of the counter
+     * @return the single bound counter for the given identifier
+     */
+    BoundCounter bindCounter(Identifier identifier) {
+        BoundCounter counter = boundCounters.get(identifier);
+        if (counter != null) return counter;
+        return boundCounters.computeIfAbsent(identifier, BoundCounter::new);
+    }
+
+    /**
+     * Get the gauge bound to the given identifier, creating it if necessary.
+     * Histogram settings are resolved once, when the gauge is created.
+     *
+     * @param identifier
+     *            metric name and position of the gauge
+     * @return the single bound gauge for the given identifier
+     */
+    BoundGauge bindGauge(Identifier identifier) {
+        BoundGauge gauge = boundGauges.get(identifier);
+        if (gauge != null) return gauge;
+        return boundGauges.computeIfAbsent(identifier, id -> new BoundGauge(id, getMetricDefinition(id.getName())));
+    }
+
+    /**
+     * Move everything recorded through bound metrics since the last invocation
+     * into the given bucket. Must only be invoked from a single thread.
+     *
+     * @param bucket
+     *            the bucket to merge the values into
+     */
+    void drainBoundMetrics(Bucket bucket) {
+        for (BoundCounter counter : boundCounters.values()) {
+            counter.drainTo(bucket);
+        }
+        for (BoundGauge gauge : boundGauges.values()) {
+            gauge.drainTo(bucket);
+        }
+    }
+
     /**
      * Create a PointBuilder instance with no default settings. PointBuilder
      * instances are not thread-safe.
@@ -38,13 +38,21 @@ public class UntypedMetric {
     }
 
     void add(Number x) {
+        add(x.longValue());
+    }
+
+    void add(long x) {
         outputFormat = AssumedType.COUNTER;
-        count += x.longValue();
+        count += x;
     }
 
     void put(Number x) {
+        put(x.doubleValue());
+    }
+
+    void put(double x) {
         outputFormat = AssumedType.GAUGE;
-        current = x.doubleValue();
+        current = x;
         if (histogram != null) {
             histogram.recordValue(current);
         }
@@ -74,12 +82,18 @@ public class UntypedMetric {
         if (outputFormat != other.outputFormat) {
             throw new IllegalArgumentException("Mismatching output formats: " + outputFormat + " and " + other.outputFormat + ".");
         }
+        if (count == 0) {
+            // min and max of an empty metric are not values, so do not let them take part
+            max = other.max;
+            min = other.min;
+        } else if (other.count > 0) {
+            max = Math.max(other.max, max);
+            min = Math.min(other.min, min);
+        }
         count += other.count;
         if (otherIsNewer) {
             current = other.current;
         }
-        max = Math.max(other.max, max);
-        min = Math.min(other.min, min);
         sum += other.sum;
         if (histogram != null) {
             // some config scenarios may lead to differing histogram settings,
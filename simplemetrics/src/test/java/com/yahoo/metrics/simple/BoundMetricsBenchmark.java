@@ -0,0 +1,69 @@
+// Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.metrics.simple;
+
+import java.util.concurrent.CountDownLatch;
+
+import com.yahoo.metrics.ManagerConfig;
+
+/**
+ * Compares updates per second per thread of a dimensioned counter and gauge,
+ * through {@link Counter#add(long, Point)} and {@link Gauge#sample(double, Point)},
+ * and through the bound metrics returned by {@link Counter#bind(Point)} and
+ * {@link Gauge#bind(Point)}.
+ *
+ * @author agent
+ */
+public class BoundMetricsBenchmark {
+
+    private static void runSamples(Counter counter, Gauge gauge, Point point, int numIterations) {
+        for (int i = 0; i < numIterations; i++) {
+            counter.add(1L, point);
+            gauge.sample(i, point);
+        }
+    }
+
+    private static void runBound(BoundCounter counter, BoundGauge gauge, int numIterations) {
+        for (int i = 0; i < numIterations; i++) {
+            counter.add(1L);
+            gauge.sample(i);
+        }
+    }
+
+    private static void run(String type, MetricReceiver receiver, int numIterations) {
+        Point point = receiver.pointBuilder().set("chain", "vespa").set("handler", "search").set("status", 200).build();
+        Counter counter = receiver.declareCounter("benchmark.count");
+        Gauge gauge = receiver.declareGauge("benchmark.latency");
+        if ("bound".equals(type))
+            runBound(counter.bind(point), gauge.bind(point), numIterations);
+        else
+            runSamples(counter, gauge, point, numIterations);
+    }
+
+    /**
+     * @param argv type (sample or bound), num threads, num iterations per thread
+     */
+    static public void main(String argv[]) throws InterruptedException {
+        String type = argv[0];
+        int numThreads = Integer.valueOf(argv[1]);
+        int count = Integer.valueOf(argv[2]);
+        MetricManager manager = new MetricManager(new ManagerConfig(new ManagerConfig.Builder()));
+        MetricReceiver receiver = manager.get();
+        System.out.println(System.currentTimeMillis() + " Warming up");
+        run(type, receiver, count / 10 + 1);
+        System.out.println(System.currentTimeMillis() + " Start");
+        CountDownLatch done = new CountDownLatch(numThreads);
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < numThreads; i++) {
+            new Thread(() -> {
+                run(type, receiver, count);
+                done.countDown();
+            }).start();
+        }
+        done.await();
+        long elapsed = Math.max(1, System.currentTimeMillis() - start);
+        System.out.println(System.currentTimeMillis() + " End in " + elapsed + " milliseconds, " +
+                           (count * 1000L / elapsed) + " updates/s per thread.");
+        manager.deconstruct();
+    }
+
+}
@@ -108,4 +108,53 @@ public class CounterTest {
         assertEquals(twoToThePowerOfFourtyeight, x.get(0).getValue().getCount());
     }
 
+    @Test
+    public final void testBound() {
+        final String metricName = "unitTestCounter";
+        Point p = receiver.pointBuilder().set("x", 2L).build();
+        Counter c = receiver.declareCounter(metricName, p);
+        BoundCounter bound = c.bind();
+        assertSame(bound, c.bind(p));
+        bound.add();
+        bound.add(41L);
+        c.add(); // the unbound path ends up at the same point
+        UntypedMetric value = receiver.getSnapshot().getMapForMetric(metricName).get(p);
+        assertTrue(value.isCounter());
+        assertEquals(43L, value.getCount());
+
+        assertTrue("Nothing is reported when nothing happened", receiver.getSnapshot().getMapForMetric(metricName).isEmpty());
+        bound.add(5L);
+        assertEquals(5L, receiver.getSnapshot().getMapForMetric(metricName).get(p).getCount());
+    }
+
+    @Test
+    public final void testBoundFromManyThreads() throws InterruptedException {
+        final String metricName = "unitTestCounter";
+        BoundCounter bound = receiver.declareCounter(metricName).bind();
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(() -> {
+                for (int j = 0; j < 10000; j++) {
+                    bound.add();
+                }
+            });
+            threads[i].start();
+        }
+        long total = 0L;
+        for (Thread t : threads) {
+            t.join();
+        }
+        for (UntypedMetric value : receiver.getSnapshot().getMapForMetric(metricName).values()) {
+            total += value.getCount();
+        }
+        assertEquals(40000L, total);
+    }
+
+    @Test
+    public final void testBoundNullImplementation() {
+        BoundCounter bound = MetricReceiver.nullImplementation.declareCounter("unitTestCounter").bind();
+        bound.add();
+        bound.add(2L);
+    }
+
 }
@@ -8,6 +8,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Optional;
 import java.util.concurrent.TimeUnit;
 
 import org.junit.After;
@@ -80,4 +81,38 @@ public class GaugeTest {
         assertEquals(Math.E, x.get(0).getValue().getLast(), 1e-15);
     }
 
+    @Test
+    public final void testBound() throws InterruptedException {
+        final String metricName = "unitTestGauge";
+        Gauge g = receiver.declareGauge(metricName, Optional.empty(), new MetricSettings.Builder().histogram(true).build());
+        BoundGauge bound = g.bind();
+        assertSame(bound, g.bind(null));
+        bound.sample(2.0d);
+        Thread other = new Thread(() -> {
+            bound.sample(1.0d);
+            bound.sample(6.0d);
+        });
+        other.start();
+        other.join();
+        UntypedMetric value = receiver.getSnapshot().getMapForMetric(metricName).get(Point.emptyPoint());
+        assertFalse(value.isCounter());
+        assertEquals(3L, value.getCount());
+        assertEquals(1.0d, value.getMin(), 0.0d);
+        assertEquals(6.0d, value.getMax(), 0.0d);
+        assertEquals(9.0d, value.getSum(), 0.0d);
+        assertEquals(3L, value.getHistogram().getTotalCount());
+
+        assertTrue("Nothing is reported when nothing happened", receiver.getSnapshot().getMapForMetric(metricName).isEmpty());
+        bound.sample(3.0d);
+        value = receiver.getSnapshot().getMapForMetric(metricName).get(Point.emptyPoint());
+        assertEquals(1L, value.getCount());
+        assertEquals(3.0d, value.getLast(), 0.0d);
+    }
+
+    @Test
+    public final void testBoundNullImplementation() {
+        BoundGauge bound = MetricReceiver.nullImplementation.declareGauge("unitTestGauge").bind();
+        bound.sample(1.0d);
+    }
+
 }
@@ -40,6 +40,7 @@ public final class ConnectionParams {
         private final Multimap<String, String> headers = ArrayListMultimap.create();
         private final Map<String, HeaderProvider> headerProviders = new HashMap<>();
         private int numPersistentConnectionsPerEndpoint = 8;
+        private int numPipelinedRequestsPerConnection = 1;
         private String proxyHost = null;
         private int proxyPort = 8080;
         private boolean useCompression = false;
@@ -120,6 +121,21 @@ public final class ConnectionParams {
             return this;
         }
 
+        /**
+         * The max number of requests to have in flight at the same time on each connection. When this is
+         * larger than 1, operations are written to a connection without waiting for the responses to earlier
+         * requests, and results are read as they arrive. This avoids waiting for one round-trip per request,
+         * such that fewer connections and threads are needed to reach a given throughput. Pipelining is only
+         * used with the v3 protocol and without a proxy, otherwise this setting is ignored. Default 1 (no pipelining).
+         *
+         * @param numPipelinedRequestsPerConnection max number of requests in flight per connection
+         * @return pointer to builder.
+         */
+        public Builder setNumPipelinedRequestsPerConnection(int numPipelinedRequestsPerConnection) {
+            this.numPipelinedRequestsPerConnection = numPipelinedRequestsPerConnection;
+            return this;
+        }
+
         /**
          * Sets the HTTP proxy host name to use.
          *
@@ -239,6 +255,7 @@ public final class ConnectionParams {
                     headers,
                     headerProviders,
                     numPersistentConnectionsPerEndpoint,
+                    numPipelinedRequestsPerConnection,
                     proxyHost,
                     proxyPort,
                     useCompression,
@@ -255,6 +272,10 @@ public final class ConnectionParams {
             return numPersistentConnectionsPerEndpoint;
         }
 
+        public int getNumPipelinedRequestsPerConnection() {
+            return numPipelinedRequestsPerConnection;
+        }
+
         public String getProxyHost() {
             return proxyHost;
         }
@@ -295,6 +316,7 @@ public final class ConnectionParams {
     private final Multimap<String, String> headers = ArrayListMultimap.create();
     private final Map<String, HeaderProvider> headerProviders = new HashMap<>();
     private final int numPersistentConnectionsPerEndpoint;
+    private final int numPipelinedRequestsPerConnection;
     private final String proxyHost;
     private final int proxyPort;
     private final boolean useCompression;
@@ -313,6 +335,7 @@ public final class ConnectionParams {
             Multimap<String, String> headers,
             Map<String, HeaderProvider> headerProviders,
             int numPersistentConnectionsPerEndpoint,
+            int numPipelinedRequestsPerConnection,
             String proxyHost,
             int proxyPort,
             boolean useCompression,
@@ -329,6 +352,7 @@ public final class ConnectionParams {
         this.headers.putAll(headers);
         this.headerProviders.putAll(headerProviders);
         this.numPersistentConnectionsPerEndpoint = numPersistentConnectionsPerEndpoint;
+        this.numPipelinedRequestsPerConnection = numPipelinedRequestsPerConnection;
         this.proxyHost = proxyHost;
         this.proxyPort = proxyPort;
         this.useCompression = useCompression;
@@ -363,6 +387,10 @@ public final class ConnectionParams {
         return numPersistentConnectionsPerEndpoint;
     }
 
+    public int getNumPipelinedRequestsPerConnection() {
+        return numPipelinedRequestsPerConnection;
+    }
+
     public String getProxyHost() {
         return proxyHost;
     }
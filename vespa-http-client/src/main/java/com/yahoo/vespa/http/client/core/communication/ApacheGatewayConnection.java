@@ -142,6 +142,11 @@ class ApacheGatewayConnection implements GatewayConnection {
 
     private InputStream write(List<Document> docs, boolean drain, boolean useCompression)
             throws ServerResponseException, IOException {
+        return executePost(createFeedPost(docs, drain, useCompression));
+    }
+
+    /** Creates a post containing the given operations, to be sent after the handshake */
+    HttpPost createFeedPost(List<Document> docs, boolean drain, boolean useCompression) throws IOException {
         HttpPost httpPost = createPost(drain, useCompression, false /* this is not hanshake */);
 
         final ByteBuffer[] buffers = getDataWithStartAndEndOfFeed(docs, negotiatedVersion);
@@ -154,7 +159,7 @@ class ApacheGatewayConnection implements GatewayConnection {
         }
         reqEntity.setChunked(true);
         httpPost.setEntity(reqEntity);
-        return executePost(httpPost);
+        return httpPost;
     }
 
     private ByteBuffer[] getDataWithStartAndEndOfFeed(List<Document> docs, int version) {
@@ -178,7 +183,7 @@ class ApacheGatewayConnection implements GatewayConnection {
         return data.toArray(new ByteBuffer[data.size()]);
     }
 
-    private HttpPost createPost(boolean drain, boolean useCompression, boolean isHandshake) {
+    HttpPost createPost(boolean drain, boolean useCompression, boolean isHandshake) {
         HttpPost httpPost = new HttpPost(createUri());
 
         for (int v : SUPPORTED_VERSIONS) {
@@ -255,9 +260,7 @@ class ApacheGatewayConnection implements GatewayConnection {
             throw e;
         }
         try {
-            verifyServerResponseCode(response.getStatusLine());
-            verifyServerVersion(response.getFirstHeader(Headers.VERSION));
-            verifySessionHeader(response.getFirstHeader(Headers.SESSION_ID));
+            verifyResponse(response);
         } catch (ServerResponseException e) {
             httpPost.abort();
             throw e;
@@ -265,6 +268,13 @@ class ApacheGatewayConnection implements GatewayConnection {
         return response.getEntity().getContent();
     }
 
+    /** Verifies the status, protocol version and session of a response to a post created by this */
+    void verifyResponse(HttpResponse response) throws ServerResponseException {
+        verifyServerResponseCode(response.getStatusLine());
+        verifyServerVersion(response.getFirstHeader(Headers.VERSION));
+        verifySessionHeader(response.getFirstHeader(Headers.SESSION_ID));
+    }
+
     private void verifyServerResponseCode(StatusLine statusLine) throws ServerResponseException {
         // We use code 261-299 to report errors related to internal transitive errors that the tenants should not care
         // about to avoid masking more serious errors.
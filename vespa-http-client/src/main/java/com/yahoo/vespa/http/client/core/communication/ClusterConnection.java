@@ -70,6 +70,16 @@ public class ClusterConnection implements AutoCloseable {
                 GatewayConnection gatewayConnection;
                 if (connectionParams.isDryRun()) {
                     gatewayConnection = new DryRunGatewayConnection(endpoint);
+                } else if (connectionParams.getNumPipelinedRequestsPerConnection() > 1
+                           && connectionParams.isEnableV3Protocol()
+                           && connectionParams.getProxyHost() == null) {
+                    gatewayConnection = new PipelinedGatewayConnection(
+                            endpoint,
+                            feedParams,
+                            cluster.getRoute(),
+                            connectionParams,
+                            operationProcessor.getClientId()
+                    );
                 } else {
                     gatewayConnection = new ApacheGatewayConnection(
                             endpoint,
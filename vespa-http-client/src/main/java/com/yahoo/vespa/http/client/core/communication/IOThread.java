@@ -31,6 +31,12 @@ import java.util.logging.Logger;
 class IOThread implements Runnable, AutoCloseable {
 
     private static Logger log = Logger.getLogger(IOThread.class.getName());
+
+    /** The default shortest time to wait before asking for results again when we cannot send more operations */
+    static final long DEFAULT_MIN_RESULT_POLL_INTERVAL_MS = 5;
+    /** The default longest time to wait before asking for results again when we cannot send more operations */
+    static final long DEFAULT_MAX_RESULT_POLL_INTERVAL_MS = 300;
+
     private final Endpoint endpoint;
     private final GatewayConnection client;
     private final DocumentQueue documentQueue;
@@ -43,6 +49,9 @@ class IOThread implements Runnable, AutoCloseable {
     private final int maxInFlightRequests;
     private final long localQueueTimeOut;
     private final GatewayThrottler gatewayThrottler;
+    private final long minResultPollIntervalMs;
+    private final long maxResultPollIntervalMs;
+    private long resultPollIntervalMs; // only accessed by the IO thread
 
     private enum ThreadState { DISCONNECTED, CONNECTED, SESSION_SYNCED };
     private final AtomicInteger wrongSessionDetectedCounter = new AtomicInteger(0);
@@ -64,6 +73,29 @@ class IOThread implements Runnable, AutoCloseable {
             long localQueueTimeOut,
             DocumentQueue documentQueue,
             long maxSleepTimeMs) {
+        this(endpointResultQueue, client, clusterId, maxChunkSizeBytes, maxInFlightRequests, localQueueTimeOut,
+             documentQueue, maxSleepTimeMs, DEFAULT_MIN_RESULT_POLL_INTERVAL_MS, DEFAULT_MAX_RESULT_POLL_INTERVAL_MS);
+    }
+
+    /**
+     * Creates and starts an IO thread.
+     *
+     * @param minResultPollIntervalMs the time to wait before asking for results again when max operations are in
+     *                                flight and the last request returned no results. This is doubled for each
+     *                                consecutive request returning no results, up to maxResultPollIntervalMs.
+     * @param maxResultPollIntervalMs the longest time to wait before asking for results again
+     */
+    IOThread(
+            EndpointResultQueue endpointResultQueue,
+            GatewayConnection client,
+            int clusterId,
+            int maxChunkSizeBytes,
+            int maxInFlightRequests,
+            long localQueueTimeOut,
+            DocumentQueue documentQueue,
+            long maxSleepTimeMs,
+            long minResultPollIntervalMs,
+            long maxResultPollIntervalMs) {
         this.documentQueue = documentQueue;
         this.endpoint = client.getEndpoint();
         this.client = client;
@@ -72,6 +104,9 @@ class IOThread implements Runnable, AutoCloseable {
         this.maxChunkSizeBytes = maxChunkSizeBytes;
         this.maxInFlightRequests = maxInFlightRequests;
         this.gatewayThrottler = new GatewayThrottler(maxSleepTimeMs);
+        this.minResultPollIntervalMs = Math.max(1, minResultPollIntervalMs);
+        this.maxResultPollIntervalMs = Math.max(this.minResultPollIntervalMs, maxResultPollIntervalMs);
+        this.resultPollIntervalMs = this.minResultPollIntervalMs;
         thread = new Thread(this, "IOThread " + endpoint);
         thread.setDaemon(true);
         this.localQueueTimeOut = localQueueTimeOut;
@@ -285,14 +320,17 @@ class IOThread implements Runnable, AutoCloseable {
         }
         log.finest("Awaiting " + pendingResultQueueSize + " results.");
         ProcessResponse processResponse = feedDocumentAndProcessResults(nextDocsForFeeding);
-        if (pendingResultQueueSize > maxInFlightRequests && processResponse.processResultsCount == 0) {
+        if (processResponse.processResultsCount > 0) {
+            resultPollIntervalMs = minResultPollIntervalMs;
+        } else if (pendingResultQueueSize > maxInFlightRequests) {
             try {
                 // Max outstanding document operations, no more results on server side, wait a bit
-                // before asking again.
-                Thread.sleep(300);
+                // before asking again, and a bit longer each time we get nothing.
+                Thread.sleep(resultPollIntervalMs);
             } catch (InterruptedException e) {
                 // Ignore
             }
+            resultPollIntervalMs = Math.min(maxResultPollIntervalMs, resultPollIntervalMs * 2);
         }
         return processResponse;
     }
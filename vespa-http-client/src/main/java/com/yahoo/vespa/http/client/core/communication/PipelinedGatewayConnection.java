@@ -0,0 +1,418 @@
+// Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespa.http.client.core.communication;
+
+import com.google.common.annotations.Beta;
+import com.yahoo.component.Vtag;
+import com.yahoo.vespa.http.client.config.ConnectionParams;
+import com.yahoo.vespa.http.client.config.Endpoint;
+import com.yahoo.vespa.http.client.config.FeedParams;
+import com.yahoo.vespa.http.client.core.Document;
+import com.yahoo.vespa.http.client.core.ErrorCode;
+import com.yahoo.vespa.http.client.core.OperationStatus;
+import com.yahoo.vespa.http.client.core.ServerResponseException;
+import org.apache.http.HttpException;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.impl.DefaultBHttpClientConnection;
+import org.apache.http.message.BasicHttpEntityEnclosingRequest;
+import org.apache.http.protocol.HttpCoreContext;
+import org.apache.http.protocol.HttpProcessor;
+import org.apache.http.protocol.HttpProcessorBuilder;
+import org.apache.http.protocol.RequestConnControl;
+import org.apache.http.protocol.RequestContent;
+import org.apache.http.protocol.RequestTargetHost;
+import org.apache.http.protocol.RequestUserAgent;
+import org.apache.http.util.EntityUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A gateway connection which keeps many requests in flight on a single persistent HTTP/1.1 connection
+ * by pipelining them: Operations are written without waiting for the responses to earlier requests,
+ * and a reader thread reads responses as they arrive. The results received are returned from the next call
+ * to {@link #writeOperations}, so the calling IO thread only waits for the gateway when the max number
+ * of requests are in flight.
+ *
+ * This is only used with the v3 protocol, where the gateway may return the result of any operation of this
+ * client in any response, and without a proxy.
+ *
+ * The documents of a request which fails, or has no response when the connection is lost, are returned as
+ * transient errors, such that they are retried just as when a request fails in {@link ApacheGatewayConnection}.
+ *
+ * @author agent
+ */
+@Beta
+class PipelinedGatewayConnection extends ApacheGatewayConnection {
+
+    private static Logger log = Logger.getLogger(PipelinedGatewayConnection.class.getName());
+
+    /** The max time to wait for a response when there are no operations to send */
+    static final long MAX_RESULT_WAIT_MS = 100;
+
+    private final Endpoint endpoint;
+    private final ConnectionParams connectionParams;
+    private final int maxRequestsInFlight;
+    private final HttpProcessor httpProcessor;
+
+    /** The current connection, or null if not connected. Only accessed by the IO thread */
+    private Pipeline pipeline = null;
+
+    /** Results received and not yet returned, possibly from a previous connection. Guarded by this */
+    private ByteArrayOutputStream results = new ByteArrayOutputStream();
+
+    PipelinedGatewayConnection(Endpoint endpoint,
+                               FeedParams feedParams,
+                               String clusterSpecificRoute,
+                               ConnectionParams connectionParams,
+                               String clientId) {
+        super(endpoint, feedParams, clusterSpecificRoute, connectionParams, null, clientId);
+        if ( ! connectionParams.isEnableV3Protocol())
+            throw new IllegalArgumentException("Pipelining requires the v3 protocol");
+        this.endpoint = endpoint;
+        this.connectionParams = connectionParams;
+        this.maxRequestsInFlight = Math.max(1, connectionParams.getNumPipelinedRequestsPerConnection());
+        this.httpProcessor = HttpProcessorBuilder.create()
+                .add(new RequestContent())
+                .add(new RequestTargetHost())
+                .add(new RequestConnControl())
+                .add(new RequestUserAgent(String.format("vespa-http-client (%s)", Vtag.currentVersion)))
+                .build();
+    }
+
+    @Override
+    public InputStream writeOperations(List<Document> docs) throws ServerResponseException, IOException {
+        Pipeline pipeline = requirePipeline();
+        pipeline.throwIfFailed();
+        if ( ! docs.isEmpty() || ! pipeline.hasRequestsInFlight())
+            pipeline.send(new Request(createFeedPost(docs, false, connectionParams.getUseCompression()), docs, false));
+        else
+            pipeline.awaitResponse(MAX_RESULT_WAIT_MS);
+        return takeResults();
+    }
+
+    @Override
+    public InputStream drain() throws ServerResponseException, IOException {
+        Pipeline pipeline = requirePipeline();
+        Request drain = new Request(createFeedPost(Collections.emptyList(), true, false), Collections.emptyList(), true);
+        pipeline.send(drain);
+        pipeline.await(drain);
+        return takeResults();
+    }
+
+    @Override
+    public boolean connect() {
+        log.fine("Attempting to connect to " + endpoint);
+        if (pipeline != null) {
+            log.log(Level.WARNING, "Previous connection still exists.");
+            pipeline.close();
+        }
+        try {
+            pipeline = new Pipeline(openSocket());
+            return true;
+        }
+        catch (IOException e) {
+            log.log(Level.INFO, "Could not connect to " + endpoint, e);
+            pipeline = null;
+            return false;
+        }
+    }
+
+    @Override
+    public void handshake() throws ServerResponseException, IOException {
+        Pipeline pipeline = requirePipeline();
+        Request handshake = new Request(createPost(false, false, true), Collections.emptyList(), true);
+        pipeline.send(handshake);
+        pipeline.await(handshake);
+        handshake.throwIfFailed();
+    }
+
+    @Override
+    public void close() {
+        if (pipeline == null) return;
+        pipeline.close();
+        pipeline = null;
+    }
+
+    private Pipeline requirePipeline() throws IOException {
+        if (pipeline == null)
+            throw new IOException("Trying to write operations while not having a connection");
+        return pipeline;
+    }
+
+    private Socket openSocket() throws IOException {
+        ConnectionSocketFactory socketFactory;
+        if ( ! endpoint.isUseSsl())
+            socketFactory = PlainConnectionSocketFactory.getSocketFactory();
+        else if (connectionParams.getSslContext() != null)
+            socketFactory = new SSLConnectionSocketFactory(connectionParams.getSslContext(),
+                                                           connectionParams.getHostnameVerifier());
+        else
+            socketFactory = SSLConnectionSocketFactory.getSocketFactory();
+
+        HttpCoreContext context = HttpCoreContext.create();
+        HttpHost host = targetHost();
+        Socket socket = socketFactory.createSocket(context);
+        socket.setTcpNoDelay(true);
+        return socketFactory.connectSocket(0, socket, host,
+                                           new InetSocketAddress(InetAddress.getByName(host.getHostName()), host.getPort()),
+                                           null, context);
+    }
+
+    private HttpHost targetHost() {
+        return new HttpHost(endpoint.getHostname(), endpoint.getPort(), endpoint.isUseSsl() ? "https" : "http");
+    }
+
+    private synchronized void addResults(byte[] responseBody) {
+        results.write(responseBody, 0, responseBody.length);
+    }
+
+    /** Adds transient errors for the given documents to the results */
+    private synchronized void addFailed(List<Document> docs, Exception cause) {
+        for (Document doc : docs) {
+            String message = "Failed sending operation to " + endpoint + ": " + cause.getMessage();
+            byte[] status = new OperationStatus(message, doc.getOperationId(), ErrorCode.TRANSIENT_ERROR, false, "")
+                                    .render().getBytes(StandardCharsets.UTF_8);
+            results.write(status, 0, status.length);
+        }
+    }
+
+    private synchronized InputStream takeResults() {
+        InputStream taken = new ByteArrayInputStream(results.toByteArray());
+        results = new ByteArrayOutputStream();
+        return taken;
+    }
+
+    /** A request written to the gateway and the documents it contains */
+    private static class Request {
+
+        final HttpPost post;
+        final List<Document> docs;
+        /** Whether the sender waits for the response and handles any failure itself */
+        final boolean awaited;
+
+        /** Set when a response is received or the connection fails. Guarded by the pipeline */
+        boolean completed = false;
+        /** The reason this failed, if it did. Guarded by the pipeline */
+        Exception failure = null;
+
+        Request(HttpPost post, List<Document> docs, boolean awaited) {
+            this.post = post;
+            this.docs = docs;
+            this.awaited = awaited;
+        }
+
+        /** Throws the reason this failed, if any. Must only be called after this is completed */
+        void throwIfFailed() throws ServerResponseException, IOException {
+            if (failure == null) return;
+            if (failure instanceof ServerResponseException) throw (ServerResponseException)failure;
+            if (failure instanceof IOException) throw (IOException)failure;
+            throw new IOException(failure);
+        }
+
+    }
+
+    /**
+     * An open HTTP connection with the requests in flight on it, and the thread reading their responses.
+     * Requests are written by the IO thread only. HTTP/1.1 requires responses to be returned in the order
+     * the requests were written, so the oldest request in flight is the one the next response belongs to.
+     */
+    private class Pipeline implements Runnable {
+
+        private final PipelineConnection connection;
+        private final Thread reader;
+
+        private final Deque<Request> inFlight = new ArrayDeque<>();
+        /** Set when this connection can no longer be used */
+        private IOException failure = null;
+        /** A failure response to a feed request, not yet thrown to the IO thread */
+        private ServerResponseException serverFailure = null;
+        /** The number of responses received, to let waiters notice progress */
+        private long responsesReceived = 0;
+
+        Pipeline(Socket socket) throws IOException {
+            connection = new PipelineConnection(socket);
+            reader = new Thread(this, "Pipelined response reader " + endpoint);
+            reader.setDaemon(true);
+            reader.start();
+        }
+
+        /** Sends a request, after waiting for a response if the max number of requests are in flight */
+        void send(Request request) throws IOException {
+            synchronized (this) {
+                while (failure == null && inFlight.size() >= maxRequestsInFlight)
+                    waitUninterruptibly(0);
+                if (failure != null)
+                    throw failure;
+                inFlight.addLast(request);
+                notifyAll();
+            }
+            try {
+                BasicHttpEntityEnclosingRequest httpRequest = toOriginRequest(request.post);
+                HttpCoreContext context = HttpCoreContext.create();
+                context.setTargetHost(targetHost());
+                httpProcessor.process(httpRequest, context);
+                connection.sendRequestHeader(httpRequest);
+                connection.sendRequestEntity(httpRequest);
+                connection.flush();
+            }
+            catch (IOException | HttpException e) {
+                // The request is in flight, so this fails it (and the rest) for the caller to see
+                fail(e instanceof IOException ? (IOException)e : new IOException(e));
+            }
+        }
+
+        /** Waits until the given request has completed, or this fails */
+        synchronized void await(Request request) {
+            while ( ! request.completed)
+                waitUninterruptibly(0);
+        }
+
+        /** Waits until the next response is received or this fails, at most the given time */
+        synchronized void awaitResponse(long maxWaitMs) {
+            long responsesBefore = responsesReceived;
+            long endTime = System.currentTimeMillis() + maxWaitMs;
+            long remaining = maxWaitMs;
+            while (failure == null && responsesReceived == responsesBefore && ! inFlight.isEmpty() && remaining > 0) {
+                waitUninterruptibly(remaining);
+                remaining = endTime - System.currentTimeMillis();
+            }
+        }
+
+        synchronized boolean hasRequestsInFlight() {
+            return ! inFlight.isEmpty();
+        }
+
+        /** Throws if this has failed, or if a feed request has failed since the last call */
+        synchronized void throwIfFailed() throws ServerResponseException, IOException {
+            if (failure != null)
+                throw failure;
+            if (serverFailure != null) {
+                ServerResponseException e = serverFailure;
+                serverFailure = null;
+                throw e;
+            }
+        }
+
+        void close() {
+            fail(new IOException("Connection to " + endpoint + " closed"));
+        }
+
+        /** Fails this and all requests in flight. Only the first failure has any effect */
+        private void fail(IOException e) {
+            synchronized (this) {
+                if (failure != null) return;
+                failure = e;
+                for (Request request : inFlight)
+                    complete(request, e);
+                inFlight.clear();
+                notifyAll();
+            }
+            try {
+                connection.shutdown();
+            }
+            catch (IOException ignored) { }
+        }
+
+        /** Reads responses until this fails */
+        @Override
+        public void run() {
+            try {
+                while (true) {
+                    synchronized (this) {
+                        while (failure == null && inFlight.isEmpty())
+                            waitUninterruptibly(0);
+                        if (failure != null) return;
+                    }
+                    HttpResponse response = connection.receiveResponseHeader();
+                    connection.receiveResponseEntity(response);
+                    byte[] body = response.getEntity() == null ? new byte[0]
+                                                                : EntityUtils.toByteArray(response.getEntity());
+                    ServerResponseException responseFailure = null;
+                    try {
+                        verifyResponse(response);
+                    }
+                    catch (ServerResponseException e) {
+                        responseFailure = e;
+                    }
+                    synchronized (this) {
+                        if (failure != null) return;
+                        Request request = inFlight.removeFirst();
+                        responsesReceived++;
+                        if (responseFailure == null) {
+                            addResults(body);
+                            complete(request, null);
+                        }
+                        else {
+                            complete(request, responseFailure);
+                            if ( ! request.awaited)
+                                serverFailure = responseFailure;
+                        }
+                        notifyAll();
+                    }
+                }
+            }
+            catch (IOException | HttpException | RuntimeException e) {
+                log.log(Level.FINE, "Reading responses from " + endpoint + " failed", e);
+                fail(e instanceof IOException ? (IOException)e : new IOException(e));
+            }
+        }
+
+        /** Completes a request. Must be called while synchronized on this */
+        private void complete(Request request, Exception failure) {
+            request.completed = true;
+            request.failure = failure;
+            if (failure != null)
+                addFailed(request.docs, failure);
+        }
+
+        private void waitUninterruptibly(long timeoutMs) {
+            try {
+                wait(timeoutMs);
+            }
+            catch (InterruptedException e) {
+                // Keep waiting
+            }
+        }
+
+    }
+
+    /** Returns a request with the path and query of the given post, and its headers and entity */
+    private static BasicHttpEntityEnclosingRequest toOriginRequest(HttpPost post) {
+        URI uri = post.getURI();
+        String path = uri.getRawPath() + (uri.getRawQuery() == null ? "" : "?" + uri.getRawQuery());
+        BasicHttpEntityEnclosingRequest request = new BasicHttpEntityEnclosingRequest(post.getMethod(), path);
+        request.setHeaders(post.getAllHeaders());
+        request.setEntity(post.getEntity());
+        return request;
+    }
+
+    /** A connection which may be written by one thread while it is read by another */
+    private static class PipelineConnection extends DefaultBHttpClientConnection {
+
+        PipelineConnection(Socket socket) throws IOException {
+            super(8 * 1024);
+            bind(socket);
+            ensureOpen(); // binds both the input and output streams now, rather than lazily in either thread
+        }
+
+    }
+
+}
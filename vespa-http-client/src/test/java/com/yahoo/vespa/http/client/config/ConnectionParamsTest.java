@@ -26,6 +26,7 @@ public class ConnectionParamsTest {
 
         assertThat(params.getHeaders().isEmpty(), is(true));
         assertThat(params.getNumPersistentConnectionsPerEndpoint(), is(8));
+        assertThat(params.getNumPipelinedRequestsPerConnection(), is(1));
         assertThat(params.getSslContext(), nullValue());
     }
 
@@ -36,10 +37,12 @@ public class ConnectionParamsTest {
                 .addHeader("Foo", "Baz")
                 .addHeader("Banana", "Apple")
                 .setNumPersistentConnectionsPerEndpoint(2)
+                .setNumPipelinedRequestsPerConnection(16)
                 .setSslContext(SSLContext.getDefault())
                 .build();
 
         assertThat(params.getNumPersistentConnectionsPerEndpoint(), is(2));
+        assertThat(params.getNumPipelinedRequestsPerConnection(), is(16));
 
         assertThat(params.getHeaders().isEmpty(), is(false));
         assertThat(params.getHeaders().size(), is(3));
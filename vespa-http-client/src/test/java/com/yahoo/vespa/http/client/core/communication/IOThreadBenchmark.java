@@ -0,0 +1,163 @@
+// Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespa.http.client.core.communication;
+
+import com.yahoo.vespa.http.client.config.Endpoint;
+import com.yahoo.vespa.http.client.core.Document;
+import com.yahoo.vespa.http.client.core.EndpointResult;
+import com.yahoo.vespa.http.client.core.ErrorCode;
+import com.yahoo.vespa.http.client.core.OperationStatus;
+import com.yahoo.vespa.http.client.core.ServerResponseException;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures docs/s and docs per CPU second when feeding through IO threads to a simulated gateway
+ * with a round-trip time and a processing latency per operation, comparing a fixed wait for results
+ * when max operations are in flight (the previous behavior) with the adaptive wait.
+ *
+ * @author agent
+ */
+public class IOThreadBenchmark {
+
+    private static final int connections = 4;
+    private static final int maxInFlightPerConnection = 500;
+    private static final int documentCount = 50 * 1000;
+    private static final long roundTripMs = 1;
+    private static final long operationLatencyMs = 20;
+
+    public void run() throws InterruptedException {
+        for (int i = 0; i < 2; i++) { // repeat to warm up
+            benchmark("fixed wait   ", 300, 300);
+            benchmark("adaptive wait", IOThread.DEFAULT_MIN_RESULT_POLL_INTERVAL_MS,
+                                        IOThread.DEFAULT_MAX_RESULT_POLL_INTERVAL_MS);
+        }
+    }
+
+    private void benchmark(String name, long minResultPollIntervalMs, long maxResultPollIntervalMs)
+            throws InterruptedException {
+        long startCpuNanos = processCpuNanos();
+        long startTime = System.nanoTime();
+
+        CountingResultQueue resultQueue = new CountingResultQueue();
+        DocumentQueue documentQueue = new DocumentQueue(connections * maxInFlightPerConnection * 2);
+        List<IOThread> ioThreads = new ArrayList<>();
+        for (int i = 0; i < connections; i++)
+            ioThreads.add(new IOThread(resultQueue, new SimulatedGatewayConnection(), 0, 50 * 1024,
+                                       maxInFlightPerConnection, 60 * 1000, documentQueue, 0,
+                                       minResultPollIntervalMs, maxResultPollIntervalMs));
+
+        String data = "{\"put\": \"id:test:test::0\", \"fields\": { \"title\": \"A title\" } }";
+        for (int i = 0; i < documentCount; i++)
+            ioThreads.get(0).post(new Document("id:test:test::" + i, data, null));
+        while (resultQueue.received.get() < documentCount)
+            Thread.sleep(1);
+
+        double seconds = (System.nanoTime() - startTime) / 1e9;
+        double cpuSeconds = (processCpuNanos() - startCpuNanos) / 1e9;
+        for (IOThread ioThread : ioThreads)
+            ioThread.close();
+        System.out.println(String.format("%s: %,10.0f docs/s, %,10.0f docs per CPU second",
+                                         name, documentCount / seconds, documentCount / cpuSeconds));
+    }
+
+    private static long processCpuNanos() {
+        return ((com.sun.management.OperatingSystemMXBean)ManagementFactory.getOperatingSystemMXBean()).getProcessCpuTime();
+    }
+
+    /** A result queue which just counts results */
+    private static class CountingResultQueue extends EndpointResultQueue {
+
+        final AtomicLong sent = new AtomicLong();
+        final AtomicLong received = new AtomicLong();
+
+        CountingResultQueue() {
+            super(null, Endpoint.create("localhost"), 0, new ScheduledThreadPoolExecutor(1), 60 * 1000);
+        }
+
+        @Override
+        public void operationSent(String operationId) { sent.incrementAndGet(); }
+
+        @Override
+        public void failOperation(EndpointResult result, int clusterId) { received.incrementAndGet(); }
+
+        @Override
+        public void resultReceived(EndpointResult result, int clusterId) { received.incrementAndGet(); }
+
+        @Override
+        public int getPendingSize() { return (int)(sent.get() - received.get()); }
+
+        @Override
+        public void failPending(Exception exception) { }
+
+    }
+
+    /**
+     * A gateway connection which takes a round-trip time to respond to each request,
+     * and returns the result of each operation the first time it is polled after its latency has passed.
+     */
+    private static class SimulatedGatewayConnection implements GatewayConnection {
+
+        private final Deque<Operation> pending = new ArrayDeque<>();
+
+        @Override
+        public InputStream writeOperations(List<Document> docs) throws ServerResponseException {
+            long now = System.currentTimeMillis();
+            for (Document doc : docs)
+                pending.addLast(new Operation(doc.getOperationId(), now + operationLatencyMs));
+
+            StringBuilder result = new StringBuilder();
+            while ( ! pending.isEmpty() && pending.peekFirst().completedAt <= now)
+                result.append(new OperationStatus("ok", pending.removeFirst().id, ErrorCode.OK, false, "").render());
+            try {
+                Thread.sleep(roundTripMs);
+            } catch (InterruptedException e) {
+                // ignore
+            }
+            return new ByteArrayInputStream(result.toString().getBytes(StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public InputStream drain() throws ServerResponseException {
+            return writeOperations(new ArrayList<>());
+        }
+
+        @Override
+        public boolean connect() { return true; }
+
+        @Override
+        public Endpoint getEndpoint() { return Endpoint.create("localhost"); }
+
+        @Override
+        public void handshake() { }
+
+        @Override
+        public void close() { }
+
+        private static class Operation {
+
+            final String id;
+            final long completedAt;
+
+            Operation(String id, long completedAt) {
+                this.id = id;
+                this.completedAt = completedAt;
+            }
+
+        }
+
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        new IOThreadBenchmark().run();
+    }
+
+}
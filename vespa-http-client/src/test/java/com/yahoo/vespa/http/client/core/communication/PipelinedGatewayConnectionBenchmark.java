@@ -0,0 +1,256 @@
+// Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespa.http.client.core.communication;
+
+import com.yahoo.vespa.http.client.config.ConnectionParams;
+import com.yahoo.vespa.http.client.config.Endpoint;
+import com.yahoo.vespa.http.client.config.FeedParams;
+import com.yahoo.vespa.http.client.core.Document;
+import com.yahoo.vespa.http.client.core.EndpointResult;
+import com.yahoo.vespa.http.client.core.ErrorCode;
+import com.yahoo.vespa.http.client.core.Headers;
+import com.yahoo.vespa.http.client.core.OperationStatus;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.impl.DefaultBHttpServerConnection;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.util.EntityUtils;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures docs/s and docs per CPU second when feeding through IO threads to a simulated gateway over HTTP
+ * on localhost, where each response is delayed by a network round-trip time, comparing
+ * one request in flight per connection ({@link ApacheGatewayConnection}) with pipelined requests
+ * ({@link PipelinedGatewayConnection}).
+ *
+ * @author agent
+ */
+public class PipelinedGatewayConnectionBenchmark {
+
+    private static final int connections = 4;
+    private static final int maxInFlightPerConnection = 5000; // the default max operations in flight
+    private static final int pipelinedRequestsPerConnection = 32;
+    private static final int documentCount = 50 * 1000;
+    private static final int maxChunkSizeBytes = 5 * 1024;
+    private static final long roundTripMs = 50;
+
+    public void run() throws Exception {
+        for (int i = 0; i < 2; i++) { // repeat to warm up
+            benchmark("one request in flight", 1);
+            benchmark("pipelined requests   ", pipelinedRequestsPerConnection);
+        }
+    }
+
+    private void benchmark(String name, int requestsPerConnection) throws Exception {
+        try (SimulatedGateway gateway = new SimulatedGateway()) {
+            ConnectionParams connectionParams = new ConnectionParams.Builder()
+                    .setEnableV3Protocol(true)
+                    .setNumPipelinedRequestsPerConnection(requestsPerConnection)
+                    .build();
+            FeedParams feedParams = new FeedParams.Builder().setDataFormat(FeedParams.DataFormat.JSON_UTF8).build();
+            Endpoint endpoint = Endpoint.create("localhost", gateway.port(), false);
+
+            long startCpuNanos = processCpuNanos();
+            long startTime = System.nanoTime();
+
+            CountingResultQueue resultQueue = new CountingResultQueue();
+            DocumentQueue documentQueue = new DocumentQueue(connections * maxInFlightPerConnection * 2);
+            List<IOThread> ioThreads = new ArrayList<>();
+            for (int i = 0; i < connections; i++) {
+                GatewayConnection connection = requestsPerConnection > 1
+                        ? new PipelinedGatewayConnection(endpoint, feedParams, null, connectionParams, "benchmark")
+                        : new ApacheGatewayConnection(endpoint, feedParams, null, connectionParams,
+                                                      new ApacheGatewayConnection.HttpClientFactory(connectionParams, false),
+                                                      "benchmark");
+                ioThreads.add(new IOThread(resultQueue, connection, 0, maxChunkSizeBytes, maxInFlightPerConnection,
+                                           60 * 1000, documentQueue, 0));
+            }
+
+            String data = "{\"put\": \"id:test:test::0\", \"fields\": { \"title\": \"A title\" } }";
+            for (int i = 0; i < documentCount; i++)
+                ioThreads.get(0).post(new Document("id:test:test::" + i, data, null));
+            while (resultQueue.received.get() < documentCount)
+                Thread.sleep(1);
+
+            double seconds = (System.nanoTime() - startTime) / 1e9;
+            double cpuSeconds = (processCpuNanos() - startCpuNanos) / 1e9;
+            for (IOThread ioThread : ioThreads)
+                ioThread.close();
+            System.out.println(String.format("%s: %,10.0f docs/s, %,10.0f docs per CPU second",
+                                             name, documentCount / seconds, documentCount / cpuSeconds));
+        }
+    }
+
+    private static long processCpuNanos() {
+        return ((com.sun.management.OperatingSystemMXBean)ManagementFactory.getOperatingSystemMXBean()).getProcessCpuTime();
+    }
+
+    /** A result queue which just counts results */
+    private static class CountingResultQueue extends EndpointResultQueue {
+
+        final AtomicLong sent = new AtomicLong();
+        final AtomicLong received = new AtomicLong();
+
+        CountingResultQueue() {
+            super(null, Endpoint.create("localhost"), 0, new ScheduledThreadPoolExecutor(1), 60 * 1000);
+        }
+
+        @Override
+        public void operationSent(String operationId) { sent.incrementAndGet(); }
+
+        @Override
+        public void failOperation(EndpointResult result, int clusterId) { received.incrementAndGet(); }
+
+        @Override
+        public void resultReceived(EndpointResult result, int clusterId) { received.incrementAndGet(); }
+
+        @Override
+        public int getPendingSize() { return (int)(sent.get() - received.get()); }
+
+        @Override
+        public void failPending(Exception exception) { }
+
+    }
+
+    /**
+     * A v3 gateway which returns the results of all the operations in a request in the response to it.
+     * Each response is sent a round-trip time after the request is received, while reading further requests.
+     */
+    private static class SimulatedGateway implements AutoCloseable {
+
+        private final ServerSocket serverSocket = new ServerSocket(0);
+        private final List<Socket> sockets = new ArrayList<>();
+
+        SimulatedGateway() throws IOException {
+            Thread acceptor = new Thread(this::accept);
+            acceptor.setDaemon(true);
+            acceptor.start();
+        }
+
+        int port() { return serverSocket.getLocalPort(); }
+
+        private void accept() {
+            try {
+                while (true) {
+                    Socket socket = serverSocket.accept();
+                    synchronized (sockets) {
+                        sockets.add(socket);
+                    }
+                    DefaultBHttpServerConnection connection = new DefaultBHttpServerConnection(8 * 1024);
+                    connection.bind(socket);
+                    BlockingQueue<DelayedResponse> responses = new LinkedBlockingQueue<>();
+                    startDaemon(() -> readRequests(connection, responses));
+                    startDaemon(() -> writeResponses(connection, responses));
+                }
+            }
+            catch (IOException e) {
+                // closed
+            }
+        }
+
+        private void readRequests(DefaultBHttpServerConnection connection, BlockingQueue<DelayedResponse> responses) {
+            try {
+                while (true) {
+                    HttpRequest request = connection.receiveRequestHeader();
+                    String body = "";
+                    if (request instanceof HttpEntityEnclosingRequest) {
+                        connection.receiveRequestEntity((HttpEntityEnclosingRequest)request);
+                        body = EntityUtils.toString(((HttpEntityEnclosingRequest)request).getEntity(), StandardCharsets.UTF_8);
+                    }
+                    responses.put(new DelayedResponse(request.getFirstHeader(Headers.CLIENT_ID).getValue(),
+                                                      okResults(body),
+                                                      System.currentTimeMillis() + roundTripMs));
+                }
+            }
+            catch (Exception e) {
+                // closed
+            }
+        }
+
+        private void writeResponses(DefaultBHttpServerConnection connection, BlockingQueue<DelayedResponse> responses) {
+            try {
+                while (true) {
+                    DelayedResponse delayed = responses.take();
+                    long delay = delayed.sendAt - System.currentTimeMillis();
+                    if (delay > 0)
+                        Thread.sleep(delay);
+                    HttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK");
+                    response.setHeader(Headers.VERSION, "3");
+                    response.setHeader(Headers.SESSION_ID, delayed.clientId);
+                    byte[] content = delayed.body.getBytes(StandardCharsets.UTF_8);
+                    response.setHeader("Content-Length", String.valueOf(content.length));
+                    response.setEntity(new ByteArrayEntity(content));
+                    connection.sendResponseHeader(response);
+                    connection.sendResponseEntity(response);
+                    connection.flush();
+                }
+            }
+            catch (Exception e) {
+                // closed
+            }
+        }
+
+        /** Returns an OK result for each operation in the given v3 request body */
+        private static String okResults(String body) {
+            StringBuilder results = new StringBuilder();
+            int position = 0;
+            while (position < body.length()) {
+                int space = body.indexOf(' ', position);
+                int newline = body.indexOf('\n', space);
+                String operationId = body.substring(position, space);
+                int size = Integer.parseInt(body.substring(space + 1, newline), 16);
+                results.append(new OperationStatus("ok", operationId, ErrorCode.OK, false, "").render());
+                position = newline + 1 + size;
+            }
+            return results.toString();
+        }
+
+        private static void startDaemon(Runnable runnable) {
+            Thread thread = new Thread(runnable);
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        @Override
+        public void close() throws IOException {
+            serverSocket.close();
+            synchronized (sockets) {
+                for (Socket socket : sockets)
+                    socket.close();
+            }
+        }
+
+        private static class DelayedResponse {
+
+            final String clientId;
+            final String body;
+            final long sendAt;
+
+            DelayedResponse(String clientId, String body, long sendAt) {
+                this.clientId = clientId;
+                this.body = body;
+                this.sendAt = sendAt;
+            }
+
+        }
+
+    }
+
+    public static void main(String[] args) throws Exception {
+        new PipelinedGatewayConnectionBenchmark().run();
+    }
+
+}
@@ -0,0 +1,212 @@
+// Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespa.http.client.core.communication;
+
+import com.yahoo.vespa.http.client.config.ConnectionParams;
+import com.yahoo.vespa.http.client.config.Endpoint;
+import com.yahoo.vespa.http.client.config.FeedParams;
+import com.yahoo.vespa.http.client.core.Document;
+import com.yahoo.vespa.http.client.core.ErrorCode;
+import com.yahoo.vespa.http.client.core.Headers;
+import com.yahoo.vespa.http.client.core.OperationStatus;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.impl.DefaultBHttpServerConnection;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.util.EntityUtils;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author agent
+ */
+public class PipelinedGatewayConnectionTest {
+
+    private final ServerSocket serverSocket;
+    private Socket serverSide;
+
+    public PipelinedGatewayConnectionTest() throws IOException {
+        serverSocket = new ServerSocket(0);
+    }
+
+    @After
+    public void closeServer() throws IOException {
+        if (serverSide != null)
+            serverSide.close();
+        serverSocket.close();
+    }
+
+    @Test(timeout = 60 * 1000)
+    public void testRequestsArePipelined() throws Exception {
+        PipelinedGatewayConnection connection = createConnection(3);
+        assertTrue(connection.connect());
+        DefaultBHttpServerConnection server = acceptConnection();
+
+        Thread handshaker = runAsync(() -> connection.handshake());
+        respond(server, receive(server), "");
+        handshaker.join();
+
+        // Three requests are written without waiting for any response
+        List<Document> documents = new ArrayList<>();
+        List<OperationStatus> results = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            documents.add(document(i));
+            results.addAll(parse(connection.writeOperations(Collections.singletonList(documents.get(i)))));
+        }
+        assertEquals(0, results.size());
+        List<HttpRequest> requests = new ArrayList<>();
+        for (int i = 0; i < 3; i++)
+            requests.add(receive(server));
+
+        // The results of the responses are returned on subsequent calls as they arrive
+        for (HttpRequest request : requests)
+            respond(server, request, okResults(request));
+        while (results.size() < 3)
+            results.addAll(parse(connection.writeOperations(Collections.emptyList())));
+        assertEquals(documents.stream().map(Document::getOperationId).collect(Collectors.toList()),
+                     results.stream().map(status -> status.operationId).collect(Collectors.toList()));
+        assertTrue(results.stream().allMatch(status -> status.errorCode == ErrorCode.OK));
+
+        Thread drainer = runAsync(() -> results.addAll(parse(connection.drain())));
+        HttpRequest request;
+        while ( ! isDrain(request = receive(server))) // skip any request polling for results after the last response
+            respond(server, request, "");
+        respond(server, request, "");
+        drainer.join();
+        assertEquals(3, results.size());
+        connection.close();
+    }
+
+    @Test(timeout = 60 * 1000)
+    public void testOperationsInFlightAreFailedTransientlyWhenTheConnectionIsLost() throws Exception {
+        PipelinedGatewayConnection connection = createConnection(3);
+        assertTrue(connection.connect());
+        DefaultBHttpServerConnection server = acceptConnection();
+
+        Thread handshaker = runAsync(() -> connection.handshake());
+        respond(server, receive(server), "");
+        handshaker.join();
+
+        Document document = document(1);
+        assertEquals(0, parse(connection.writeOperations(Collections.singletonList(document))).size());
+        receive(server);
+        server.close();
+
+        // The lost connection is reported
+        List<OperationStatus> results = new ArrayList<>();
+        try {
+            while (true)
+                results.addAll(parse(connection.writeOperations(Collections.emptyList())));
+        }
+        catch (IOException expected) {
+        }
+        connection.close();
+
+        // ... and the operation in flight is returned as a transient error, at the latest after reconnecting
+        assertTrue(connection.connect());
+        results.addAll(parse(connection.writeOperations(Collections.emptyList())));
+        assertEquals(1, results.size());
+        assertEquals(document.getOperationId(), results.get(0).operationId);
+        assertEquals(ErrorCode.TRANSIENT_ERROR, results.get(0).errorCode);
+        connection.close();
+    }
+
+    private PipelinedGatewayConnection createConnection(int maxRequestsInFlight) {
+        return new PipelinedGatewayConnection(Endpoint.create("localhost", serverSocket.getLocalPort(), false),
+                                              new FeedParams.Builder().setDataFormat(FeedParams.DataFormat.JSON_UTF8).build(),
+                                              null,
+                                              new ConnectionParams.Builder().setEnableV3Protocol(true)
+                                                                            .setNumPipelinedRequestsPerConnection(maxRequestsInFlight)
+                                                                            .build(),
+                                              "clientId");
+    }
+
+    private DefaultBHttpServerConnection acceptConnection() throws IOException {
+        serverSide = serverSocket.accept();
+        DefaultBHttpServerConnection server = new DefaultBHttpServerConnection(8 * 1024);
+        server.bind(serverSide);
+        return server;
+    }
+
+    private static HttpRequest receive(DefaultBHttpServerConnection server) throws Exception {
+        HttpRequest request = server.receiveRequestHeader();
+        if (request instanceof HttpEntityEnclosingRequest) {
+            HttpEntityEnclosingRequest entityRequest = (HttpEntityEnclosingRequest)request;
+            server.receiveRequestEntity(entityRequest);
+            // Read the content now, as it is followed by the next pipelined request
+            entityRequest.setEntity(new ByteArrayEntity(EntityUtils.toByteArray(entityRequest.getEntity())));
+        }
+        return request;
+    }
+
+    /** Responds as a v3 gateway, echoing the client id as session id */
+    private static void respond(DefaultBHttpServerConnection server, HttpRequest request, String body) throws Exception {
+        HttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK");
+        response.setHeader(Headers.VERSION, "3");
+        response.setHeader(Headers.SESSION_ID, request.getFirstHeader(Headers.CLIENT_ID).getValue());
+        byte[] content = body.getBytes(StandardCharsets.UTF_8);
+        response.setHeader("Content-Length", String.valueOf(content.length));
+        response.setEntity(new ByteArrayEntity(content));
+        server.sendResponseHeader(response);
+        server.sendResponseEntity(response);
+        server.flush();
+    }
+
+    private static boolean isDrain(HttpRequest request) {
+        return request.getFirstHeader(Headers.DRAIN).getValue().equals("true");
+    }
+
+    /** Returns an OK status for the single operation in the given request */
+    private static String okResults(HttpRequest request) throws IOException {
+        String content = EntityUtils.toString(((HttpEntityEnclosingRequest)request).getEntity(), StandardCharsets.UTF_8);
+        String operationId = content.substring(0, content.indexOf(' '));
+        return new OperationStatus("ok", operationId, ErrorCode.OK, false, "").render();
+    }
+
+    private static List<OperationStatus> parse(InputStream results) throws IOException {
+        List<OperationStatus> statuses = new ArrayList<>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(results, StandardCharsets.UTF_8));
+        for (String line; (line = reader.readLine()) != null; )
+            statuses.add(OperationStatus.parse(line));
+        return statuses;
+    }
+
+    private static Document document(int i) {
+        return new Document("id:test:test::" + i, "{\"put\": \"id:test:test::" + i + "\", \"fields\": {}}", null);
+    }
+
+    private static Thread runAsync(Task task) {
+        Thread thread = new Thread(() -> {
+            try {
+                task.run();
+            }
+            catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        thread.start();
+        return thread;
+    }
+
+    private interface Task {
+        void run() throws Exception;
+    }
+
+}
@@ -26,8 +26,13 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.Optional;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Logger;
@@ -40,6 +45,10 @@ import static com.yahoo.messagebus.ErrorCode.SEND_QUEUE_FULL;
  * The implementation is based on the code from V2, but the object model is rewritten to simplify the logic and
  * avoid using a threadpool that has no effect with all the extra that comes with it. V2 has one instance per thread
  * on the client, while this is one instance for all threads.
+ *
+ * If a decode executor is given, operations are decoded in parallel on that executor while the request
+ * thread reads the operations of the stream and sends the decoded operations, in the order they were received.
+ * At most maxPendingDecodes operations of each stream are read but not yet sent at any time.
  */
 class ClientFeederV3 {
 
@@ -59,6 +68,8 @@ class ClientFeederV3 {
     private final AtomicInteger ongoingRequests = new AtomicInteger(0);
     private String hostName;
     private AtomicInteger threadsAvailableForFeeding;
+    private final Executor decodeExecutor;
+    private final int maxPendingDecodes;
 
     ClientFeederV3(
             ReferencedResource<SharedSourceSession> sourceSession,
@@ -68,11 +79,27 @@ class ClientFeederV3 {
             Metric metric,
             ReplyHandler feedReplyHandler,
             AtomicInteger threadsAvailableForFeeding) {
+        this(sourceSession, feedReaderFactory, docTypeManager, clientId, metric, feedReplyHandler,
+             threadsAvailableForFeeding, null, 0);
+    }
+
+    ClientFeederV3(
+            ReferencedResource<SharedSourceSession> sourceSession,
+            FeedReaderFactory feedReaderFactory,
+            DocumentTypeManager docTypeManager,
+            String clientId,
+            Metric metric,
+            ReplyHandler feedReplyHandler,
+            AtomicInteger threadsAvailableForFeeding,
+            Executor decodeExecutor,
+            int maxPendingDecodes) {
         this.sourceSession = sourceSession;
         this.clientId = clientId;
         this.feedReplyHandler = feedReplyHandler;
         this.metric = metric;
         this.threadsAvailableForFeeding = threadsAvailableForFeeding;
+        this.decodeExecutor = decodeExecutor;
+        this.maxPendingDecodes = Math.max(1, maxPendingDecodes);
         this.streamReaderV3 = new StreamReaderV3(feedReaderFactory, docTypeManager);
         this.hostName = HostName.getLocalhost();
     }
@@ -87,7 +114,9 @@ class ClientFeederV3 {
         // No new requests should be sent to this object, but there can be old one, even though this is very unlikely.
         while (ongoingRequests.get() > 0) {
             try {
-                ongoingRequests.wait(100);
+                synchronized (ongoingRequests) {
+                    ongoingRequests.wait(100);
+                }
             } catch (InterruptedException e) {
                 break;
             }
@@ -200,6 +229,39 @@ class ClientFeederV3 {
         }
     }
 
+    private Optional<PendingOperation> pullOperationFromRequest(
+            FeederSettings settings, InputStream requestInputStream, BlockingQueue<OperationStatus> repliesFromOldMessages) {
+        while (true) {
+            final Optional<String> operationId;
+            try {
+                operationId = streamReaderV3.getNextOperationId(requestInputStream);
+            } catch (IOException ioe) {
+                if (log.isLoggable(LogLevel.DEBUG)) {
+                    log.log(LogLevel.DEBUG, Exceptions.toMessageString(ioe), ioe);
+                }
+                return Optional.empty();
+            }
+            if (! operationId.isPresent()) {
+                return Optional.empty();
+            }
+            final byte[] data;
+            try {
+                data = streamReaderV3.getNextOperationData(requestInputStream);
+            } catch (Exception e) {
+                if (log.isLoggable(LogLevel.DEBUG)) {
+                    log.log(LogLevel.DEBUG, Exceptions.toMessageString(e), e);
+                }
+                repliesFromOldMessages.add(new OperationStatus(
+                        Exceptions.toMessageString(e), operationId.get(), ErrorCode.ERROR, false, ""));
+                continue;
+            }
+            FutureTask<DocumentOperationMessageV3> decoding =
+                    new FutureTask<>(() -> decodeMessage(operationId.get(), data, settings));
+            decodeExecutor.execute(decoding);
+            return Optional.of(new PendingOperation(operationId.get(), decoding));
+        }
+    }
+
     private Result sendMessage(
             FeederSettings settings,
             DocumentOperationMessageV3 msg,
@@ -226,6 +288,10 @@ class ClientFeederV3 {
             InputStream requestInputStream,
             BlockingQueue<OperationStatus> repliesFromOldMessages,
             AtomicInteger threadsAvailableForFeeding) throws InterruptedException {
+        if (decodeExecutor != null) {
+            feedPipelined(settings, requestInputStream, repliesFromOldMessages, threadsAvailableForFeeding);
+            return;
+        }
         while (true) {
 
             Optional<DocumentOperationMessageV3> msg = pullMessageFromRequest(settings, requestInputStream, repliesFromOldMessages);
@@ -233,34 +299,85 @@ class ClientFeederV3 {
             if (! msg.isPresent()) {
                 break;
             }
-            setMessageParameters(msg.get(), settings);
-
-            final Result result;
-            try {
-                result = sendMessage(settings, msg.get(), threadsAvailableForFeeding);
+            send(settings, msg.get(), repliesFromOldMessages, threadsAvailableForFeeding);
+        }
+    }
 
-            } catch  (RuntimeException e) {
-                repliesFromOldMessages.add(createOperationStatus(msg.get().getOperationId(), Exceptions.toMessageString(e),
-                        ErrorCode.ERROR, false, msg.get().getMessage()));
-                continue;
+    /**
+     * Reads operations from the request ahead of sending them, such that up to maxPendingDecodes
+     * operations are decoded in parallel, and sends each operation as soon as it and all the operations
+     * before it are decoded.
+     */
+    private void feedPipelined(
+            FeederSettings settings,
+            InputStream requestInputStream,
+            BlockingQueue<OperationStatus> repliesFromOldMessages,
+            AtomicInteger threadsAvailableForFeeding) throws InterruptedException {
+        Deque<PendingOperation> pendingOperations = new ArrayDeque<>(maxPendingDecodes);
+        boolean endOfStream = false;
+        while (true) {
+            while (! endOfStream && pendingOperations.size() < maxPendingDecodes) {
+                Optional<PendingOperation> operation = pullOperationFromRequest(settings, requestInputStream, repliesFromOldMessages);
+                if (operation.isPresent()) {
+                    pendingOperations.addLast(operation.get());
+                } else {
+                    endOfStream = true;
+                }
             }
 
-            if (result.isAccepted()) {
-                outstandingOperations.incrementAndGet();
-                updateOpsPerSec();
-                log(LogLevel.DEBUG, "Sent message successfully, document id: ", msg.get().getOperationId());
-            } else if (!result.getError().isFatal()) {
-                repliesFromOldMessages.add(createOperationStatus(msg.get().getOperationId(), result.getError().getMessage(),
-                        ErrorCode.TRANSIENT_ERROR, false, msg.get().getMessage()));
+            PendingOperation operation = pendingOperations.pollFirst();
+            if (operation == null) {
+                break;
+            }
+            final DocumentOperationMessageV3 msg;
+            try {
+                msg = operation.message.get();
+            } catch (ExecutionException e) {
+                if (log.isLoggable(LogLevel.DEBUG)) {
+                    log.log(LogLevel.DEBUG, Exceptions.toMessageString(e.getCause()), e.getCause());
+                }
+                repliesFromOldMessages.add(new OperationStatus(
+                        Exceptions.toMessageString(e.getCause()), operation.operationId, ErrorCode.ERROR, false, ""));
                 continue;
-            } else {
-                // should probably not happen, but everybody knows stuff that
-                // shouldn't happen, happens all the time
-                boolean isConditionNotMet = result.getError().getCode() == DocumentProtocol.ERROR_TEST_AND_SET_CONDITION_FAILED;
-                repliesFromOldMessages.add(createOperationStatus(msg.get().getOperationId(), result.getError().getMessage(),
-                        ErrorCode.ERROR, isConditionNotMet, msg.get().getMessage()));
+            }
+            if (msg == null) {
                 continue;
             }
+            setRoute(msg, settings);
+            send(settings, msg, repliesFromOldMessages, threadsAvailableForFeeding);
+        }
+    }
+
+    private void send(
+            FeederSettings settings,
+            DocumentOperationMessageV3 msg,
+            BlockingQueue<OperationStatus> repliesFromOldMessages,
+            AtomicInteger threadsAvailableForFeeding) throws InterruptedException {
+        setMessageParameters(msg, settings);
+
+        final Result result;
+        try {
+            result = sendMessage(settings, msg, threadsAvailableForFeeding);
+
+        } catch  (RuntimeException e) {
+            repliesFromOldMessages.add(createOperationStatus(msg.getOperationId(), Exceptions.toMessageString(e),
+                    ErrorCode.ERROR, false, msg.getMessage()));
+            return;
+        }
+
+        if (result.isAccepted()) {
+            outstandingOperations.incrementAndGet();
+            updateOpsPerSec();
+            log(LogLevel.DEBUG, "Sent message successfully, document id: ", msg.getOperationId());
+        } else if (!result.getError().isFatal()) {
+            repliesFromOldMessages.add(createOperationStatus(msg.getOperationId(), result.getError().getMessage(),
+                    ErrorCode.TRANSIENT_ERROR, false, msg.getMessage()));
+        } else {
+            // should probably not happen, but everybody knows stuff that
+            // shouldn't happen, happens all the time
+            boolean isConditionNotMet = result.getError().getCode() == DocumentProtocol.ERROR_TEST_AND_SET_CONDITION_FAILED;
+            repliesFromOldMessages.add(createOperationStatus(msg.getOperationId(), result.getError().getMessage(),
+                    ErrorCode.ERROR, isConditionNotMet, msg.getMessage()));
         }
     }
 
@@ -275,8 +392,16 @@ class ClientFeederV3 {
     // protected for mocking
     protected DocumentOperationMessageV3 getNextMessage(
             String operationId, InputStream requestInputStream, FeederSettings settings) throws Exception {
-        VespaXMLFeedReader.Operation operation = streamReaderV3.getNextOperation(requestInputStream, settings);
+        return toMessage(operationId, streamReaderV3.getNextOperation(requestInputStream, settings));
+    }
 
+    // protected for mocking. Called from the decode executor.
+    protected DocumentOperationMessageV3 decodeMessage(
+            String operationId, byte[] operationData, FeederSettings settings) throws Exception {
+        return toMessage(operationId, streamReaderV3.parseOperation(operationData, settings));
+    }
+
+    private DocumentOperationMessageV3 toMessage(String operationId, VespaXMLFeedReader.Operation operation) {
         // This is a bit hard to set up while testing, so we accept that things are not perfect.
         if (sourceSession.getResource().session() != null) {
             metric.set(
@@ -349,4 +474,17 @@ class ClientFeederV3 {
         }
     }
 
+    /** An operation read from a request which is being decoded */
+    private static class PendingOperation {
+
+        final String operationId;
+        final FutureTask<DocumentOperationMessageV3> message;
+
+        PendingOperation(String operationId, FutureTask<DocumentOperationMessageV3> message) {
+            this.operationId = operationId;
+            this.message = message;
+        }
+
+    }
+
 }
@@ -23,8 +23,9 @@ import com.yahoo.yolean.Exceptions;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
-import java.util.concurrent.Executor;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Logger;
@@ -33,7 +34,12 @@ import java.util.logging.Logger;
  * This code is based on v2 code, however, in v3, one client has one ClientFeederV3 shared between all client threads.
  * The new API has more logic for shutting down cleanly as the server is more likely to be upgraded.
  * The code is restructured a bit.
- * 
+ *
+ * Operations are decoded on a pool with one thread per core (bounded by the max threads of the container
+ * thread pool) shared by all clients, such that a few feed streams can use all the cores.
+ * When the decode pool is saturated or shut down, request threads decode their own operations, as they
+ * wait for every operation they have read to be decoded.
+ *
  * @author dybis
  */
 public class FeedHandlerV3 extends LoggingRequestHandler {
@@ -46,6 +52,8 @@ public class FeedHandlerV3 extends LoggingRequestHandler {
     private final Metric metric;
     private final Object monitor = new Object();
     private final AtomicInteger threadsAvailableForFeeding;
+    private final ThreadPoolExecutor decodeExecutor;
+    private final int maxPendingDecodesPerStream;
     private static final Logger log = Logger.getLogger(FeedHandlerV3.class.getName());
 
     public FeedHandlerV3(
@@ -68,6 +76,16 @@ public class FeedHandlerV3 extends LoggingRequestHandler {
             log.warning("No config for threadpool, using 200 for max blocking threads for feeding.");
             threadsAvailableForFeeding = new AtomicInteger(200);
         }
+        int decodeThreads = Runtime.getRuntime().availableProcessors();
+        if (threadpoolConfig != null) {
+            decodeThreads = Math.min(decodeThreads, threadpoolConfig.maxthreads());
+        }
+        decodeThreads = Math.max(decodeThreads, 1);
+        decodeExecutor = new ThreadPoolExecutor(decodeThreads, decodeThreads, 0, TimeUnit.SECONDS,
+                                                new ArrayBlockingQueue<>(decodeThreads * 16),
+                                                ThreadFactoryFactory.getDaemonThreadFactory("feedhandlerv3.decode"),
+                                                (task, executor) -> task.run());
+        maxPendingDecodesPerStream = decodeThreads * 2;
     }
 
     public void injectDocumentManangerForTests(DocumentTypeManager docTypeManager) {
@@ -92,7 +110,9 @@ public class FeedHandlerV3 extends LoggingRequestHandler {
                                 clientId,
                                 metric,
                                 feedReplyHandler,
-                                threadsAvailableForFeeding));
+                                threadsAvailableForFeeding,
+                                decodeExecutor,
+                                maxPendingDecodesPerStream));
             }
             clientFeederV3 = clientFeederByClientId.get(clientId);
         }
@@ -128,6 +148,8 @@ public class FeedHandlerV3 extends LoggingRequestHandler {
                 }
                 clientFeederByClientId.clear();
             }
+            // Only after the feeders have drained. Streams which start after this decode in the request thread.
+            decodeExecutor.shutdown();
         });
         destroyer.setDaemon(true);
         destroyer.start();
@@ -8,6 +8,7 @@ import com.yahoo.vespa.http.server.util.ByteLimitedInputStream;
 import com.yahoo.vespaxmlparser.FeedReader;
 import com.yahoo.vespaxmlparser.VespaXMLFeedReader;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Optional;
@@ -43,6 +44,34 @@ public class StreamReaderV3 {
         return op;
     }
 
+    /**
+     * Reads the data of the next operation without parsing it, such that it can be parsed
+     * by {@link #parseOperation} in another thread.
+     */
+    public byte[] getNextOperationData(InputStream requestInputStream) throws IOException {
+        int length = readByteLength(requestInputStream);
+        byte[] data = new byte[length];
+        int read = 0;
+        while (read < length) {
+            int count = requestInputStream.read(data, read, length - read);
+            if (count < 0) {
+                throw new IllegalStateException("Expected " + length + " bytes of operation data but got " + read);
+            }
+            read += count;
+        }
+        return data;
+    }
+
+    /** Parses the operation data returned from {@link #getNextOperationData} */
+    public VespaXMLFeedReader.Operation parseOperation(byte[] data, FeederSettings settings) throws Exception {
+        VespaXMLFeedReader.Operation op = new VespaXMLFeedReader.Operation();
+        try (InputStream inputStream = new ByteArrayInputStream(data)) {
+            FeedReader reader = feedReaderFactory.createReader(inputStream, docTypeManager, settings.dataFormat);
+            reader.read(op);
+        }
+        return op;
+    }
+
     public Optional<String> getNextOperationId(InputStream requestInputStream) throws IOException {
         StringBuilder idBuf = new StringBuilder(100);
         int c;
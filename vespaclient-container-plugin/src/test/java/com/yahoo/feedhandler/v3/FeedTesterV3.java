@@ -29,11 +29,13 @@ import com.yahoo.container.jdisc.HttpRequest;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
+import java.util.List;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.anyObject;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -65,6 +67,21 @@ public class FeedTesterV3 {
         assertThat(Splitter.on("\n").splitToList(result).size(), is(101));
     }
 
+    @Test
+    public void feedManyDocumentsInOrderWithOneInvalid() throws Exception {
+        final FeedHandlerV3 feedHandlerV3 = setupFeederHandler();
+        HttpResponse httpResponse = feedHandlerV3.handle(createRequest(100, 42));
+        ByteArrayOutputStream outStream = new ByteArrayOutputStream();
+        httpResponse.render(outStream);
+        List<String> lines = Splitter.on("\n").splitToList(Utf8.toString(outStream.toByteArray()));
+        assertThat(lines.size(), is(101));
+        assertTrue(lines.get(0).startsWith("12342 ERROR "));
+        for (int x = 0, line = 1; x < 100; x++) {
+            if (x == 42) continue;
+            assertThat(lines.get(line++), is("123" + x + " OK message trace"));
+        }
+    }
+
     DocumentTypeManager createDoctypeManager() {
         DocumentTypeManager docTypeManager = new DocumentTypeManager();
         DocumentType documentType = new DocumentType("testdocument");
@@ -75,10 +92,15 @@ public class FeedTesterV3 {
     }
 
     HttpRequest createRequest(int numberOfDocs) {
+        return createRequest(numberOfDocs, -1);
+    }
+
+    HttpRequest createRequest(int numberOfDocs, int invalidDoc) {
         String clientId = "client123";
         StringBuilder wireData = new StringBuilder();
         for (int x = 0; x < numberOfDocs; x++) {
-            String docData = "[{\"put\": \"id:testdocument:testdocument::c\", \"fields\": { \"title\": \"fooKey\", \"body\": \"value\"}}]";
+            String docType = x == invalidDoc ? "nosuchdocument" : "testdocument";
+            String docData = "[{\"put\": \"id:" + docType + ":" + docType + "::c\", \"fields\": { \"title\": \"fooKey\", \"body\": \"value\"}}]";
             String operationId = "123" + x;
             wireData.append(operationId + " " + Integer.toHexString(docData.length()) + "\n" + docData);
         }
@@ -0,0 +1,433 @@
+// Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.slime;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.yahoo.slime.BinaryFormat.decode_double;
+import static com.yahoo.slime.BinaryFormat.decode_meta;
+import static com.yahoo.slime.BinaryFormat.decode_type;
+import static com.yahoo.slime.BinaryFormat.decode_zigzag;
+
+/**
+ * A read-only inspector which reads values directly from data in the binary slime format,
+ * instead of decoding it into a {@link Slime} object graph first. Leaf values are only
+ * decoded when asked for, and the children of an array or object are indexed the first
+ * time they are accessed through that inspector. This is much cheaper than
+ * {@link BinaryFormat#decode} when just a few values are read.
+ *
+ * The data must not be changed while it is inspected.
+ *
+ * @author agent
+ */
+public final class BinaryView implements Inspector {
+
+    private final Buffer buffer;
+    private final int offset; // of the type and meta byte of this value
+
+    /** The offsets of the entries of an array, or the symbol and offset of each field of an object */
+    private volatile int[] index = null;
+
+    /** The number of fields looked up without an index, as objects are only indexed when used repeatedly */
+    private int unindexedLookups = 0;
+
+    private BinaryView(Buffer buffer, int offset) {
+        this.buffer = buffer;
+        this.offset = offset;
+    }
+
+    /**
+     * Returns an inspector of the root value of the given binary slime data.
+     * If the data is not valid, this returns the same partial result as {@link BinaryFormat#decode}.
+     */
+    public static Inspector inspect(byte[] data) {
+        return inspect(data, 0, data.length);
+    }
+
+    /**
+     * Returns an inspector of the root value of the given binary slime data.
+     * If the data is not valid, this returns the same partial result as {@link BinaryFormat#decode}.
+     */
+    public static Inspector inspect(byte[] data, int offset, int length) {
+        Buffer buffer = Buffer.of(data, offset, length);
+        if (buffer == null) {
+            return BinaryFormat.decode(data, offset, length).get();
+        }
+        return new BinaryView(buffer, buffer.root);
+    }
+
+    private int meta() { return decode_meta(buffer.data[offset]); }
+
+    /** Returns a reader positioned after the type and meta byte of this */
+    private Reader content() {
+        return new Reader(buffer.data, offset + 1, buffer.end);
+    }
+
+    @Override
+    public boolean valid() { return true; }
+
+    @Override
+    public Type type() { return decode_type(buffer.data[offset]); }
+
+    @Override
+    public int children() {
+        switch (type()) {
+            case ARRAY: return entries();
+            case OBJECT: return fields();
+            default: return 0;
+        }
+    }
+
+    @Override
+    public int entries() {
+        return type() == Type.ARRAY ? (int)content().readSize(meta()) : 0;
+    }
+
+    @Override
+    public int fields() {
+        return type() == Type.OBJECT ? (int)content().readSize(meta()) : 0;
+    }
+
+    @Override
+    public boolean asBool() {
+        return type() == Type.BOOL && meta() != 0;
+    }
+
+    @Override
+    public long asLong() {
+        switch (type()) {
+            case LONG: return decode_zigzag(content().readBytesLittleEndian(meta()));
+            case DOUBLE: return (long)decode_double(content().readBytesBigEndian(meta()));
+            default: return 0;
+        }
+    }
+
+    @Override
+    public double asDouble() {
+        switch (type()) {
+            case LONG: return (double)decode_zigzag(content().readBytesLittleEndian(meta()));
+            case DOUBLE: return decode_double(content().readBytesBigEndian(meta()));
+            default: return 0.0;
+        }
+    }
+
+    @Override
+    public String asString() {
+        if (type() != Type.STRING) return "";
+        Reader reader = content();
+        int size = (int)reader.readSize(meta());
+        return Utf8Codec.decode(buffer.data, reader.position, size);
+    }
+
+    @Override
+    public byte[] asUtf8() {
+        return type() == Type.STRING ? copyBytes() : new byte[0];
+    }
+
+    @Override
+    public byte[] asData() {
+        return type() == Type.DATA ? copyBytes() : new byte[0];
+    }
+
+    private byte[] copyBytes() {
+        Reader reader = content();
+        int size = (int)reader.readSize(meta());
+        byte[] bytes = new byte[size];
+        System.arraycopy(buffer.data, reader.position, bytes, 0, size);
+        return bytes;
+    }
+
+    @Override
+    public void accept(Visitor v) {
+        switch (type()) {
+            case NIX: v.visitNix(); break;
+            case BOOL: v.visitBool(asBool()); break;
+            case LONG: v.visitLong(asLong()); break;
+            case DOUBLE: v.visitDouble(asDouble()); break;
+            case STRING: v.visitString(asUtf8()); break;
+            case DATA: v.visitData(asData()); break;
+            case ARRAY: v.visitArray(this); break;
+            case OBJECT: v.visitObject(this); break;
+        }
+    }
+
+    @Override
+    public void traverse(ArrayTraverser at) {
+        if (type() != Type.ARRAY) return;
+        int[] entries = index();
+        for (int i = 0; i < entries.length; i++)
+            at.entry(i, new BinaryView(buffer, entries[i]));
+    }
+
+    @Override
+    public void traverse(ObjectSymbolTraverser ot) {
+        if (type() != Type.OBJECT) return;
+        int[] fields = index();
+        for (int i = 0; i < fields.length; i += 2)
+            ot.field(fields[i], new BinaryView(buffer, fields[i + 1]));
+    }
+
+    @Override
+    public void traverse(ObjectTraverser ot) {
+        if (type() != Type.OBJECT) return;
+        int[] fields = index();
+        for (int i = 0; i < fields.length; i += 2)
+            ot.field(buffer.name(fields[i]), new BinaryView(buffer, fields[i + 1]));
+    }
+
+    @Override
+    public Inspector entry(int idx) {
+        if (type() != Type.ARRAY) return NixValue.invalid();
+        int[] entries = index();
+        if (idx < 0 || idx >= entries.length) return NixValue.invalid();
+        return new BinaryView(buffer, entries[idx]);
+    }
+
+    @Override
+    public Inspector field(int sym) {
+        if (type() != Type.OBJECT) return NixValue.invalid();
+        if (index == null && unindexedLookups++ < 2) {
+            Reader reader = content();
+            for (long i = reader.readSize(meta()); i > 0; i--) {
+                if (reader.readCompressedLong() == sym)
+                    return new BinaryView(buffer, reader.position);
+                reader.skipValue();
+            }
+            return NixValue.invalid();
+        }
+        int[] fields = index();
+        for (int i = 0; i < fields.length; i += 2) {
+            if (fields[i] == sym)
+                return new BinaryView(buffer, fields[i + 1]);
+        }
+        return NixValue.invalid();
+    }
+
+    @Override
+    public Inspector field(String name) {
+        if (type() != Type.OBJECT) return NixValue.invalid();
+        int sym = buffer.symbol(name);
+        if (sym == SymbolTable.INVALID) return NixValue.invalid();
+        return field(sym);
+    }
+
+    private int[] index() {
+        int[] index = this.index;
+        if (index == null) {
+            Reader reader = content();
+            int size = (int)reader.readSize(meta());
+            if (type() == Type.ARRAY) {
+                index = new int[size];
+                for (int i = 0; i < size; i++) {
+                    index[i] = reader.position;
+                    reader.skipValue();
+                }
+            } else {
+                index = new int[size * 2];
+                for (int i = 0; i < size; i++) {
+                    index[i * 2] = (int)reader.readCompressedLong();
+                    index[i * 2 + 1] = reader.position;
+                    reader.skipValue();
+                }
+            }
+            this.index = index;
+        }
+        return index;
+    }
+
+    /**
+     * Returns a read-only buffer of the binary encoding of this value, which shares the inspected data.
+     * Any field symbols in it refer to the symbol table of the inspected data.
+     */
+    public ByteBuffer valueBuffer() {
+        Reader reader = new Reader(buffer.data, offset, buffer.end);
+        reader.skipValue();
+        return ByteBuffer.wrap(buffer.data, offset, reader.position - offset).slice().asReadOnlyBuffer();
+    }
+
+    /**
+     * Writes this value, preceded by the symbol table of the inspected data, to the given stream.
+     * The result is valid binary slime data with this value as root, written without any intermediate copying.
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        Reader reader = new Reader(buffer.data, offset, buffer.end);
+        reader.skipValue();
+        out.write(buffer.data, buffer.start, buffer.root - buffer.start);
+        out.write(buffer.data, offset, reader.position - offset);
+    }
+
+    @Override
+    public String toString() {
+        try {
+            ByteArrayOutputStream a = new ByteArrayOutputStream();
+            new JsonFormat(true).encode(a, this);
+            byte[] utf8 = a.toByteArray();
+            return Utf8Codec.decode(utf8, 0, utf8.length);
+        } catch (Exception e) {
+            return "null";
+        }
+    }
+
+    /** The data inspected by a set of views, with its symbol table */
+    private static final class Buffer {
+
+        final byte[] data;
+        final int start;
+        final int end;
+        final int root;
+        /** The offset and length of each symbol name */
+        private final int[] symbolBytes;
+        private volatile String[] names = null;
+        private volatile Map<String, Integer> symbols = null;
+
+        private Buffer(byte[] data, int start, int end, int root, int[] symbolBytes) {
+            this.data = data;
+            this.start = start;
+            this.end = end;
+            this.root = root;
+            this.symbolBytes = symbolBytes;
+        }
+
+        /** Returns a buffer of the given data, or null if it is not valid binary slime */
+        static Buffer of(byte[] data, int offset, int length) {
+            try {
+                Reader reader = new Reader(data, offset, offset + length);
+                long numSymbols = reader.readCompressedLong();
+                if (numSymbols > length) return null;
+                int[] symbolBytes = new int[(int)numSymbols * 2];
+                for (int i = 0; i < numSymbols; i++) {
+                    int size = (int)reader.readCompressedLong();
+                    symbolBytes[i * 2] = reader.position;
+                    symbolBytes[i * 2 + 1] = size;
+                    reader.skip(size);
+                }
+                int root = reader.position;
+                reader.numSymbols = (int)numSymbols;
+                reader.skipValue(); // validates all the data, so that views can read it without checks failing
+                return new Buffer(data, offset, offset + length, root, symbolBytes);
+            }
+            catch (IndexOutOfBoundsException e) {
+                return null;
+            }
+        }
+
+        String name(int symbol) {
+            String[] names = this.names;
+            if (names == null)
+                names = new String[symbolBytes.length / 2];
+            if (names[symbol] == null) {
+                names[symbol] = Utf8Codec.decode(data, symbolBytes[symbol * 2], symbolBytes[symbol * 2 + 1]);
+                this.names = names;
+            }
+            return names[symbol];
+        }
+
+        int symbol(String name) {
+            Map<String, Integer> symbols = this.symbols;
+            if (symbols == null) {
+                symbols = new HashMap<>();
+                for (int i = 0; i < symbolBytes.length / 2; i++)
+                    symbols.put(name(i), i);
+                this.symbols = symbols;
+            }
+            Integer symbol = symbols.get(name);
+            return symbol == null ? SymbolTable.INVALID : symbol;
+        }
+
+    }
+
+    /** Reads the binary format from some position, throwing IndexOutOfBoundsException on underflow */
+    private static final class Reader {
+
+        private final byte[] data;
+        private final int end;
+        int position;
+        /** The number of symbols field symbols are checked against when skipping values */
+        int numSymbols = Integer.MAX_VALUE;
+
+        Reader(byte[] data, int position, int end) {
+            this.data = data;
+            this.position = position;
+            this.end = end;
+        }
+
+        byte readByte() {
+            if (position >= end) throw new IndexOutOfBoundsException("underflow");
+            return data[position++];
+        }
+
+        void skip(long size) {
+            if (size < 0 || size > end - position) throw new IndexOutOfBoundsException("underflow");
+            position += (int)size;
+        }
+
+        long readCompressedLong() {
+            long next = readByte();
+            long value = (next & 0x7f);
+            int shift = 7;
+            while ((next & 0x80) != 0) {
+                next = readByte();
+                value |= ((next & 0x7f) << shift);
+                shift += 7;
+            }
+            return value;
+        }
+
+        long readSize(int meta) {
+            return (meta == 0) ? readCompressedLong() : (meta - 1);
+        }
+
+        long readBytesLittleEndian(int bytes) {
+            long value = 0;
+            int shift = 0;
+            for (int i = 0; i < bytes; ++i) {
+                long b = readByte();
+                value |= (b & 0xff) << shift;
+                shift += 8;
+            }
+            return value;
+        }
+
+        long readBytesBigEndian(int bytes) {
+            long value = 0;
+            int shift = 56;
+            for (int i = 0; i < bytes; ++i) {
+                long b = readByte();
+                value |= (b & 0xff) << shift;
+                shift -= 8;
+            }
+            return value;
+        }
+
+        void skipValue() {
+            byte typeAndMeta = readByte();
+            int meta = decode_meta(typeAndMeta);
+            switch (decode_type(typeAndMeta)) {
+                case NIX: case BOOL:
+                    break;
+                case LONG: case DOUBLE:
+                    skip(meta);
+                    break;
+                case STRING: case DATA:
+                    skip(readSize(meta));
+                    break;
+                case ARRAY:
+                    for (long i = readSize(meta); i > 0; i--)
+                        skipValue();
+                    break;
+                case OBJECT:
+                    for (long i = readSize(meta); i > 0; i--) {
+                        if (readCompressedLong() >= numSymbols) throw new IndexOutOfBoundsException("unknown symbol");
+                        skipValue();
+                    }
+                    break;
+            }
+        }
+
+    }
+
+}
@@ -13,6 +13,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Optional;
+import java.util.PrimitiveIterator;
 import java.util.Set;
 
 /**
@@ -73,7 +74,7 @@ public class IndexedTensor implements Tensor {
      * indexes of later dimensions in the dimension type before earlier.
      */
     @Override
-    public Iterator<Double> valueIterator() {
+    public PrimitiveIterator.OfDouble valueIterator() {
         return new ValueIterator();
     }
 
@@ -454,9 +455,9 @@ public class IndexedTensor implements Tensor {
 
     }
 
-    private final class ValueIterator implements Iterator<Double> {
+    private final class ValueIterator implements PrimitiveIterator.OfDouble {
 
-        private long count = 0;
+        private int count = 0;
 
         @Override
         public boolean hasNext() {
@@ -464,13 +465,9 @@ public class IndexedTensor implements Tensor {
         }
 
         @Override
-        public Double next() {
-            try {
-                return values[(int)count++];
-            }
-            catch (IndexOutOfBoundsException e) {
-                throw new NoSuchElementException("No element at position " + count);
-            }
+        public double nextDouble() {
+            if ( ! hasNext()) throw new NoSuchElementException("No element at position " + count);
+            return values[count++];
         }
 
     }
@@ -599,7 +596,7 @@ public class IndexedTensor implements Tensor {
         private double value;
         private Indexes indexes;
 
-        private LazyCell(Indexes indexes, Double value) {
+        private LazyCell(Indexes indexes, double value) {
             super(null, value);
             this.indexes = indexes;
         }
@@ -615,6 +612,9 @@ public class IndexedTensor implements Tensor {
         @Override
         public Double getValue() { return value; }
 
+        @Override
+        public double getDoubleValue() { return value; }
+
     }
 
     // TODO: Make dimensionSizes a class
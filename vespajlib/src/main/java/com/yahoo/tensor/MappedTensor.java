@@ -4,11 +4,15 @@ package com.yahoo.tensor;
 import com.google.common.annotations.Beta;
 import com.google.common.collect.ImmutableMap;
 
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
 
 /**
- * A sparse implementation of a tensor backed by a Map of cells to values.
+ * A sparse implementation of a tensor backed by arrays of cell addresses and values,
+ * with a hash index from address to position. Values are stored unboxed.
  *
  * @author bratseth
  */
@@ -17,34 +21,57 @@ public class MappedTensor implements Tensor {
 
     private final TensorType type;
 
-    private final ImmutableMap<TensorAddress, Double> cells;
+    /** The addresses of the cells of this, in insertion order */
+    private final TensorAddress[] addresses;
 
-    /** Creates a sparse tensor. The cell addresses must match the type. */
-    private MappedTensor(TensorType type, Map<TensorAddress, Double> cells) {
+    /** The values of the cells of this, at the same position as the address */
+    private final double[] values;
+
+    /** Open addressing hash table from address hash to position in the cell arrays plus one, 0 means empty */
+    private final int[] index;
+
+    /** Creates a sparse tensor. The cell addresses must match the type and be unique. */
+    private MappedTensor(TensorType type, TensorAddress[] addresses, double[] values, int[] index) {
         this.type = type;
-        this.cells = ImmutableMap.copyOf(cells);
+        this.addresses = addresses;
+        this.values = values;
+        this.index = index;
     }
 
     @Override
     public TensorType type() { return type; }
 
     @Override
-    public long size() { return cells.size(); }
+    public long size() { return addresses.length; }
 
     @Override
-    public double get(TensorAddress address) { return cells.getOrDefault(address, Double.NaN); }
+    public double get(TensorAddress address) {
+        int position = positionOf(address, addresses, index);
+        return position < 0 ? Double.NaN : values[position];
+    }
 
     @Override
-    public Iterator<Cell> cellIterator() { return new CellIteratorAdaptor(cells.entrySet().iterator()); }
+    public Iterator<Cell> cellIterator() { return new CellIterator(); }
 
     @Override
-    public Iterator<Double> valueIterator() { return cells.values().iterator(); }
+    public PrimitiveIterator.OfDouble valueIterator() { return Arrays.stream(values).iterator(); }
 
     @Override
-    public Map<TensorAddress, Double> cells() { return cells; }
+    public Map<TensorAddress, Double> cells() {
+        ImmutableMap.Builder<TensorAddress, Double> builder = new ImmutableMap.Builder<>();
+        for (int i = 0; i < addresses.length; i++)
+            builder.put(addresses[i], values[i]);
+        return builder.build();
+    }
 
+    /** Returns the same hash code as the cells map of this would, without creating it */
     @Override
-    public int hashCode() { return cells.hashCode(); }
+    public int hashCode() {
+        int hashCode = 0;
+        for (int i = 0; i < addresses.length; i++)
+            hashCode += addresses[i].hashCode() ^ Double.hashCode(values[i]);
+        return hashCode;
+    }
 
     @Override
     public String toString() { return Tensor.toStandardString(this); }
@@ -55,10 +82,26 @@ public class MappedTensor implements Tensor {
         return Tensor.equals(this, ((Tensor)other));
     }
 
+    /** Returns the position of the given address in the given addresses, or -1 if it is not present */
+    private static int positionOf(TensorAddress address, TensorAddress[] addresses, int[] index) {
+        int mask = index.length - 1;
+        for (int slot = spread(address.hashCode()) & mask; index[slot] != 0; slot = (slot + 1) & mask) {
+            int position = index[slot] - 1;
+            if (addresses[position].equals(address)) return position;
+        }
+        return -1;
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
     public static class Builder implements Tensor.Builder {
 
         private final TensorType type;
-        private final ImmutableMap.Builder<TensorAddress, Double> cells = new ImmutableMap.Builder<>();
+        private TensorAddress[] addresses = new TensorAddress[8];
+        private double[] values = new double[8];
+        private int size = 0;
 
         public static Builder of(TensorType type) { return new Builder(type); }
 
@@ -75,38 +118,53 @@ public class MappedTensor implements Tensor {
 
         @Override
         public Builder cell(TensorAddress address, double value) {
-            cells.put(address, value);
+            if (size == addresses.length) {
+                addresses = Arrays.copyOf(addresses, size * 2);
+                values = Arrays.copyOf(values, size * 2);
+            }
+            addresses[size] = address;
+            values[size] = value;
+            size++;
             return this;
         }
 
         @Override
         public Builder cell(double value, long... labels) {
-            cells.put(TensorAddress.of(labels), value);
-            return this;
+            return cell(TensorAddress.of(labels), value);
         }
 
         @Override
         public MappedTensor build() {
-            return new MappedTensor(type, cells.build());
+            TensorAddress[] builtAddresses = Arrays.copyOf(addresses, size);
+            int[] index = new int[Math.max(2, Integer.highestOneBit(Math.max(1, size)) << 2)]; // load factor <= 0.5
+            int mask = index.length - 1;
+            for (int position = 0; position < size; position++) {
+                TensorAddress address = builtAddresses[position];
+                int slot = spread(address.hashCode()) & mask;
+                for (; index[slot] != 0; slot = (slot + 1) & mask) {
+                    if (builtAddresses[index[slot] - 1].equals(address))
+                        throw new IllegalArgumentException("Multiple values for " + address.toString(type) + " in " + type);
+                }
+                index[slot] = position + 1;
+            }
+            return new MappedTensor(type, builtAddresses, Arrays.copyOf(values, size), index);
         }
 
     }
 
-    private static class CellIteratorAdaptor implements Iterator<Cell> {
-
-        private final Iterator<Map.Entry<TensorAddress, Double>> adaptedIterator;
+    private class CellIterator implements Iterator<Cell> {
 
-        private CellIteratorAdaptor(Iterator<Map.Entry<TensorAddress, Double>> adaptedIterator) {
-            this.adaptedIterator = adaptedIterator;
-        }
+        private int position = 0;
 
         @Override
-        public boolean hasNext() { return adaptedIterator.hasNext(); }
+        public boolean hasNext() { return position < addresses.length; }
 
         @Override
         public Cell next() {
-            Map.Entry<TensorAddress, Double> entry = adaptedIterator.next();
-            return new Cell(entry.getKey(), entry.getValue());
+            if ( ! hasNext()) throw new NoSuchElementException("No cell at position " + position);
+            Cell cell = new Cell(addresses[position], values[position]);
+            position++;
+            return cell;
         }
 
     }
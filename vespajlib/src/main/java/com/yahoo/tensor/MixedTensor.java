@@ -10,6 +10,7 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.PrimitiveIterator;
 import java.util.stream.Collectors;
 
 /**
@@ -57,7 +58,7 @@ public class MixedTensor implements Tensor {
         if (!address.equals(cell.getKey())) {
             throw new IllegalStateException("Unable to find correct cell by direct index.");
         }
-        return cell.getValue();
+        return cell.getDoubleValue();
     }
 
     /**
@@ -77,16 +78,16 @@ public class MixedTensor implements Tensor {
      * The iteration order is the same as for cellIterator.
      */
     @Override
-    public Iterator<Double> valueIterator() {
-        return new Iterator<Double>() {
+    public PrimitiveIterator.OfDouble valueIterator() {
+        return new PrimitiveIterator.OfDouble() {
             Iterator<Cell> cellIterator = cellIterator();
             @Override
             public boolean hasNext() {
                 return cellIterator.hasNext();
             }
             @Override
-            public Double next() {
-                return cellIterator.next().getValue();
+            public double nextDouble() {
+                return cellIterator.next().getDoubleValue();
             }
         };
     }
@@ -26,6 +26,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.PrimitiveIterator;
 import java.util.function.DoubleBinaryOperator;
 import java.util.function.DoubleUnaryOperator;
 import java.util.function.Function;
@@ -67,8 +68,8 @@ public interface Tensor {
     /** Returns the cell of this in some undefined order */
     Iterator<Cell> cellIterator();
 
-    /** Returns the values of this in some undefined order */
-    Iterator<Double> valueIterator();
+    /** Returns the values of this in some undefined order. Use nextDouble() to avoid boxing the values. */
+    PrimitiveIterator.OfDouble valueIterator();
 
     /**
      * Returns an immutable map of the cells of this in no particular order.
@@ -85,7 +86,7 @@ public interface Tensor {
         if (type().dimensions().size() > 0)
             throw new IllegalStateException("This tensor is not dimensionless. Dimensions: " + type().dimensions().size());
         if (size() == 0) return Double.NaN;
-        return valueIterator().next();
+        return valueIterator().nextDouble();
     }
 
     // ----------------- Primitive tensor functions
@@ -269,7 +270,7 @@ public interface Tensor {
         if ( a.size() != b.size()) return false;
         for (Iterator<Cell> aIterator = a.cellIterator(); aIterator.hasNext(); ) {
             Cell aCell = aIterator.next();
-            double aValue = aCell.getValue();
+            double aValue = aCell.getDoubleValue();
             double bValue = b.get(aCell.getKey());
             if (!approxEquals(aValue, bValue, 1e-6)) return false;
         }
@@ -324,9 +325,9 @@ public interface Tensor {
     class Cell implements Map.Entry<TensorAddress, Double> {
 
         private final TensorAddress address;
-        private final Double value;
+        private final double value;
 
-        Cell(TensorAddress address, Double value) {
+        Cell(TensorAddress address, double value) {
             this.address = address;
             this.value = value;
         }
@@ -341,8 +342,12 @@ public interface Tensor {
          */
         long getDirectIndex() { return -1; }
 
+        /** Returns the value of this as a boxed Double. Prefer {@link #getDoubleValue} where possible */
         @Override
-        public Double getValue() { return value; }
+        public Double getValue() { return getDoubleValue(); }
+
+        /** Returns the value of this without boxing it */
+        public double getDoubleValue() { return value; }
 
         @Override
         public Double setValue(Double value) {
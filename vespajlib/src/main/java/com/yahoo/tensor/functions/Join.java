@@ -22,6 +22,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.PrimitiveIterator;
 import java.util.Set;
 import java.util.function.DoubleBinaryOperator;
 
@@ -124,11 +125,11 @@ public class Join extends PrimitiveTensorFunction {
 
     private Tensor indexedVectorJoin(IndexedTensor a, IndexedTensor b, TensorType type) {
         long joinedRank = Math.min(a.dimensionSizes().size(0), b.dimensionSizes().size(0));
-        Iterator<Double> aIterator = a.valueIterator();
-        Iterator<Double> bIterator = b.valueIterator();
+        PrimitiveIterator.OfDouble aIterator = a.valueIterator();
+        PrimitiveIterator.OfDouble bIterator = b.valueIterator();
         IndexedTensor.Builder builder = IndexedTensor.Builder.of(type, new DimensionSizes.Builder(1).set(0, joinedRank).build());
         for (int i = 0; i < joinedRank; i++)
-            builder.cell(combinator.applyAsDouble(aIterator.next(), bIterator.next()), i);
+            builder.cell(combinator.applyAsDouble(aIterator.nextDouble(), bIterator.nextDouble()), i);
         return builder.build();
     }
 
@@ -136,10 +137,10 @@ public class Join extends PrimitiveTensorFunction {
     private Tensor singleSpaceJoin(Tensor a, Tensor b, TensorType joinedType) {
         Tensor.Builder builder = Tensor.Builder.of(joinedType);
         for (Iterator<Tensor.Cell> i = a.cellIterator(); i.hasNext(); ) {
-            Map.Entry<TensorAddress, Double> aCell = i.next();
+            Tensor.Cell aCell = i.next();
             double bCellValue = b.get(aCell.getKey());
             if (Double.isNaN(bCellValue)) continue; // no match
-            builder.cell(aCell.getKey(), combinator.applyAsDouble(aCell.getValue(), bCellValue));
+            builder.cell(aCell.getKey(), combinator.applyAsDouble(aCell.getDoubleValue(), bCellValue));
         }
         return builder.build();
     }
@@ -174,19 +175,19 @@ public class Join extends PrimitiveTensorFunction {
         return builder.build();
     }
 
-    private void joinSubspaces(Iterator<Double> subspace, long subspaceSize,
+    private void joinSubspaces(PrimitiveIterator.OfDouble subspace, long subspaceSize,
                                Iterator<Tensor.Cell> superspace, long superspaceSize,
                                boolean reversedArgumentOrder, IndexedTensor.Builder builder) {
         long joinedLength = Math.min(subspaceSize, superspaceSize);
         if (reversedArgumentOrder) {
             for (int i = 0; i < joinedLength; i++) {
                 Tensor.Cell supercell = superspace.next();
-                builder.cell(supercell, combinator.applyAsDouble(supercell.getValue(), subspace.next()));
+                builder.cell(supercell, combinator.applyAsDouble(supercell.getDoubleValue(), subspace.nextDouble()));
             }
         } else {
             for (int i = 0; i < joinedLength; i++) {
                 Tensor.Cell supercell = superspace.next();
-                builder.cell(supercell, combinator.applyAsDouble(subspace.next(), supercell.getValue()));
+                builder.cell(supercell, combinator.applyAsDouble(subspace.nextDouble(), supercell.getDoubleValue()));
             }
         }
     }
@@ -211,13 +212,13 @@ public class Join extends PrimitiveTensorFunction {
         int[] subspaceIndexes = subspaceIndexes(superspace.type(), subspace.type());
         Tensor.Builder builder = Tensor.Builder.of(joinedType);
         for (Iterator<Tensor.Cell> i = superspace.cellIterator(); i.hasNext(); ) {
-            Map.Entry<TensorAddress, Double> supercell = i.next();
+            Tensor.Cell supercell = i.next();
             TensorAddress subaddress = mapAddressToSubspace(supercell.getKey(), subspaceIndexes);
             double subspaceValue = subspace.get(subaddress);
             if ( ! Double.isNaN(subspaceValue))
                 builder.cell(supercell.getKey(),
-                             reversedArgumentOrder ? combinator.applyAsDouble(supercell.getValue(), subspaceValue)
-                                                   : combinator.applyAsDouble(subspaceValue, supercell.getValue()));
+                             reversedArgumentOrder ? combinator.applyAsDouble(supercell.getDoubleValue(), subspaceValue)
+                                                   : combinator.applyAsDouble(subspaceValue, supercell.getDoubleValue()));
         }
         return builder.build();
     }
@@ -274,8 +275,8 @@ public class Join extends PrimitiveTensorFunction {
                 for (IndexedTensor.SubspaceIterator bSubspace = b.cellIterator(matchingBCells, bIterateSize); bSubspace.hasNext(); ) {
                     Tensor.Cell bCell = bSubspace.next();
                     TensorAddress joinedAddress = joinAddresses(aCell.getKey(), aToIndexes, bCell.getKey(), bToIndexes, joinedType);
-                    double joinedValue = reversedOrder ? combinator.applyAsDouble(bCell.getValue(), aCell.getValue())
-                                                       : combinator.applyAsDouble(aCell.getValue(), bCell.getValue());
+                    double joinedValue = reversedOrder ? combinator.applyAsDouble(bCell.getDoubleValue(), aCell.getDoubleValue())
+                                                       : combinator.applyAsDouble(aCell.getDoubleValue(), bCell.getDoubleValue());
                     builder.cell(joinedAddress, joinedValue);
                 }
             }
@@ -306,13 +307,13 @@ public class Join extends PrimitiveTensorFunction {
         int[] bToIndexes = mapIndexes(b.type(), joinedType);
         Tensor.Builder builder = Tensor.Builder.of(joinedType);
         for (Iterator<Tensor.Cell> aIterator = a.cellIterator(); aIterator.hasNext(); ) {
-            Map.Entry<TensorAddress, Double> aCell = aIterator.next();
+            Tensor.Cell aCell = aIterator.next();
             for (Iterator<Tensor.Cell> bIterator = b.cellIterator(); bIterator.hasNext(); ) {
-                Map.Entry<TensorAddress, Double> bCell = bIterator.next();
+                Tensor.Cell bCell = bIterator.next();
                 TensorAddress combinedAddress = joinAddresses(aCell.getKey(), aToIndexes,
                                                               bCell.getKey(), bToIndexes, joinedType);
                 if (combinedAddress == null) continue; // not combinable
-                builder.cell(combinedAddress, combinator.applyAsDouble(aCell.getValue(), bCell.getValue()));
+                builder.cell(combinedAddress, combinator.applyAsDouble(aCell.getDoubleValue(), bCell.getDoubleValue()));
             }
         }
         return builder.build();
@@ -356,8 +357,8 @@ public class Join extends PrimitiveTensorFunction {
                         bCell.getKey(), bIndexesInJoined, joinedType);
                 if (combinedAddress == null) continue; // not combinable
                 double combinedValue = swapTensors ?
-                        combinator.applyAsDouble(bCell.getValue(), aCell.getValue()) :
-                        combinator.applyAsDouble(aCell.getValue(), bCell.getValue());
+                        combinator.applyAsDouble(bCell.getDoubleValue(), aCell.getDoubleValue()) :
+                        combinator.applyAsDouble(aCell.getDoubleValue(), bCell.getDoubleValue());
                 builder.cell(combinedAddress, combinedValue);
             }
         }
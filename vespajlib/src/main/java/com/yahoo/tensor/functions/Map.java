@@ -3,7 +3,6 @@ package com.yahoo.tensor.functions;
 
 import com.google.common.annotations.Beta;
 import com.yahoo.tensor.Tensor;
-import com.yahoo.tensor.TensorAddress;
 import com.yahoo.tensor.TensorType;
 import com.yahoo.tensor.evaluation.EvaluationContext;
 import com.yahoo.tensor.evaluation.TypeContext;
@@ -62,8 +61,8 @@ public class Map extends PrimitiveTensorFunction {
         Tensor argument = argument().evaluate(context);
         Tensor.Builder builder = Tensor.Builder.of(argument.type());
         for (Iterator<Tensor.Cell> i = argument.cellIterator(); i.hasNext(); ) {
-            java.util.Map.Entry<TensorAddress, Double> cell = i.next();
-            builder.cell(cell.getKey(), mapper.applyAsDouble(cell.getValue()));
+            Tensor.Cell cell = i.next();
+            builder.cell(cell.getKey(), mapper.applyAsDouble(cell.getDoubleValue()));
         }
         return builder.build();
     }
@@ -12,12 +12,11 @@ import com.yahoo.tensor.evaluation.TypeContext;
 
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.Set;
+import java.util.PrimitiveIterator;
 
 /**
  * The <i>reduce</i> tensor operation returns a tensor produced from the argument tensor where some dimensions
@@ -130,12 +129,13 @@ public class Reduce extends PrimitiveTensorFunction {
         TensorType reducedType = type(argument.type());
 
         // Reduce cells
+        int[] indexesToKeep = indexesToKeep(argument.type(), reducedType);
         Map<TensorAddress, ValueAggregator> aggregatingCells = new HashMap<>();
         for (Iterator<Tensor.Cell> i = argument.cellIterator(); i.hasNext(); ) {
-            Map.Entry<TensorAddress, Double> cell = i.next();
-            TensorAddress reducedAddress = reduceDimensions(cell.getKey(), argument.type(), reducedType);
-            aggregatingCells.putIfAbsent(reducedAddress, ValueAggregator.ofType(aggregator));
-            aggregatingCells.get(reducedAddress).aggregate(cell.getValue());
+            Tensor.Cell cell = i.next();
+            TensorAddress reducedAddress = reduceDimensions(cell.getKey(), indexesToKeep);
+            aggregatingCells.computeIfAbsent(reducedAddress, address -> ValueAggregator.ofType(aggregator))
+                            .aggregate(cell.getDoubleValue());
         }
         Tensor.Builder reducedBuilder = Tensor.Builder.of(reducedType);
         for (Map.Entry<TensorAddress, ValueAggregator> aggregatingCell : aggregatingCells.entrySet())
@@ -144,23 +144,27 @@ public class Reduce extends PrimitiveTensorFunction {
         return reducedBuilder.build();
     }
 
-    private TensorAddress reduceDimensions(TensorAddress address, TensorType argumentType, TensorType reducedType) {
-        Set<Integer> indexesToRemove = new HashSet<>();
-        for (String dimensionToRemove : this.dimensions)
-            indexesToRemove.add(argumentType.indexOfDimension(dimensionToRemove).get());
+    /** Returns the indexes of the argument dimensions which are retained in the reduced type, in order */
+    private int[] indexesToKeep(TensorType argumentType, TensorType reducedType) {
+        int[] indexesToKeep = new int[reducedType.dimensions().size()];
+        int keptIndex = 0;
+        for (int i = 0; i < argumentType.dimensions().size(); i++)
+            if ( ! this.dimensions.contains(argumentType.dimensions().get(i).name()))
+                indexesToKeep[keptIndex++] = i;
+        return indexesToKeep;
+    }
 
-        String[] reducedLabels = new String[reducedType.dimensions().size()];
-        int reducedLabelIndex = 0;
-        for (int i = 0; i < address.size(); i++)
-            if ( ! indexesToRemove.contains(i))
-                reducedLabels[reducedLabelIndex++] = address.label(i);
+    private TensorAddress reduceDimensions(TensorAddress address, int[] indexesToKeep) {
+        String[] reducedLabels = new String[indexesToKeep.length];
+        for (int i = 0; i < indexesToKeep.length; i++)
+            reducedLabels[i] = address.label(indexesToKeep[i]);
         return TensorAddress.of(reducedLabels);
     }
 
     private Tensor reduceAllGeneral(Tensor argument) {
         ValueAggregator valueAggregator = ValueAggregator.ofType(aggregator);
-        for (Iterator<Double> i = argument.valueIterator(); i.hasNext(); )
-            valueAggregator.aggregate(i.next());
+        for (PrimitiveIterator.OfDouble i = argument.valueIterator(); i.hasNext(); )
+            valueAggregator.aggregate(i.nextDouble());
         return Tensor.Builder.of(TensorType.empty).cell((valueAggregator.aggregatedValue())).build();
     }
 
@@ -8,8 +8,8 @@ import com.yahoo.tensor.IndexedTensor;
 import com.yahoo.tensor.Tensor;
 import com.yahoo.tensor.TensorType;
 
-import java.util.Iterator;
 import java.util.Optional;
+import java.util.PrimitiveIterator;
 
 /**
  * Implementation of a dense binary format for a tensor on the form:
@@ -41,9 +41,9 @@ public class DenseBinaryFormat implements BinaryFormat {
     }
 
     private void encodeCells(GrowableByteBuffer buffer, Tensor tensor) {
-        Iterator<Double> i = tensor.valueIterator();
+        PrimitiveIterator.OfDouble i = tensor.valueIterator();
         while (i.hasNext())
-            buffer.putDouble(i.next());
+            buffer.putDouble(i.nextDouble());
     }
 
     @Override
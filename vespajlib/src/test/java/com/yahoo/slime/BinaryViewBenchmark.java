@@ -0,0 +1,67 @@
+// Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.slime;
+
+/**
+ * Compares reading a single field of each element of an array of objects, as when filling hits
+ * from docsums, through {@link BinaryFormat#decode} and through {@link BinaryView}.
+ *
+ * @author agent
+ */
+public class BinaryViewBenchmark {
+
+    private static byte[] createBinary(int numElements) {
+        Slime slime = new Slime();
+        Cursor array = slime.setObject().setArray("docsums");
+        for (int i = 0; i < numElements; i++) {
+            Cursor docsum = array.addObject().setObject("docsum");
+            docsum.setLong("weight", i);
+            docsum.setString("title", "title of document " + i);
+            docsum.setString("body", "a much longer body text for document " + i + " which is not looked at");
+            docsum.setData("blob", new byte[256]);
+            Cursor tags = docsum.setArray("tags");
+            for (int j = 0; j < 10; j++)
+                tags.addString("tag" + j);
+        }
+        return BinaryFormat.encode(slime);
+    }
+
+    private static long benchmarkDecode(byte[] data, int numIterations) {
+        long count = 0;
+        for (int i = 0; i < numIterations; i++) {
+            Inspector docsums = BinaryFormat.decode(data).get().field("docsums");
+            for (int j = 0, m = docsums.entries(); j < m; j++)
+                count += docsums.entry(j).field("docsum").field("weight").asLong();
+        }
+        return count;
+    }
+
+    private static long benchmarkView(byte[] data, int numIterations) {
+        long count = 0;
+        for (int i = 0; i < numIterations; i++) {
+            Inspector docsums = BinaryView.inspect(data).field("docsums");
+            for (int j = 0, m = docsums.entries(); j < m; j++)
+                count += docsums.entry(j).field("docsum").field("weight").asLong();
+        }
+        return count;
+    }
+
+    private static long run(String type, byte[] data, int numIterations) {
+        return "view".equals(type) ? benchmarkView(data, numIterations) : benchmarkDecode(data, numIterations);
+    }
+
+    /**
+     * @param argv type (decode or view), num elements, num iterations
+     */
+    static public void main(String argv[]) {
+        String type = argv[0];
+        byte[] data = createBinary(Integer.valueOf(argv[1]));
+        int count = Integer.valueOf(argv[2]);
+        System.out.println(System.currentTimeMillis() + " Warming up");
+        run(type, data, count / 10 + 1);
+        System.out.println(System.currentTimeMillis() + " Start");
+        long start = System.currentTimeMillis();
+        long sum = run(type, data, count);
+        System.out.println(System.currentTimeMillis() + " End with sum " + sum + " in " + (System.currentTimeMillis() - start) + " milliseconds.");
+    }
+
+}
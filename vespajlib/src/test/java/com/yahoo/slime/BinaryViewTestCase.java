@@ -0,0 +1,133 @@
+// Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.slime;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author agent
+ */
+public class BinaryViewTestCase {
+
+    private static Slime createSlime() {
+        Slime slime = new Slime();
+        Cursor root = slime.setObject();
+        root.setNix("nix");
+        root.setBool("bool", true);
+        root.setLong("long", -123456789012L);
+        root.setDouble("double", 3.5);
+        root.setString("string", "blåbær");
+        root.setData("data", new byte[] { 1, 2, 3 });
+        Cursor array = root.setArray("array");
+        for (int i = 0; i < 40; i++)
+            array.addLong(i);
+        Cursor nested = array.addObject();
+        nested.setString("string", "nested");
+        nested.setArray("empty");
+        return slime;
+    }
+
+    @Test
+    public void requireThatViewInspectsTheSameValuesAsDecodedSlime() {
+        byte[] data = BinaryFormat.encode(createSlime());
+        Inspector view = BinaryView.inspect(data);
+        Inspector decoded = BinaryFormat.decode(data).get();
+
+        assertEquals(decoded.toString(), view.toString());
+        assertEquals(Type.OBJECT, view.type());
+        assertEquals(decoded.fields(), view.fields());
+        assertEquals(decoded.children(), view.children());
+        assertEquals(Type.NIX, view.field("nix").type());
+        assertTrue(view.field("nix").valid());
+        assertTrue(view.field("bool").asBool());
+        assertEquals(-123456789012L, view.field("long").asLong());
+        assertEquals(-123456789012.0, view.field("long").asDouble(), 0);
+        assertEquals(3.5, view.field("double").asDouble(), 0);
+        assertEquals(3, view.field("double").asLong());
+        assertEquals("blåbær", view.field("string").asString());
+        assertArrayEquals(decoded.field("string").asUtf8(), view.field("string").asUtf8());
+        assertArrayEquals(new byte[] { 1, 2, 3 }, view.field("data").asData());
+        assertEquals(41, view.field("array").entries());
+        assertEquals(17, view.field("array").entry(17).asLong());
+        assertEquals("nested", view.field("array").entry(40).field("string").asString());
+        assertEquals(0, view.field("array").entry(40).field("empty").entries());
+    }
+
+    @Test
+    public void requireThatMissingValuesAreInvalid() {
+        Inspector view = BinaryView.inspect(BinaryFormat.encode(createSlime()));
+        assertFalse(view.field("unknown").valid());
+        assertFalse(view.field("array").entry(41).valid());
+        assertFalse(view.field("array").entry(-1).valid());
+        assertFalse(view.field("long").field("string").valid());
+        assertFalse(view.entry(0).valid());
+        assertEquals("", view.field("long").asString());
+        assertEquals(0, view.field("string").asLong());
+    }
+
+    @Test
+    public void requireThatTraversalsVisitAllChildren() {
+        byte[] data = BinaryFormat.encode(createSlime());
+        Inspector view = BinaryView.inspect(data);
+        Inspector decoded = BinaryFormat.decode(data).get();
+
+        List<String> viewFields = new ArrayList<>();
+        view.traverse((ObjectTraverser)(name, inspector) -> viewFields.add(name + "=" + inspector));
+        List<String> decodedFields = new ArrayList<>();
+        decoded.traverse((ObjectTraverser)(name, inspector) -> decodedFields.add(name + "=" + inspector));
+        assertEquals(decodedFields, viewFields);
+
+        List<Long> entries = new ArrayList<>();
+        view.field("array").traverse((ArrayTraverser)(index, inspector) -> entries.add(inspector.asLong()));
+        assertEquals(41, entries.size());
+        assertEquals(Long.valueOf(39), entries.get(39));
+    }
+
+    @Test
+    public void requireThatSubTreesCanBeWrittenAsSlime() throws IOException {
+        Inspector view = BinaryView.inspect(BinaryFormat.encode(createSlime()));
+        Inspector nested = view.field("array").entry(40);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ((BinaryView)nested).writeTo(out);
+        Slime written = BinaryFormat.decode(out.toByteArray());
+        assertEquals(nested.toString(), written.get().toString());
+
+        ByteBuffer value = ((BinaryView)view.field("string")).valueBuffer();
+        assertTrue(value.isReadOnly());
+        byte[] bytes = new byte[value.remaining()];
+        value.get(bytes);
+        Slime string = new Slime();
+        string.setString("blåbær");
+        byte[] encoded = BinaryFormat.encode(string);
+        assertArrayEquals(Arrays.copyOfRange(encoded, 1, encoded.length), bytes); // skip the empty symbol table
+    }
+
+    @Test
+    public void requireThatInvalidDataGivesPartialResultLikeDecoding() {
+        byte[] data = BinaryFormat.encode(createSlime());
+        byte[] truncated = Arrays.copyOf(data, data.length - 5);
+        assertEquals(BinaryFormat.decode(truncated).get().toString(), BinaryView.inspect(truncated).toString());
+        assertTrue(BinaryView.inspect(truncated).field("partial_result").valid());
+    }
+
+    @Test
+    public void requireThatDataCanBeInspectedAtAnOffset() {
+        byte[] data = BinaryFormat.encode(createSlime());
+        byte[] padded = new byte[data.length + 10];
+        System.arraycopy(data, 0, padded, 7, data.length);
+        assertEquals(BinaryFormat.decode(data).get().toString(), BinaryView.inspect(padded, 7, data.length).toString());
+    }
+
+}
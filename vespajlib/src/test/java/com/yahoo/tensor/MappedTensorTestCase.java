@@ -5,6 +5,7 @@ import com.google.common.collect.Sets;
 import junit.framework.TestCase;
 import org.junit.Test;
 
+import java.util.PrimitiveIterator;
 import java.util.Set;
 
 import static org.junit.Assert.assertEquals;
@@ -52,4 +53,36 @@ public class MappedTensorTestCase {
         assertEquals("{{x:0,y:0}:1.0,{x:1,y:0}:2.0}", tensor.toString());
     }
 
+    @Test
+    public void testLookupAndIteration() {
+        TensorType type = new TensorType.Builder().mapped("x").build();
+        MappedTensor.Builder builder = MappedTensor.Builder.of(type);
+        for (int i = 0; i < 1000; i++)
+            builder.cell(TensorAddress.of(new String[] { "label" + i }), i);
+        Tensor tensor = builder.build();
+
+        assertEquals(1000, tensor.size());
+        for (int i = 0; i < 1000; i++)
+            assertEquals(i, tensor.get(TensorAddress.of(new String[] { "label" + i })), 0.0);
+        assertTrue(Double.isNaN(tensor.get(TensorAddress.of(new String[] { "label1000" }))));
+
+        double sum = 0;
+        for (PrimitiveIterator.OfDouble i = tensor.valueIterator(); i.hasNext(); )
+            sum += i.nextDouble();
+        assertEquals(999 * 1000 / 2, sum, 0.0);
+        assertEquals(tensor.cells().hashCode(), tensor.hashCode());
+    }
+
+    @Test
+    public void testMultipleValuesForSameAddress() {
+        TensorType type = new TensorType.Builder().mapped("x").build();
+        try {
+            Tensor.Builder.of(type).cell().label("x", "0").value(1).cell().label("x", "0").value(2).build();
+            fail("Expected exception");
+        }
+        catch (IllegalArgumentException expected) {
+            assertEquals("Multiple values for {x:0} in tensor(x{})", expected.getMessage());
+        }
+    }
+
 }
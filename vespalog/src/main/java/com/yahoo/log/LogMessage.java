@@ -1,10 +1,9 @@
 // Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.log;
 
+import java.nio.charset.StandardCharsets;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import com.yahoo.log.event.Event;
 import com.yahoo.log.event.MalformedEventException;
@@ -21,15 +20,12 @@ public class LogMessage
 {
     private static Logger log = Logger.getLogger(LogMessage.class.getName());
 
-    private static Pattern nativeFormat =
-        Pattern.compile("^(\\d[^\t]+)\t" + // time
-                        "([^\t]+)\t"  + // host
-                        "([^\t]+)\t"  + // threadProcess
-                        "([^\t]+)\t"  + // service
-                        "([^\t]+)\t"  + // component
-                        "([^\t]+)\t"  + // level
-                        "(.+)$"         // payload
-                        );
+    /**
+     * The native format is these tab separated fields, none of which are empty:
+     * time (starting with a digit), host, threadProcess, service, component, level and payload.
+     * Only the payload may contain tabs, and it may not contain line terminators.
+     */
+    private static final int fieldsBeforePayload = 6;
 
     private long     time;
     private String   timeStr;
@@ -79,17 +75,80 @@ public class LogMessage
      *    exception.
      */
     public static LogMessage parseNativeFormat(String msg) throws InvalidLogFormatException {
-        Matcher m = nativeFormat.matcher(msg);
-        if (! m.matches()) {
-            throw new InvalidLogFormatException(msg);
+        String[] fields = new String[fieldsBeforePayload];
+        int start = 0;
+        for (int i = 0; i < fieldsBeforePayload; i++) {
+            int tab = msg.indexOf('\t', start);
+            if (tab <= start) throw new InvalidLogFormatException(msg); // missing or empty field
+            fields[i] = msg.substring(start, tab);
+            start = tab + 1;
+        }
+        if (start == msg.length()) throw new InvalidLogFormatException(msg);
+        for (int i = start; i < msg.length(); i++) {
+            if (isLineTerminator(msg.charAt(i))) throw new InvalidLogFormatException(msg);
         }
+        return create(fields, msg.substring(start), msg);
+    }
 
-        Level msgLevel = LogLevel.parse(m.group(6));
-        Long timestamp = parseTimestamp(m.group(1));
+    /**
+     * Make a log message from the native format of the logging
+     * package, given as ISO-8859-1 encoded bytes. This splits the
+     * fields directly from the bytes, without decoding the whole
+     * message to a string first, and is otherwise equivalent to
+     * {@link #parseNativeFormat(String)} of the decoded message.
+     *
+     * @param buffer the buffer holding the log message
+     * @param offset the index of the first byte of the log message
+     * @param length the number of bytes in the log message, excluding any line terminator
+     * @return Returns a LogMessage instance
+     * @throws InvalidLogFormatException if the log message
+     *    can not be parsed, ie. is invalid, we throw this
+     *    exception.
+     */
+    public static LogMessage parseNativeFormat(byte[] buffer, int offset, int length) throws InvalidLogFormatException {
+        int end = offset + length;
+        String[] fields = new String[fieldsBeforePayload];
+        int start = offset;
+        for (int i = 0; i < fieldsBeforePayload; i++) {
+            int tab = start;
+            while (tab < end && buffer[tab] != '\t')
+                tab++;
+            if (tab == end || tab == start) throw invalid(buffer, offset, length);
+            fields[i] = new String(buffer, start, tab - start, StandardCharsets.ISO_8859_1);
+            start = tab + 1;
+        }
+        if (start == end) throw invalid(buffer, offset, length);
+        for (int i = start; i < end; i++) {
+            if (isLineTerminator((char)(buffer[i] & 0xff))) throw invalid(buffer, offset, length);
+        }
+        String payload = new String(buffer, start, end - start, StandardCharsets.ISO_8859_1);
+        return create(fields, payload, null);
+    }
+
+    private static LogMessage create(String[] fields, String payload, String msg) throws InvalidLogFormatException {
+        String timeStr = fields[0];
+        if (timeStr.length() < 2 || timeStr.charAt(0) < '0' || timeStr.charAt(0) > '9')
+            throw new InvalidLogFormatException(msg != null ? msg : toNativeFormat(fields, payload));
+
+        Level msgLevel = LogLevel.parse(fields[5]);
+        Long timestamp = parseTimestamp(timeStr);
+
+        return new LogMessage(timeStr, timestamp, fields[1], fields[2],
+                              fields[3], fields[4], msgLevel,
+                              payload);
+    }
+
+    /** Returns whether the given character terminates a line, as the '.' of a regular expression does not match these */
+    private static boolean isLineTerminator(char c) {
+        return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+    }
+
+    private static InvalidLogFormatException invalid(byte[] buffer, int offset, int length) {
+        return new InvalidLogFormatException(new String(buffer, offset, length, StandardCharsets.ISO_8859_1));
+    }
 
-        return new LogMessage(m.group(1), timestamp, m.group(2), m.group(3),
-                              m.group(4), m.group(5), msgLevel,
-                              m.group(7));
+    private static String toNativeFormat(String[] fields, String payload) {
+        return String.join("\t", fields) + "\t" + payload;
     }
 
     private static long parseTimestamp(String timeStr) throws InvalidLogFormatException {